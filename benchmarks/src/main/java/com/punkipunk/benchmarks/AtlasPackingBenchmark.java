@@ -0,0 +1,53 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.SkylinePacker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Empaquetado de sprites de tamaños aleatorios en paginas de 2048x2048 con el {@link SkylinePacker}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtlasPackingBenchmark {
+
+    private static final int PAGE_SIZE = 2048;
+
+    @Param({"1000", "5000"})
+    public int sprites;
+
+    private int[] widths, heights;
+    private SkylinePacker packer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        int[][] sizes = new int[sprites][];
+        for (int i = 0; i < sprites; i++) sizes[i] = new int[]{8 + random.nextInt(56), 8 + random.nextInt(56)};
+        // Mismo orden que usa TextureAtlas.pack()
+        Arrays.sort(sizes, (a, b) -> b[1] - a[1]);
+        widths = new int[sprites];
+        heights = new int[sprites];
+        for (int i = 0; i < sprites; i++) {
+            widths[i] = sizes[i][0];
+            heights[i] = sizes[i][1];
+        }
+        packer = new SkylinePacker(PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public float skyline() {
+        packer.reset();
+        for (int i = 0; i < sprites; i++) packer.insert(widths[i], heights[i]);
+        return packer.getOccupancy();
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.jade.ComponentStorage;
+import com.punkipunk.jade.MovementSystem;
+import com.punkipunk.jade.World;
+import com.punkipunk.util.JobSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.punkipunk.jade.Components.*;
+
+/**
+ * Integracion de la velocidad en la posicion de todas las entidades, comparando el ECS (columnas primitivas contiguas) con un
+ * objeto por entidad. La variante {@code shuffled} recorre los objetos en un orden distinto al de creacion, como ocurre despues
+ * de que el juego crea y destruye entidades durante un rato, y refleja el costo de los fallos de cache. {@code ecsParallel}
+ * reparte la integracion entre los nucleos con el {@link JobSystem}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class EcsIterationBenchmark {
+
+    @Param({"50000", "200000"})
+    public int entities;
+
+    private World world;
+    private MovementSystem movementSystem;
+    private MovementSystem parallelMovementSystem;
+    private JobSystem jobs;
+    private List<GameObject> objects;
+    private List<GameObject> shuffledObjects;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        world = new World();
+        movementSystem = new MovementSystem();
+        jobs = new JobSystem(Runtime.getRuntime().availableProcessors());
+        parallelMovementSystem = new MovementSystem(jobs);
+        objects = new ArrayList<>(entities);
+        for (int i = 0; i < entities; i++) {
+            float vx = random.nextFloat(), vy = random.nextFloat();
+
+            int entity = world.create();
+            world.add(entity, TRANSFORM);
+            int v = world.add(entity, VELOCITY);
+            ComponentStorage velocities = world.storage(VELOCITY);
+            velocities.floatColumn(VX)[v] = vx;
+            velocities.floatColumn(VY)[v] = vy;
+
+            GameObject object = new GameObject();
+            object.transform = new Transform();
+            object.velocity = new Velocity();
+            object.velocity.x = vx;
+            object.velocity.y = vy;
+            objects.add(object);
+        }
+        shuffledObjects = new ArrayList<>(objects);
+        Collections.shuffle(shuffledObjects, random);
+    }
+
+    @Benchmark
+    public World ecs() {
+        movementSystem.update(world, 0.016);
+        return world;
+    }
+
+    @TearDown
+    public void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Benchmark
+    public World ecsParallel() {
+        parallelMovementSystem.update(world, 0.016);
+        return world;
+    }
+
+    @Benchmark
+    public List<GameObject> objects() {
+        move(objects);
+        return objects;
+    }
+
+    @Benchmark
+    public List<GameObject> shuffledObjects() {
+        move(shuffledObjects);
+        return shuffledObjects;
+    }
+
+    private static void move(List<GameObject> objects) {
+        float dt = 0.016f;
+        for (GameObject object : objects) {
+            object.transform.x += object.velocity.x * dt;
+            object.transform.y += object.velocity.y * dt;
+        }
+    }
+
+    /**
+     * Linea base: cada entidad es un objeto con referencias a sus componentes, como en un motor orientado a objetos.
+     */
+    public static class GameObject {
+        Transform transform;
+        Velocity velocity;
+    }
+
+    public static class Transform {
+        float x, y, width, height;
+    }
+
+    public static class Velocity {
+        float x, y;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.jade.Input;
+import com.punkipunk.jade.InputSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+/**
+ * Un frame de entrada con el diseño anterior (estado mutable compartido, como tenian {@link com.punkipunk.jade.KeyListener} y
+ * {@link com.punkipunk.jade.MouseListener}) comparado con la cola de eventos y la instantanea por frame de {@link Input}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputBenchmark {
+
+    // Eventos de movimiento por frame de un mouse de 1000 Hz a 60 FPS
+    private static final int MOUSE_EVENTS_PER_FRAME = 16;
+
+    private final LegacyInput legacy = new LegacyInput();
+    private double position;
+
+    @Benchmark
+    public boolean legacyKeyPressRelease() {
+        legacy.keyCallback(GLFW_KEY_W, GLFW_PRESS);
+        boolean pressed = legacy.keyPressed[GLFW_KEY_W];
+        legacy.keyCallback(GLFW_KEY_W, GLFW_RELEASE);
+        return pressed;
+    }
+
+    @Benchmark
+    public boolean snapshotKeyPressRelease() {
+        Input.keyCallback(0, GLFW_KEY_W, 0, GLFW_PRESS, 0);
+        Input.keyCallback(0, GLFW_KEY_W, 0, GLFW_RELEASE, 0);
+        // A diferencia del diseño anterior, la pulsacion no se pierde aunque la tecla se suelte dentro del mismo frame
+        return Input.get().snapshot().isKeyPressed(GLFW_KEY_W);
+    }
+
+    @Benchmark
+    public float legacyMouseFrame() {
+        for (int i = 0; i < MOUSE_EVENTS_PER_FRAME; i++) {
+            position += 0.5;
+            legacy.mousePosCallback(position, position);
+        }
+        float result = (float) (legacy.xPos + legacy.yPos + (legacy.lastX - legacy.xPos) + (legacy.lastY - legacy.yPos));
+        legacy.endFrame();
+        return result;
+    }
+
+    @Benchmark
+    public double snapshotMouseFrame() {
+        for (int i = 0; i < MOUSE_EVENTS_PER_FRAME; i++) {
+            position += 0.5;
+            Input.mousePosCallback(0, position, position);
+        }
+        InputSnapshot snapshot = Input.get().snapshot();
+        return snapshot.getMouseX() + snapshot.getMouseY() + snapshot.getDx() + snapshot.getDy();
+    }
+
+    /**
+     * Copia del diseño anterior de los listeners, conservada solo como referencia para la comparacion.
+     */
+    private static class LegacyInput {
+
+        final boolean[] keyPressed = new boolean[350];
+        final boolean[] mouseButtonPressed = new boolean[3];
+        double xPos, yPos, lastX, lastY;
+        boolean isDragging;
+
+        void keyCallback(int key, int action) {
+            if (action == GLFW_PRESS) keyPressed[key] = true;
+            else if (action == GLFW_RELEASE) keyPressed[key] = false;
+        }
+
+        void mousePosCallback(double xpos, double ypos) {
+            lastX = xPos;
+            lastY = yPos;
+            xPos = xpos;
+            yPos = ypos;
+            isDragging = mouseButtonPressed[0] || mouseButtonPressed[1] || mouseButtonPressed[2];
+        }
+
+        void endFrame() {
+            lastX = xPos;
+            lastY = yPos;
+        }
+
+    }
+
+}
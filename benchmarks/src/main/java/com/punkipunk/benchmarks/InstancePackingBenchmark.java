@@ -0,0 +1,130 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.InstanceBuffer;
+import com.punkipunk.renderer.RenderBatch;
+import com.punkipunk.util.JobSystem;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de CPU de empaquetar un frame de sprites en movimiento para el {@link com.punkipunk.renderer.InstancedRenderer}:
+ * escribiendo en el {@link InstanceBuffer} (40 bytes por sprite) en un hilo y repartido con el {@link JobSystem}, comparado con
+ * el mismo formato escrito con los metodos absolutos de un {@link ByteBuffer} y con los cuatro vertices por sprite (160 bytes)
+ * que necesita un {@link RenderBatch}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class InstancePackingBenchmark {
+
+    private static final int GRAIN = 16384;
+    private static final float[] CORNER_X = {1, 0, 1, 0};
+    private static final float[] CORNER_Y = {0, 1, 1, 0};
+
+    @Param({"100000", "1000000"})
+    public int sprites;
+
+    private float[] x, y, r, g, b;
+    private InstanceBuffer instances;
+    private ByteBuffer bytes;
+    private FloatBuffer vertices;
+    private JobSystem jobs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        x = new float[sprites];
+        y = new float[sprites];
+        r = new float[sprites];
+        g = new float[sprites];
+        b = new float[sprites];
+        for (int i = 0; i < sprites; i++) {
+            x[i] = random.nextFloat() * 800;
+            y[i] = random.nextFloat() * 600;
+            r[i] = random.nextFloat();
+            g[i] = random.nextFloat();
+            b[i] = random.nextFloat();
+        }
+        instances = new InstanceBuffer(sprites);
+        bytes = MemoryUtil.memAlloc(sprites * InstanceBuffer.INSTANCE_SIZE).order(ByteOrder.nativeOrder());
+        vertices = MemoryUtil.memAllocFloat(sprites * RenderBatch.QUAD_SIZE);
+        jobs = new JobSystem(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        instances.dispose();
+        MemoryUtil.memFree(bytes);
+        MemoryUtil.memFree(vertices);
+        jobs.shutdown();
+    }
+
+    @Benchmark
+    public InstanceBuffer instanceBuffer() {
+        instances.resize(sprites);
+        pack(0, sprites);
+        return instances;
+    }
+
+    @Benchmark
+    public InstanceBuffer instanceBufferParallel() {
+        instances.resize(sprites);
+        jobs.parallelFor(sprites, GRAIN, this::pack);
+        return instances;
+    }
+
+    @Benchmark
+    public ByteBuffer byteBuffer() {
+        for (int i = 0; i < sprites; i++) {
+            int offset = i * InstanceBuffer.INSTANCE_SIZE;
+            bytes.putFloat(offset, x[i]);
+            bytes.putFloat(offset + 4, y[i]);
+            bytes.putFloat(offset + 8, 3);
+            bytes.putFloat(offset + 12, 3);
+            bytes.putFloat(offset + 16, 0);
+            bytes.putFloat(offset + 20, 0);
+            bytes.putFloat(offset + 24, 0);
+            bytes.putFloat(offset + 28, 1);
+            bytes.putFloat(offset + 32, 1);
+            bytes.putInt(offset + 36, InstanceBuffer.color(r[i], g[i], b[i], 1));
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public FloatBuffer perVertex() {
+        for (int i = 0; i < sprites; i++) {
+            int offset = i * RenderBatch.QUAD_SIZE;
+            for (int v = 0; v < RenderBatch.VERTICES_PER_QUAD; v++) {
+                vertices.put(offset, x[i] + CORNER_X[v] * 3);
+                vertices.put(offset + 1, y[i] + CORNER_Y[v] * 3);
+                vertices.put(offset + 2, 0);
+                vertices.put(offset + 3, r[i]);
+                vertices.put(offset + 4, g[i]);
+                vertices.put(offset + 5, b[i]);
+                vertices.put(offset + 6, 1);
+                vertices.put(offset + 7, CORNER_X[v]);
+                vertices.put(offset + 8, 1 - CORNER_Y[v]);
+                vertices.put(offset + 9, 0);
+                offset += RenderBatch.VERTEX_SIZE;
+            }
+        }
+        return vertices;
+    }
+
+    private void pack(int start, int end) {
+        for (int i = start; i < end; i++)
+            instances.set(i, x[i], y[i], 3, 3, 0, InstanceBuffer.color(r[i], g[i], b[i], 1), 0, 0, 1, 1);
+    }
+
+}
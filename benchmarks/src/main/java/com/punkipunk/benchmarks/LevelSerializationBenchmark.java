@@ -0,0 +1,99 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.jade.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.punkipunk.jade.Components.*;
+
+/**
+ * Carga de un nivel con transformaciones, velocidades y colores desde el formato binario (sin comprimir y con LZ4) y desde su
+ * exportacion JSON. Los archivos se escriben una vez en un directorio temporal y quedan en la cache de paginas del sistema
+ * operativo, por lo que se mide el costo de CPU de la carga; el tamaño de cada archivo se imprime al preparar el benchmark.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LevelSerializationBenchmark {
+
+    private static final ComponentType[] TYPES = {TRANSFORM, VELOCITY, COLOR};
+
+    @Param({"100000"})
+    public int entities;
+
+    private Path directory, raw, compressed, json;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        World world = new World();
+        for (int i = 0; i < entities; i++) {
+            int entity = world.create();
+            int t = world.add(entity, TRANSFORM);
+            ComponentStorage transforms = world.storage(TRANSFORM);
+            // Posiciones en una grilla, como en un nivel hecho a mano
+            transforms.floatColumn(X)[t] = (i % 1000) * 16;
+            transforms.floatColumn(Y)[t] = (i / 1000) * 16;
+            transforms.floatColumn(WIDTH)[t] = 16;
+            transforms.floatColumn(HEIGHT)[t] = 16;
+            int v = world.add(entity, VELOCITY);
+            world.storage(VELOCITY).floatColumn(VX)[v] = random.nextFloat();
+            world.storage(VELOCITY).floatColumn(VY)[v] = random.nextFloat();
+            int c = world.add(entity, COLOR);
+            for (int f = 0; f < 4; f++) world.storage(COLOR).floatColumn(R + f)[c] = random.nextInt(4) / 3f;
+        }
+
+        directory = Files.createTempDirectory("levels");
+        raw = directory.resolve("raw.jlvl");
+        compressed = directory.resolve("compressed.jlvl");
+        json = directory.resolve("level.json");
+        new LevelWriter(false).write(world, raw, TYPES);
+        new LevelWriter(true).write(world, compressed, TYPES);
+        LevelJson.write(world, json, TYPES);
+        System.out.printf("%nraw %d bytes, compressed %d bytes, json %d bytes%n", Files.size(raw), Files.size(compressed),
+                Files.size(json));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(raw);
+        Files.deleteIfExists(compressed);
+        Files.deleteIfExists(json);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public World binary() throws IOException {
+        return load(raw);
+    }
+
+    @Benchmark
+    public World binaryCompressed() throws IOException {
+        return load(compressed);
+    }
+
+    @Benchmark
+    public World json() throws IOException {
+        World world = new World();
+        LevelJson.read(world, json, TYPES);
+        return world;
+    }
+
+    private static World load(Path path) throws IOException {
+        World world = new World();
+        try (LevelReader reader = LevelReader.open(path, TYPES)) {
+            reader.readAll(world);
+        }
+        return world;
+    }
+
+}
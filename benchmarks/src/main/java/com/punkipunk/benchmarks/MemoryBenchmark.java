@@ -0,0 +1,66 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.util.BufferPool;
+import com.punkipunk.util.MemoryArena;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de obtener y soltar un buffer temporal de {@code floats} floats: con {@code BufferUtils} (un buffer directo que libera
+ * el GC), con {@link MemoryUtil} directamente, con el {@link BufferPool} y con la {@link MemoryArena} del hilo. Correrlo con
+ * {@code -prof gc} muestra ademas la basura que genera cada uno.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+
+    @Param({"16", "4096", "65536"})
+    public int floats;
+
+    @Benchmark
+    public float bufferUtils() {
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(floats);
+        buffer.put(0, 1);
+        return buffer.get(0);
+    }
+
+    @Benchmark
+    public float memAlloc() {
+        FloatBuffer buffer = MemoryUtil.memAllocFloat(floats);
+        buffer.put(0, 1);
+        float value = buffer.get(0);
+        MemoryUtil.memFree(buffer);
+        return value;
+    }
+
+    @Benchmark
+    public float pool() {
+        BufferPool pool = BufferPool.get();
+        FloatBuffer buffer = pool.allocateFloats(floats);
+        buffer.put(0, 1);
+        float value = buffer.get(0);
+        pool.free(buffer);
+        return value;
+    }
+
+    @Benchmark
+    public float arena() {
+        MemoryArena arena = MemoryArena.get();
+        long mark = arena.mark();
+        FloatBuffer buffer = arena.floats(floats);
+        buffer.put(0, 1);
+        float value = buffer.get(0);
+        arena.reset(mark);
+        return value;
+    }
+
+}
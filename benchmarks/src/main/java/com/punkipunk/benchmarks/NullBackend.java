@@ -0,0 +1,273 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.GLBackend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Backend que no llama a OpenGL y solo cuenta las draw calls y los bytes subidos, para medir el trabajo del renderizador en la
+ * CPU sin GPU.
+ */
+
+public class NullBackend implements GLBackend {
+
+    private int nextId = 1;
+    public int drawCalls;
+    public long bytesUploaded;
+
+    @Override
+    public int genVertexArrays() {
+        return nextId++;
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+    }
+
+    @Override
+    public void deleteVertexArrays(int vao) {
+    }
+
+    @Override
+    public int genBuffers() {
+        return nextId++;
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage) {
+        bytesUploaded += (long) data.remaining() * Float.BYTES;
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage) {
+        bytesUploaded += (long) data.remaining() * Integer.BYTES;
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+        bytesUploaded += (long) data.remaining() * Float.BYTES;
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        bytesUploaded += data.remaining();
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instances) {
+        drawCalls++;
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+    }
+
+    @Override
+    public void clear(int mask) {
+    }
+
+    @Override
+    public void enable(int capability) {
+    }
+
+    @Override
+    public void disable(int capability) {
+    }
+
+    @Override
+    public void blendFunc(int sfactor, int dfactor) {
+    }
+
+    @Override
+    public int genTextures() {
+        return nextId++;
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type, ByteBuffer pixels) {
+        if (pixels != null) bytesUploaded += pixels.remaining();
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        bytesUploaded += pixels.remaining();
+    }
+
+    @Override
+    public void texParameteri(int target, int pname, int param) {
+    }
+
+    @Override
+    public void readPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+    }
+
+    @Override
+    public String getString(int name) {
+        return "null";
+    }
+
+    @Override
+    public int createShader(int type) {
+        return nextId++;
+    }
+
+    @Override
+    public void shaderSource(int shader, CharSequence source) {
+    }
+
+    @Override
+    public void compileShader(int shader) {
+    }
+
+    @Override
+    public int getShaderi(int shader, int pname) {
+        return 1;
+    }
+
+    @Override
+    public String getShaderInfoLog(int shader) {
+        return "";
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+    }
+
+    @Override
+    public int createProgram() {
+        return nextId++;
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+    }
+
+    @Override
+    public void linkProgram(int program) {
+    }
+
+    @Override
+    public int getProgrami(int program, int pname) {
+        return 1;
+    }
+
+    @Override
+    public String getProgramInfoLog(int program) {
+        return "";
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+    }
+
+    @Override
+    public void useProgram(int program) {
+    }
+
+    @Override
+    public int getUniformLocation(int program, CharSequence name) {
+        return nextId++;
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, FloatBuffer value) {
+    }
+
+    @Override
+    public int getUniformBlockIndex(int program, CharSequence name) {
+        return 0;
+    }
+
+    @Override
+    public void uniformBlockBinding(int program, int blockIndex, int binding) {
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        return false;
+    }
+
+    @Override
+    public void programParameteri(int program, int pname, int value) {
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+    }
+
+    @Override
+    public void programBinary(int program, int format, ByteBuffer binary) {
+    }
+
+}
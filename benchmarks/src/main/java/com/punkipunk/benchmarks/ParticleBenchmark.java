@@ -0,0 +1,83 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.InstanceBuffer;
+import com.punkipunk.renderer.ParticleEmitter;
+import com.punkipunk.util.JobSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por frame de un {@link ParticleEmitter} en regimen: la cantidad de particulas vivas se mantiene cerca de
+ * {@code particles} porque cada paso mueren y nacen alrededor de 1/120 de ellas. Se mide la actualizacion (integracion,
+ * eliminacion de las muertas y emision) en un hilo y repartida con el {@link JobSystem}, y el empaquetado en un
+ * {@link InstanceBuffer}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ParticleBenchmark {
+
+    private static final float DT = 1 / 60f;
+    // Vida media en segundos
+    private static final float LIFETIME = 2;
+
+    @Param({"100000", "1000000"})
+    public int particles;
+
+    private ParticleEmitter emitter;
+    private InstanceBuffer instances;
+    private JobSystem jobs;
+
+    @Setup
+    public void setup() {
+        // Lugar de sobra para que las variaciones de la emision no descarten particulas
+        emitter = new ParticleEmitter(particles + particles / 4, 42);
+        emitter.setPosition(400, 60);
+        emitter.setRadius(4);
+        emitter.setRate(particles / LIFETIME);
+        emitter.setLifetime(LIFETIME - 1, LIFETIME + 1);
+        emitter.setDirection((float) Math.PI / 2, 0.3f);
+        emitter.setSpeed(300, 480);
+        emitter.setGravity(0, -300);
+        emitter.setDrag(0.2f);
+        emitter.setSpin(-4, 4);
+        emitter.setSize(3, 1);
+        emitter.setEndColor(0, 0, 1, 0);
+        instances = new InstanceBuffer(emitter.getCapacity());
+        jobs = new JobSystem(Runtime.getRuntime().availableProcessors());
+        // Llega al regimen: despues de la vida maxima ya murieron las primeras particulas
+        for (int i = 0; i < (int) ((LIFETIME + 1) / DT); i++) emitter.update(DT, jobs);
+        System.out.printf("%n%d live particles, %d dropped%n", emitter.getCount(), emitter.getDropped());
+    }
+
+    @TearDown
+    public void tearDown() {
+        instances.dispose();
+        jobs.shutdown();
+    }
+
+    @Benchmark
+    public int update() {
+        emitter.update(DT, null);
+        return emitter.getCount();
+    }
+
+    @Benchmark
+    public int updateParallel() {
+        emitter.update(DT, jobs);
+        return emitter.getCount();
+    }
+
+    @Benchmark
+    public InstanceBuffer pack() {
+        instances.resize(emitter.getCount());
+        emitter.pack(instances, 0, jobs);
+        return instances;
+    }
+
+}
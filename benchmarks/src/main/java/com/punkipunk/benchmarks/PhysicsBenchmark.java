@@ -0,0 +1,87 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.physics.PhysicsWorld;
+import com.punkipunk.util.JobSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de un paso del {@link PhysicsWorld} con {@code bodies} cajas y circulos ya apilados en recipientes de 50 cuerpos (cada
+ * pila es una isla). Se mide el paso en un hilo y repartido con el {@link JobSystem}, con los cuerpos siempre despiertos y con
+ * las pilas quietas dormidas.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+
+    private static final float DT = 1 / 60f;
+    private static final int BODIES_PER_BIN = 50;
+
+    @Param({"1000", "4000"})
+    public int bodies;
+
+    @Param({"false", "true"})
+    public boolean sleeping;
+
+    private JobSystem jobs;
+    private PhysicsWorld serial, parallel;
+
+    @Setup
+    public void setup() {
+        jobs = new JobSystem(Runtime.getRuntime().availableProcessors());
+        serial = build(null);
+        parallel = build(jobs);
+        // Cinco segundos para que las pilas se asienten (y se duerman si corresponde)
+        for (int i = 0; i < 300; i++) {
+            serial.step(DT);
+            parallel.step(DT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Benchmark
+    public long serial() {
+        serial.step(DT);
+        return serial.getContactCount();
+    }
+
+    @Benchmark
+    public long parallel() {
+        parallel.step(DT);
+        return parallel.getContactCount();
+    }
+
+    private PhysicsWorld build(JobSystem jobs) {
+        PhysicsWorld world = new PhysicsWorld(jobs);
+        world.setSleeping(sleeping);
+        Random random = new Random(7);
+        int bins = (bodies + BODIES_PER_BIN - 1) / BODIES_PER_BIN;
+        // Recipientes de 6 metros de ancho separados por un metro
+        for (int bin = 0; bin < bins; bin++) {
+            float left = bin * 7;
+            world.createBox(left + 3, -0.5f, 3.5f, 0.5f, 0);
+            world.createBox(left - 0.25f, 10, 0.25f, 10, 0);
+            world.createBox(left + 6.25f, 10, 0.25f, 10, 0);
+        }
+        for (int i = 0; i < bodies; i++) {
+            int bin = i / BODIES_PER_BIN, slot = i % BODIES_PER_BIN;
+            float x = bin * 7 + 0.6f + (slot % 5) * 1.2f, y = 0.6f + (slot / 5) * 1.2f;
+            int body = random.nextInt(3) == 0 ? world.createCircle(x, y, 0.3f + random.nextFloat() * 0.2f, 1)
+                    : world.createBox(x, y, 0.3f + random.nextFloat() * 0.2f, 0.3f + random.nextFloat() * 0.2f, 1);
+            world.setAngle(body, random.nextFloat() - 0.5f);
+        }
+        return world;
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.InstanceBuffer;
+import com.punkipunk.renderer.InstancedRenderer;
+import com.punkipunk.renderer.RenderQueue;
+import com.punkipunk.renderer.Shader;
+import com.punkipunk.renderer.Texture;
+import com.punkipunk.util.RadixSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.opengl.GL11.GL_BLEND;
+
+/**
+ * Costo de CPU de un frame de {@code commands} sprites repartidos al azar entre {@link #LAYERS} capas, {@link #SHADERS} shaders y
+ * {@link #TEXTURES} texturas, un cuarto de ellos translucidos y con pocas profundidades distintas, como los de una escena 2D que
+ * los agrega en el orden de sus entidades.
+ * <p>
+ * Se compara la {@link RenderQueue} (agregar, ordenar y dibujar) con dibujar los mismos sprites en el orden en que llegan,
+ * cambiando de programa, textura o mezcla cada vez que cambian y cortando la draw call. Tambien se mide solo el ordenamiento de
+ * las claves, con el {@link RadixSort} y con {@link Arrays#sort(long[], int, int)}. Las draw calls y los cambios de programa y
+ * textura de ambos casos se imprimen al preparar el benchmark.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class RenderQueueBenchmark {
+
+    private static final int LAYERS = 4;
+    private static final int SHADERS = 8;
+    private static final int TEXTURES = 64;
+    private static final int DEPTHS = 4;
+
+    @Param({"10000", "100000"})
+    public int commands;
+
+    private NullBackend backend;
+    private RenderQueue queue;
+    private InstancedRenderer renderer;
+    private InstanceBuffer instances;
+    private final RadixSort radix = new RadixSort();
+    private Shader[] shaders;
+    private Texture[] textures;
+    // Por comando, en el orden en que se agregan
+    private int[] layers, shaderIds, textureIds;
+    private boolean[] translucent;
+    private float[] depths, x, y;
+    private long[] keys, scratchKeys;
+    private int[] order;
+    private int color;
+
+    @Setup
+    public void setup() {
+        backend = new NullBackend();
+        queue = new RenderQueue(backend);
+        renderer = new InstancedRenderer(backend);
+        instances = new InstanceBuffer(commands);
+        shaders = new Shader[SHADERS];
+        for (int i = 0; i < SHADERS; i++) {
+            shaders[i] = new Shader(backend, "vertex" + i, "fragment" + i, "", "");
+            shaders[i].compile();
+            queue.addShader(shaders[i]);
+        }
+        textures = new Texture[TEXTURES + 1];
+        for (int i = 1; i <= TEXTURES; i++) {
+            textures[i] = new Texture(backend, 1, 1, ByteBuffer.allocateDirect(4));
+            queue.addTexture(textures[i]);
+        }
+
+        Random random = new Random(0);
+        layers = new int[commands];
+        shaderIds = new int[commands];
+        textureIds = new int[commands];
+        translucent = new boolean[commands];
+        depths = new float[commands];
+        x = new float[commands];
+        y = new float[commands];
+        keys = new long[commands];
+        scratchKeys = new long[commands];
+        order = new int[commands];
+        for (int i = 0; i < commands; i++) {
+            layers[i] = random.nextInt(LAYERS);
+            shaderIds[i] = random.nextInt(SHADERS);
+            // Los ids de las texturas empiezan en 1
+            textureIds[i] = 1 + random.nextInt(TEXTURES);
+            translucent[i] = random.nextInt(4) == 0;
+            depths[i] = random.nextInt(DEPTHS) / (float) (DEPTHS - 1);
+            x[i] = random.nextFloat() * 800;
+            y[i] = random.nextFloat() * 600;
+            keys[i] = RenderQueue.key(layers[i], translucent[i], depths[i], shaderIds[i], textureIds[i]);
+        }
+        color = InstanceBuffer.color(1, 1, 1, 1);
+
+        int unsortedDrawCalls = submissionOrder();
+        sorted();
+        System.out.printf("%nsorted: %d draw calls, %d program binds, %d texture binds, %d radix passes%n", queue.getDrawCalls(),
+                queue.getProgramBinds(), queue.getTextureBinds(), queue.getSortPasses());
+        System.out.printf("submission order: %d draw calls, %d program binds, %d texture binds%n", unsortedDrawCalls,
+                queue.getUnsortedProgramBinds(), queue.getUnsortedTextureBinds());
+    }
+
+    @TearDown
+    public void tearDown() {
+        queue.dispose();
+        renderer.dispose();
+        instances.dispose();
+        for (Shader shader : shaders) shader.dispose();
+        for (int i = 1; i <= TEXTURES; i++) textures[i].dispose();
+    }
+
+    @Benchmark
+    public int sorted() {
+        for (int i = 0; i < commands; i++)
+            queue.submit(layers[i], translucent[i], depths[i], shaderIds[i], textureIds[i], x[i], y[i], 16, 16, 0, color, 0, 0,
+                    1, 1);
+        queue.sort();
+        queue.swap();
+        queue.render();
+        return queue.getDrawCalls();
+    }
+
+    @Benchmark
+    public int submissionOrder() {
+        instances.clear();
+        for (int i = 0; i < commands; i++) instances.add(x[i], y[i], 16, 16, 0, color, 0, 0, 1, 1);
+        renderer.upload(instances);
+        int drawCalls = 0, program = -1, texture = 0, first = 0;
+        boolean blending = false;
+        for (int i = 0; i < commands; i++) {
+            if (shaderIds[i] == program && textureIds[i] == texture && translucent[i] == blending) continue;
+            if (i > first) {
+                renderer.draw(first, i - first);
+                drawCalls++;
+            }
+            if (shaderIds[i] != program) shaders[program = shaderIds[i]].use();
+            if (textureIds[i] != texture) textures[texture = textureIds[i]].bind(0);
+            if (translucent[i] != blending) {
+                blending = translucent[i];
+                if (blending) backend.enable(GL_BLEND);
+                else backend.disable(GL_BLEND);
+            }
+            first = i;
+        }
+        renderer.draw(first, commands - first);
+        drawCalls++;
+        if (blending) backend.disable(GL_BLEND);
+        return drawCalls;
+    }
+
+    @Benchmark
+    public long radixSort() {
+        System.arraycopy(keys, 0, scratchKeys, 0, commands);
+        for (int i = 0; i < commands; i++) order[i] = i;
+        radix.sort(scratchKeys, order, commands);
+        return scratchKeys[commands - 1];
+    }
+
+    @Benchmark
+    public long arraysSort() {
+        // Ordena con signo, lo que da el mismo orden mientras no se use la capa 128 o mayor
+        System.arraycopy(keys, 0, scratchKeys, 0, commands);
+        Arrays.sort(scratchKeys, 0, commands);
+        return scratchKeys[commands - 1];
+    }
+
+}
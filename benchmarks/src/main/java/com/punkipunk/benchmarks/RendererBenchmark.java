@@ -0,0 +1,90 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.RenderBatch;
+import com.punkipunk.renderer.Renderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de CPU de un frame del {@link Renderer} cuando todos los sprites se mueven, cuando solo se mueve una fraccion y cuando
+ * no cambia nada. Las draw calls y los bytes de vertices subidos se reportan como contadores auxiliares ({@link Counters}), en
+ * total por iteracion.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererBenchmark {
+
+    @Param({"10000", "100000"})
+    public int sprites;
+
+    private NullBackend backend;
+    private Renderer renderer;
+    private int[] handles;
+    private float time;
+
+    @Setup
+    public void setup() {
+        backend = new NullBackend();
+        renderer = new Renderer(backend, Renderer.MAX_BATCH_SIZE);
+        handles = new int[sprites];
+        for (int i = 0; i < sprites; i++) handles[i] = renderer.add(i, i, 1, 1, 1, 1, 1, 1);
+        renderer.render();
+    }
+
+    @TearDown
+    public void tearDown() {
+        renderer.dispose();
+    }
+
+    @Benchmark
+    public void allDirty(Counters counters) {
+        time += 0.01f;
+        for (int i = 0; i < sprites; i++) renderer.set(handles[i], i + time, i, 1, 1, 1, 1, 1, 1);
+        renderer.render();
+        counters.record(renderer);
+    }
+
+    @Benchmark
+    public void tenPercentDirty(Counters counters) {
+        time += 0.01f;
+        for (int i = 0; i < sprites; i += 10) renderer.set(handles[i], i + time, i, 1, 1, 1, 1, 1, 1);
+        renderer.render();
+        counters.record(renderer);
+    }
+
+    @Benchmark
+    public void unchanged(Counters counters) {
+        renderer.render();
+        counters.record(renderer);
+    }
+
+    /**
+     * Contadores que JMH suma por iteracion y muestra junto al tiempo de cada benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long drawCalls;
+        public long bytesUploaded;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            drawCalls = 0;
+            bytesUploaded = 0;
+        }
+
+        void record(Renderer renderer) {
+            drawCalls += renderer.getDrawCalls();
+            bytesUploaded += renderer.getVerticesUploaded() * RenderBatch.VERTEX_SIZE_BYTES;
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.util.ResourceHandle;
+import com.punkipunk.util.ResourceLoader;
+import com.punkipunk.util.ResourceManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de los shaders del classpath con {@link ResourceLoader#loadAsString(String)}, comparada con la lectura binaria y con
+ * un acierto de la cache del {@link ResourceManager}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceLoaderBenchmark {
+
+    @Param({"shaders/vertexShader.glsl", "shaders/fragmentShader.glsl"})
+    public String resource;
+
+    private ResourceManager manager;
+
+    @Setup
+    public void setup() {
+        manager = new ResourceManager(16L * 1024 * 1024, 2);
+        // Deja el recurso cargado y sin referencias en la cache
+        manager.loadText(resource).release();
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Benchmark
+    public String loadAsString() {
+        return ResourceLoader.loadAsString(resource);
+    }
+
+    @Benchmark
+    public ByteBuffer loadAsByteBuffer() throws Exception {
+        return ResourceLoader.loadAsByteBuffer(resource);
+    }
+
+    @Benchmark
+    public String cachedText() {
+        ResourceHandle<String> handle = manager.loadText(resource);
+        String text = handle.get();
+        handle.release();
+        return text;
+    }
+
+}
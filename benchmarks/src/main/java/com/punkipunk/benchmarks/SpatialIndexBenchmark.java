@@ -0,0 +1,118 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.util.IntArrayList;
+import com.punkipunk.util.LooseQuadtree;
+import com.punkipunk.util.SpatialHash;
+import com.punkipunk.util.SpatialIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas y actualizaciones de los indices espaciales con 100.000 objetos pequeños en un mundo de 10.000 x 10.000 unidades,
+ * comparadas con recorrer todos los objetos ({@code linear}). La vista es del tamaño de una pantalla de 1280 x 720 unidades.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SpatialIndexBenchmark {
+
+    private static final int OBJECTS = 100_000;
+    private static final float WORLD_SIZE = 10_000;
+
+    @Param({"hash", "quadtree", "linear"})
+    public String index;
+
+    private SpatialIndex spatial;
+    private final float[] minX = new float[OBJECTS], minY = new float[OBJECTS], size = new float[OBJECTS];
+    private final float[] vx = new float[OBJECTS], vy = new float[OBJECTS];
+    private final IntArrayList out = new IntArrayList(4096);
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < OBJECTS; i++) {
+            minX[i] = random.nextFloat() * WORLD_SIZE;
+            minY[i] = random.nextFloat() * WORLD_SIZE;
+            size[i] = 4 + random.nextFloat() * 28;
+            vx[i] = random.nextFloat() - 0.5f;
+            vy[i] = random.nextFloat() - 0.5f;
+        }
+        spatial = switch (index) {
+            case "hash" -> new SpatialHash(64);
+            case "quadtree" -> new LooseQuadtree(0, 0, WORLD_SIZE, 8);
+            default -> null;
+        };
+        if (spatial != null)
+            for (int i = 0; i < OBJECTS; i++) spatial.insert(i, minX[i], minY[i], minX[i] + size[i], minY[i] + size[i]);
+    }
+
+    /**
+     * Mueve todos los objetos un poco, como en cada tick de la simulacion.
+     */
+    @Benchmark
+    public int updateAll() {
+        for (int i = 0; i < OBJECTS; i++) {
+            minX[i] += vx[i];
+            minY[i] += vy[i];
+            if (spatial != null) spatial.update(i, minX[i], minY[i], minX[i] + size[i], minY[i] + size[i]);
+        }
+        return spatial != null ? spatial.size() : OBJECTS;
+    }
+
+    /**
+     * Culling: objetos dentro de la vista.
+     */
+    @Benchmark
+    public int queryView() {
+        float x = random.nextFloat() * (WORLD_SIZE - 1280), y = random.nextFloat() * (WORLD_SIZE - 720);
+        out.clear();
+        return spatial != null ? spatial.queryRange(x, y, x + 1280, y + 720, out) : linearRange(x, y, x + 1280, y + 720);
+    }
+
+    /**
+     * Seleccion con el mouse: objetos bajo un punto.
+     */
+    @Benchmark
+    public int queryPoint() {
+        float x = random.nextFloat() * WORLD_SIZE, y = random.nextFloat() * WORLD_SIZE;
+        out.clear();
+        return spatial != null ? spatial.queryPoint(x, y, out) : linearRange(x, y, x, y);
+    }
+
+    @Benchmark
+    public int raycast() {
+        float x = random.nextFloat() * WORLD_SIZE, y = random.nextFloat() * WORLD_SIZE;
+        float angle = random.nextFloat() * 6.2831855f;
+        float dx = (float) Math.cos(angle), dy = (float) Math.sin(angle);
+        return spatial != null ? spatial.raycast(x, y, dx, dy, 500) : linearRaycast(x, y, dx, dy, 500);
+    }
+
+    private int linearRange(float x0, float y0, float x1, float y1) {
+        for (int i = 0; i < OBJECTS; i++)
+            if (minX[i] <= x1 && minX[i] + size[i] >= x0 && minY[i] <= y1 && minY[i] + size[i] >= y0) out.add(i);
+        return out.size();
+    }
+
+    private int linearRaycast(float ox, float oy, float dx, float dy, float maxDistance) {
+        int best = -1;
+        float bestT = maxDistance;
+        for (int i = 0; i < OBJECTS; i++) {
+            float t1 = (minX[i] - ox) / dx, t2 = (minX[i] + size[i] - ox) / dx;
+            float t3 = (minY[i] - oy) / dy, t4 = (minY[i] + size[i] - oy) / dy;
+            float near = Math.max(0, Math.max(Math.min(t1, t2), Math.min(t3, t4)));
+            float far = Math.min(bestT, Math.min(Math.max(t1, t2), Math.max(t3, t4)));
+            if (near <= far) {
+                best = i;
+                bestT = near;
+            }
+        }
+        return best;
+    }
+
+}
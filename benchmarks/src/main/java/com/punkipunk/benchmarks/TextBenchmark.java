@@ -0,0 +1,80 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.DebugDraw;
+import com.punkipunk.renderer.Font;
+import com.punkipunk.renderer.InstanceBuffer;
+import com.punkipunk.renderer.TextCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de dibujar {@code lines} lineas de texto de un HUD con el {@link DebugDraw}: cuando los textos no cambiaron (salen del
+ * {@link TextCache} y solo se copian sus glifos al buffer de instancias) y cuando cambian en cada frame (se vuelven a distribuir
+ * reutilizando los {@code GlyphRun} expulsados). Ninguno de los dos casos deberia reservar memoria; se puede comprobar con
+ * {@code -prof gc}.
+ * <p>
+ * Usa la fuente de {@link Font#findDebugFont()} (o la de {@code -Djade.font=<archivo>}).
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+    private static final int COLOR = InstanceBuffer.color(1, 1, 1, 1);
+
+    @Param({"16", "64"})
+    public int lines;
+
+    private Font font;
+    private DebugDraw draw;
+    private StringBuilder[] texts;
+    private int prefix, frame;
+
+    @Setup
+    public void setup() throws IOException {
+        Path path = Font.findDebugFont();
+        if (path == null) throw new IllegalStateException("No font was found, set one with -Djade.font=<file>!");
+        font = Font.load(path, 15, false);
+        draw = new DebugDraw(new NullBackend(), font);
+        texts = new StringBuilder[lines];
+        for (int i = 0; i < lines; i++) texts[i] = new StringBuilder("scene update ").append(i % 10).append(' ').append(i * 0.25);
+        prefix = "scene update 0 ".length();
+    }
+
+    @TearDown
+    public void tearDown() {
+        draw.dispose();
+        font.dispose();
+    }
+
+    @Benchmark
+    public int cached() {
+        for (int i = 0; i < lines; i++) draw.text(texts[i], 8, 8 + i * 18, 15, COLOR);
+        int instances = draw.getInstanceCount();
+        draw.swap();
+        return instances;
+    }
+
+    @Benchmark
+    public int changing() {
+        // El numero del frame cambia el texto, por lo que la cache nunca acierta
+        frame++;
+        for (int i = 0; i < lines; i++) {
+            StringBuilder text = texts[i];
+            text.setLength(prefix);
+            text.append(frame);
+            draw.text(text, 8, 8 + i * 18, 15, COLOR);
+        }
+        int instances = draw.getInstanceCount();
+        draw.swap();
+        return instances;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.Tilemap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de CPU de un frame de un {@link Tilemap} de 4096 x 4096 tiles visto a traves de una pantalla de 800 x 600 con
+ * distintos zooms: sin cambios, desplazando la vista (lo que genera chunks nuevos de vez en cuando) y pintando un tile por frame
+ * (lo que regenera un chunk). Las draw calls de la vista se imprimen al preparar el benchmark.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TilemapBenchmark {
+
+    private static final int MAP_SIZE = 4096;
+    private static final float TILE_SIZE = 16;
+
+    // Zoom de la camara: con 0.25 se ven 3200 x 2400 unidades, unos 16 chunks
+    @Param({"1", "0.25"})
+    public float zoom;
+
+    private Tilemap tilemap;
+    private float viewWidth, viewHeight, x, y;
+    private int painted;
+
+    @Setup
+    public void setup() {
+        tilemap = new Tilemap(new NullBackend(), MAP_SIZE, MAP_SIZE, TILE_SIZE, TILE_SIZE, 128);
+        tilemap.setType(1, 0.2f, 0.4f, 0.8f, 1);
+        tilemap.setType(2, 0.4f, 0.7f, 0.3f, 1);
+        short[] rows = new short[MAP_SIZE * MAP_SIZE];
+        for (int i = 0; i < rows.length; i++) rows[i] = (short) (1 + (i / 7 + i / MAP_SIZE / 5) % 2);
+        tilemap.fillRows(0, rows);
+        viewWidth = 800 / zoom;
+        viewHeight = 600 / zoom;
+        x = y = MAP_SIZE * TILE_SIZE / 4;
+        render();
+        System.out.printf("%n%d draw calls, %d chunks built%n", tilemap.getDrawCalls(), tilemap.getRebuilds());
+    }
+
+    @TearDown
+    public void tearDown() {
+        tilemap.dispose();
+    }
+
+    @Benchmark
+    public void unchanged(Blackhole blackhole) {
+        render();
+        blackhole.consume(tilemap.getDrawCalls());
+    }
+
+    @Benchmark
+    public void panning(Blackhole blackhole) {
+        // Un tile por frame en diagonal, volviendo al principio antes de salir del mapa
+        x += TILE_SIZE;
+        y += TILE_SIZE;
+        if (x > MAP_SIZE * TILE_SIZE * 3 / 4) x = y = MAP_SIZE * TILE_SIZE / 4;
+        render();
+        blackhole.consume(tilemap.getDrawCalls());
+    }
+
+    @Benchmark
+    public void painting(Blackhole blackhole) {
+        painted++;
+        int tileX = tilemap.tileX(x) + painted % 32, tileY = tilemap.tileY(y) + painted / 32 % 32;
+        tilemap.setTile(tileX, tileY, tilemap.getTile(tileX, tileY) == 1 ? 2 : 1);
+        render();
+        blackhole.consume(tilemap.getRebuilds());
+    }
+
+    private void render() {
+        tilemap.render(null, x - viewWidth / 2, y - viewHeight / 2, x + viewWidth / 2, y + viewHeight / 2);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.punkipunk.benchmarks;
+
+import com.punkipunk.renderer.RenderBatch;
+import org.lwjgl.BufferUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Empaquetado de vertices de cuadrados en un {@code FloatBuffer} directo.
+ * <p>
+ * {@code legacy*} reproduce lo que hacia {@code LevelEditorScene.init()} (crear el buffer y copiar un {@code float[]} con
+ * {@code put}), mientras que {@code batch*} mide el empaquetado en el buffer preasignado de un {@link RenderBatch}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexPackingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int quads;
+
+    private float[] vertexArray;
+    private FloatBuffer reusedBuffer;
+    private RenderBatch batch;
+
+    @Setup
+    public void setup() {
+        vertexArray = new float[quads * RenderBatch.QUAD_SIZE];
+        for (int i = 0; i < vertexArray.length; i++) vertexArray[i] = i * 0.001f;
+        reusedBuffer = BufferUtils.createFloatBuffer(vertexArray.length);
+        batch = new RenderBatch(new NullBackend(), quads);
+        batch.start(0);
+        for (int i = 0; i < quads; i++) batch.addQuad(0, 0, 1, 1, 1, 1, 1, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batch.dispose();
+    }
+
+    @Benchmark
+    public FloatBuffer legacyAllocateAndPut() {
+        FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertexArray.length);
+        vertexBuffer.put(vertexArray).flip();
+        return vertexBuffer;
+    }
+
+    @Benchmark
+    public FloatBuffer legacyReusedPut() {
+        reusedBuffer.clear();
+        reusedBuffer.put(vertexArray).flip();
+        return reusedBuffer;
+    }
+
+    @Benchmark
+    public RenderBatch batchSetQuads() {
+        for (int i = 0; i < quads; i++) batch.setQuad(i, i, i, 1, 1, 1, 0, 0, 1);
+        return batch;
+    }
+
+}
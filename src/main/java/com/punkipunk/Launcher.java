@@ -1,16 +1,73 @@
 package com.punkipunk;
 
 import com.punkipunk.jade.Window;
+import com.punkipunk.renderer.GoldenImage;
+import com.punkipunk.renderer.SoftwareBackend;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Al trabajar en el renderizado en un nivel bajo, nos da una ventaja mucho mejor en terminos de velocidad.
+ * <p>
+ * Con {@code --headless <frames>} la escena se ejecuta sin ventana sobre el {@link SoftwareBackend}, lo que permite correrla en
+ * maquinas sin GPU. Opciones:
+ * <ul>
+ *     <li>{@code --size <ancho>x<alto>}: tamaño del framebuffer (por defecto 800x600)</li>
+ *     <li>{@code --out <archivo.png>}: guarda el ultimo frame</li>
+ *     <li>{@code --golden <archivo.png>}: compara el ultimo frame con una imagen de referencia y termina con codigo 1 si no
+ *     coincide (la imagen de diferencias se guarda junto a ella con el sufijo {@code .diff.png})</li>
+ *     <li>{@code --tolerance <n>}: diferencia maxima aceptada por canal (por defecto 2)</li>
+ * </ul>
  */
 
 public class Launcher {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("--headless")) {
+            System.exit(runHeadless(args));
+        }
         Window window = Window.getInstance();
         window.run();
     }
 
-}
\ No newline at end of file
+    private static int runHeadless(String[] args) throws IOException {
+        int frames = Integer.parseInt(args[1]);
+        int width = 800, height = 600, tolerance = 2;
+        Path out = null, golden = null;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--size" -> {
+                    String[] size = args[i + 1].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                }
+                case "--out" -> out = Path.of(args[i + 1]);
+                case "--golden" -> golden = Path.of(args[i + 1]);
+                case "--tolerance" -> tolerance = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+            }
+        }
+
+        SoftwareBackend backend = new SoftwareBackend(width, height);
+        double fps = Window.getInstance().runHeadless(backend, width, height, frames);
+        System.out.printf("%d frames at %dx%d: %.1f FPS%n", frames, width, height, fps);
+
+        BufferedImage frame = GoldenImage.capture(backend, width, height);
+        if (out != null) GoldenImage.write(frame, out);
+        if (golden == null) return 0;
+
+        GoldenImage.Comparison comparison = GoldenImage.compare(frame, GoldenImage.read(golden), tolerance);
+        if (comparison.matches()) {
+            System.out.println("The frame matches '" + golden + "'");
+            return 0;
+        }
+        System.err.println("The frame does not match '" + golden + "': " + comparison.mismatched() + " pixels differ (max "
+                + comparison.maxDifference() + ")");
+        if (comparison.diff() != null)
+            GoldenImage.write(comparison.diff(), Path.of(golden.toString().replaceFirst("\\.png$", "") + ".diff.png"));
+        return 1;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.punkipunk.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.AL_FORMAT_MONO16;
+import static org.lwjgl.openal.AL10.AL_FORMAT_STEREO16;
+
+/**
+ * Decodificador incremental de audio a PCM de 16 bits intercalado.
+ * <p>
+ * Lee de a bloques sobre un buffer provisto por quien lo llama, de modo que una pista larga se puede reproducir decodificando
+ * solo lo que esta por sonar. Un decodificador se usa desde un unico hilo a la vez.
+ */
+
+public interface AudioDecoder {
+
+    /**
+     * Abre un archivo Ogg Vorbis o WAV (PCM de 16 bits) segun su cabecera.
+     *
+     * @param encoded contenido del archivo; debe seguir siendo valido hasta cerrar el decodificador
+     * @param name    nombre del archivo, para los mensajes de error
+     */
+    static AudioDecoder open(ByteBuffer encoded, String name) throws IOException {
+        if (encoded.remaining() >= 4) {
+            int p = encoded.position();
+            if (encoded.get(p) == 'O' && encoded.get(p + 1) == 'g' && encoded.get(p + 2) == 'g' && encoded.get(p + 3) == 'S')
+                return new VorbisDecoder(encoded, name);
+            if (encoded.get(p) == 'R' && encoded.get(p + 1) == 'I' && encoded.get(p + 2) == 'F' && encoded.get(p + 3) == 'F')
+                return new WavDecoder(encoded, name);
+        }
+        throw new IOException("The '" + name + "' audio format is not supported!");
+    }
+
+    /**
+     * @return 1 (mono) o 2 (estereo)
+     */
+    int getChannels();
+
+    int getSampleRate();
+
+    /**
+     * @return frames (una muestra por canal) de la pista completa
+     */
+    int getFrameCount();
+
+    /**
+     * Decodifica frames completos entre position y limit de {@code pcm} y avanza su position.
+     *
+     * @return frames decodificados, 0 al llegar al final de la pista
+     */
+    int read(ShortBuffer pcm);
+
+    /**
+     * Vuelve al principio de la pista.
+     */
+    void rewind();
+
+    void close();
+
+    /**
+     * @return el formato de OpenAL de las muestras decodificadas
+     */
+    default int getFormat() {
+        return getChannels() == 2 ? AL_FORMAT_STEREO16 : AL_FORMAT_MONO16;
+    }
+
+}
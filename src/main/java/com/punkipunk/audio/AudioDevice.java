@@ -0,0 +1,85 @@
+package com.punkipunk.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Abstraccion de las llamadas a OpenAL que utiliza el motor.
+ * <p>
+ * Como el {@link com.punkipunk.renderer.GLBackend} con OpenGL, el {@link AudioEngine} nunca llama a OpenAL directamente, lo que
+ * permite reemplazar la tarjeta de sonido por un {@link NullAudioDevice} que simula la reproduccion y asi correr la
+ * decodificacion, el streaming y el robo de voces sin dispositivo de audio. Los parametros y estados son las constantes de
+ * {@code AL10}. Solo se llama desde el hilo principal.
+ */
+
+public interface AudioDevice {
+
+    int genBuffer();
+
+    /**
+     * Copia muestras PCM de 16 bits intercaladas (entre position y limit de {@code pcm}) al buffer.
+     *
+     * @param format {@code AL_FORMAT_MONO16} o {@code AL_FORMAT_STEREO16}
+     */
+    void bufferData(int buffer, int format, ByteBuffer pcm, int sampleRate);
+
+    void deleteBuffer(int buffer);
+
+    /**
+     * @return la fuente creada, o 0 si el dispositivo no admite mas fuentes
+     */
+    int genSource();
+
+    void deleteSource(int source);
+
+    /**
+     * @param param {@code AL_BUFFER}, {@code AL_LOOPING} o {@code AL_SOURCE_RELATIVE}
+     */
+    void sourcei(int source, int param, int value);
+
+    /**
+     * @param param {@code AL_GAIN} o {@code AL_PITCH}
+     */
+    void sourcef(int source, int param, float value);
+
+    /**
+     * @param param {@code AL_POSITION} o {@code AL_VELOCITY}
+     */
+    void source3f(int source, int param, float x, float y, float z);
+
+    void sourcePlay(int source);
+
+    void sourcePause(int source);
+
+    /**
+     * Detiene la fuente; los buffers que tenia en cola pasan a estar procesados.
+     */
+    void sourceStop(int source);
+
+    /**
+     * Agrega un buffer al final de la cola de una fuente de streaming.
+     */
+    void sourceQueueBuffers(int source, int buffer);
+
+    /**
+     * Quita de la cola el buffer procesado mas antiguo. Solo debe llamarse si {@code AL_BUFFERS_PROCESSED} es mayor que 0.
+     *
+     * @return el buffer quitado
+     */
+    int sourceUnqueueBuffers(int source);
+
+    /**
+     * @param param {@code AL_SOURCE_STATE}, {@code AL_BUFFERS_QUEUED} o {@code AL_BUFFERS_PROCESSED}
+     */
+    int getSourcei(int source, int param);
+
+    /**
+     * Avanza el reloj del dispositivo. OpenAL reproduce en su propio hilo y lo ignora; el {@link NullAudioDevice} consume las
+     * muestras que corresponden a ese tiempo.
+     */
+    default void update(double dt) {
+
+    }
+
+    void close();
+
+}
@@ -0,0 +1,318 @@
+package com.punkipunk.audio;
+
+import com.punkipunk.util.ResourceHandle;
+import com.punkipunk.util.ResourceManager;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * Motor de audio: reproduce sonidos cortos sobre un conjunto fijo de voces y pistas largas por streaming.
+ * <p>
+ * Las fuentes del dispositivo se crean una sola vez al construir el motor (como maximo {@code maxVoices}, o las que admita el
+ * dispositivo) y se reutilizan. Cada {@link #play(Sound, float, float, int, boolean)} toma una voz libre; si no queda ninguna,
+ * le roba la fuente a la voz de menor prioridad (entre las de igual prioridad, a la que empezo hace mas tiempo), siempre que su
+ * prioridad no sea mayor que la del sonido nuevo; si no, el sonido nuevo se descarta. Las voces de la musica nunca se roban.
+ * Las voces se identifican con un handle que incluye una generacion, por lo que un handle viejo de una voz reutilizada no
+ * afecta al sonido que la ocupa ahora.
+ * <p>
+ * Los sonidos se cargan con la {@link SoundCache} y las pistas largas se reproducen con {@link MusicStream}s, que decodifica el
+ * {@link AudioStreamer} en segundo plano. {@link #update(double)} se llama una vez por frame desde el hilo principal; el resto
+ * de los metodos estan sincronizados, por lo que una escena puede reproducir sonidos desde su {@code update} aunque corra en un
+ * hilo de trabajo (en modo pipeline).
+ */
+
+public class AudioEngine {
+
+    /** Handle que devuelve {@link #play(Sound, float, float, int, boolean)} cuando el sonido no se pudo reproducir. */
+    public static final long NO_VOICE = -1;
+
+    private final AudioDevice device;
+    private final ResourceManager resources;
+    private final SoundCache sounds;
+    private final AudioStreamer streamer = new AudioStreamer();
+    private final int voiceCount;
+    // Por voz: fuente del dispositivo, prioridad, orden de inicio y generacion del handle
+    private final int[] sources, priorities, generations;
+    private final long[] starts;
+    private final boolean[] active;
+    private final Sound[] voiceSounds;
+    private final MusicStream[] voiceStreams;
+    private long clock, played, stolen, rejected;
+
+    /**
+     * @param resources administrador del que se leen los archivos de audio
+     * @param maxVoices sonidos que pueden sonar a la vez, incluidas las pistas de musica
+     */
+    public AudioEngine(AudioDevice device, ResourceManager resources, int maxVoices) {
+        this.device = device;
+        this.resources = resources;
+        sounds = new SoundCache(device, resources);
+        int[] created = new int[maxVoices];
+        int count = 0;
+        while (count < maxVoices && (created[count] = device.genSource()) != 0) {
+            // Los sonidos no son posicionales: la fuente queda en la posicion del oyente
+            device.sourcei(created[count], AL_SOURCE_RELATIVE, AL_TRUE);
+            count++;
+        }
+        if (count < maxVoices) System.err.println("The audio device only supports " + count + " voices!");
+        voiceCount = count;
+        sources = Arrays.copyOf(created, count);
+        priorities = new int[count];
+        generations = new int[count];
+        starts = new long[count];
+        active = new boolean[count];
+        voiceSounds = new Sound[count];
+        voiceStreams = new MusicStream[count];
+    }
+
+    /**
+     * @see SoundCache#load(String)
+     */
+    public synchronized Sound loadSound(String resourceName) {
+        return sounds.load(resourceName);
+    }
+
+    /**
+     * Detiene las voces que reproducen el sonido y lo quita de la cache.
+     */
+    public synchronized void unloadSound(String resourceName) {
+        Sound sound = sounds.get(resourceName);
+        if (sound == null) return;
+        for (int i = 0; i < voiceCount; i++)
+            if (active[i] && voiceSounds[i] == sound) release(i);
+        sounds.unload(resourceName);
+    }
+
+    public synchronized long play(Sound sound) {
+        return play(sound, 1, 1, 0, false);
+    }
+
+    /**
+     * Reproduce un sonido en una voz libre o robada.
+     *
+     * @param priority prioridad de la voz; solo puede robar voces de prioridad menor o igual
+     * @return handle de la voz, o {@link #NO_VOICE} si el sonido todavia no se cargo o todas las voces tienen mas prioridad
+     */
+    public synchronized long play(Sound sound, float gain, float pitch, int priority, boolean looping) {
+        if (sound == null || !sound.isLoaded()) return NO_VOICE;
+        int voice = acquire(priority);
+        if (voice < 0) return NO_VOICE;
+        int source = sources[voice];
+        device.sourcei(source, AL_BUFFER, sound.getBuffer());
+        device.sourcei(source, AL_LOOPING, looping ? AL_TRUE : AL_FALSE);
+        device.sourcef(source, AL_GAIN, gain);
+        device.sourcef(source, AL_PITCH, pitch);
+        device.sourcePlay(source);
+        voiceSounds[voice] = sound;
+        priorities[voice] = priority;
+        played++;
+        return handle(voice);
+    }
+
+    /**
+     * Empieza a reproducir una pista por streaming. La voz queda reservada hasta que la pista termina o se detiene.
+     *
+     * @return la pista, o null si no quedan voces que no sean de musica
+     */
+    public synchronized MusicStream playMusic(String resourceName, boolean looping) {
+        int voice = acquire(Integer.MAX_VALUE);
+        if (voice < 0) {
+            System.err.println("There is no voice left to play the '" + resourceName + "' music!");
+            return null;
+        }
+        int source = sources[voice];
+        device.sourcei(source, AL_LOOPING, AL_FALSE);
+        device.sourcef(source, AL_GAIN, 1);
+        device.sourcef(source, AL_PITCH, 1);
+        ResourceHandle<ByteBuffer> file = null;
+        MusicStream stream;
+        try {
+            file = resources.loadBytes(resourceName);
+            stream = new MusicStream(resourceName, device, streamer, this, file, source, looping);
+        } catch (RuntimeException e) {
+            // Sin la pista, la voz ya marcada como activa quedaria ocupada para siempre
+            if (file != null) file.release();
+            release(voice);
+            throw e;
+        }
+        voiceStreams[voice] = stream;
+        priorities[voice] = Integer.MAX_VALUE;
+        streamer.add(stream);
+        return stream;
+    }
+
+    public synchronized void stop(long voice) {
+        int index = resolve(voice);
+        if (index >= 0) release(index);
+    }
+
+    /**
+     * Detiene todos los sonidos y pistas.
+     */
+    public synchronized void stopAll() {
+        for (int i = 0; i < voiceCount; i++)
+            if (active[i]) release(i);
+    }
+
+    /**
+     * @return true si la voz sigue reproduciendo el sonido con el que se obtuvo el handle
+     */
+    public synchronized boolean isPlaying(long voice) {
+        return resolve(voice) >= 0;
+    }
+
+    public synchronized void setGain(long voice, float gain) {
+        int index = resolve(voice);
+        if (index >= 0) device.sourcef(sources[index], AL_GAIN, gain);
+    }
+
+    public synchronized void setPitch(long voice, float pitch) {
+        int index = resolve(voice);
+        if (index >= 0) device.sourcef(sources[index], AL_PITCH, pitch);
+    }
+
+    /**
+     * Sube los sonidos decodificados, libera las voces que terminaron y alimenta las pistas por streaming.
+     *
+     * @param dt segundos desde la ultima actualizacion (solo lo usa el {@link NullAudioDevice})
+     */
+    public synchronized void update(double dt) {
+        device.update(dt);
+        sounds.processUploads();
+        for (int i = 0; i < voiceCount; i++) {
+            if (!active[i]) continue;
+            MusicStream stream = voiceStreams[i];
+            if (stream != null) {
+                stream.update();
+                if (!stream.isPlaying()) release(i);
+            } else if (device.getSourcei(sources[i], AL_SOURCE_STATE) == AL_STOPPED) release(i);
+        }
+    }
+
+    public synchronized void dispose() {
+        stopAll();
+        streamer.shutdown();
+        for (int source : sources) device.deleteSource(source);
+        sounds.dispose();
+        device.close();
+    }
+
+    public SoundCache getSoundCache() {
+        return sounds;
+    }
+
+    public AudioDevice getDevice() {
+        return device;
+    }
+
+    public int getVoiceCount() {
+        return voiceCount;
+    }
+
+    public synchronized int getActiveVoices() {
+        int count = 0;
+        for (int i = 0; i < voiceCount; i++)
+            if (active[i]) count++;
+        return count;
+    }
+
+    /**
+     * @return sonidos que empezaron a reproducirse
+     */
+    public long getPlayedVoices() {
+        return played;
+    }
+
+    /**
+     * @return voces que se interrumpieron para reproducir un sonido de igual o mayor prioridad
+     */
+    public long getStolenVoices() {
+        return stolen;
+    }
+
+    /**
+     * @return sonidos descartados porque todas las voces tenian mas prioridad
+     */
+    public long getRejectedVoices() {
+        return rejected;
+    }
+
+    /**
+     * @return pistas cuyos recursos de decodificacion todavia no se liberaron
+     */
+    public int getStreamCount() {
+        return streamer.getStreamCount();
+    }
+
+    /**
+     * Toma una voz libre o le roba la suya a la de menor prioridad.
+     *
+     * @return indice de la voz, o -1 si todas tienen mas prioridad
+     */
+    private int acquire(int priority) {
+        int voice = findFree();
+        if (voice < 0) {
+            // Puede haber voces que terminaron despues de la ultima actualizacion
+            for (int i = 0; i < voiceCount; i++)
+                if (active[i] && voiceStreams[i] == null && device.getSourcei(sources[i], AL_SOURCE_STATE) == AL_STOPPED)
+                    release(i);
+            voice = findFree();
+        }
+        if (voice < 0) {
+            int victim = -1;
+            for (int i = 0; i < voiceCount; i++) {
+                if (voiceStreams[i] != null) continue;
+                if (victim < 0 || priorities[i] < priorities[victim] ||
+                        priorities[i] == priorities[victim] && starts[i] < starts[victim]) victim = i;
+            }
+            if (victim < 0 || priorities[victim] > priority) {
+                rejected++;
+                return -1;
+            }
+            release(victim);
+            stolen++;
+            voice = victim;
+        }
+        active[voice] = true;
+        starts[voice] = ++clock;
+        return voice;
+    }
+
+    private int findFree() {
+        for (int i = 0; i < voiceCount; i++)
+            if (!active[i]) return i;
+        return -1;
+    }
+
+    private void release(int voice) {
+        MusicStream stream = voiceStreams[voice];
+        if (stream != null) stream.stop();
+        else {
+            device.sourceStop(sources[voice]);
+            device.sourcei(sources[voice], AL_BUFFER, 0);
+        }
+        active[voice] = false;
+        voiceSounds[voice] = null;
+        voiceStreams[voice] = null;
+        // Invalida los handles que apuntaban a esta voz
+        generations[voice]++;
+    }
+
+    private long handle(int voice) {
+        // Sin el bit de signo, para que un handle nunca coincida con NO_VOICE
+        return (generations[voice] & 0x7FFFFFFFL) << 32 | voice;
+    }
+
+    /**
+     * @return indice de la voz del handle, o -1 si ya no es valido
+     */
+    private int resolve(long voice) {
+        if (voice < 0) return -1;
+        int index = (int) voice, generation = (int) (voice >>> 32);
+        return index < voiceCount && active[index] && (generations[index] & 0x7FFFFFFF) == generation ? index : -1;
+    }
+
+}
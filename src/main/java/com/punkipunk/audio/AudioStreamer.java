@@ -0,0 +1,71 @@
+package com.punkipunk.audio;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hilo que decodifica por adelantado los bloques de todos los {@link MusicStream} activos.
+ * <p>
+ * Cuando no hay bloques que decodificar (todos los anillos estan llenos) duerme hasta que el hilo principal consume alguno y lo
+ * despierta con {@link #wake()}, o como maximo {@link #IDLE_NANOS}. Tambien es quien libera los recursos de decodificacion de
+ * las pistas detenidas, ya que es el unico que los usa.
+ */
+
+class AudioStreamer implements Runnable {
+
+    private static final long IDLE_NANOS = 10_000_000L;
+
+    private final List<MusicStream> streams = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    AudioStreamer() {
+        thread = new Thread(this, "audio-streamer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void add(MusicStream stream) {
+        streams.add(stream);
+        wake();
+    }
+
+    void wake() {
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            boolean worked = false;
+            for (MusicStream stream : streams) {
+                if (stream.isClosed()) {
+                    stream.release();
+                    streams.remove(stream);
+                } else worked |= stream.fill();
+            }
+            if (!worked) LockSupport.parkNanos(IDLE_NANOS);
+        }
+        for (MusicStream stream : streams) stream.release();
+        streams.clear();
+    }
+
+    /**
+     * Detiene el hilo y espera a que libere las pistas que quedaban.
+     */
+    void shutdown() {
+        running = false;
+        wake();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getStreamCount() {
+        return streams.size();
+    }
+
+}
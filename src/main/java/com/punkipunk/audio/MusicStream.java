@@ -0,0 +1,272 @@
+package com.punkipunk.audio;
+
+import com.punkipunk.util.BufferPool;
+import com.punkipunk.util.ResourceHandle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * Pista larga (por ejemplo, musica) que se reproduce decodificandola de a bloques en lugar de cargarla entera en memoria.
+ * <p>
+ * El {@link AudioStreamer} decodifica en segundo plano hasta {@link #RING} bloques de {@link #CHUNK_FRAMES} frames por
+ * adelantado en un anillo de buffers del {@link BufferPool}. En cada frame, {@link #update()} recupera los buffers del
+ * dispositivo que la fuente ya reprodujo, los rellena con los bloques decodificados y los vuelve a encolar, de modo que la
+ * fuente siempre tiene {@link #BUFFERS} buffers por delante (unos 0.5 s a 44.1 kHz). Si el hilo principal se atrasa tanto que
+ * la fuente agota su cola, la fuente se detiene; la proxima actualizacion la vuelve a arrancar y cuenta un corte
+ * ({@link #getUnderruns()}).
+ * <p>
+ * El anillo tiene un unico productor (el hilo de streaming) y un unico consumidor (el hilo principal), que se sincronizan con
+ * los contadores volatiles de bloques decodificados y consumidos; el decodificador solo lo toca el hilo de streaming. Se crea
+ * con {@link AudioEngine#playMusic(String, boolean)}.
+ */
+
+public class MusicStream {
+
+    /** Buffers del dispositivo en la cola de la fuente. */
+    public static final int BUFFERS = 3;
+    /** Bloques decodificados por adelantado. */
+    public static final int RING = 4;
+    public static final int CHUNK_FRAMES = 8192;
+    private static final int MAX_CHANNELS = 2;
+
+    private final String name;
+    private final AudioDevice device;
+    private final AudioStreamer streamer;
+    // Monitor del AudioEngine, que protege al dispositivo
+    private final Object lock;
+    private final int source;
+
+    // Anillo compartido con el hilo de streaming
+    private final ByteBuffer[] chunks = new ByteBuffer[RING];
+    private final ShortBuffer[] views = new ShortBuffer[RING];
+    private final int[] chunkFrames = new int[RING];
+    private volatile long decoded, consumed;
+    private volatile boolean ended, closed, looping;
+    private volatile int format, channels, sampleRate;
+
+    // Solo del hilo de streaming
+    private final ResourceHandle<ByteBuffer> file;
+    private AudioDecoder decoder;
+    private boolean released;
+
+    // Del hilo principal, o de quien tenga el monitor del motor
+    private final int[] buffers = new int[BUFFERS], free = new int[BUFFERS];
+    private int freeCount;
+    private boolean playing, paused, started, finished;
+    private int underruns;
+
+    MusicStream(String name, AudioDevice device, AudioStreamer streamer, Object lock, ResourceHandle<ByteBuffer> file, int source,
+                boolean looping) {
+        this.name = name;
+        this.device = device;
+        this.streamer = streamer;
+        this.lock = lock;
+        this.file = file;
+        this.source = source;
+        this.looping = looping;
+        for (int i = 0; i < RING; i++) {
+            chunks[i] = BufferPool.get().allocate(CHUNK_FRAMES * MAX_CHANNELS * Short.BYTES);
+            views[i] = chunks[i].asShortBuffer();
+        }
+        for (int i = 0; i < BUFFERS; i++) free[freeCount++] = buffers[i] = device.genBuffer();
+        playing = true;
+    }
+
+    /**
+     * Recupera los buffers reproducidos, encola los bloques decodificados y arranca la fuente cuando tiene suficientes. Se llama
+     * desde el hilo principal en cada frame.
+     */
+    void update() {
+        if (finished) return;
+        int processed = device.getSourcei(source, AL_BUFFERS_PROCESSED);
+        for (int i = 0; i < processed; i++) free[freeCount++] = device.sourceUnqueueBuffers(source);
+
+        boolean fed = false;
+        while (freeCount > 0 && consumed < decoded) {
+            int slot = (int) (consumed % RING);
+            ByteBuffer pcm = chunks[slot];
+            pcm.position(0).limit(chunkFrames[slot] * channels * Short.BYTES);
+            int buffer = free[--freeCount];
+            device.bufferData(buffer, format, pcm, sampleRate);
+            device.sourceQueueBuffers(source, buffer);
+            // La escritura volatil libera el bloque para el hilo de streaming
+            consumed++;
+            fed = true;
+        }
+        if (fed) streamer.wake();
+
+        int queued = device.getSourcei(source, AL_BUFFERS_QUEUED);
+        boolean drained = ended && consumed == decoded;
+        if (drained && queued == 0) {
+            playing = false;
+            finished = true;
+            return;
+        }
+        // Espera a tener la cola llena (o el final de la pista) antes de arrancar, para no cortarse enseguida
+        if (playing && !paused && (queued == BUFFERS || drained && queued > 0) &&
+                device.getSourcei(source, AL_SOURCE_STATE) != AL_PLAYING) {
+            if (started) underruns++;
+            device.sourcePlay(source);
+            started = true;
+        }
+    }
+
+    /**
+     * Decodifica bloques hasta llenar el anillo. Se llama desde el hilo de streaming.
+     *
+     * @return true si decodifico algun bloque
+     */
+    boolean fill() {
+        if (ended || closed) return false;
+        if (decoder == null && !open()) return false;
+        boolean worked = false;
+        while (!ended && decoded - consumed < RING) {
+            int slot = (int) (decoded % RING);
+            ShortBuffer view = views[slot];
+            view.clear().limit(CHUNK_FRAMES * channels);
+            boolean rewound = false;
+            while (view.hasRemaining()) {
+                if (decoder.read(view) > 0) {
+                    rewound = false;
+                    continue;
+                }
+                // Al final de la pista: si se repite, sigue desde el principio en el mismo bloque (salvo que la pista este vacia)
+                if (!looping || rewound) break;
+                decoder.rewind();
+                rewound = true;
+            }
+            int frames = view.position() / channels;
+            if (view.hasRemaining()) ended = true;
+            if (frames == 0) break;
+            chunkFrames[slot] = frames;
+            // La escritura volatil publica el bloque al hilo principal
+            decoded++;
+            worked = true;
+        }
+        return worked;
+    }
+
+    /**
+     * Cierra el decodificador y devuelve el anillo al pool. Se llama desde el hilo de streaming despues de {@link #stop()}.
+     */
+    void release() {
+        if (released) return;
+        released = true;
+        if (decoder != null) decoder.close();
+        decoder = null;
+        file.release();
+        for (ByteBuffer chunk : chunks) BufferPool.get().free(chunk);
+    }
+
+    /**
+     * Detiene la pista y libera sus buffers del dispositivo. La fuente vuelve al {@link AudioEngine} en su proxima
+     * actualizacion; para volver a escuchar la pista hay que pedirla de nuevo.
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (closed) return;
+            device.sourceStop(source);
+            // Con la fuente detenida todos los buffers estan procesados, y asignar el buffer 0 vacia la cola
+            device.sourcei(source, AL_BUFFER, 0);
+            for (int buffer : buffers) device.deleteBuffer(buffer);
+            freeCount = 0;
+            playing = false;
+            finished = true;
+            closed = true;
+        }
+        streamer.wake();
+    }
+
+    public void pause() {
+        synchronized (lock) {
+            if (!playing || paused) return;
+            paused = true;
+            device.sourcePause(source);
+        }
+    }
+
+    public void resume() {
+        synchronized (lock) {
+            if (!paused) return;
+            paused = false;
+            if (device.getSourcei(source, AL_SOURCE_STATE) == AL_PAUSED) device.sourcePlay(source);
+        }
+    }
+
+    public void setGain(float gain) {
+        synchronized (lock) {
+            if (!closed) device.sourcef(source, AL_GAIN, gain);
+        }
+    }
+
+    /**
+     * @param looping true para que la pista vuelva a empezar al terminar, sin cortes
+     */
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true mientras la pista no haya terminado ni se haya detenido (aunque este en pausa)
+     */
+    public boolean isPlaying() {
+        synchronized (lock) {
+            return !finished;
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    int getSource() {
+        return source;
+    }
+
+    /**
+     * @return veces que la fuente agoto su cola y hubo que volver a arrancarla
+     */
+    public int getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * @return bloques decodificados desde que empezo la pista
+     */
+    public long getDecodedChunks() {
+        return decoded;
+    }
+
+    private boolean open() {
+        if (!file.isDone()) return false;
+        ByteBuffer encoded = file.getNow();
+        try {
+            if (encoded == null) throw new IOException("The file could not be read!");
+            decoder = AudioDecoder.open(encoded.duplicate(), name);
+        } catch (IOException e) {
+            System.err.println("The '" + name + "' music could not be streamed!");
+            ended = true;
+            return false;
+        }
+        channels = decoder.getChannels();
+        sampleRate = decoder.getSampleRate();
+        // Se escribe ultimo: el hilo principal solo lo lee despues de ver un bloque decodificado
+        format = decoder.getFormat();
+        return true;
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.punkipunk.audio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.openal.AL10.*;
+
+/**
+ * Dispositivo de audio que no emite sonido: guarda la duracion de cada buffer y, en {@link #update(double)}, avanza las fuentes
+ * en reproduccion como lo haria OpenAL. Las fuentes estaticas se detienen (o vuelven a empezar, con {@code AL_LOOPING}) al
+ * terminar su buffer, y las de streaming marcan como procesados los buffers de la cola ya reproducidos y se detienen si se
+ * quedan sin buffers, igual que una fuente real ante un corte.
+ * <p>
+ * Sirve para correr el motor en maquinas sin tarjeta de sonido y para comprobar el streaming y el robo de voces de forma
+ * determinista, ya que el tiempo solo avanza con {@link #update(double)}.
+ */
+
+public class NullAudioDevice implements AudioDevice {
+
+    private final int maxSources;
+    private final Map<Integer, SimulatedBuffer> buffers = new HashMap<>();
+    private final Map<Integer, SimulatedSource> sources = new HashMap<>();
+    private int nextId = 1;
+    private long plays;
+
+    /**
+     * @param maxSources fuentes que admite el dispositivo a la vez, como el limite de una tarjeta de sonido
+     */
+    public NullAudioDevice(int maxSources) {
+        this.maxSources = maxSources;
+    }
+
+    @Override
+    public int genBuffer() {
+        int id = nextId++;
+        buffers.put(id, new SimulatedBuffer());
+        return id;
+    }
+
+    @Override
+    public void bufferData(int buffer, int format, ByteBuffer pcm, int sampleRate) {
+        SimulatedBuffer simulated = buffers.get(buffer);
+        if (simulated == null) return;
+        int channels = format == AL_FORMAT_STEREO16 ? 2 : 1;
+        simulated.frames = pcm.remaining() / (channels * Short.BYTES);
+        simulated.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        buffers.remove(buffer);
+    }
+
+    @Override
+    public int genSource() {
+        if (sources.size() >= maxSources) return 0;
+        int id = nextId++;
+        sources.put(id, new SimulatedSource());
+        return id;
+    }
+
+    @Override
+    public void deleteSource(int source) {
+        sources.remove(source);
+    }
+
+    @Override
+    public void sourcei(int source, int param, int value) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated == null) return;
+        if (param == AL_LOOPING) simulated.looping = value == AL_TRUE;
+        else if (param == AL_BUFFER) {
+            // Asignar un buffer estatico (o 0) vacia la cola de streaming
+            simulated.buffer = value;
+            simulated.queue.clear();
+            simulated.processed = 0;
+            simulated.position = 0;
+        }
+    }
+
+    @Override
+    public void sourcef(int source, int param, float value) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated != null && param == AL_PITCH) simulated.pitch = value;
+    }
+
+    @Override
+    public void source3f(int source, int param, float x, float y, float z) {
+
+    }
+
+    @Override
+    public void sourcePlay(int source) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated == null) return;
+        // Desde una pausa se continua; en cualquier otro caso se empieza desde el principio de lo que queda en cola
+        if (simulated.state != AL_PAUSED) {
+            simulated.position = 0;
+            simulated.processed = 0;
+        }
+        simulated.state = AL_PLAYING;
+        plays++;
+    }
+
+    @Override
+    public void sourcePause(int source) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated != null && simulated.state == AL_PLAYING) simulated.state = AL_PAUSED;
+    }
+
+    @Override
+    public void sourceStop(int source) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated == null) return;
+        simulated.state = AL_STOPPED;
+        simulated.processed = simulated.queue.size();
+        simulated.position = 0;
+    }
+
+    @Override
+    public void sourceQueueBuffers(int source, int buffer) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated != null) simulated.queue.add(buffer);
+    }
+
+    @Override
+    public int sourceUnqueueBuffers(int source) {
+        SimulatedSource simulated = sources.get(source);
+        assert simulated != null && simulated.processed > 0 : "The source has no processed buffers!";
+        simulated.processed--;
+        return simulated.queue.remove(0);
+    }
+
+    @Override
+    public int getSourcei(int source, int param) {
+        SimulatedSource simulated = sources.get(source);
+        if (simulated == null) return 0;
+        return switch (param) {
+            case AL_SOURCE_STATE -> simulated.state;
+            case AL_BUFFER -> simulated.buffer;
+            case AL_BUFFERS_QUEUED -> simulated.queue.size();
+            case AL_BUFFERS_PROCESSED -> simulated.processed;
+            default -> 0;
+        };
+    }
+
+    @Override
+    public void update(double dt) {
+        for (SimulatedSource source : sources.values()) {
+            if (source.state != AL_PLAYING) continue;
+            if (source.queue.isEmpty()) advanceStatic(source, dt);
+            else advanceQueue(source, dt);
+        }
+    }
+
+    @Override
+    public void close() {
+        buffers.clear();
+        sources.clear();
+    }
+
+    /**
+     * @return fuentes que estan reproduciendo
+     */
+    public int getPlayingCount() {
+        int playing = 0;
+        for (SimulatedSource source : sources.values())
+            if (source.state == AL_PLAYING) playing++;
+        return playing;
+    }
+
+    public int getSourceCount() {
+        return sources.size();
+    }
+
+    public int getBufferCount() {
+        return buffers.size();
+    }
+
+    /**
+     * @return llamadas a {@link #sourcePlay(int)} desde que se creo el dispositivo
+     */
+    public long getPlays() {
+        return plays;
+    }
+
+    private void advanceStatic(SimulatedSource source, double dt) {
+        SimulatedBuffer buffer = buffers.get(source.buffer);
+        if (buffer == null || buffer.frames == 0) {
+            source.state = AL_STOPPED;
+            return;
+        }
+        source.position += dt * buffer.sampleRate * source.pitch;
+        if (source.position < buffer.frames) return;
+        if (source.looping) source.position %= buffer.frames;
+        else {
+            source.state = AL_STOPPED;
+            source.position = 0;
+        }
+    }
+
+    private void advanceQueue(SimulatedSource source, double dt) {
+        double remaining = dt;
+        while (remaining > 0 && source.processed < source.queue.size()) {
+            SimulatedBuffer buffer = buffers.get(source.queue.get(source.processed));
+            double rate = buffer != null ? buffer.sampleRate * source.pitch : 0;
+            double left = buffer != null ? buffer.frames - source.position : 0;
+            // Tiempo que falta para terminar el buffer actual
+            double time = rate > 0 ? left / rate : 0;
+            if (remaining < time) {
+                source.position += remaining * rate;
+                return;
+            }
+            remaining -= time;
+            source.position = 0;
+            source.processed++;
+        }
+        // Se reprodujo toda la cola: la fuente se detiene hasta que vuelvan a darle play
+        if (source.processed == source.queue.size()) source.state = AL_STOPPED;
+    }
+
+    private static class SimulatedBuffer {
+        int frames, sampleRate;
+    }
+
+    private static class SimulatedSource {
+        final List<Integer> queue = new ArrayList<>();
+        int state = AL_INITIAL, buffer, processed;
+        boolean looping;
+        float pitch = 1;
+        // Posicion dentro del buffer actual, en frames
+        double position;
+    }
+
+}
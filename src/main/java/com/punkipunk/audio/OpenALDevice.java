@@ -0,0 +1,127 @@
+package com.punkipunk.audio;
+
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALCCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.ALC10.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Implementacion de {@link AudioDevice} que delega cada llamada en los bindings de OpenAL de LWJGL, sobre el dispositivo de
+ * salida predeterminado del sistema.
+ */
+
+public class OpenALDevice implements AudioDevice {
+
+    private final long device, context;
+
+    private OpenALDevice(long device, long context) {
+        this.device = device;
+        this.context = context;
+    }
+
+    /**
+     * Abre el dispositivo predeterminado y hace actual su contexto.
+     *
+     * @throws IllegalStateException si no hay dispositivo de audio o no se pudo crear el contexto
+     */
+    public static OpenALDevice open() {
+        long device = alcOpenDevice((ByteBuffer) null);
+        if (device == NULL) throw new IllegalStateException("No audio device could be opened!");
+        ALCCapabilities capabilities = ALC.createCapabilities(device);
+        long context = alcCreateContext(device, (IntBuffer) null);
+        if (context == NULL || !alcMakeContextCurrent(context)) {
+            if (context != NULL) alcDestroyContext(context);
+            alcCloseDevice(device);
+            throw new IllegalStateException("The OpenAL context could not be created!");
+        }
+        AL.createCapabilities(capabilities);
+        return new OpenALDevice(device, context);
+    }
+
+    @Override
+    public int genBuffer() {
+        return alGenBuffers();
+    }
+
+    @Override
+    public void bufferData(int buffer, int format, ByteBuffer pcm, int sampleRate) {
+        alBufferData(buffer, format, pcm, sampleRate);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        alDeleteBuffers(buffer);
+    }
+
+    @Override
+    public int genSource() {
+        alGetError();
+        int source = alGenSources();
+        // Al agotar las fuentes del dispositivo OpenAL informa un error en lugar de devolver 0
+        return alGetError() == AL_NO_ERROR ? source : 0;
+    }
+
+    @Override
+    public void deleteSource(int source) {
+        alDeleteSources(source);
+    }
+
+    @Override
+    public void sourcei(int source, int param, int value) {
+        alSourcei(source, param, value);
+    }
+
+    @Override
+    public void sourcef(int source, int param, float value) {
+        alSourcef(source, param, value);
+    }
+
+    @Override
+    public void source3f(int source, int param, float x, float y, float z) {
+        alSource3f(source, param, x, y, z);
+    }
+
+    @Override
+    public void sourcePlay(int source) {
+        alSourcePlay(source);
+    }
+
+    @Override
+    public void sourcePause(int source) {
+        alSourcePause(source);
+    }
+
+    @Override
+    public void sourceStop(int source) {
+        alSourceStop(source);
+    }
+
+    @Override
+    public void sourceQueueBuffers(int source, int buffer) {
+        alSourceQueueBuffers(source, buffer);
+    }
+
+    @Override
+    public int sourceUnqueueBuffers(int source) {
+        return alSourceUnqueueBuffers(source);
+    }
+
+    @Override
+    public int getSourcei(int source, int param) {
+        return alGetSourcei(source, param);
+    }
+
+    @Override
+    public void close() {
+        alcMakeContextCurrent(NULL);
+        alcDestroyContext(context);
+        alcCloseDevice(device);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.punkipunk.audio;
+
+/**
+ * Sonido corto decodificado por completo en un buffer del {@link AudioDevice}, compartido por todas las voces que lo
+ * reproducen. Se obtiene de la {@link SoundCache} antes de terminar de cargarse: hasta que {@link #isLoaded()} sea true,
+ * reproducirlo no tiene efecto.
+ */
+
+public class Sound {
+
+    private final String name;
+    private int buffer, channels, sampleRate, frames;
+    private volatile boolean failed;
+
+    Sound(String name) {
+        this.name = name;
+    }
+
+    void loaded(int buffer, int channels, int sampleRate, int frames) {
+        this.buffer = buffer;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.frames = frames;
+    }
+
+    void failed() {
+        failed = true;
+    }
+
+    void unloaded() {
+        buffer = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isLoaded() {
+        return buffer != 0;
+    }
+
+    /**
+     * @return true si el archivo no se pudo leer o decodificar
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return buffer del dispositivo con las muestras, o 0 si todavia no se cargo
+     */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @return duracion en segundos
+     */
+    public float getDuration() {
+        return sampleRate > 0 ? (float) frames / sampleRate : 0;
+    }
+
+    /**
+     * @return bytes que ocupan las muestras en el dispositivo
+     */
+    public long getSizeBytes() {
+        return (long) frames * channels * Short.BYTES;
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.punkipunk.audio;
+
+import com.punkipunk.util.BufferPool;
+import com.punkipunk.util.ResourceHandle;
+import com.punkipunk.util.ResourceManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache de sonidos cortos, cada uno decodificado una sola vez.
+ * <p>
+ * Como en el {@link com.punkipunk.renderer.TextureLoader}, el archivo se lee con el {@link ResourceManager} y se decodifica por
+ * completo en un hilo de trabajo a un buffer del {@link BufferPool}; lo unico que necesita el dispositivo, copiar las muestras a
+ * un buffer de audio, lo hace el hilo principal en {@link #processUploads()}, despues de lo cual el PCM se devuelve al pool. Los
+ * sonidos quedan en la cache hasta {@link #unload(String)} o {@link #dispose()}.
+ */
+
+public class SoundCache {
+
+    private final AudioDevice device;
+    private final ResourceManager resources;
+    private final ExecutorService workers;
+    private final Map<String, Sound> sounds = new HashMap<>();
+    private final Queue<Decoded> decoded = new ConcurrentLinkedQueue<>();
+    private volatile boolean disposed;
+    private long uploadedBytes;
+
+    public SoundCache(AudioDevice device, ResourceManager resources) {
+        this.device = device;
+        this.resources = resources;
+        this.workers = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sound-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Devuelve el sonido del recurso, empezando a cargarlo si es la primera vez que se pide. Puede llamarse desde el hilo
+     * principal o desde el {@code preload} de una escena, pero no desde varios hilos a la vez.
+     */
+    public Sound load(String resourceName) {
+        Sound sound = sounds.get(resourceName);
+        // Una carga fallida se reintenta
+        if (sound != null && !sound.isFailed()) return sound;
+        Sound created = new Sound(resourceName);
+        sounds.put(resourceName, created);
+        ResourceHandle<ByteBuffer> file = resources.loadBytes(resourceName);
+        file.future().thenApplyAsync(encoded -> {
+            try {
+                // El buffer es compartido por la cache de recursos, por lo que el decodificador recibe una vista propia
+                return decode(created, encoded.duplicate());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, workers).whenComplete((result, error) -> {
+            file.release();
+            if (error == null) {
+                decoded.add(result);
+                // Un sonido que termina de decodificarse despues de dispose() no se va a subir
+                if (disposed) freeDecoded();
+            } else {
+                created.failed();
+                System.err.println("The '" + resourceName + "' sound could not be loaded!");
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Copia al dispositivo los sonidos ya decodificados. Debe llamarse desde el hilo principal.
+     *
+     * @return cantidad de sonidos subidos
+     */
+    public int processUploads() {
+        int processed = 0;
+        Decoded result;
+        while ((result = decoded.poll()) != null) {
+            // El sonido pudo descargarse mientras se decodificaba
+            if (sounds.get(result.sound.getName()) == result.sound) {
+                int buffer = device.genBuffer();
+                device.bufferData(buffer, result.format, result.pcm, result.sampleRate);
+                result.sound.loaded(buffer, result.channels, result.sampleRate, result.frames);
+                uploadedBytes += result.pcm.remaining();
+                processed++;
+            }
+            BufferPool.get().free(result.pcm);
+        }
+        return processed;
+    }
+
+    /**
+     * Quita el sonido de la cache y libera su buffer. No debe haber voces reproduciendolo (ver
+     * {@link AudioEngine#unloadSound(String)}).
+     */
+    public void unload(String resourceName) {
+        Sound sound = sounds.remove(resourceName);
+        if (sound != null && sound.isLoaded()) device.deleteBuffer(sound.getBuffer());
+        if (sound != null) sound.unloaded();
+    }
+
+    public void dispose() {
+        disposed = true;
+        workers.shutdownNow();
+        for (Sound sound : sounds.values()) {
+            if (sound.isLoaded()) device.deleteBuffer(sound.getBuffer());
+            sound.unloaded();
+        }
+        sounds.clear();
+        freeDecoded();
+    }
+
+    public Sound get(String resourceName) {
+        return sounds.get(resourceName);
+    }
+
+    public int size() {
+        return sounds.size();
+    }
+
+    /**
+     * @return bytes de muestras copiados al dispositivo
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * Decodifica la pista completa a un buffer del pool.
+     */
+    private static Decoded decode(Sound sound, ByteBuffer encoded) throws IOException {
+        AudioDecoder decoder = AudioDecoder.open(encoded, sound.getName());
+        try {
+            int samples = Math.max(1, decoder.getFrameCount() * decoder.getChannels());
+            ByteBuffer pcm = BufferPool.get().allocate(samples * Short.BYTES);
+            try {
+                ShortBuffer view = pcm.asShortBuffer();
+                while (view.hasRemaining())
+                    if (decoder.read(view) == 0) break;
+                pcm.limit(view.position() * Short.BYTES);
+                return new Decoded(sound, pcm, decoder.getFormat(), decoder.getChannels(), decoder.getSampleRate(),
+                        view.position() / decoder.getChannels());
+            } catch (RuntimeException e) {
+                BufferPool.get().free(pcm);
+                throw e;
+            }
+        } finally {
+            decoder.close();
+        }
+    }
+
+    /**
+     * Devuelve al pool el PCM de los sonidos decodificados que no se van a subir. Puede correr a la vez en varios hilos: cada
+     * sonido lo saca de la cola uno solo.
+     */
+    private void freeDecoded() {
+        Decoded result;
+        while ((result = decoded.poll()) != null) BufferPool.get().free(result.pcm);
+    }
+
+    private record Decoded(Sound sound, ByteBuffer pcm, int format, int channels, int sampleRate, int frames) {
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.punkipunk.audio;
+
+import org.lwjgl.stb.STBVorbisInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.stb.STBVorbis.*;
+
+/**
+ * Decodificador de Ogg Vorbis con {@code stb_vorbis}. Solo mantiene en memoria el archivo comprimido y el estado del
+ * decodificador; las muestras se generan a medida que se leen.
+ */
+
+class VorbisDecoder implements AudioDecoder {
+
+    // Se conserva para que el buffer (por ejemplo, un archivo mapeado) no se libere mientras stb_vorbis lo lee
+    private final ByteBuffer encoded;
+    private final int channels, sampleRate, frames;
+    private long handle;
+
+    VorbisDecoder(ByteBuffer encoded, String name) throws IOException {
+        this.encoded = encoded;
+        int[] error = new int[1];
+        handle = stb_vorbis_open_memory(encoded, error, null);
+        if (handle == 0) throw new IOException("The '" + name + "' Ogg Vorbis file could not be decoded (error " + error[0] + ")!");
+        try (STBVorbisInfo info = STBVorbisInfo.malloc()) {
+            stb_vorbis_get_info(handle, info);
+            channels = info.channels();
+            sampleRate = info.sample_rate();
+        }
+        frames = stb_vorbis_stream_length_in_samples(handle);
+        if (channels > 2) {
+            close();
+            throw new IOException("The '" + name + "' file has " + channels + " channels, only mono and stereo are supported!");
+        }
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public int read(ShortBuffer pcm) {
+        int limit = pcm.limit();
+        // Solo frames completos
+        pcm.limit(pcm.position() + pcm.remaining() / channels * channels);
+        int read = stb_vorbis_get_samples_short_interleaved(handle, channels, pcm);
+        pcm.limit(limit);
+        pcm.position(pcm.position() + read * channels);
+        return read;
+    }
+
+    @Override
+    public void rewind() {
+        stb_vorbis_seek_start(handle);
+    }
+
+    @Override
+    public void close() {
+        if (handle != 0) stb_vorbis_close(handle);
+        handle = 0;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.punkipunk.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Lector de archivos WAV con PCM de 16 bits, mono o estereo. Las muestras ya estan sin comprimir, por lo que leer es copiarlas
+ * del archivo (que puede estar mapeado en memoria) al buffer de destino.
+ */
+
+class WavDecoder implements AudioDecoder {
+
+    private static final int PCM = 1;
+
+    private final int channels, sampleRate, frames;
+    // Vista de las muestras del chunk "data", en little endian como las guarda el formato
+    private final ShortBuffer samples;
+
+    WavDecoder(ByteBuffer encoded, String name) throws IOException {
+        ByteBuffer file = encoded.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (file.remaining() < 12 || file.getInt(8) != ('W' | 'A' << 8 | 'V' << 16 | 'E' << 24))
+            throw new IOException("The '" + name + "' file is not a WAV file!");
+
+        int format = 0, channels = 0, sampleRate = 0, bits = 0;
+        ShortBuffer samples = null;
+        // Recorre los chunks hasta encontrar "fmt " y "data"
+        int position = 12;
+        while (position + 8 <= file.limit() && samples == null) {
+            int id = file.getInt(position), size = file.getInt(position + 4), data = position + 8;
+            if (size < 0 || data + size > file.limit()) size = file.limit() - data;
+            if (id == ('f' | 'm' << 8 | 't' << 16 | ' ' << 24) && size >= 16) {
+                format = file.getShort(data) & 0xFFFF;
+                channels = file.getShort(data + 2) & 0xFFFF;
+                sampleRate = file.getInt(data + 4);
+                bits = file.getShort(data + 14) & 0xFFFF;
+            } else if (id == ('d' | 'a' << 8 | 't' << 16 | 'a' << 24)) {
+                samples = file.slice(data, size).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            }
+            // Los chunks de tamaño impar llevan un byte de relleno
+            position = data + size + (size & 1);
+        }
+        if (format != PCM || bits != 16 || channels < 1 || channels > 2 || samples == null)
+            throw new IOException("The '" + name + "' file must be 16-bit mono or stereo PCM!");
+
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.samples = samples;
+        frames = samples.capacity() / channels;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public int read(ShortBuffer pcm) {
+        int count = Math.min(pcm.remaining(), samples.remaining()) / channels * channels;
+        int limit = samples.limit();
+        samples.limit(samples.position() + count);
+        pcm.put(samples);
+        samples.limit(limit);
+        return count / channels;
+    }
+
+    @Override
+    public void rewind() {
+        samples.rewind();
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
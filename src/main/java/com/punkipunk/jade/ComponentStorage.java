@@ -0,0 +1,190 @@
+package com.punkipunk.jade;
+
+import java.util.Arrays;
+
+/**
+ * Almacenamiento de un tipo de componente basado en un sparse set con columnas primitivas (estructura de arreglos).
+ * <p>
+ * El arreglo {@code sparse} traduce el indice de una entidad a su posicion en el arreglo denso, y el arreglo denso guarda las
+ * entidades que tienen el componente de forma contigua. Cada campo del componente es una columna paralela al arreglo denso, por
+ * lo que un sistema que recorre {@code 0..size()} accede a memoria contigua sin crear ni desreferenciar objetos. Al eliminar un
+ * componente, el ultimo elemento ocupa su lugar para que los arreglos sigan compactos.
+ */
+
+public class ComponentStorage {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ComponentType type;
+    private final float[][] floats;
+    private final int[][] ints;
+    private int[] sparse = new int[0];
+    private int[] dense = new int[INITIAL_CAPACITY];
+    private int size;
+    // Se incrementa con cada cambio estructural (agregar, eliminar o reordenar)
+    private int version;
+    // Resultado del ultimo sortLike(), reutilizado mientras ninguno de los dos almacenamientos cambie
+    private ComponentStorage alignedWith;
+    private int alignedVersion, alignedLeaderVersion, alignedCount;
+
+    public ComponentStorage(ComponentType type) {
+        this.type = type;
+        floats = new float[type.getFloatFieldCount()][INITIAL_CAPACITY];
+        ints = new int[type.getIntFieldCount()][INITIAL_CAPACITY];
+    }
+
+    /**
+     * Agrega el componente a la entidad con todos sus campos en cero.
+     *
+     * @return posicion del componente en las columnas
+     */
+    public int add(int entity) {
+        int index = World.index(entity);
+        if (index >= sparse.length) {
+            int oldLength = sparse.length;
+            sparse = Arrays.copyOf(sparse, Math.max(index + 1, oldLength * 2));
+            Arrays.fill(sparse, oldLength, sparse.length, -1);
+        }
+        assert sparse[index] == -1 : "The entity already has the component " + type.getName();
+        if (size == dense.length) grow();
+        dense[size] = entity;
+        sparse[index] = size;
+        for (float[] column : floats) column[size] = 0;
+        for (int[] column : ints) column[size] = 0;
+        version++;
+        return size++;
+    }
+
+    /**
+     * Elimina el componente de la entidad moviendo el ultimo elemento a su posicion.
+     */
+    public void remove(int entity) {
+        int position = indexOf(entity);
+        if (position < 0) return;
+        int last = --size;
+        if (position != last) {
+            int moved = dense[last];
+            dense[position] = moved;
+            sparse[World.index(moved)] = position;
+            for (float[] column : floats) column[position] = column[last];
+            for (int[] column : ints) column[position] = column[last];
+        }
+        sparse[World.index(entity)] = -1;
+        version++;
+    }
+
+    /**
+     * Reserva lugar para {@code capacity} componentes, para no crecer varias veces al agregar muchos de una vez (por ejemplo, al
+     * cargar un nivel).
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= dense.length) return;
+        dense = Arrays.copyOf(dense, capacity);
+        for (int i = 0; i < floats.length; i++) floats[i] = Arrays.copyOf(floats[i], capacity);
+        for (int i = 0; i < ints.length; i++) ints[i] = Arrays.copyOf(ints[i], capacity);
+    }
+
+    public boolean has(int entity) {
+        return indexOf(entity) >= 0;
+    }
+
+    /**
+     * @return posicion del componente de la entidad en las columnas, o -1 si no lo tiene
+     */
+    public int indexOf(int entity) {
+        int index = World.index(entity);
+        if (index >= sparse.length) return -1;
+        int position = sparse[index];
+        return position >= 0 && dense[position] == entity ? position : -1;
+    }
+
+    /**
+     * Reordena este almacenamiento para que las entidades que tambien estan en {@code leader} ocupen las primeras posiciones y en
+     * el mismo orden. Despues de alinearlos, un sistema que recorre ambos puede usar la misma posicion en los dos sin buscar
+     * cada entidad en el arreglo sparse.
+     *
+     * @return cantidad de entidades alineadas al principio de ambos almacenamientos (solo si {@code leader} no tiene entidades
+     * fuera de este almacenamiento coincide con {@code leader.size()})
+     */
+    public int sortLike(ComponentStorage leader) {
+        if (alignedWith == leader && alignedVersion == version && alignedLeaderVersion == leader.version) return alignedCount;
+        int next = 0;
+        for (int i = 0; i < leader.size; i++) {
+            int position = indexOf(leader.dense[i]);
+            if (position < 0) continue;
+            swap(position, next++);
+        }
+        alignedWith = leader;
+        alignedVersion = ++version;
+        alignedLeaderVersion = leader.version;
+        alignedCount = next;
+        return next;
+    }
+
+    public float getFloat(int entity, int field) {
+        return floats[field][indexOf(entity)];
+    }
+
+    public void setFloat(int entity, int field, float value) {
+        floats[field][indexOf(entity)] = value;
+    }
+
+    public int getInt(int entity, int field) {
+        return ints[field][indexOf(entity)];
+    }
+
+    public void setInt(int entity, int field, int value) {
+        ints[field][indexOf(entity)] = value;
+    }
+
+    /**
+     * Devuelve la columna de un campo flotante. La referencia cambia cuando el almacenamiento crece, por lo que no debe
+     * conservarse mientras se agregan componentes.
+     */
+    public float[] floatColumn(int field) {
+        return floats[field];
+    }
+
+    public int[] intColumn(int field) {
+        return ints[field];
+    }
+
+    /**
+     * @return entidad en la posicion indicada del arreglo denso
+     */
+    public int entity(int position) {
+        return dense[position];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ComponentType getType() {
+        return type;
+    }
+
+    private void swap(int a, int b) {
+        if (a == b) return;
+        int entityA = dense[a], entityB = dense[b];
+        dense[a] = entityB;
+        dense[b] = entityA;
+        sparse[World.index(entityA)] = b;
+        sparse[World.index(entityB)] = a;
+        for (float[] column : floats) {
+            float tmp = column[a];
+            column[a] = column[b];
+            column[b] = tmp;
+        }
+        for (int[] column : ints) {
+            int tmp = column[a];
+            column[a] = column[b];
+            column[b] = tmp;
+        }
+    }
+
+    private void grow() {
+        ensureCapacity(dense.length * 2);
+    }
+
+}
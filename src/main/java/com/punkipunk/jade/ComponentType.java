@@ -0,0 +1,63 @@
+package com.punkipunk.jade;
+
+import java.util.Arrays;
+
+/**
+ * Describe un tipo de componente como un conjunto de campos primitivos.
+ * <p>
+ * Un componente no es un objeto: cada campo se almacena en su propio arreglo ({@code float[]} o {@code int[]}) dentro de un
+ * {@link ComponentStorage}, y los campos se identifican por su indice en el orden en que fueron declarados.
+ */
+
+public final class ComponentType {
+
+    private static int nextId;
+
+    private final int id;
+    private final String name;
+    private final String[] floatFields;
+    private final String[] intFields;
+
+    public ComponentType(String name, String... floatFields) {
+        this(name, floatFields, new String[0]);
+    }
+
+    public ComponentType(String name, String[] floatFields, String[] intFields) {
+        synchronized (ComponentType.class) {
+            this.id = nextId++;
+        }
+        this.name = name;
+        this.floatFields = floatFields.clone();
+        this.intFields = intFields.clone();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFloatFieldCount() {
+        return floatFields.length;
+    }
+
+    public int getIntFieldCount() {
+        return intFields.length;
+    }
+
+    public String getFloatField(int index) {
+        return floatFields[index];
+    }
+
+    public String getIntField(int index) {
+        return intFields[index];
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(floatFields) + Arrays.toString(intFields);
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.punkipunk.jade;
+
+/**
+ * Tipos de componentes basicos del motor y los indices de sus campos.
+ */
+
+public final class Components {
+
+    // Posicion (esquina inferior izquierda) y tamaño
+    public static final ComponentType TRANSFORM = new ComponentType("Transform", "x", "y", "width", "height");
+    public static final int X = 0, Y = 1, WIDTH = 2, HEIGHT = 3;
+
+    public static final ComponentType VELOCITY = new ComponentType("Velocity", "x", "y");
+    public static final int VX = 0, VY = 1;
+
+    public static final ComponentType COLOR = new ComponentType("Color", "r", "g", "b", "a");
+    public static final int R = 0, G = 1, B = 2, A = 3;
+
+    // Handle del cuadrado en el Renderer
+    public static final ComponentType SPRITE = new ComponentType("Sprite", new String[0], new String[]{"handle"});
+    public static final int HANDLE = 0;
+
+    private Components() {
+
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.renderer.*;
+
+import java.util.Random;
+
+import static com.punkipunk.jade.Components.*;
+
+/**
+ * Escena con una multitud de cuadrados que se mueven por la pantalla (un millon por defecto, o la cantidad indicada con
+ * {@code -Djade.crowd=<cantidad>}), dibujados con el {@link InstancedRenderer} en una sola draw call.
+ * <p>
+ * Los datos de las instancias se empaquetan en paralelo durante {@link #prepare(double)} en uno de dos {@link InstanceBuffer}s,
+ * mientras el render sube el otro, y se intercambian junto con las listas de comandos.
+ */
+
+public class CrowdScene extends Scene {
+
+    // Entidades por bloque de los recorridos en paralelo
+    private static final int GRAIN = 16384;
+    private static final float SIZE = 3;
+
+    private final int count = Integer.getInteger("jade.crowd", 1_000_000);
+    private final InstanceBuffer[] instances = {new InstanceBuffer(count), new InstanceBuffer(count)};
+    private int recording;
+    private Camera camera;
+    private Shader shader;
+    private InstancedRenderer renderer;
+    private float worldWidth, worldHeight;
+
+    public CrowdScene() {
+
+    }
+
+    @Override
+    public void preload() {
+
+        Window window = Window.getInstance();
+        worldWidth = window.getWidth();
+        worldHeight = window.getHeight();
+        camera = new Camera(window.getGL(), worldWidth, worldHeight);
+        camera.setPosition(worldWidth / 2, worldHeight / 2);
+        addSystem(new MovementSystem(jobs()));
+
+        // Todas las entidades tienen los tres componentes, agregados en el mismo orden, por lo que comparten indices
+        Random random = new Random(0);
+        ComponentStorage transforms = world.storage(TRANSFORM), velocities = world.storage(VELOCITY), colors = world.storage(COLOR);
+        transforms.ensureCapacity(count);
+        velocities.ensureCapacity(count);
+        colors.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            int entity = world.create();
+            int t = world.add(entity, TRANSFORM);
+            transforms.floatColumn(X)[t] = random.nextFloat() * worldWidth;
+            transforms.floatColumn(Y)[t] = random.nextFloat() * worldHeight;
+            transforms.floatColumn(WIDTH)[t] = SIZE;
+            transforms.floatColumn(HEIGHT)[t] = SIZE;
+            int v = world.add(entity, VELOCITY);
+            velocities.floatColumn(VX)[v] = (random.nextFloat() - 0.5f) * 0.2f * worldWidth;
+            velocities.floatColumn(VY)[v] = (random.nextFloat() - 0.5f) * 0.2f * worldHeight;
+            int c = world.add(entity, COLOR);
+            colors.floatColumn(R)[c] = transforms.floatColumn(X)[t] / worldWidth;
+            colors.floatColumn(G)[c] = transforms.floatColumn(Y)[t] / worldHeight;
+            colors.floatColumn(B)[c] = 1.0f;
+            colors.floatColumn(A)[c] = 1.0f;
+        }
+
+    }
+
+    @Override
+    public void upload(GLTaskQueue queue) {
+
+        queue.add(() -> {
+            shader = Window.getInstance().getShaderLibrary().get("shaders/instancedVertex.glsl", "shaders/fragmentShader.glsl");
+            shader.bindUniformBlock(Camera.BLOCK_NAME, Camera.BINDING);
+            renderer = new InstancedRenderer(Window.getInstance().getGL());
+            renderer.start();
+        });
+
+    }
+
+    @Override
+    public void dispose() {
+
+        if (renderer != null) renderer.dispose();
+        if (camera != null) camera.dispose();
+        for (InstanceBuffer buffer : instances) buffer.dispose();
+
+    }
+
+    @Override
+    public void update(double dt) {
+
+        updateSystems(dt);
+        wrap();
+
+    }
+
+    @Override
+    public void prepare(double alpha) {
+
+        ComponentStorage transforms = world.storage(TRANSFORM), colors = world.storage(COLOR);
+        float[] x = transforms.floatColumn(X), y = transforms.floatColumn(Y);
+        float[] width = transforms.floatColumn(WIDTH), height = transforms.floatColumn(HEIGHT);
+        float[] r = colors.floatColumn(R), g = colors.floatColumn(G), b = colors.floatColumn(B), a = colors.floatColumn(A);
+        InstanceBuffer buffer = instances[recording];
+        buffer.resize(transforms.size());
+        jobs().parallelFor(transforms.size(), GRAIN, (start, end) -> {
+            for (int i = start; i < end; i++)
+                buffer.set(i, x[i] + width[i] / 2, y[i] + height[i] / 2, width[i], height[i], 0,
+                        InstanceBuffer.color(r[i], g[i], b[i], a[i]), 0, 0, 1, 1);
+        });
+
+    }
+
+    @Override
+    protected void swapFrameData() {
+
+        recording ^= 1;
+
+    }
+
+    @Override
+    public void render(double alpha) {
+
+        camera.upload();
+        shader.use();
+        renderer.render(shader, null, instances[recording ^ 1]);
+
+    }
+
+    /**
+     * Lleva del otro lado de la pantalla a los cuadrados que salen de ella.
+     */
+    private void wrap() {
+        ComponentStorage transforms = world.storage(TRANSFORM);
+        float[] x = transforms.floatColumn(X), y = transforms.floatColumn(Y);
+        float w = worldWidth, h = worldHeight;
+        jobs().parallelFor(transforms.size(), GRAIN, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                if (x[i] < 0) x[i] += w;
+                else if (x[i] >= w) x[i] -= w;
+                if (y[i] < 0) y[i] += h;
+                else if (y[i] >= h) y[i] -= h;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.punkipunk.jade;
+
+/**
+ * Logica que se ejecuta sobre las entidades que tienen un conjunto de componentes.
+ */
+
+@FunctionalInterface
+public interface EntitySystem {
+
+    void update(World world, double dt);
+
+}
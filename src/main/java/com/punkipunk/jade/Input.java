@@ -0,0 +1,153 @@
+package com.punkipunk.jade;
+
+import java.util.Arrays;
+
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+
+/**
+ * Subsistema de entrada.
+ * <p>
+ * Las devoluciones de llamada de GLFW solo encolan el evento en una {@link InputQueue}, sin tocar estado compartido. Una vez por
+ * frame, despues de {@code glfwPollEvents}, {@link #snapshot()} vacia la cola y arma un {@link InputSnapshot} con el estado
+ * final, las transiciones del frame y los desplazamientos acumulados de todos los eventos (no solo del ultimo). La instantanea se
+ * publica en un campo volatil, de modo que otro hilo puede leer {@link #current()} sin ver estados a medio actualizar.
+ * <p>
+ * Se reutilizan tres instantaneas en rotacion, por lo que armar una no crea objetos.
+ */
+
+public class Input {
+
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final InputQueue queue = new InputQueue(QUEUE_CAPACITY);
+    private final InputSnapshot[] snapshots = {new InputSnapshot(), new InputSnapshot(), new InputSnapshot()};
+    private final InputQueue.Consumer apply = this::apply;
+    private volatile InputSnapshot current = snapshots[0];
+    private InputSnapshot building;
+    private int next = 1;
+    private boolean hasPosition;
+
+    private Input() {
+
+    }
+
+    public static void keyCallback(long window, int key, int scancode, int action, int mods) {
+        get().queue.offer(InputQueue.KEY, key, action, 0, 0);
+    }
+
+    public static void mousePosCallback(long window, double xpos, double ypos) {
+        get().queue.offer(InputQueue.MOUSE_MOVE, 0, 0, xpos, ypos);
+    }
+
+    public static void mouseButtonCallback(long window, int button, int action, int mods) {
+        get().queue.offer(InputQueue.MOUSE_BUTTON, button, action, 0, 0);
+    }
+
+    public static void mouseScrollCallback(long window, double xOffset, double yOffset) {
+        get().queue.offer(InputQueue.SCROLL, 0, 0, xOffset, yOffset);
+    }
+
+    /**
+     * Procesa los eventos encolados desde la instantanea anterior y publica una nueva. Debe llamarse desde un unico hilo (el
+     * principal), una vez por frame.
+     *
+     * @return la nueva instantanea
+     */
+    public InputSnapshot snapshot() {
+        InputSnapshot previous = current;
+        InputSnapshot snapshot = snapshots[next];
+        next = next == snapshots.length - 1 ? 0 : next + 1;
+
+        // El estado persistente se arrastra del frame anterior y las transiciones empiezan vacias
+        System.arraycopy(previous.keysDown, 0, snapshot.keysDown, 0, InputSnapshot.KEY_WORDS);
+        Arrays.fill(snapshot.keysPressed, 0);
+        Arrays.fill(snapshot.keysReleased, 0);
+        snapshot.buttonsDown = previous.buttonsDown;
+        snapshot.buttonsPressed = 0;
+        snapshot.buttonsReleased = 0;
+        snapshot.mouseX = previous.mouseX;
+        snapshot.mouseY = previous.mouseY;
+        snapshot.dx = snapshot.dy = 0;
+        snapshot.scrollX = snapshot.scrollY = 0;
+        snapshot.dragging = previous.dragging;
+        snapshot.frame = previous.frame + 1;
+
+        building = snapshot;
+        snapshot.events = queue.drain(apply);
+        building = null;
+
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return la ultima instantanea publicada; sigue siendo valida hasta que se publiquen dos mas
+     */
+    public InputSnapshot current() {
+        return current;
+    }
+
+    /**
+     * @return eventos descartados porque la cola se lleno entre dos instantaneas
+     */
+    public long getDroppedEvents() {
+        return queue.getDropped();
+    }
+
+    public static Input get() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private void apply(int type, int code, int action, double x, double y) {
+        InputSnapshot s = building;
+        switch (type) {
+            case InputQueue.KEY -> {
+                // GLFW_KEY_UNKNOWN es -1
+                if (code < 0 || code >= InputSnapshot.KEY_WORDS * Long.SIZE) return;
+                int word = code >>> 6;
+                long bit = 1L << code;
+                if (action == GLFW_PRESS) {
+                    if ((s.keysDown[word] & bit) == 0) s.keysPressed[word] |= bit;
+                    s.keysDown[word] |= bit;
+                } else if (action == GLFW_RELEASE) {
+                    s.keysDown[word] &= ~bit;
+                    s.keysReleased[word] |= bit;
+                }
+            }
+            case InputQueue.MOUSE_BUTTON -> {
+                if (code < 0 || code >= Integer.SIZE) return;
+                int bit = 1 << code;
+                if (action == GLFW_PRESS) {
+                    if ((s.buttonsDown & bit) == 0) s.buttonsPressed |= bit;
+                    s.buttonsDown |= bit;
+                } else if (action == GLFW_RELEASE) {
+                    s.buttonsDown &= ~bit;
+                    s.buttonsReleased |= bit;
+                    s.dragging = false;
+                }
+            }
+            case InputQueue.MOUSE_MOVE -> {
+                // El primer evento solo fija la posicion, para no generar un salto desde el origen
+                if (hasPosition) {
+                    s.dx += x - s.mouseX;
+                    s.dy += y - s.mouseY;
+                }
+                hasPosition = true;
+                s.mouseX = x;
+                s.mouseY = y;
+                // Si uno de los botones del mouse se esta presionando y el mouse se acaba de mover, entonces el usuario esta arrastrando algo
+                if (s.buttonsDown != 0) s.dragging = true;
+            }
+            case InputQueue.SCROLL -> {
+                s.scrollX += x;
+                s.scrollY += y;
+            }
+        }
+    }
+
+    private static class SingletonHolder {
+        private static final Input INSTANCE = new Input();
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.punkipunk.jade;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola circular de eventos de entrada sin bloqueos para un unico productor (el hilo que llama a {@code glfwPollEvents}) y un
+ * unico consumidor (el que toma la instantanea del frame).
+ * <p>
+ * Los eventos se guardan en arreglos primitivos reservados una sola vez, por lo que encolar un evento no crea objetos. El
+ * productor solo escribe {@code head} y el consumidor solo escribe {@code tail}; la publicacion con {@code lazySet} garantiza que
+ * el consumidor vea los datos del evento antes que el nuevo {@code head}. Si la cola se llena, los eventos nuevos se descartan y
+ * se cuentan en {@link #getDropped()}.
+ */
+
+public final class InputQueue {
+
+    public static final int KEY = 0;
+    public static final int MOUSE_BUTTON = 1;
+    public static final int MOUSE_MOVE = 2;
+    public static final int SCROLL = 3;
+
+    private final int mask;
+    private final int[] types;
+    private final int[] codes;
+    private final int[] actions;
+    private final double[] xs;
+    private final double[] ys;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long dropped;
+
+    /**
+     * @param capacity cantidad maxima de eventos pendientes (se redondea a la siguiente potencia de dos)
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        types = new int[size];
+        codes = new int[size];
+        actions = new int[size];
+        xs = new double[size];
+        ys = new double[size];
+    }
+
+    /**
+     * Encola un evento. Solo debe llamarse desde el hilo productor.
+     *
+     * @return false si la cola esta llena y el evento se descarto
+     */
+    public boolean offer(int type, int code, int action, double x, double y) {
+        long h = head.get();
+        if (h - tail.get() > mask) {
+            dropped++;
+            return false;
+        }
+        int i = (int) h & mask;
+        types[i] = type;
+        codes[i] = code;
+        actions[i] = action;
+        xs[i] = x;
+        ys[i] = y;
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * Entrega al consumidor todos los eventos publicados hasta el momento. Solo debe llamarse desde el hilo consumidor.
+     *
+     * @return cantidad de eventos procesados
+     */
+    public int drain(Consumer consumer) {
+        long t = tail.get();
+        long h = head.get();
+        for (long e = t; e < h; e++) {
+            int i = (int) e & mask;
+            consumer.accept(types[i], codes[i], actions[i], xs[i], ys[i]);
+        }
+        tail.lazySet(h);
+        return (int) (h - t);
+    }
+
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return eventos descartados por encontrar la cola llena
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(int type, int code, int action, double x, double y);
+    }
+
+}
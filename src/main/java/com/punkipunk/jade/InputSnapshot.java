@@ -0,0 +1,112 @@
+package com.punkipunk.jade;
+
+/**
+ * Estado de la entrada en un frame.
+ * <p>
+ * Solo tiene metodos de consulta: lo llena {@link Input#snapshot()} y despues no cambia hasta que se reutiliza, dos instantaneas
+ * mas tarde. Por eso la logica del juego puede leerlo desde otro hilo mientras el hilo principal sigue procesando eventos.
+ * <p>
+ * Las teclas se guardan en bitsets de {@code long}: "down" indica si la tecla esta presionada al final del frame, "pressed" si
+ * se presiono durante el frame y "released" si se solto. Una tecla presionada y soltada dentro del mismo frame aparece en ambos.
+ */
+
+public final class InputSnapshot {
+
+    static final int KEY_WORDS = 6; // 384 bits, suficiente para GLFW_KEY_LAST (348)
+
+    final long[] keysDown = new long[KEY_WORDS];
+    final long[] keysPressed = new long[KEY_WORDS];
+    final long[] keysReleased = new long[KEY_WORDS];
+    int buttonsDown, buttonsPressed, buttonsReleased;
+    double mouseX, mouseY, dx, dy, scrollX, scrollY;
+    boolean dragging;
+    long frame;
+    int events;
+
+    InputSnapshot() {
+    }
+
+    public boolean isKeyDown(int key) {
+        return test(keysDown, key);
+    }
+
+    /**
+     * @return true si la tecla se presiono durante este frame
+     */
+    public boolean isKeyPressed(int key) {
+        return test(keysPressed, key);
+    }
+
+    /**
+     * @return true si la tecla se solto durante este frame
+     */
+    public boolean isKeyReleased(int key) {
+        return test(keysReleased, key);
+    }
+
+    public boolean isButtonDown(int button) {
+        return test(buttonsDown, button);
+    }
+
+    public boolean isButtonPressed(int button) {
+        return test(buttonsPressed, button);
+    }
+
+    public boolean isButtonReleased(int button) {
+        return test(buttonsReleased, button);
+    }
+
+    public double getMouseX() {
+        return mouseX;
+    }
+
+    public double getMouseY() {
+        return mouseY;
+    }
+
+    /**
+     * @return desplazamiento horizontal del cursor acumulado durante el frame (con todos los eventos intermedios)
+     */
+    public double getDx() {
+        return dx;
+    }
+
+    public double getDy() {
+        return dy;
+    }
+
+    public double getScrollX() {
+        return scrollX;
+    }
+
+    public double getScrollY() {
+        return scrollY;
+    }
+
+    public boolean isDragging() {
+        return dragging;
+    }
+
+    /**
+     * @return numero de frame de la instantanea, empezando en 1
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return eventos procesados para armar la instantanea
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    private static boolean test(long[] bits, int index) {
+        return index >= 0 && index < KEY_WORDS * Long.SIZE && (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    private static boolean test(int bits, int index) {
+        return index >= 0 && index < Integer.SIZE && (bits & 1 << index) != 0;
+    }
+
+}
@@ -1,12 +1,11 @@
 package com.punkipunk.jade;
 
-import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
-import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+/**
+ * Fachada sobre {@link Input} que conserva la API original. Las consultas usan la instantanea del frame actual.
+ */
 
 public class KeyListener {
 
-    private final boolean[] keyPressed = new boolean[350];
-
     private KeyListener() {
 
     }
@@ -19,20 +18,25 @@ public class KeyListener {
      * @param mods     tecla adicional
      */
     public static void keyCallback(long window, int key, int scancode, int action, int mods) {
-        if (action == GLFW_PRESS) get().keyPressed[key] = true;
-        else if (action == GLFW_RELEASE) get().keyPressed[key] = false;
+        Input.keyCallback(window, key, scancode, action, mods);
     }
 
     public static boolean isKeyPressed(int keyCode) {
-        return get().keyPressed[keyCode];
+        return Input.get().current().isKeyDown(keyCode);
     }
 
-    public static KeyListener get() {
-        return SingletonHolder.INSTANCE;
+    /**
+     * @return true si la tecla se presiono durante este frame
+     */
+    public static boolean isKeyJustPressed(int keyCode) {
+        return Input.get().current().isKeyPressed(keyCode);
     }
 
-    private static class SingletonHolder {
-        private static final KeyListener INSTANCE = new KeyListener();
+    /**
+     * @return true si la tecla se solto durante este frame
+     */
+    public static boolean isKeyJustReleased(int keyCode) {
+        return Input.get().current().isKeyReleased(keyCode);
     }
 
 }
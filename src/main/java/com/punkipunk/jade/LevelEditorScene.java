@@ -1,130 +1,257 @@
 package com.punkipunk.jade;
 
+import com.punkipunk.renderer.Camera;
+import com.punkipunk.renderer.GLTaskQueue;
+import com.punkipunk.renderer.Renderer;
 import com.punkipunk.renderer.Shader;
-import org.lwjgl.BufferUtils;
+import com.punkipunk.util.IntArrayList;
+import com.punkipunk.util.SpatialHash;
+import org.joml.Vector2f;
 
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
 
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static com.punkipunk.jade.Components.*;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F5;
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_LEFT;
 
 public class LevelEditorScene extends Scene {
 
-    /* Como queremos renderizar un solo cuadrado, especificamos un total de 4 vertices, cada uno con una posicion 3D y color. Los
-     * definimos en coordenadas de dispositivo normalizadas (la region visible de OpenGL) en una matriz flotante: */
-    private final float[] vertexArray = {
-            // Posicion               // Color
-            0.5f, -0.5f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f, // Esquina inferior derecha (0)
-            -0.5f, 0.5f, 0.0f, 0.0f, 1.0f, 0.0f, 1.0f, // Esquina superior izquierda (1)
-            0.5f, 0.5f, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, // Esquina superior derecha (2)
-            -0.5f, -0.5f, 0.0f, 1.0f, 1.0f, 0.0f, 1.0f, // Esquina inferior izquierda (3)
-    };
-
-    /* Dado que OpenGL funciona en 3D, renderizamos un cuadrado 2D con cada vertice en una coordenada z de 0.0. De esta forma, la
-     * profundidad del cuadrado se mantiene, dandole la apariencia de un cuadrado 2D. */
-
-    // IMPORTANTE: Los indices de los vertices deben estar en orden antihorario
-    /*
-                v1 x--------x v2
-                   |        |
-                   |        |
-               v3 x--------x v0
-    */
-    private final int[] elementArray = {
-            2, 1, 0, // Triangulo superior derecho
-            0, 1, 3 // Triangulo inferior izquierdo
-    };
-
+    /* Cantidad de cuadrados por lado de la grilla. Con 100 x 100 se dibujan 10.000 sprites que el renderizador agrupa en unos
+     * pocos lotes, en lugar de un VAO/VBO/EBO y una draw call por cada uno. */
+    private static final int GRID_SIZE = 100;
+    // Entidades por bloque de los recorridos en paralelo
+    private static final int GRAIN = 4096;
+    // Cuadrados que se agregan al renderizador en cada paso de la carga
+    private static final int SPRITES_PER_UPLOAD = 2048;
+    // Componentes que se guardan con F5 (el handle del Sprite depende del renderizador y se vuelve a crear al cargar)
+    private static final ComponentType[] SAVED = {TRANSFORM, VELOCITY, COLOR};
 
     private Shader shader;
-    private int vaoID, vboID, eboID;
+    private Camera camera;
+    private Renderer renderer;
+    private SpriteRenderSystem spriteRenderSystem;
+    private SpatialSystem spatialSystem;
+    private final IntArrayList picked = new IntArrayList();
+    private int selected = World.NULL;
+    private final float[] selectedColor = new float[4];
+    private final Vector2f cursor = new Vector2f();
 
     public LevelEditorScene() {
 
     }
 
+    @Override
+    public void preload() {
+
+        /* El mundo se mide en pixeles de la ventana: con zoom 1 y la camara centrada, la region visible va de (0, 0) en la
+         * esquina inferior izquierda a (ancho, alto). */
+        Window window = Window.getInstance();
+        float worldWidth = window.getWidth(), worldHeight = window.getHeight();
+        camera = new Camera(window.getGL(), worldWidth, worldHeight);
+        camera.setPosition(worldWidth / 2, worldHeight / 2);
+
+        addSystem(new MovementSystem(jobs()));
+        // Celdas del doble del tamaño de los cuadrados, para que cada uno ocupe pocas celdas
+        float width = worldWidth / GRID_SIZE, height = worldHeight / GRID_SIZE;
+        spatialSystem = new SpatialSystem(new SpatialHash(2 * Math.max(width, height)));
+        addSystem(spatialSystem);
+
+        // Con -Djade.level=<archivo> se carga un nivel guardado con F5 en lugar de generar la grilla
+        String level = System.getProperty("jade.level");
+        if (level != null && load(Path.of(level))) return;
+
+        // La grilla cubre toda la region visible
+        Random random = new Random(0);
+        for (int y = 0; y < GRID_SIZE; y++) {
+            for (int x = 0; x < GRID_SIZE; x++) {
+                int entity = world.create();
+
+                int t = world.add(entity, TRANSFORM);
+                ComponentStorage transforms = world.storage(TRANSFORM);
+                transforms.floatColumn(X)[t] = x * width;
+                transforms.floatColumn(Y)[t] = y * height;
+                transforms.floatColumn(WIDTH)[t] = width;
+                transforms.floatColumn(HEIGHT)[t] = height;
+
+                int v = world.add(entity, VELOCITY);
+                ComponentStorage velocities = world.storage(VELOCITY);
+                // Hasta un 10% de la region visible por segundo en cada eje
+                velocities.floatColumn(VX)[v] = (random.nextFloat() - 0.5f) * 0.2f * worldWidth / 2;
+                velocities.floatColumn(VY)[v] = (random.nextFloat() - 0.5f) * 0.2f * worldHeight / 2;
+
+                int c = world.add(entity, COLOR);
+                ComponentStorage colors = world.storage(COLOR);
+                colors.floatColumn(R)[c] = (float) x / GRID_SIZE;
+                colors.floatColumn(G)[c] = (float) y / GRID_SIZE;
+                colors.floatColumn(B)[c] = 1.0f - (float) x / GRID_SIZE;
+                colors.floatColumn(A)[c] = 1.0f;
+            }
+        }
+    }
+
+    @Override
+    public void upload(GLTaskQueue queue) {
+
+        queue.add(() -> {
+            // Obtiene los shaders compilados (o los compila la primera vez)
+            shader = Window.getInstance().getShaderLibrary().get("shaders/vertexShader.glsl", "shaders/fragmentShader.glsl");
+            shader.bindUniformBlock(Camera.BLOCK_NAME, Camera.BINDING);
+            renderer = new Renderer(Window.getInstance().getGL(), Renderer.MAX_BATCH_SIZE);
+        });
+
+        // Los cuadrados se agregan por tandas, ya que cada lote nuevo crea y reserva sus buffers en la GPU
+        int count = world.storage(TRANSFORM).size();
+        for (int start = 0; start < count; start += SPRITES_PER_UPLOAD) {
+            int first = start, last = Math.min(count, start + SPRITES_PER_UPLOAD);
+            queue.add(() -> addSprites(first, last));
+        }
+
+    }
+
     @Override
     public void init() {
 
-        // Inicializa y compila los shaders
-        shader = new Shader("shaders/vertexShader.glsl", "shaders/fragmentShader.glsl");
-        shader.compile();
-
-        // ============================================================
-        // Genera VAO, VBO y EBO, y los envia a la GPU
-        // ============================================================
-        vaoID = glGenVertexArrays();
-        glBindVertexArray(vaoID);
-
-        // Crea un FloatBuffer de vertices
-        FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertexArray.length);
-        vertexBuffer.put(vertexArray).flip();
-
-        // Crea un VBO y carga el buffer de vertices
-        vboID = glGenBuffers();
-        // Vincula el ID del VBO al GL_ARRAY_BUFFER
-        glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        /* Copia los datos de vertice en la memoria del buffer en donde los datos se configuran solo una vez y se utilizan muchas
-         * veces especificando GL_STATIC_DRAW para determinar como la GPU va a gestionar los datos. */
-        glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
-
-        // Crea los indices y los carga
-        IntBuffer elementBuffer = BufferUtils.createIntBuffer(elementArray.length);
-        elementBuffer.put(elementArray).flip();
-
-        eboID = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, elementBuffer, GL_STATIC_DRAW);
-
-        // Agregar los punteros de atributos de vertice
-        int positionsSize = 3; // El atributo de vertice es un vec3, por lo que esta compuesto por 3 valores
-        int colorSize = 4;
-        int floatSizeBytes = Float.BYTES;
-        int vertexSizeBytes = (positionsSize + colorSize) * floatSizeBytes;
-        /* El primer parametro especifica que atributo de vertice queremos configurar. Recuerde que especificamos la ubicacion del
-         * atributo de vertice de posicion en el vertex shader con layout (location = 0). Esto establece la ubicacion del atributo
-         * de vertice en 0 y, dado que queremos pasar datos a este atributo de vertice, pasamos 0. El tercer argumento especifica
-         * el tipo de datos que es GL_FLOAT (un vec* en GLSL consiste en valores de punto flotante).
-         *
-         * El quinto argumento se conoce como stride y nos indica el espacio entre atributos de vertice consecutivos. Dado que el
-         * siguiente conjunto de datos de posicion se encuentra exactamente a 7 veces el tamaño de un punto flotante,
-         * especificamos ese valor como paso. Como en este caso, la matriz no esta compacta, no podemos especificar el stride como
-         * 0 para permitir que OpenGL determine el stride (esto solo funciona cuando los valores estan compactados). Siempre que
-         * tengamos mas atributos de vertice, debemos definir cuidadosamente el espaciado entre cada atributo de vertice. */
-        glVertexAttribPointer(0, positionsSize, GL_FLOAT, false, vertexSizeBytes, 0); // Establece el puntero del primer layout (aPos)
-        glEnableVertexAttribArray(0);
-
-        glVertexAttribPointer(1, colorSize, GL_FLOAT, false, vertexSizeBytes, positionsSize * floatSizeBytes);
-        glEnableVertexAttribArray(1);
+        spriteRenderSystem = new SpriteRenderSystem(renderer);
+        spriteRenderSystem.setCulling(spatialSystem.getIndex());
+
+    }
+
+    @Override
+    public void dispose() {
+
+        // El shader pertenece a la ShaderLibrary, que lo comparte con otras escenas
+        if (renderer != null) renderer.dispose();
+        if (camera != null) camera.dispose();
+
     }
 
     @Override
     public void update(double dt) {
 
-        // System.out.println((int) (1.0f / dt) + " FPS");
+        updateSystems(dt);
+        bounce();
+
+    }
+
+    @Override
+    public void prepare(double alpha) {
+
+        // La entrada se actualiza una vez por frame, por lo que la seleccion se hace aca y no en cada tick
+        pick();
+        if (Input.get().current().isKeyPressed(GLFW_KEY_F5)) save(Path.of("level.jlvl"), Path.of("level.json"));
+
+        spriteRenderSystem.setView(camera.getViewMinX(), camera.getViewMinY(), camera.getViewMaxX(), camera.getViewMaxY());
+        spriteRenderSystem.record(world, getRecordingCommands());
+
+    }
+
+    @Override
+    public void render(double alpha) {
+
+        getSubmittedCommands().replay(renderer);
 
+        // Las matrices solo se vuelven a subir si la camara se movio
+        camera.upload();
         shader.use();
+        renderer.render(shader);
+
+    }
 
-        // Vincula el VAO que estamos usando
-        glBindVertexArray(vaoID);
+    /**
+     * Agrega al renderizador los cuadrados de las entidades {@code [first, last)}, en orden de creacion.
+     */
+    private void addSprites(int first, int last) {
+        ComponentStorage transforms = world.storage(TRANSFORM);
+        for (int i = first; i < last; i++) {
+            int s = world.add(transforms.entity(i), SPRITE);
+            world.storage(SPRITE).intColumn(HANDLE)[s] = renderer.add(0, 0, 0, 0, 0, 0, 0, 0);
+        }
+    }
 
-        // Habilita los punteros de atributos de vertice (TODO No se repite?)
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
+    /**
+     * Carga las entidades de un nivel binario. Como se llama desde {@link #preload()}, la lectura no frena el frame en curso.
+     *
+     * @return false si no se pudo cargar, en cuyo caso el mundo queda sin cambios
+     */
+    private boolean load(Path path) {
+        LevelReader reader;
+        try {
+            reader = LevelReader.open(path, SAVED);
+        } catch (IOException e) {
+            System.err.println("The '" + path + "' level could not be loaded: " + e.getMessage());
+            return false;
+        }
+        try (reader) {
+            reader.readAll(world);
+            return true;
+        } catch (IOException e) {
+            System.err.println("The '" + path + "' level could not be loaded: " + e.getMessage());
+            // Descarta las entidades de la carga parcial
+            for (int id = 0; id < reader.getEntityCount(); id++) world.destroy(reader.entity(id));
+            return false;
+        }
+    }
 
-        // Indica que queremos renderizar los triangulos desde un buffer de indice
-        glDrawElements(GL_TRIANGLES, elementArray.length, GL_UNSIGNED_INT, 0);
+    /**
+     * Guarda el nivel en binario y, para poder revisarlo, en JSON.
+     */
+    private void save(Path binary, Path json) {
+        try {
+            new LevelWriter(true).write(world, binary, SAVED);
+            LevelJson.write(world, json, SAVED);
+        } catch (IOException e) {
+            System.err.println("The '" + binary + "' level could not be saved: " + e.getMessage());
+        }
+    }
 
-        // Desvincula todo
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
+    /**
+     * Selecciona el cuadrado bajo el cursor al hacer clic y lo pinta de blanco.
+     */
+    private void pick() {
+        if (!Input.get().current().isButtonPressed(GLFW_MOUSE_BUTTON_LEFT)) return;
 
-        glBindVertexArray(0);
+        camera.screenToWorld(MouseListener.getX(), MouseListener.getY(), cursor);
+        picked.clear();
+        spatialSystem.getIndex().queryPoint(cursor.x, cursor.y, picked);
 
-        shader.detach();
+        // Los cuadrados creados despues se dibujan encima, por lo que se elige el de mayor indice
+        int top = -1;
+        for (int i = 0; i < picked.size(); i++) top = Math.max(top, picked.get(i));
+
+        ComponentStorage colors = world.storage(COLOR);
+        if (selected != World.NULL && world.isAlive(selected)) {
+            int c = colors.indexOf(selected);
+            for (int i = 0; i < selectedColor.length; i++) colors.floatColumn(R + i)[c] = selectedColor[i];
+        }
+        selected = top < 0 ? World.NULL : world.entityAt(top);
+        if (selected == World.NULL) return;
+        int c = colors.indexOf(selected);
+        for (int i = 0; i < selectedColor.length; i++) {
+            selectedColor[i] = colors.floatColumn(R + i)[c];
+            colors.floatColumn(R + i)[c] = 1.0f;
+        }
+    }
 
+    /**
+     * Invierte la velocidad de los cuadrados que salen de la region visible de la camara.
+     */
+    private void bounce() {
+        float minX = camera.getViewMinX(), minY = camera.getViewMinY(), maxX = camera.getViewMaxX(), maxY = camera.getViewMaxY();
+        ComponentStorage transforms = world.storage(TRANSFORM);
+        ComponentStorage velocities = world.storage(VELOCITY);
+        float[] x = transforms.floatColumn(X), y = transforms.floatColumn(Y);
+        float[] width = transforms.floatColumn(WIDTH), height = transforms.floatColumn(HEIGHT);
+        float[] vx = velocities.floatColumn(VX), vy = velocities.floatColumn(VY);
+        // El MovementSystem ya alineo ambos almacenamientos, por lo que comparten indices
+        int count = transforms.sortLike(velocities);
+        jobs().parallelFor(count, GRAIN, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                if ((x[i] < minX && vx[i] < 0) || (x[i] + width[i] > maxX && vx[i] > 0)) vx[i] = -vx[i];
+                if ((y[i] < minY && vy[i] < 0) || (y[i] + height[i] > maxY && vy[i] > 0)) vy[i] = -vy[i];
+            }
+        });
     }
 
 }
@@ -0,0 +1,41 @@
+package com.punkipunk.jade;
+
+/**
+ * Formato binario de niveles ({@code .jlvl}).
+ * <p>
+ * Todos los valores estan en little-endian. El archivo empieza con una cabecera:
+ * <pre>
+ * int    magic ("JLVL")
+ * short  version
+ * short  flags                  (FLAG_COMPRESSED si algun bloque puede estar comprimido)
+ * int    entidades
+ * int    cantidad de strings, y por cada uno: short largo + bytes UTF-8
+ * int    cantidad de componentes, y por cada uno:
+ *        int nombre, byte campos float, byte campos int, int nombre de cada campo (indices en la tabla de strings)
+ *        int filas
+ * </pre>
+ * Le siguen los bloques de datos hasta el final del archivo. Cada bloque tiene hasta {@link #CHUNK_ROWS} filas de un
+ * componente:
+ * <pre>
+ * int componente (indice en la cabecera), int filas, int tamaño original, int tamaño guardado
+ * bytes: int[filas] entidades, float[filas] por cada campo float, int[filas] por cada campo int
+ * </pre>
+ * Si el tamaño guardado es menor que el original, el contenido es un bloque LZ4. Las columnas se guardan contiguas, igual que
+ * en el {@link ComponentStorage}, por lo que cargar un bloque son unas pocas copias de memoria. Las entidades se renumeran de
+ * 0 a {@code entidades - 1} al guardar.
+ */
+
+public final class LevelFormat {
+
+    public static final int MAGIC = 'J' | 'L' << 8 | 'V' << 16 | 'L' << 24;
+    public static final short VERSION = 1;
+    public static final short FLAG_COMPRESSED = 1;
+    /** Filas por bloque: con 4 campos float son unos 320 KB, lo que permite cargar el nivel de a partes. */
+    public static final int CHUNK_ROWS = 16384;
+    /** Bytes de la cabecera de cada bloque. */
+    public static final int CHUNK_HEADER = 4 * Integer.BYTES;
+
+    private LevelFormat() {
+    }
+
+}
@@ -0,0 +1,326 @@
+package com.punkipunk.jade;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Exportacion e importacion de niveles en JSON, pensada para revisar cambios con un diff y no para cargar niveles en el juego
+ * (para eso esta el formato binario de {@link LevelFormat}).
+ * <p>
+ * Cada componente se escribe con sus campos y una fila por linea, con el id de la entidad seguido de los campos float y los
+ * int, de modo que mover una entidad cambia una sola linea:
+ * <pre>
+ * {
+ *   "format": "jlvl",
+ *   "version": 1,
+ *   "entities": 2,
+ *   "components": [
+ *     {
+ *       "name": "Transform",
+ *       "floats": ["x", "y", "width", "height"],
+ *       "ints": [],
+ *       "rows": [
+ *         [0, 0.0, 0.0, 8.0, 6.0],
+ *         [1, 8.0, 0.0, 8.0, 6.0]
+ *       ]
+ *     }
+ *   ]
+ * }
+ * </pre>
+ * Las filas se ordenan por entidad para que el resultado no dependa del orden interno de los almacenamientos. Los floats se
+ * escriben con {@link Float#toString(float)}, que siempre vuelve a leerse como el mismo valor pero, hasta Java 19, no siempre
+ * con la representacion mas corta (algunos valores llevan un digito de mas).
+ */
+
+public final class LevelJson {
+
+    private LevelJson() {
+    }
+
+    public static void write(World world, Path path, ComponentType... types) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(world, writer, types);
+        }
+    }
+
+    public static void write(World world, Writer out, ComponentType... types) throws IOException {
+        // Misma numeracion que el formato binario: ids consecutivos en orden de indice
+        int maxIndex = -1;
+        for (ComponentType type : types) {
+            ComponentStorage storage = world.storage(type);
+            for (int i = 0; i < storage.size(); i++) maxIndex = Math.max(maxIndex, World.index(storage.entity(i)));
+        }
+        int[] remap = new int[maxIndex + 1];
+        Arrays.fill(remap, -1);
+        for (ComponentType type : types) {
+            ComponentStorage storage = world.storage(type);
+            for (int i = 0; i < storage.size(); i++) remap[World.index(storage.entity(i))] = 0;
+        }
+        int entityCount = 0;
+        for (int i = 0; i < remap.length; i++)
+            if (remap[i] == 0) remap[i] = entityCount++;
+
+        out.write("{\n  \"format\": \"jlvl\",\n  \"version\": " + LevelFormat.VERSION + ",\n  \"entities\": " + entityCount
+                + ",\n  \"components\": [");
+        StringBuilder line = new StringBuilder();
+        for (int c = 0; c < types.length; c++) {
+            ComponentType type = types[c];
+            ComponentStorage storage = world.storage(type);
+            out.write(c == 0 ? "\n    {\n" : ",\n    {\n");
+            out.write("      \"name\": " + quote(type.getName()) + ",\n      \"floats\": [");
+            for (int f = 0; f < type.getFloatFieldCount(); f++) out.write((f > 0 ? ", " : "") + quote(type.getFloatField(f)));
+            out.write("],\n      \"ints\": [");
+            for (int f = 0; f < type.getIntFieldCount(); f++) out.write((f > 0 ? ", " : "") + quote(type.getIntField(f)));
+            out.write("],\n      \"rows\": [");
+
+            // Posiciones ordenadas por id
+            int[] order = new int[storage.size()];
+            long[] keys = new long[storage.size()];
+            for (int i = 0; i < keys.length; i++) keys[i] = (long) remap[World.index(storage.entity(i))] << 32 | i;
+            Arrays.sort(keys);
+            for (int i = 0; i < keys.length; i++) order[i] = (int) keys[i];
+
+            for (int i = 0; i < order.length; i++) {
+                int position = order[i];
+                line.setLength(0);
+                line.append(i == 0 ? "\n        [" : ",\n        [").append(remap[World.index(storage.entity(position))]);
+                for (int f = 0; f < type.getFloatFieldCount(); f++) {
+                    float value = storage.floatColumn(f)[position];
+                    line.append(", ");
+                    // JSON no admite NaN ni infinito, por lo que se escriben como strings
+                    if (Float.isFinite(value)) line.append(value);
+                    else line.append('"').append(value).append('"');
+                }
+                for (int f = 0; f < type.getIntFieldCount(); f++) line.append(", ").append(storage.intColumn(f)[position]);
+                out.append(line).append(']');
+            }
+            out.write(order.length > 0 ? "\n      ]\n    }" : "]\n    }");
+        }
+        out.write(types.length > 0 ? "\n  ]\n}\n" : "]\n}\n");
+    }
+
+    /**
+     * Importa un nivel exportado con {@link #write(World, Path, ComponentType...)}, creando sus entidades en {@code world}. Los
+     * componentes y campos se buscan por nombre, igual que en el {@link LevelReader}.
+     */
+    public static void read(World world, Path path, ComponentType... types) throws IOException {
+        read(world, Files.readString(path, StandardCharsets.UTF_8), types);
+    }
+
+    public static void read(World world, String json, ComponentType... types) throws IOException {
+        Parser parser = new Parser(json);
+        int[] entities = null;
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.string();
+                parser.expect(':');
+                switch (key) {
+                    case "entities" -> {
+                        int count = (int) parser.number();
+                        entities = new int[count];
+                        for (int i = 0; i < count; i++) entities[i] = world.create();
+                    }
+                    case "components" -> {
+                        if (entities == null) throw parser.error("\"entities\" must come before \"components\"");
+                        parser.expect('[');
+                        if (!parser.consume(']')) {
+                            do readComponent(parser, world, entities, types);
+                            while (parser.consume(','));
+                            parser.expect(']');
+                        }
+                    }
+                    case "version" -> {
+                        double version = parser.number();
+                        if (version > LevelFormat.VERSION) throw parser.error("The level version " + version + " is not supported");
+                    }
+                    default -> parser.skipValue();
+                }
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+    }
+
+    private static void readComponent(Parser parser, World world, int[] entities, ComponentType[] types) throws IOException {
+        ComponentType type = null;
+        int[] floatTargets = new int[0], intTargets = new int[0];
+        parser.expect('{');
+        do {
+            String key = parser.string();
+            parser.expect(':');
+            switch (key) {
+                case "name" -> {
+                    String name = parser.string();
+                    for (ComponentType candidate : types)
+                        if (candidate.getName().equals(name)) type = candidate;
+                }
+                case "floats" -> floatTargets = fields(parser, type, true);
+                case "ints" -> intTargets = fields(parser, type, false);
+                case "rows" -> {
+                    ComponentStorage storage = type != null ? world.storage(type) : null;
+                    parser.expect('[');
+                    if (parser.consume(']')) break;
+                    do {
+                        parser.expect('[');
+                        int id = (int) parser.number();
+                        if (id < 0 || id >= entities.length) throw parser.error("Unknown entity " + id);
+                        int position = storage != null ? storage.add(entities[id]) : -1;
+                        for (int target : floatTargets) {
+                            parser.expect(',');
+                            float value = parser.peek() == '"' ? Float.parseFloat(parser.string()) : (float) parser.number();
+                            if (position >= 0 && target >= 0) storage.floatColumn(target)[position] = value;
+                        }
+                        for (int target : intTargets) {
+                            parser.expect(',');
+                            int value = (int) parser.number();
+                            if (position >= 0 && target >= 0) storage.intColumn(target)[position] = value;
+                        }
+                        parser.expect(']');
+                    } while (parser.consume(','));
+                    parser.expect(']');
+                }
+                default -> parser.skipValue();
+            }
+        } while (parser.consume(','));
+        parser.expect('}');
+    }
+
+    /**
+     * Lee la lista de nombres de campos y devuelve a que campo del tipo corresponde cada uno (-1 si a ninguno).
+     */
+    private static int[] fields(Parser parser, ComponentType type, boolean floats) throws IOException {
+        int[] targets = new int[8];
+        int count = 0;
+        parser.expect('[');
+        if (!parser.consume(']')) {
+            do {
+                String name = parser.string();
+                int target = -1;
+                if (type != null) {
+                    int fieldCount = floats ? type.getFloatFieldCount() : type.getIntFieldCount();
+                    for (int f = 0; f < fieldCount; f++)
+                        if ((floats ? type.getFloatField(f) : type.getIntField(f)).equals(name)) target = f;
+                }
+                if (count == targets.length) targets = Arrays.copyOf(targets, count * 2);
+                targets[count++] = target;
+            } while (parser.consume(','));
+            parser.expect(']');
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    private static String quote(String string) {
+        return '"' + string.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * Lector de JSON minimo que recorre el texto sin construir un arbol.
+     */
+    private static class Parser {
+
+        private final String json;
+        private int position;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        char peek() throws IOException {
+            skipWhitespace();
+            if (position >= json.length()) throw error("Unexpected end of the document");
+            return json.charAt(position);
+        }
+
+        void expect(char c) throws IOException {
+            if (peek() != c) throw error("Expected '" + c + "'");
+            position++;
+        }
+
+        boolean consume(char c) throws IOException {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        String string() throws IOException {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                if (position >= json.length()) throw error("Unterminated string");
+                char c = json.charAt(position++);
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> out.append('\n');
+                    case 't' -> out.append('\t');
+                    case 'r' -> out.append('\r');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'u' -> {
+                        out.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> out.append(escaped);
+                }
+            }
+        }
+
+        double number() throws IOException {
+            skipWhitespace();
+            int start = position;
+            while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) position++;
+            if (start == position) throw error("Expected a number");
+            try {
+                return Double.parseDouble(json.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        /**
+         * Saltea un valor de cualquier tipo, incluidos objetos y arreglos anidados.
+         */
+        void skipValue() throws IOException {
+            char c = peek();
+            if (c == '"') string();
+            else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                position++;
+                if (consume(close)) return;
+                do {
+                    if (c == '{') {
+                        string();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+            } else if (json.startsWith("true", position)) position += 4;
+            else if (json.startsWith("false", position)) position += 5;
+            else if (json.startsWith("null", position)) position += 4;
+            else number();
+        }
+
+        IOException error(String message) {
+            return new IOException(message + " at character " + position + " of the level");
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) position++;
+        }
+
+    }
+
+}
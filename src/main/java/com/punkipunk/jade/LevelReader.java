@@ -0,0 +1,223 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.util.Lz4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Carga un nivel guardado por el {@link LevelWriter} en un {@link World}, de a un bloque por vez.
+ * <p>
+ * El archivo se mapea en memoria, por lo que leerlo no lo copia a un buffer intermedio: las columnas de los bloques sin
+ * comprimir se copian directamente de la pagina mapeada al {@link ComponentStorage}, y las de los comprimidos se descomprimen a
+ * un buffer reutilizado. Como cada {@link #readChunk(World)} carga un solo bloque, un nivel grande se puede cargar repartido
+ * entre varios frames o en un hilo de trabajo (por ejemplo, desde {@link Scene#preload()}).
+ * <p>
+ * Los componentes y campos se buscan por nombre entre los tipos indicados; los que no existen se ignoran y los campos que
+ * faltan en el archivo quedan en cero, de modo que agregar un campo a un componente no invalida los niveles guardados.
+ */
+
+public class LevelReader implements AutoCloseable {
+
+    private final ByteBuffer data;
+    private final FileChannel channel;
+    private final int entityCount;
+    private final Section[] sections;
+    private final long totalRows;
+    private long rowsRead;
+    private int[] entities;
+    private byte[] packed = new byte[0], unpacked = new byte[0];
+
+    /**
+     * Lee la cabecera de un nivel en memoria.
+     *
+     * @param types tipos de componente a cargar
+     */
+    public LevelReader(ByteBuffer data, ComponentType... types) throws IOException {
+        this(data, null, types);
+    }
+
+    private LevelReader(ByteBuffer data, FileChannel channel, ComponentType... types) throws IOException {
+        this.data = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        try {
+            if (this.data.getInt() != LevelFormat.MAGIC) throw new IOException("The data is not a level!");
+            short version = this.data.getShort();
+            if (version > LevelFormat.VERSION) throw new IOException("The level version " + version + " is not supported!");
+            this.data.getShort(); // Flags, los bloques indican por si mismos si estan comprimidos
+            entityCount = this.data.getInt();
+
+            String[] strings = new String[this.data.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[this.data.getShort() & 0xFFFF];
+                this.data.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            sections = new Section[this.data.getInt()];
+            long rows = 0;
+            for (int i = 0; i < sections.length; i++) {
+                Section section = new Section();
+                String name = strings[this.data.getInt()];
+                int floatCount = this.data.get() & 0xFF, intCount = this.data.get() & 0xFF;
+                for (ComponentType type : types)
+                    if (type.getName().equals(name)) section.type = type;
+                section.floatTargets = new int[floatCount];
+                section.intTargets = new int[intCount];
+                for (int f = 0; f < floatCount; f++) section.floatTargets[f] = floatField(section.type, strings[this.data.getInt()]);
+                for (int f = 0; f < intCount; f++) section.intTargets[f] = intField(section.type, strings[this.data.getInt()]);
+                section.rows = this.data.getInt();
+                rows += section.rows;
+                sections[i] = section;
+            }
+            totalRows = rows;
+        } catch (RuntimeException e) {
+            throw new IOException("The level header is corrupt!", e);
+        }
+    }
+
+    /**
+     * Mapea el archivo en memoria y lee su cabecera.
+     */
+    public static LevelReader open(Path path, ComponentType... types) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new LevelReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), channel, types);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Carga el nivel completo.
+     */
+    public void readAll(World world) throws IOException {
+        for (boolean more = true; more; ) more = readChunk(world);
+    }
+
+    /**
+     * Carga el siguiente bloque. La primera llamada crea todas las entidades del nivel en {@code world}.
+     *
+     * @return false si no quedaban bloques
+     */
+    public boolean readChunk(World world) throws IOException {
+        if (entities == null) createEntities(world);
+        if (!data.hasRemaining()) return false;
+
+        try {
+            int component = data.getInt(), rows = data.getInt(), rawSize = data.getInt(), storedSize = data.getInt();
+            if (component < 0 || component >= sections.length || storedSize < 0 || storedSize > data.remaining())
+                throw new IOException("The level chunk is corrupt!");
+            Section section = sections[component];
+            int columns = 1 + section.floatTargets.length + section.intTargets.length;
+            if (rows < 0 || rawSize != columns * rows * Integer.BYTES) throw new IOException("The level chunk is corrupt!");
+
+            if (section.type == null) {
+                // Componente desconocido: se saltea el bloque sin leerlo
+                data.position(data.position() + storedSize);
+            } else {
+                ByteBuffer block;
+                if (storedSize == rawSize) {
+                    block = data.slice().limit(rawSize).order(ByteOrder.LITTLE_ENDIAN);
+                } else {
+                    if (packed.length < storedSize) packed = new byte[storedSize];
+                    if (unpacked.length < rawSize) unpacked = new byte[rawSize];
+                    data.get(data.position(), packed, 0, storedSize);
+                    if (Lz4.decompress(packed, 0, storedSize, unpacked, 0, rawSize) != rawSize)
+                        throw new IOException("The level chunk is corrupt!");
+                    block = ByteBuffer.wrap(unpacked, 0, rawSize).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                data.position(data.position() + storedSize);
+                load(world, section, block, rows);
+            }
+            rowsRead += rows;
+            return true;
+        } catch (RuntimeException e) {
+            throw new IOException("The level chunk is corrupt!", e);
+        }
+    }
+
+    /**
+     * @return fraccion de las filas ya cargadas
+     */
+    public float getProgress() {
+        return totalRows == 0 ? 1 : (float) rowsRead / totalRows;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * @return entidad creada para el id guardado en el archivo (despues de la primera lectura)
+     */
+    public int entity(int id) {
+        return entities[id];
+    }
+
+    @Override
+    public void close() throws IOException {
+        // El mapeo se libera cuando el GC recolecta el buffer; cerrar el canal no lo invalida
+        if (channel != null) channel.close();
+    }
+
+    private void createEntities(World world) {
+        entities = new int[entityCount];
+        for (int i = 0; i < entityCount; i++) entities[i] = world.create();
+        // Reserva las columnas de una vez en lugar de hacerlas crecer bloque a bloque
+        for (Section section : sections) {
+            if (section.type == null) continue;
+            ComponentStorage storage = world.storage(section.type);
+            storage.ensureCapacity(storage.size() + section.rows);
+        }
+    }
+
+    private void load(World world, Section section, ByteBuffer block, int rows) throws IOException {
+        ComponentStorage storage = world.storage(section.type);
+        // Los componentes nuevos se agregan al final, por lo que las filas del bloque quedan contiguas desde first
+        int first = storage.size();
+        for (int r = 0; r < rows; r++) {
+            int id = block.getInt();
+            if (id < 0 || id >= entityCount) throw new IOException("The level chunk is corrupt!");
+            storage.add(entities[id]);
+        }
+        for (int target : section.floatTargets) {
+            if (target >= 0) block.asFloatBuffer().get(storage.floatColumn(target), first, rows);
+            block.position(block.position() + rows * Float.BYTES);
+        }
+        for (int target : section.intTargets) {
+            if (target >= 0) block.asIntBuffer().get(storage.intColumn(target), first, rows);
+            block.position(block.position() + rows * Integer.BYTES);
+        }
+    }
+
+    private static int floatField(ComponentType type, String name) {
+        if (type == null) return -1;
+        for (int f = 0; f < type.getFloatFieldCount(); f++)
+            if (type.getFloatField(f).equals(name)) return f;
+        return -1;
+    }
+
+    private static int intField(ComponentType type, String name) {
+        if (type == null) return -1;
+        for (int f = 0; f < type.getIntFieldCount(); f++)
+            if (type.getIntField(f).equals(name)) return f;
+        return -1;
+    }
+
+    /**
+     * Componente guardado en el archivo y a que campo del tipo cargado corresponde cada una de sus columnas (-1 si ninguno).
+     */
+    private static class Section {
+        ComponentType type;
+        int[] floatTargets, intTargets;
+        int rows;
+    }
+
+}
@@ -1,17 +1,156 @@
 package com.punkipunk.jade;
 
-public class LevelScene extends Scene{
+import com.punkipunk.renderer.Camera;
+import com.punkipunk.renderer.GLTaskQueue;
+import com.punkipunk.renderer.Shader;
+import com.punkipunk.renderer.Tilemap;
+import org.joml.Vector2f;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+/**
+ * Escena de un nivel hecho de tiles: un mapa de {@link #MAP_SIZE} x {@link #MAP_SIZE} tiles generado con ruido, que se recorre
+ * con las flechas (o WASD), se acerca o aleja con la rueda del mouse y se pinta con el boton izquierdo.
+ */
+
+public class LevelScene extends Scene {
+
+    private static final int MAP_SIZE = 4096;
+    private static final float TILE_SIZE = 16;
+    // Chunks que quedan en la GPU fuera de la pantalla, para volver atras sin regenerarlos
+    private static final int MAX_RESIDENT_CHUNKS = 128;
+    // Filas por bloque al generar el mapa en paralelo
+    private static final int GRAIN = 64;
+    private static final float PAN_SPEED = 600;
+    private static final int PATH = 8;
+    // Tipos de tile de menor a mayor altura: agua profunda, agua, arena, pasto, bosque, roca, nieve y camino
+    private static final float[][] COLORS = {
+            {0.10f, 0.20f, 0.50f}, {0.20f, 0.40f, 0.75f}, {0.85f, 0.80f, 0.55f}, {0.35f, 0.65f, 0.30f},
+            {0.15f, 0.45f, 0.20f}, {0.50f, 0.48f, 0.45f}, {0.95f, 0.95f, 0.95f}, {0.55f, 0.35f, 0.20f}
+    };
+    private static final float[] LEVELS = {0.30f, 0.42f, 0.46f, 0.58f, 0.68f, 0.78f};
+
+    private Camera camera;
+    private Tilemap tilemap;
+    private Shader shader;
+    private final Vector2f cursor = new Vector2f();
 
     public LevelScene() {
-        System.out.println("Inside level scene");
-        Window.getInstance().r = 1;
-        Window.getInstance().g = 1;
-        Window.getInstance().b = 1;
+
+    }
+
+    @Override
+    public void preload() {
+
+        Window window = Window.getInstance();
+        camera = new Camera(window.getGL(), window.getWidth(), window.getHeight());
+        camera.setPosition(MAP_SIZE * TILE_SIZE / 2, MAP_SIZE * TILE_SIZE / 2);
+
+        tilemap = new Tilemap(window.getGL(), MAP_SIZE, MAP_SIZE, TILE_SIZE, TILE_SIZE, MAX_RESIDENT_CHUNKS);
+        for (int i = 0; i < COLORS.length; i++) tilemap.setType(i + 1, COLORS[i][0], COLORS[i][1], COLORS[i][2], 1.0f);
+        jobs().parallelFor(MAP_SIZE, GRAIN, (start, end) -> {
+            short[] rows = new short[(end - start) * MAP_SIZE];
+            for (int y = start; y < end; y++) {
+                for (int x = 0; x < MAP_SIZE; x++) {
+                    float height = 0.65f * noise(x / 256f, y / 256f) + 0.35f * noise(x / 48f + 100, y / 48f + 100);
+                    int type = 1;
+                    while (type <= LEVELS.length && height > LEVELS[type - 1]) type++;
+                    rows[(y - start) * MAP_SIZE + x] = (short) type;
+                }
+            }
+            tilemap.fillRows(start, rows);
+        });
+
+    }
+
+    @Override
+    public void upload(GLTaskQueue queue) {
+
+        queue.add(() -> {
+            shader = Window.getInstance().getShaderLibrary().get("shaders/vertexShader.glsl", "shaders/fragmentShader.glsl");
+            shader.bindUniformBlock(Camera.BLOCK_NAME, Camera.BINDING);
+        });
+
+    }
+
+    @Override
+    public void init() {
+
+        Window.getInstance().r = 0.1f;
+        Window.getInstance().g = 0.1f;
+        Window.getInstance().b = 0.1f;
+
+    }
+
+    @Override
+    public void dispose() {
+
+        if (tilemap != null) tilemap.dispose();
+        if (camera != null) camera.dispose();
+
     }
 
     @Override
     public void update(double dt) {
 
+        InputSnapshot input = Input.get().current();
+        float dx = 0, dy = 0;
+        if (input.isKeyDown(GLFW_KEY_LEFT) || input.isKeyDown(GLFW_KEY_A)) dx--;
+        if (input.isKeyDown(GLFW_KEY_RIGHT) || input.isKeyDown(GLFW_KEY_D)) dx++;
+        if (input.isKeyDown(GLFW_KEY_DOWN) || input.isKeyDown(GLFW_KEY_S)) dy--;
+        if (input.isKeyDown(GLFW_KEY_UP) || input.isKeyDown(GLFW_KEY_W)) dy++;
+        // La velocidad es en pixeles de la pantalla, por lo que con menos zoom se recorre mas mapa
+        float speed = (float) (PAN_SPEED * dt / camera.getZoom());
+        if (dx != 0 || dy != 0) camera.move(dx * speed, dy * speed);
+
+    }
+
+    @Override
+    public void prepare(double alpha) {
+
+        InputSnapshot input = Input.get().current();
+        if (input.getScrollY() != 0)
+            camera.setZoom(Math.max(0.125f, Math.min(4.0f, camera.getZoom() * (float) Math.pow(1.1, input.getScrollY()))));
+
+        // Pintar un tile solo regenera su chunk
+        if (input.isButtonDown(GLFW_MOUSE_BUTTON_LEFT)) {
+            camera.screenToWorld(MouseListener.getX(), MouseListener.getY(), cursor);
+            int x = tilemap.tileX(cursor.x), y = tilemap.tileY(cursor.y);
+            if (x >= 0 && y >= 0 && x < MAP_SIZE && y < MAP_SIZE) tilemap.setTile(x, y, PATH);
+        }
+
+    }
+
+    @Override
+    public void render(double alpha) {
+
+        camera.upload();
+        shader.use();
+        tilemap.render(shader, camera.getViewMinX(), camera.getViewMinY(), camera.getViewMaxX(), camera.getViewMaxY());
+
+    }
+
+    /**
+     * Ruido de valor: interpola suavemente valores pseudoaleatorios entre 0 y 1 ubicados en los puntos enteros.
+     */
+    private static float noise(float x, float y) {
+        int x0 = (int) Math.floor(x), y0 = (int) Math.floor(y);
+        float fx = x - x0, fy = y - y0;
+        fx = fx * fx * (3 - 2 * fx);
+        fy = fy * fy * (3 - 2 * fy);
+        float top = lerp(hash(x0, y0), hash(x0 + 1, y0), fx);
+        float bottom = lerp(hash(x0, y0 + 1), hash(x0 + 1, y0 + 1), fx);
+        return lerp(top, bottom, fy);
+    }
+
+    private static float hash(int x, int y) {
+        int h = x * 374761393 + y * 668265263;
+        h = (h ^ (h >>> 13)) * 1274126177;
+        return ((h ^ (h >>> 16)) & 0xFFFFFF) / (float) 0x1000000;
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
     }
 
 }
@@ -0,0 +1,158 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.util.Lz4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Guarda los componentes de un {@link World} en el formato binario descrito en {@link LevelFormat}.
+ * <p>
+ * Solo se guardan los tipos de componente indicados (los que dependen del estado en ejecucion, como el handle de un
+ * {@code Sprite}, no tienen sentido en un archivo). Las columnas se copian por bloques a un buffer reutilizado, que se
+ * comprime con {@link Lz4} si se pidio y si el resultado es mas chico.
+ */
+
+public class LevelWriter {
+
+    private final boolean compress;
+    private final Lz4 lz4 = new Lz4();
+    private ByteBuffer raw = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+    private byte[] packed = new byte[0];
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate(LevelFormat.CHUNK_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @param compress true para comprimir los bloques con LZ4
+     */
+    public LevelWriter(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void write(World world, Path path, ComponentType... types) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            write(world, channel, types);
+        }
+    }
+
+    public void write(World world, WritableByteChannel channel, ComponentType... types) throws IOException {
+        ComponentStorage[] storages = new ComponentStorage[types.length];
+        for (int i = 0; i < types.length; i++) storages[i] = world.storage(types[i]);
+
+        int[] remap = remap(storages);
+        int entityCount = 0;
+        for (int id : remap)
+            if (id >= 0) entityCount++;
+
+        // Tabla de strings con los nombres de los componentes y de sus campos
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (ComponentType type : types) {
+            intern(strings, type.getName());
+            for (int f = 0; f < type.getFloatFieldCount(); f++) intern(strings, type.getFloatField(f));
+            for (int f = 0; f < type.getIntFieldCount(); f++) intern(strings, type.getIntField(f));
+        }
+
+        int headerSize = 3 * Integer.BYTES + 2 * Short.BYTES + Integer.BYTES;
+        for (String string : strings.keySet()) headerSize += Short.BYTES + string.getBytes(StandardCharsets.UTF_8).length;
+        for (ComponentType type : types)
+            headerSize += 2 * Integer.BYTES + 2 + (type.getFloatFieldCount() + type.getIntFieldCount()) * Integer.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LevelFormat.MAGIC);
+        header.putShort(LevelFormat.VERSION);
+        header.putShort(compress ? LevelFormat.FLAG_COMPRESSED : 0);
+        header.putInt(entityCount);
+        header.putInt(strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            header.putShort((short) bytes.length);
+            header.put(bytes);
+        }
+        header.putInt(types.length);
+        for (int i = 0; i < types.length; i++) {
+            ComponentType type = types[i];
+            header.putInt(strings.get(type.getName()));
+            header.put((byte) type.getFloatFieldCount());
+            header.put((byte) type.getIntFieldCount());
+            for (int f = 0; f < type.getFloatFieldCount(); f++) header.putInt(strings.get(type.getFloatField(f)));
+            for (int f = 0; f < type.getIntFieldCount(); f++) header.putInt(strings.get(type.getIntField(f)));
+            header.putInt(storages[i].size());
+        }
+        writeFully(channel, header.flip());
+
+        for (int i = 0; i < storages.length; i++) {
+            ComponentStorage storage = storages[i];
+            for (int start = 0; start < storage.size(); start += LevelFormat.CHUNK_ROWS)
+                writeChunk(channel, i, storage, start, Math.min(LevelFormat.CHUNK_ROWS, storage.size() - start), remap);
+        }
+    }
+
+    private void writeChunk(WritableByteChannel channel, int component, ComponentStorage storage, int start, int rows, int[] remap)
+            throws IOException {
+        ComponentType type = storage.getType();
+        int columns = 1 + type.getFloatFieldCount() + type.getIntFieldCount();
+        int rawSize = columns * rows * Integer.BYTES;
+        if (raw.capacity() < rawSize) raw = ByteBuffer.allocate(rawSize).order(ByteOrder.LITTLE_ENDIAN);
+        raw.clear();
+
+        for (int r = 0; r < rows; r++) raw.putInt(remap[World.index(storage.entity(start + r))]);
+        for (int f = 0; f < type.getFloatFieldCount(); f++) {
+            raw.asFloatBuffer().put(storage.floatColumn(f), start, rows);
+            raw.position(raw.position() + rows * Float.BYTES);
+        }
+        for (int f = 0; f < type.getIntFieldCount(); f++) {
+            raw.asIntBuffer().put(storage.intColumn(f), start, rows);
+            raw.position(raw.position() + rows * Integer.BYTES);
+        }
+
+        ByteBuffer data = raw.flip();
+        if (compress) {
+            if (packed.length < Lz4.maxCompressedLength(rawSize)) packed = new byte[Lz4.maxCompressedLength(rawSize)];
+            int packedSize = lz4.compress(raw.array(), 0, rawSize, packed, 0);
+            // Los datos que no se comprimen bien se guardan tal cual, lo que tambien evita descomprimirlos al cargar
+            if (packedSize < rawSize) data = ByteBuffer.wrap(packed, 0, packedSize);
+        }
+
+        chunkHeader.clear();
+        chunkHeader.putInt(component).putInt(rows).putInt(rawSize).putInt(data.remaining());
+        writeFully(channel, chunkHeader.flip());
+        writeFully(channel, data);
+    }
+
+    /**
+     * Asigna a cada entidad con alguno de los componentes un id consecutivo, en orden de indice.
+     *
+     * @return id nuevo por indice de entidad, o -1 si la entidad no se guarda
+     */
+    private static int[] remap(ComponentStorage[] storages) {
+        int maxIndex = -1;
+        for (ComponentStorage storage : storages)
+            for (int i = 0; i < storage.size(); i++) maxIndex = Math.max(maxIndex, World.index(storage.entity(i)));
+        int[] remap = new int[maxIndex + 1];
+        Arrays.fill(remap, -1);
+        for (ComponentStorage storage : storages)
+            for (int i = 0; i < storage.size(); i++) remap[World.index(storage.entity(i))] = 0;
+        int next = 0;
+        for (int i = 0; i < remap.length; i++)
+            if (remap[i] == 0) remap[i] = next++;
+        return remap;
+    }
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        if (!strings.containsKey(string)) strings.put(string, strings.size());
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+}
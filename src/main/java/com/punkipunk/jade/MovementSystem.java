@@ -0,0 +1,64 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.util.JobSystem;
+
+import static com.punkipunk.jade.Components.*;
+
+/**
+ * Integra la velocidad en la posicion de las entidades que tienen {@code Transform} y {@code Velocity}.
+ * <p>
+ * Con un {@link JobSystem}, las columnas alineadas se recorren en paralelo por bloques; como cada entidad solo escribe su
+ * propia posicion, el resultado es el mismo que el secuencial.
+ */
+
+public class MovementSystem implements EntitySystem {
+
+    // Entidades por bloque del recorrido en paralelo
+    private static final int GRAIN = 4096;
+
+    private final JobSystem jobs;
+
+    public MovementSystem() {
+        this(null);
+    }
+
+    /**
+     * @param jobs planificador con el que se reparte la integracion, o null para hacerla en el hilo actual
+     */
+    public MovementSystem(JobSystem jobs) {
+        this.jobs = jobs;
+    }
+
+    @Override
+    public void update(World world, double dt) {
+        ComponentStorage velocities = world.storage(VELOCITY);
+        ComponentStorage transforms = world.storage(TRANSFORM);
+
+        // Alinea las transformaciones con las velocidades para recorrer ambas columnas con el mismo indice
+        int aligned = transforms.sortLike(velocities);
+        float[] vx = velocities.floatColumn(VX), vy = velocities.floatColumn(VY);
+        float[] x = transforms.floatColumn(X), y = transforms.floatColumn(Y);
+        float step = (float) dt;
+
+        if (aligned == velocities.size()) {
+            if (jobs != null) jobs.parallelFor(aligned, GRAIN, (start, end) -> integrate(x, y, vx, vy, step, start, end));
+            else integrate(x, y, vx, vy, step, 0, aligned);
+        } else {
+            // Alguna entidad tiene velocidad pero no transformacion, por lo que hay que buscar cada una
+            for (int i = 0; i < velocities.size(); i++) {
+                int position = transforms.indexOf(velocities.entity(i));
+                if (position < 0) continue;
+                x[position] += vx[i] * step;
+                y[position] += vy[i] * step;
+            }
+        }
+    }
+
+    private static void integrate(float[] x, float[] y, float[] vx, float[] vy, float step, int start, int end) {
+        for (int i = start; i < end; i++) {
+            x[i] += vx[i] * step;
+            y[i] += vy[i] * step;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.renderer.*;
+import org.joml.Vector2f;
+
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_LEFT;
+
+/**
+ * Escena de prueba del {@link ParticleSystem}: cuatro fuentes de particulas que caen por la gravedad y, con el boton izquierdo
+ * del mouse, explosiones en la posicion del cursor.
+ * <p>
+ * Cada fuente reserva lugar para un cuarto de las particulas indicadas con {@code -Djade.particles=<cantidad>} (un millon por
+ * defecto) y emite al ritmo necesario para mantenerse casi llena.
+ */
+
+public class ParticleScene extends Scene {
+
+    private static final int FOUNTAINS = 4;
+    private static final int BURST = 20000;
+    // Vida media de las particulas de las fuentes, en segundos
+    private static final float LIFETIME = 2;
+
+    private final int capacity = Integer.getInteger("jade.particles", 1_000_000);
+    private final Vector2f cursor = new Vector2f();
+    private Camera camera;
+    private Shader shader;
+    private ParticleSystem particles;
+    private ParticleEmitter burst;
+
+    public ParticleScene() {
+
+    }
+
+    @Override
+    public void preload() {
+
+        Window window = Window.getInstance();
+        float worldWidth = window.getWidth(), worldHeight = window.getHeight();
+        camera = new Camera(window.getGL(), worldWidth, worldHeight);
+        camera.setPosition(worldWidth / 2, worldHeight / 2);
+
+        particles = new ParticleSystem(window.getGL(), jobs());
+        int perFountain = Math.max(1, capacity / FOUNTAINS);
+        for (int i = 0; i < FOUNTAINS; i++) {
+            ParticleEmitter fountain = new ParticleEmitter(perFountain, i);
+            fountain.setPosition(worldWidth * (i + 0.5f) / FOUNTAINS, worldHeight * 0.1f);
+            fountain.setRadius(4);
+            // Con vidas entre 1 y 3 segundos, la cantidad de particulas vivas tiende a rate * LIFETIME
+            fountain.setRate(perFountain * 0.95f / LIFETIME);
+            fountain.setLifetime(LIFETIME - 1, LIFETIME + 1);
+            fountain.setDirection((float) Math.PI / 2, 0.3f);
+            fountain.setSpeed(0.5f * worldHeight, 0.8f * worldHeight);
+            fountain.setGravity(0, -0.5f * worldHeight);
+            fountain.setDrag(0.2f);
+            fountain.setSpin(-4, 4);
+            fountain.setSize(3, 1);
+            float hue = (float) i / FOUNTAINS;
+            fountain.setStartColor(1, 0.6f + 0.4f * hue, 0.2f + 0.8f * hue, 1);
+            fountain.setEndColor(0.6f * hue, 0.2f, 1 - hue, 0);
+            particles.add(fountain);
+        }
+
+        burst = new ParticleEmitter(4 * BURST, FOUNTAINS);
+        burst.setLifetime(0.5f, 1.5f);
+        burst.setSpeed(0, 0.3f * worldHeight);
+        burst.setDrag(1.5f);
+        burst.setSize(4, 2);
+        burst.setStartColor(1, 1, 1, 1);
+        burst.setEndColor(1, 0.3f, 0, 0);
+        particles.add(burst);
+
+    }
+
+    @Override
+    public void upload(GLTaskQueue queue) {
+
+        queue.add(() -> {
+            shader = Window.getInstance().getShaderLibrary().get("shaders/instancedVertex.glsl", "shaders/fragmentShader.glsl");
+            shader.bindUniformBlock(Camera.BLOCK_NAME, Camera.BINDING);
+        });
+
+    }
+
+    @Override
+    public void init() {
+
+        Window.getInstance().r = 0;
+        Window.getInstance().g = 0;
+        Window.getInstance().b = 0;
+
+    }
+
+    @Override
+    public void dispose() {
+
+        if (particles != null) particles.dispose();
+        if (camera != null) camera.dispose();
+
+    }
+
+    @Override
+    public void update(double dt) {
+
+        particles.update((float) dt);
+
+    }
+
+    @Override
+    public void prepare(double alpha) {
+
+        if (Input.get().current().isButtonPressed(GLFW_MOUSE_BUTTON_LEFT)) {
+            camera.screenToWorld(MouseListener.getX(), MouseListener.getY(), cursor);
+            burst.setPosition(cursor.x, cursor.y);
+            burst.emit(BURST);
+        }
+        particles.prepare();
+
+    }
+
+    @Override
+    protected void swapFrameData() {
+
+        particles.swap();
+
+    }
+
+    @Override
+    public void render(double alpha) {
+
+        camera.upload();
+        shader.use();
+        particles.render(shader);
+
+    }
+
+}
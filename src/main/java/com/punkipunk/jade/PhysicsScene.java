@@ -0,0 +1,190 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.physics.PhysicsWorld;
+import com.punkipunk.renderer.*;
+import org.joml.Vector2f;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_LEFT;
+
+/**
+ * Escena de prueba del {@link PhysicsWorld}: cajas y circulos (mil por defecto, o la cantidad indicada con
+ * {@code -Djade.physics=<cantidad>}) que caen dentro de un recipiente estatico y se apilan. Con el boton izquierdo del mouse se
+ * lanza una caja en la posicion del cursor.
+ * <p>
+ * El mundo esta en metros y la camara muestra {@link #PIXELS_PER_METER} pixeles por metro. Los cuerpos dormidos se dibujan mas
+ * oscuros, y todos se dibujan con una {@link RenderQueue} usando un atlas con un cuadrado y un disco que arma el
+ * {@link TextureLoader} en segundo plano: el recipiente en la capa del fondo, las cajas como opacas y los circulos, cuyas
+ * esquinas son transparentes, como translucidos, por lo que solo ellos se dibujan con mezcla.
+ */
+
+public class PhysicsScene extends Scene {
+
+    private static final float PIXELS_PER_METER = 40;
+    private static final String BOX = "textures/box.png";
+    private static final String CIRCLE = "textures/circle.png";
+    private static final int ATLAS_SIZE = 256;
+
+    private final int count = Integer.getInteger("jade.physics", 1000);
+    private final Vector2f cursor = new Vector2f();
+    private final Random random = new Random(0);
+    private Camera camera;
+    private RenderQueue renderQueue;
+    private int shaderId, textureId;
+    private CompletableFuture<TextureAtlas> shapes;
+    private AtlasRegion box, circle;
+    private PhysicsWorld physics;
+    // Medias medidas de las cajas por id de cuerpo (en los circulos, el radio)
+    private float[] halfWidth = new float[count], halfHeight = new float[count];
+    private int[] colors = new int[count];
+
+    public PhysicsScene() {
+
+    }
+
+    @Override
+    public void preload() {
+
+        Window window = Window.getInstance();
+        camera = new Camera(window.getGL(), window.getWidth(), window.getHeight());
+        camera.setZoom(PIXELS_PER_METER);
+        float width = window.getWidth() / PIXELS_PER_METER, height = window.getHeight() / PIXELS_PER_METER;
+        camera.setPosition(width / 2, height / 2);
+        renderQueue = new RenderQueue(window.getGL());
+
+        physics = new PhysicsWorld(jobs());
+        addBox(width / 2, 0.5f, width / 2, 0.5f, 0);
+        addBox(0.5f, height, 0.5f, height, 0);
+        addBox(width - 0.5f, height, 0.5f, height, 0);
+        // Rampas que separan la lluvia de cuerpos
+        int ramp = addBox(width * 0.3f, height * 0.35f, width * 0.12f, 0.2f, 0);
+        physics.setAngle(ramp, -0.25f);
+        ramp = addBox(width * 0.7f, height * 0.55f, width * 0.12f, 0.2f, 0);
+        physics.setAngle(ramp, 0.25f);
+
+        // Los cuerpos empiezan en una grilla sobre el recipiente, desplazados al azar para que no caigan en columnas
+        int columns = Math.max(1, (int) ((width - 4) / 1.2f));
+        for (int i = 0; i < count; i++) {
+            float x = 2 + (i % columns) * 1.2f + random.nextFloat() * 0.2f;
+            float y = height + (i / columns) * 1.2f;
+            if (random.nextInt(3) == 0) addCircle(x, y, 0.25f + random.nextFloat() * 0.25f);
+            else addBox(x, y, 0.2f + random.nextFloat() * 0.3f, 0.2f + random.nextFloat() * 0.3f, 1);
+        }
+
+        // Un cuadrado blanco y un disco blanco sobre fondo transparente
+        shapes = window.getTextureLoader().loadAtlas(List.of(BOX, CIRCLE), ATLAS_SIZE, 2);
+
+    }
+
+    @Override
+    public void upload(GLTaskQueue queue) {
+
+        queue.add(() -> {
+            Shader shader = Window.getInstance().getShaderLibrary().get("shaders/instancedVertex.glsl",
+                    "shaders/fragmentShader.glsl");
+            shader.bindUniformBlock(Camera.BLOCK_NAME, Camera.BINDING);
+            // La escena no se activa hasta que las paginas del atlas esten en la GPU
+            TextureAtlas atlas = Window.getInstance().getTextureLoader().await(shapes);
+            box = atlas.getRegion(BOX);
+            circle = atlas.getRegion(CIRCLE);
+            shaderId = renderQueue.addShader(shader);
+            textureId = renderQueue.addTexture(atlas.getTexture(box.page()));
+        });
+
+    }
+
+    @Override
+    public void dispose() {
+
+        if (renderQueue != null) renderQueue.dispose();
+        // Si la carga se descarto antes de terminar, el atlas se libera cuando se suba
+        if (shapes != null) shapes.thenAccept(TextureAtlas::dispose);
+        if (camera != null) camera.dispose();
+
+    }
+
+    @Override
+    public void update(double dt) {
+
+        physics.step((float) dt);
+
+    }
+
+    @Override
+    public void prepare(double alpha) {
+
+        if (Input.get().current().isButtonPressed(GLFW_MOUSE_BUTTON_LEFT)) {
+            camera.screenToWorld(MouseListener.getX(), MouseListener.getY(), cursor);
+            int box = addBox(cursor.x, cursor.y, 0.5f, 0.5f, 1);
+            physics.setVelocity(box, 0, -10);
+        }
+
+        for (int id = 0; id < physics.getIdLimit(); id++) {
+            if (!physics.isAlive(id)) continue;
+            int color = colors[id];
+            // Los cuerpos dormidos se oscurecen a la mitad
+            if (!physics.isStatic(id) && !physics.isAwake(id)) color = color >>> 1 & 0x007F7F7F | color & 0xFF000000;
+            float rotation = physics.getAngle(id);
+            int layer = physics.isStatic(id) ? 0 : 1;
+            if (physics.getShape(id) == PhysicsWorld.CIRCLE) {
+                float size = 2 * physics.getRadius(id);
+                renderQueue.submit(layer, true, 0, shaderId, textureId, physics.getX(id), physics.getY(id), size, size, rotation,
+                        color, circle.u0(), circle.v0(), circle.u1(), circle.v1());
+            } else {
+                // Se toma el centro del cuadrado para no llegar al relleno transparente que lo rodea en el atlas
+                float inset = (box.u1() - box.u0()) / 4;
+                renderQueue.submit(layer, false, 0, shaderId, textureId, physics.getX(id), physics.getY(id), 2 * halfWidth[id],
+                        2 * halfHeight[id], rotation, color, box.u0() + inset, box.v0() + inset, box.u1() - inset,
+                        box.v1() - inset);
+            }
+        }
+        renderQueue.sort();
+
+    }
+
+    @Override
+    protected void swapFrameData() {
+
+        renderQueue.swap();
+
+    }
+
+    @Override
+    public void render(double alpha) {
+
+        camera.upload();
+        renderQueue.render();
+
+    }
+
+    private int addBox(float x, float y, float hw, float hh, float density) {
+        int id = physics.createBox(x, y, hw, hh, density);
+        remember(id, hw, hh, density == 0 ? InstanceBuffer.color(0.5f, 0.5f, 0.55f, 1) :
+                InstanceBuffer.color(0.9f, 0.4f + 0.4f * random.nextFloat(), 0.2f, 1));
+        return id;
+    }
+
+    private void addCircle(float x, float y, float radius) {
+        int id = physics.createCircle(x, y, radius, 1);
+        physics.setFriction(id, 0.3f);
+        physics.setRestitution(id, 0.3f);
+        remember(id, radius, radius, InstanceBuffer.color(0.2f, 0.5f + 0.4f * random.nextFloat(), 0.9f, 1));
+    }
+
+    private void remember(int id, float hw, float hh, int color) {
+        if (id >= halfWidth.length) {
+            int capacity = Math.max(id + 1, halfWidth.length * 2);
+            halfWidth = Arrays.copyOf(halfWidth, capacity);
+            halfHeight = Arrays.copyOf(halfHeight, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+        }
+        halfWidth[id] = hw;
+        halfHeight[id] = hh;
+        colors[id] = color;
+    }
+
+}
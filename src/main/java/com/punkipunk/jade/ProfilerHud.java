@@ -0,0 +1,194 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.renderer.Camera;
+import com.punkipunk.renderer.DebugDraw;
+import com.punkipunk.renderer.Font;
+import com.punkipunk.renderer.GLBackend;
+import com.punkipunk.renderer.InstanceBuffer;
+import com.punkipunk.renderer.Shader;
+import com.punkipunk.util.BufferPool;
+import com.punkipunk.util.Profiler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Panel con las metricas del {@link Profiler} dibujado sobre la escena con un {@link DebugDraw}: FPS, percentiles del tiempo de
+ * frame, draw calls, llamadas a OpenGL, GC y memoria del {@link BufferPool}, una grafica con el tiempo de los ultimos frames y el
+ * promedio de cada scope.
+ * <p>
+ * Los textos se recalculan cada {@link #REFRESH} segundos sobre {@link StringBuilder} reutilizados, sin
+ * {@code String.format}, y el resto de los frames se vuelven a dibujar desde la {@link com.punkipunk.renderer.TextCache}. Todo
+ * ocurre en el hilo de OpenGL despues del render de la escena, con una camara propia en pixeles de la ventana.
+ */
+
+class ProfilerHud {
+
+    private static final double REFRESH = 0.25;
+    private static final float FONT_SIZE = 15, MARGIN = 8, PADDING = 6;
+    private static final int GRAPH_FRAMES = 120;
+    private static final float GRAPH_BAR = 2, GRAPH_HEIGHT = 60;
+    // Tiempo de frame que llena la grafica (dos frames de 60 Hz)
+    private static final long GRAPH_MAX = 33_333_333L;
+    private static final long FRAME_60 = 16_666_667L;
+
+    private static final int BACKGROUND = InstanceBuffer.color(0, 0, 0, 0.6f);
+    private static final int TEXT = InstanceBuffer.color(1, 1, 1, 1);
+    private static final int DIM = InstanceBuffer.color(0.7f, 0.7f, 0.7f, 1);
+    private static final int GOOD = InstanceBuffer.color(0.3f, 0.85f, 0.3f, 1);
+    private static final int SLOW = InstanceBuffer.color(0.95f, 0.8f, 0.2f, 1);
+    private static final int BAD = InstanceBuffer.color(0.95f, 0.3f, 0.25f, 1);
+
+    private final Profiler profiler = Profiler.get();
+    private final Camera camera;
+    private final DebugDraw draw;
+    private final Font font;
+    private final Shader shader;
+    private final StringBuilder summary = new StringBuilder(), scopes = new StringBuilder();
+    private final int glIssuedCounter, height;
+    private double lastRefresh = Double.NEGATIVE_INFINITY;
+    private boolean visible = true;
+
+    /**
+     * @param glIssuedCounter contador del profiler con las llamadas a OpenGL emitidas por frame
+     */
+    ProfilerHud(GLBackend gl, Shader shader, int width, int height, int glIssuedCounter) {
+        this.shader = shader;
+        this.glIssuedCounter = glIssuedCounter;
+        this.height = height;
+        font = loadFont();
+        draw = new DebugDraw(gl, font);
+        camera = new Camera(gl, width, height);
+        // Con zoom 1 y la camara centrada en el viewport, las coordenadas son pixeles con el origen abajo a la izquierda
+        camera.setPosition(width / 2f, height / 2f);
+        shader.bindUniformBlock(Camera.BLOCK_NAME, Camera.BINDING);
+    }
+
+    /**
+     * Graba y dibuja el panel. Debe llamarse en el hilo de OpenGL despues del render de la escena.
+     *
+     * @param time tiempo actual en segundos, para decidir cuando recalcular los textos
+     */
+    void render(double time) {
+        if (!visible) return;
+        if (time - lastRefresh >= REFRESH) {
+            lastRefresh = time;
+            refresh();
+        }
+        record();
+        draw.swap();
+        camera.upload();
+        shader.use();
+        draw.render(shader);
+    }
+
+    void toggle() {
+        visible = !visible;
+    }
+
+    void dispose() {
+        draw.dispose();
+        camera.dispose();
+        if (font != null) font.dispose();
+    }
+
+    private void record() {
+        float lineHeight = font != null ? font.getLineHeight() : 0;
+        float summaryWidth = draw.textWidth(summary, FONT_SIZE), scopesWidth = draw.textWidth(scopes, FONT_SIZE);
+        float panelWidth = Math.max(GRAPH_FRAMES * GRAPH_BAR, Math.max(summaryWidth, scopesWidth)) + 2 * PADDING;
+        int summaryLines = font != null ? lines(summary) : 0, scopeLines = font != null ? lines(scopes) : 0;
+        float panelHeight = 2 * PADDING + GRAPH_HEIGHT + (summaryLines + scopeLines) * lineHeight + (font != null ? 2 * PADDING : 0);
+
+        float left = MARGIN, top = height - MARGIN;
+        draw.fillRect(left, top - panelHeight, panelWidth, panelHeight, BACKGROUND);
+
+        float x = left + PADDING, y = top - PADDING;
+        if (font != null) {
+            draw.text(summary, x, y - font.getAscent(), FONT_SIZE, TEXT);
+            y -= summaryLines * lineHeight + PADDING;
+        }
+
+        // Grafica del tiempo de frame, con el frame mas reciente a la derecha
+        float bottom = y - GRAPH_HEIGHT;
+        int samples = Math.min(GRAPH_FRAMES, profiler.getSampleCount());
+        for (int age = 0; age < samples; age++) {
+            long time = profiler.sample(Profiler.FRAME, age);
+            float barHeight = Math.min(1f, (float) time / GRAPH_MAX) * GRAPH_HEIGHT;
+            int color = time <= FRAME_60 ? GOOD : time <= GRAPH_MAX ? SLOW : BAD;
+            draw.fillRect(x + (GRAPH_FRAMES - 1 - age) * GRAPH_BAR, bottom, GRAPH_BAR, barHeight, color);
+        }
+        // Referencia de 60 FPS
+        draw.line(x, bottom + GRAPH_HEIGHT / 2, x + GRAPH_FRAMES * GRAPH_BAR, bottom + GRAPH_HEIGHT / 2, 1, DIM);
+        y = bottom - PADDING;
+
+        if (font != null) draw.text(scopes, x, y - font.getAscent(), FONT_SIZE, DIM);
+    }
+
+    private void refresh() {
+        double average = profiler.average(Profiler.FRAME);
+        summary.setLength(0);
+        summary.append(average > 0 ? Math.round(1_000_000_000.0 / average) : 0).append(" FPS  p50 ");
+        appendMillis(summary, profiler.percentile(Profiler.FRAME, 50));
+        summary.append("  p99 ");
+        appendMillis(summary, profiler.percentile(Profiler.FRAME, 99));
+        summary.append("\ndraw calls ").append(profiler.last(Profiler.DRAW_CALLS));
+        summary.append("  gl calls ").append(profiler.last(glIssuedCounter));
+        summary.append("\ngc ");
+        appendMillis(summary, profiler.percentile(Profiler.GC, 100));
+        summary.append("  pool ");
+        appendFixed(summary, BufferPool.get().getBytesInUse() / (1024.0 * 1024.0), 1);
+        summary.append(" MB");
+
+        // Promedio de cada scope (el frame y el GC ya se muestran arriba)
+        scopes.setLength(0);
+        for (int metric = 0; metric < profiler.getMetricCount(); metric++) {
+            if (!profiler.isTimed(metric) || metric == Profiler.FRAME || metric == Profiler.GC) continue;
+            if (!scopes.isEmpty()) scopes.append('\n');
+            scopes.append(profiler.getName(metric)).append(' ');
+            appendMillis(scopes, profiler.average(metric));
+        }
+    }
+
+    private static void appendMillis(StringBuilder out, double nanos) {
+        appendFixed(out, nanos / 1_000_000.0, 2);
+        out.append(" ms");
+    }
+
+    /**
+     * Agrega un numero no negativo con una cantidad fija de decimales.
+     */
+    private static void appendFixed(StringBuilder out, double value, int decimals) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+        long fixed = Math.round(value * scale);
+        out.append(fixed / scale);
+        if (decimals == 0) return;
+        out.append('.');
+        long fraction = fixed % scale;
+        for (long digit = scale / 10; digit > fraction && digit > 1; digit /= 10) out.append('0');
+        out.append(fraction);
+    }
+
+    private static int lines(CharSequence text) {
+        if (text.isEmpty()) return 0;
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) == '\n') lines++;
+        return lines;
+    }
+
+    private static Font loadFont() {
+        Path path = Font.findDebugFont();
+        if (path == null) {
+            System.err.println("No font was found for the profiler HUD, set one with -Djade.font=<file>!");
+            return null;
+        }
+        try {
+            return Font.load(path, FONT_SIZE, false);
+        } catch (IOException e) {
+            System.err.println("The '" + path + "' font could not be loaded!");
+            return null;
+        }
+    }
+
+}
@@ -1,14 +1,149 @@
 package com.punkipunk.jade;
 
+import com.punkipunk.renderer.GLTaskQueue;
+import com.punkipunk.renderer.RenderCommandList;
+import com.punkipunk.util.JobSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escena del motor.
+ * <p>
+ * Las escenas se registran por nombre en el {@link SceneManager}, que las carga en tres pasos para no congelar la escena
+ * actual: {@link #preload()} en un hilo de trabajo, los pasos de OpenGL que encola {@link #upload(GLTaskQueue)} repartidos entre
+ * frames, y por ultimo {@link #init()}. Al reemplazarla, {@link #dispose()} libera sus recursos de la GPU y fuera del heap.
+ * <p>
+ * Cada frame se divide en tres fases: {@link #update(double)} avanza la simulacion, {@link #prepare(double)} graba en
+ * {@link #getRecordingCommands()} lo que hay que dibujar, y {@link #render(double)} lo aplica y lo dibuja con OpenGL. Las
+ * listas de comandos se intercambian entre {@code prepare} y {@code render}. Con el bucle en pipeline de la {@link Window},
+ * {@code update} y {@code prepare} del frame siguiente corren en un hilo de trabajo mientras el hilo de OpenGL ejecuta
+ * {@code render} del frame actual, por lo que {@code render} solo debe leer {@link #getSubmittedCommands()} (y no el
+ * {@link World}), y las dos primeras fases no deben llamar a OpenGL.
+ */
+
 public abstract class Scene {
 
+    protected final World world = new World();
+    private final List<EntitySystem> systems = new ArrayList<>();
+    private final RenderCommandList[] commands = {new RenderCommandList(), new RenderCommandList()};
+    // Lista que se esta grabando; la otra es la que se envio al render
+    private int recording;
+
     public Scene() {
     }
 
+    /**
+     * Prepara todo lo que no necesita OpenGL (leer y decodificar archivos, crear las entidades). Corre en un hilo de trabajo
+     * mientras la escena anterior sigue activa.
+     */
+    public void preload() {
+
+    }
+
+    /**
+     * Encola los pasos que necesitan OpenGL (compilar shaders, crear y llenar buffers). Conviene dividirlos en pasos cortos,
+     * ya que se ejecutan en el hilo de OpenGL repartidos entre frames.
+     */
+    public void upload(GLTaskQueue queue) {
+
+    }
+
+    /**
+     * Termina de inicializar la escena en el hilo de OpenGL, justo antes de que se vuelva la escena actual.
+     */
     public void init() {
 
     }
 
+    /**
+     * Libera los recursos de la escena. Se llama en el hilo de OpenGL cuando se reemplaza la escena (o se descarta su carga), por
+     * lo que debe tolerar que {@link #upload(GLTaskQueue)} no haya terminado.
+     */
+    public void dispose() {
+
+    }
+
+    /**
+     * Avanza la simulacion. Con el paso fijo activado se llama cero o mas veces por frame, siempre con el mismo {@code dt}.
+     *
+     * @param dt tiempo simulado en segundos
+     */
     public abstract void update(double dt);
 
+    /**
+     * Graba los comandos de render del frame a partir del estado de la simulacion. Se llama exactamente una vez por frame,
+     * despues de las actualizaciones, y puede correr fuera del hilo de OpenGL.
+     *
+     * @param alpha fraccion del siguiente tick ya transcurrida (entre 0 y 1), para interpolar entre el estado anterior y el
+     *              actual
+     */
+    public void prepare(double alpha) {
+
+    }
+
+    /**
+     * Dibuja la escena. Se llama exactamente una vez por frame, en el hilo de OpenGL, con los comandos que grabo
+     * {@link #prepare(double)}.
+     *
+     * @param alpha el mismo valor que recibio {@code prepare}
+     */
+    public void render(double alpha) {
+
+    }
+
+    /**
+     * Registra un sistema que se ejecuta, en orden de registro, con cada {@link #updateSystems(double)}.
+     */
+    public void addSystem(EntitySystem system) {
+        systems.add(system);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * @return lista en la que {@link #prepare(double)} graba los comandos del frame
+     */
+    public RenderCommandList getRecordingCommands() {
+        return commands[recording];
+    }
+
+    /**
+     * @return lista con los comandos que {@link #render(double)} debe aplicar
+     */
+    public RenderCommandList getSubmittedCommands() {
+        return commands[recording ^ 1];
+    }
+
+    /**
+     * Envia al render los comandos grabados y vacia la otra lista para el frame siguiente. Lo llama la {@link Window} cuando
+     * ninguna de las dos fases esta en curso.
+     */
+    void swapCommands() {
+        recording ^= 1;
+        commands[recording].clear();
+        swapFrameData();
+    }
+
+    /**
+     * Se llama junto con el intercambio de las listas de comandos, para que la escena intercambie los demas datos que pasan de
+     * {@code prepare} a {@code render} (por ejemplo, un {@code InstanceBuffer} doble).
+     */
+    protected void swapFrameData() {
+
+    }
+
+    /**
+     * @return planificador de trabajos para paralelizar la simulacion
+     */
+    protected JobSystem jobs() {
+        return Window.getInstance().getJobSystem();
+    }
+
+    protected void updateSystems(double dt) {
+        for (int i = 0; i < systems.size(); i++) systems.get(i).update(world, dt);
+    }
+
 }
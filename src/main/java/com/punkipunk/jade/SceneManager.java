@@ -0,0 +1,215 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.renderer.GLTaskQueue;
+import com.punkipunk.util.JobSystem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Registro de escenas por nombre y carga de la escena siguiente sin detener la actual.
+ * <p>
+ * {@link #load(String)} crea la escena y ejecuta su {@link Scene#preload()} en un hilo propio mientras la escena actual sigue
+ * actualizandose y dibujandose. Cuando termina, los pasos que necesitan OpenGL que encola {@link Scene#upload(GLTaskQueue)} se
+ * ejecutan en el hilo de OpenGL con {@link #update(long)}, repartidos entre frames segun un presupuesto de tiempo. Recien
+ * entonces {@link #activate()} inicializa la escena nueva, libera la anterior con {@link Scene#dispose()} y la reemplaza.
+ * <p>
+ * Las precargas no usan el {@link JobSystem}: la simulacion lo ocupa en cada frame (y con el pipeline, todo el frame), por lo
+ * que una precarga larga le quitaria un hilo o esperaria detras de ella. Corren de a una en el orden en que se pidieron. Salvo
+ * {@link Scene#preload()}, todo se ejecuta en el hilo de OpenGL.
+ */
+
+public class SceneManager {
+
+    private final ExecutorService preloader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scene-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Supplier<Scene>> factories = new LinkedHashMap<>();
+    private final GLTaskQueue uploads = new GLTaskQueue();
+    // Cargas descartadas cuya precarga puede seguir corriendo; se liberan en el hilo de OpenGL cuando termina
+    private final List<Discarded> discarded = new ArrayList<>();
+    private Scene current, next;
+    private String currentName, nextName;
+    private CompletableFuture<Void> preload;
+    private boolean uploading;
+
+    public SceneManager() {
+    }
+
+    public void register(String name, Supplier<Scene> factory) {
+        factories.put(name, factory);
+    }
+
+    /**
+     * Empieza a cargar la escena en segundo plano. Si ya se estaba cargando otra, se descarta.
+     */
+    public void load(String name) {
+        Supplier<Scene> factory = factories.get(name);
+        assert factory != null : "Unknown scene '" + name + "'";
+        cancel();
+        Scene scene = factory.get();
+        next = scene;
+        nextName = name;
+        preload = CompletableFuture.runAsync(scene::preload, preloader);
+    }
+
+    /**
+     * Carga la escena y la activa en el acto, bloqueando hasta que termine. Se usa para la primera escena, cuando todavia no hay
+     * nada que dibujar.
+     *
+     * @throws IllegalStateException si la precarga fallo; la escena actual no cambia
+     */
+    public Scene loadNow(String name) {
+        load(name);
+        try {
+            preload.join();
+        } catch (CompletionException e) {
+            cancel();
+            throw new IllegalStateException("The '" + name + "' scene could not be loaded!", e.getCause());
+        }
+        startUploads();
+        uploads.flush();
+        return activate();
+    }
+
+    /**
+     * Avanza la carga pendiente: cuando termina la precarga, encola los pasos de OpenGL de la escena y ejecuta los que entren en
+     * el presupuesto.
+     *
+     * @param budgetNanos tiempo maximo a consumir en los pasos de OpenGL en esta llamada
+     * @return true si la escena siguiente esta lista para {@link #activate()}
+     */
+    public boolean update(long budgetNanos) {
+        disposeDiscarded();
+        if (next == null) return false;
+        if (!uploading && (!preload.isDone() || !startUploads())) return false;
+        uploads.process(budgetNanos);
+        return uploads.isEmpty();
+    }
+
+    /**
+     * Inicializa la escena cargada, libera la actual y la reemplaza. Requiere que {@link #update(long)} haya devuelto true y que
+     * no haya una simulacion de la escena actual en curso.
+     *
+     * @return la escena activada
+     */
+    public Scene activate() {
+        assert next != null && uploading && uploads.isEmpty() : "The next scene is not ready!";
+        Scene previous = current;
+        current = next;
+        currentName = nextName;
+        next = null;
+        nextName = null;
+        preload = null;
+        uploading = false;
+        current.init();
+        if (previous != null) previous.dispose();
+        return current;
+    }
+
+    /**
+     * Libera la escena actual y las que se estaban cargando, esperando a que terminen sus precargas.
+     */
+    public void dispose() {
+        cancel();
+        for (Discarded scene : discarded) {
+            scene.preload().exceptionally(e -> null).join();
+            scene.scene().dispose();
+        }
+        discarded.clear();
+        preloader.shutdownNow();
+        if (current != null) current.dispose();
+        current = null;
+        currentName = null;
+    }
+
+    public boolean isLoading() {
+        return next != null;
+    }
+
+    /**
+     * @return progreso de los pasos de OpenGL de la escena que se esta cargando (0 mientras se precarga)
+     */
+    public float getLoadProgress() {
+        return next == null ? 1 : uploading ? uploads.getProgress() : 0;
+    }
+
+    public Scene getCurrent() {
+        return current;
+    }
+
+    public String getCurrentName() {
+        return currentName;
+    }
+
+    public Set<String> getSceneNames() {
+        return factories.keySet();
+    }
+
+    /**
+     * @return cantidad de escenas descartadas que esperan a que termine su precarga para liberarse
+     */
+    public int getDiscardedCount() {
+        return discarded.size();
+    }
+
+    /**
+     * Encola los pasos de OpenGL de la escena precargada.
+     *
+     * @return false si la precarga fallo, en cuyo caso la carga se descarta
+     */
+    private boolean startUploads() {
+        try {
+            preload.join();
+        } catch (CompletionException e) {
+            System.err.println("The '" + nextName + "' scene could not be loaded: " + e.getCause());
+            cancel();
+            return false;
+        }
+        uploads.clear();
+        next.upload(uploads);
+        uploading = true;
+        return true;
+    }
+
+    /**
+     * Descarta la escena que se estaba cargando sin esperar su precarga. Lo que ya hubiera creado se libera cuando la precarga
+     * termine, para no liberar la escena mientras la modifica.
+     */
+    private void cancel() {
+        if (next == null) return;
+        discarded.add(new Discarded(next, preload));
+        uploads.clear();
+        next = null;
+        nextName = null;
+        preload = null;
+        uploading = false;
+        disposeDiscarded();
+    }
+
+    private void disposeDiscarded() {
+        for (int i = 0; i < discarded.size(); ) {
+            Discarded scene = discarded.get(i);
+            if (!scene.preload().isDone()) {
+                i++;
+                continue;
+            }
+            discarded.remove(i);
+            scene.scene().dispose();
+        }
+    }
+
+    private record Discarded(Scene scene, CompletableFuture<Void> preload) {
+    }
+
+}
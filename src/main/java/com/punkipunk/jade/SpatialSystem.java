@@ -0,0 +1,53 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.util.SpatialIndex;
+
+import java.util.Arrays;
+
+import static com.punkipunk.jade.Components.*;
+
+/**
+ * Mantiene un {@link SpatialIndex} sincronizado con el {@code Transform} de las entidades, usando el indice de cada entidad
+ * como id.
+ * <p>
+ * En cada actualizacion mueve las cajas de todas las entidades (el indice solo cambia de celda a las que cruzaron un borde) y
+ * quita las de las entidades que ya no tienen {@code Transform}. Debe registrarse despues de los sistemas que mueven entidades.
+ */
+
+public class SpatialSystem implements EntitySystem {
+
+    private final SpatialIndex index;
+    // Ultima actualizacion en la que se vio cada id, para detectar los que desaparecieron
+    private int[] seen = new int[64];
+    private int updates;
+
+    public SpatialSystem(SpatialIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public void update(World world, double dt) {
+        ComponentStorage transforms = world.storage(TRANSFORM);
+        float[] x = transforms.floatColumn(X), y = transforms.floatColumn(Y);
+        float[] width = transforms.floatColumn(WIDTH), height = transforms.floatColumn(HEIGHT);
+        updates++;
+
+        for (int i = 0; i < transforms.size(); i++) {
+            int id = World.index(transforms.entity(i));
+            if (id >= seen.length) seen = Arrays.copyOf(seen, Math.max(id + 1, seen.length * 2));
+            seen[id] = updates;
+            index.update(id, x[i], y[i], x[i] + width[i], y[i] + height[i]);
+        }
+
+        // Se recorre al reves porque eliminar mueve el ultimo id a la posicion eliminada
+        for (int i = index.size() - 1; i >= 0; i--) {
+            int id = index.id(i);
+            if (seen[id] != updates) index.remove(id);
+        }
+    }
+
+    public SpatialIndex getIndex() {
+        return index;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.renderer.QuadWriter;
+import com.punkipunk.renderer.RenderCommandList;
+import com.punkipunk.renderer.Renderer;
+import com.punkipunk.util.IntArrayList;
+import com.punkipunk.util.SpatialIndex;
+
+import java.util.Arrays;
+
+import static com.punkipunk.jade.Components.*;
+
+/**
+ * Copia la transformacion y el color de las entidades con {@code Sprite} a su cuadrado en el {@link Renderer}. Las entidades
+ * que no tienen color se dibujan en blanco.
+ * <p>
+ * Si se activa el culling con {@link #setCulling(SpatialIndex)}, solo se actualizan los sprites cuyas cajas se superponen con
+ * la vista (consultadas en el indice espacial). Los que salen de la vista se convierten en cuadrados degenerados una sola vez,
+ * por lo que no generan fragmentos ni se vuelven a subir a la GPU mientras sigan fuera.
+ * <p>
+ * Con {@link #record(World, QuadWriter)} las actualizaciones se graban en una {@link RenderCommandList} en lugar de aplicarse
+ * al {@link Renderer}, lo que permite preparar el frame fuera del hilo de OpenGL.
+ */
+
+public class SpriteRenderSystem implements EntitySystem {
+
+    private final Renderer renderer;
+    private SpatialIndex culling;
+    private float viewMinX, viewMinY, viewMaxX, viewMaxY;
+    private final IntArrayList visible = new IntArrayList(1024);
+    // Frame en el que cada id resulto visible, y si su cuadrado esta actualmente oculto
+    private int[] visibleFrame = new int[64];
+    private boolean[] hidden = new boolean[64];
+    private int frame;
+    private int culled;
+
+    public SpriteRenderSystem(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * @param index indice espacial con las cajas de las entidades (por ejemplo, el de un {@link SpatialSystem}), o null para
+     *              desactivar el culling
+     */
+    public void setCulling(SpatialIndex index) {
+        this.culling = index;
+    }
+
+    /**
+     * Rectangulo visible en coordenadas del mundo.
+     */
+    public void setView(float minX, float minY, float maxX, float maxY) {
+        viewMinX = minX;
+        viewMinY = minY;
+        viewMaxX = maxX;
+        viewMaxY = maxY;
+    }
+
+    @Override
+    public void update(World world, double dt) {
+        record(world, renderer);
+    }
+
+    /**
+     * Escribe en {@code target} los cuadrados de las entidades con {@code Sprite}.
+     */
+    public void record(World world, QuadWriter target) {
+        ComponentStorage sprites = world.storage(SPRITE);
+        ComponentStorage transforms = world.storage(TRANSFORM);
+        ComponentStorage colors = world.storage(COLOR);
+
+        int[] handles = sprites.intColumn(HANDLE);
+        float[] x = transforms.floatColumn(X), y = transforms.floatColumn(Y);
+        float[] width = transforms.floatColumn(WIDTH), height = transforms.floatColumn(HEIGHT);
+        float[] r = colors.floatColumn(R), g = colors.floatColumn(G), b = colors.floatColumn(B), a = colors.floatColumn(A);
+
+        if (culling != null) markVisible();
+        culled = 0;
+
+        for (int i = 0; i < sprites.size(); i++) {
+            int entity = sprites.entity(i);
+            int t = transforms.indexOf(entity);
+            if (t < 0) continue;
+            if (culling != null) {
+                int id = World.index(entity);
+                if (id >= hidden.length) hidden = Arrays.copyOf(hidden, Math.max(id + 1, hidden.length * 2));
+                if (id >= visibleFrame.length || visibleFrame[id] != frame) {
+                    culled++;
+                    if (!hidden[id]) target.set(handles[i], 0, 0, 0, 0, 0, 0, 0, 0);
+                    hidden[id] = true;
+                    continue;
+                }
+                hidden[id] = false;
+            }
+            int c = colors.indexOf(entity);
+            if (c < 0) target.set(handles[i], x[t], y[t], width[t], height[t], 1, 1, 1, 1);
+            else target.set(handles[i], x[t], y[t], width[t], height[t], r[c], g[c], b[c], a[c]);
+        }
+    }
+
+    /**
+     * @return sprites descartados por estar fuera de la vista en la ultima actualizacion
+     */
+    public int getCulled() {
+        return culled;
+    }
+
+    private void markVisible() {
+        frame++;
+        visible.clear();
+        culling.queryRange(viewMinX, viewMinY, viewMaxX, viewMaxY, visible);
+        int[] ids = visible.elements();
+        for (int i = 0; i < visible.size(); i++) {
+            int id = ids[i];
+            if (id >= visibleFrame.length) visibleFrame = Arrays.copyOf(visibleFrame, Math.max(id + 1, visibleFrame.length * 2));
+            visibleFrame[id] = frame;
+        }
+    }
+
+}
@@ -1,8 +1,27 @@
 package com.punkipunk.jade;
 
+import com.punkipunk.audio.AudioDevice;
+import com.punkipunk.audio.AudioEngine;
+import com.punkipunk.audio.NullAudioDevice;
+import com.punkipunk.audio.OpenALDevice;
+import com.punkipunk.renderer.GLBackend;
+import com.punkipunk.renderer.GLState;
+import com.punkipunk.renderer.ShaderLibrary;
+import com.punkipunk.renderer.TextureLoader;
+import com.punkipunk.util.BufferPool;
+import com.punkipunk.util.FrameLimiter;
+import com.punkipunk.util.JobSystem;
+import com.punkipunk.util.MemoryArena;
+import com.punkipunk.util.Profiler;
+import com.punkipunk.util.ResourceManager;
 import org.lwjgl.Version;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
+import org.lwjgl.system.Platform;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinTask;
 
 import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
 import static org.lwjgl.glfw.GLFW.*;
@@ -15,12 +34,61 @@ import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class Window {
 
-    private static Scene currentScene;
-    private final int width;
-    private final int height;
+    // Bytes de texturas que se suben a la GPU como maximo por frame (4 MB = una textura RGBA de 1024x1024)
+    private static final long TEXTURE_UPLOAD_BUDGET = 4L * 1024 * 1024;
+    // Memoria que pueden ocupar los recursos sin referencias antes de expulsarlos de la cache
+    private static final long RESOURCE_CACHE_BUDGET = 64L * 1024 * 1024;
+    // Tiempo que se dedica por frame a los pasos de OpenGL de la escena que se esta cargando (4 ms)
+    private static final long SCENE_UPLOAD_BUDGET = 4_000_000L;
+    // Sonidos que pueden sonar a la vez
+    private static final int AUDIO_VOICES = 32;
+
+    private Scene currentScene;
+    private int width;
+    private int height;
     private final String title;
     public double r, g, b, a;
     private long glfwWindow; // Numero que representa la direccion de memoria en donde esta la ventana
+    private final FrameLimiter frameLimiter = new FrameLimiter();
+    private boolean fixedTimestep = true;
+    private int tickRate = 60; // Actualizaciones de la simulacion por segundo
+    private int maxUpdatesPerFrame = 5;
+    private int targetFps; // 0 = sin limite
+    private final Profiler profiler = Profiler.get();
+    private final int pollScope = profiler.scope("poll events");
+    private final int updateScope = profiler.scope("scene update");
+    private final int waitScope = profiler.scope("simulation wait");
+    private final int clearScope = profiler.scope("clear");
+    private final int renderScope = profiler.scope("render");
+    private final int swapScope = profiler.scope("swap");
+    private final int syncScope = profiler.scope("sync");
+    private final int hudScope = profiler.scope("hud");
+    private final int audioScope = profiler.scope("audio");
+    private final int glIssuedCounter = profiler.counter("gl calls");
+    private final int glSkippedCounter = profiler.counter("gl calls skipped");
+    private final int poolAllocationsCounter = profiler.counter("pool allocations");
+    private final int poolBytesCounter = profiler.counter("pool bytes");
+    private final int arenaAllocationsCounter = profiler.counter("arena allocations");
+    private final int arenaBytesCounter = profiler.counter("arena bytes");
+    private long lastPoolAllocations, lastArenaAllocations;
+    private boolean overlay = true;
+    private double lastOverlayUpdate;
+    private boolean headless;
+    private ProfilerHud hud;
+    private ShaderLibrary shaderLibrary;
+    private GLState gl;
+    private TextureLoader textureLoader;
+    private ResourceManager resourceManager;
+    private JobSystem jobSystem;
+    private SceneManager sceneManager;
+    private AudioEngine audio;
+    // Con -Djade.pipelined=true la simulacion del frame siguiente se superpone con el render del actual
+    private boolean pipelined = Boolean.getBoolean("jade.pipelined");
+    private ForkJoinTask<?> simulation;
+    private Scene simulatedScene;
+    private long simulationTime;
+    // Alpha con el que se preparo el frame que se va a dibujar, y el de la simulacion en curso
+    private double preparedAlpha = 1.0, pendingAlpha;
 
     private Window() {
         this.width = 800;
@@ -32,21 +100,6 @@ public class Window {
         a = 1;
     }
 
-    public static void changeScene(int newScene) {
-        switch (newScene) {
-            case 0:
-                currentScene = new LevelEditorScene();
-                currentScene.init();
-                break;
-            case 1:
-                currentScene = new LevelScene();
-                currentScene.init();
-                break;
-            default:
-                assert false : "Unknow scene '" + newScene + "'";
-        }
-    }
-
     public static Window getInstance() {
         return SingletonHolder.INSTANCE;
     }
@@ -55,6 +108,12 @@ public class Window {
         init();
         loop();
 
+        // Si se paso -Djade.profile=<archivo>, guarda las metricas de la sesion
+        String profilePath = System.getProperty("jade.profile");
+        if (profilePath != null) dumpProfile(Path.of(profilePath));
+
+        disposeServices();
+
         /* Libera las devoluciones de llamadas de la ventana y destruye la ventana (libera la memoria). Aunque esto no es
          * necesario ya que el OS lo hara por nostros. */
         glfwFreeCallbacks(glfwWindow);
@@ -66,32 +125,248 @@ public class Window {
 
     }
 
+    /**
+     * Bucle principal con paso de simulacion fijo.
+     * <p>
+     * El tiempo real transcurrido se acumula y se consume en ticks de {@code 1 / tickRate} segundos, por lo que la simulacion es
+     * determinista sin importar los FPS. Si un frame tarda demasiado (por ejemplo, por un pico de carga) se ejecutan como maximo
+     * {@code maxUpdatesPerFrame} ticks y el resto del tiempo se descarta; de lo contrario, cada frame lento obligaria al
+     * siguiente a simular aun mas ticks (espiral de la muerte). Lo que queda en el acumulador se pasa al render como
+     * {@code alpha} para interpolar entre el estado anterior y el actual.
+     * <p>
+     * En modo pipeline ({@link #setPipelined(boolean)}), los ticks y la preparacion del frame siguiente se ejecutan en el
+     * {@link JobSystem} mientras este hilo dibuja los comandos del frame anterior, a costa de un frame de latencia.
+     */
     private void loop() {
 
-        double beginTime = glfwGetTime();
-        double endTime;
-        double dt = -1.0f;
+        double previousTime = glfwGetTime();
+        double accumulator = 0;
 
         // Ejecuta el bucle de renderizado mientras el usuario no haya intentado cerrar la ventana o presionado la tecla ESCAPE
         while (!glfwWindowShouldClose(glfwWindow)) {
 
+            profiler.beginFrame();
+
+            profiler.begin(pollScope);
             glfwPollEvents(); // Obtiene los eventos de entrada (mouse, etc.)
+            Input.get().snapshot(); // Publica el estado de la entrada de este frame
+            shaderLibrary.poll(); // Recompila los shaders modificados
+            textureLoader.processUploads(TEXTURE_UPLOAD_BUDGET); // Sube las texturas ya decodificadas en segundo plano
+            updateScenes(); // Avanza la carga de la escena siguiente
+            profiler.end(pollScope);
+
+            double currentTime = glfwGetTime();
+            // Calcula el tiempo transcurrido desde el frame anterior (delta time)
+            double dt = currentTime - previousTime;
+            previousTime = currentTime;
+
+            profiler.begin(audioScope);
+            audio.update(dt);
+            profiler.end(audioScope);
+
+            double alpha = 1.0, step = dt;
+            int updates = 1;
+            if (fixedTimestep) {
+                step = 1.0 / tickRate;
+                accumulator += dt;
+                updates = 0;
+                while (accumulator >= step && updates < maxUpdatesPerFrame) {
+                    accumulator -= step;
+                    updates++;
+                }
+                // Descarta el tiempo que no se pudo simular en este frame
+                if (accumulator >= step) accumulator %= step;
+                alpha = accumulator / step;
+            }
+            simulateFrame(updates, step, alpha, true);
+
+            renderFrame(preparedAlpha);
+
+            profiler.begin(swapScope);
+            glfwSwapBuffers(glfwWindow); // Intercambia los buffers de color
+            profiler.end(swapScope);
 
-            // Establece el color de limpieza
-            glClearColor((float) r, (float) g, (float) b, (float) a);
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); // Limpia el framebuffer
+            profiler.begin(syncScope);
+            // Evita que los frames ociosos consuman un nucleo completo cuando v-sync esta desactivado
+            frameLimiter.sync(targetFps);
+            profiler.end(syncScope);
 
-            // No actualiza el delta hasta despues de dos frames
-            if (dt >= 0) currentScene.update(dt);
+            endFrame();
 
-            glfwSwapBuffers(glfwWindow); // Intercambia los buffers de color
+            updateProfilerOverlay(currentTime);
+
+        }
+    }
+
+    /**
+     * Ejecuta la escena inicial sin ventana ni contexto OpenGL, dibujando con el backend indicado (por ejemplo, un
+     * {@link com.punkipunk.renderer.SoftwareBackend}). Cada frame avanza exactamente un tick de la simulacion, por lo que el
+     * resultado es determinista y el framebuffer final se puede comparar con una imagen de referencia.
+     *
+     * @param backend backend sobre el que se dibuja; su framebuffer debe medir {@code width x height}
+     * @param frames  cantidad de frames a ejecutar
+     * @return frames por segundo promedio, sin contar la inicializacion de la escena
+     */
+    public double runHeadless(GLBackend backend, int width, int height, int frames) {
+        this.width = width;
+        this.height = height;
+        gl = new GLState(backend);
+        headless = true;
+        initServices();
+
+        double tick = 1.0 / tickRate;
+        long start = System.nanoTime();
+        // En modo pipeline el primer frame se simula antes del bucle, y cada iteracion dibuja el frame que se simulo en la anterior
+        if (pipelined) simulateFrame(1, tick, 1.0, true);
+        for (int i = 0; i < frames; i++) {
+            profiler.beginFrame();
+
+            profiler.begin(pollScope);
+            Input.get().snapshot();
+            textureLoader.processUploads(TEXTURE_UPLOAD_BUDGET);
+            updateScenes();
+            profiler.end(pollScope);
+
+            profiler.begin(audioScope);
+            audio.update(tick);
+            profiler.end(audioScope);
+
+            simulateFrame(1, tick, 1.0, !pipelined || i + 1 < frames);
+
+            renderFrame(preparedAlpha);
+            endFrame();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        String profilePath = System.getProperty("jade.profile");
+        if (profilePath != null) dumpProfile(Path.of(profilePath));
+        disposeServices();
+        return seconds > 0 ? frames / seconds : 0;
+    }
+
+    /**
+     * Ejecuta los pasos de OpenGL de la escena que se esta cargando y, cuando esta lista, la activa en lugar de la actual.
+     */
+    private void updateScenes() {
+        if (!sceneManager.update(SCENE_UPLOAD_BUDGET)) return;
+        // La simulacion en curso pertenece a la escena que se va a liberar
+        finishSimulation();
+        currentScene = sceneManager.activate();
+    }
 
-            endTime = glfwGetTime();
-            // Calcula el tiempo transcurrido que tomo en hacer un ciclo (delta time), ideal hacerlo al final del bucle para detectar picos de lag
-            dt = endTime - beginTime;
-            beginTime = endTime;
+    /**
+     * Ejecuta los ticks de la simulacion y la preparacion del frame. Sin pipeline lo hace en este hilo; con pipeline espera la
+     * simulacion en curso, envia sus comandos al render y lanza la siguiente en el {@link JobSystem}.
+     *
+     * @param next false para no lanzar otra simulacion (solo con pipeline)
+     */
+    private void simulateFrame(int updates, double step, double alpha, boolean next) {
+        if (!pipelined) {
+            profiler.begin(updateScope);
+            simulate(updates, step, alpha);
+            profiler.end(updateScope);
+            currentScene.swapCommands();
+            preparedAlpha = alpha;
+            return;
+        }
+
+        profiler.begin(waitScope);
+        finishSimulation();
+        profiler.end(waitScope);
+        if (!next) return;
+        Scene scene = simulatedScene = currentScene;
+        pendingAlpha = alpha;
+        simulation = jobSystem.submit(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < updates; i++) scene.update(step);
+            scene.prepare(alpha);
+            simulationTime = System.nanoTime() - start;
+        });
+    }
+
+    private void simulate(int updates, double step, double alpha) {
+        for (int i = 0; i < updates; i++) currentScene.update(step);
+        currentScene.prepare(alpha);
+    }
+
+    /**
+     * Espera la simulacion en curso, si la hay, y envia sus comandos al render.
+     */
+    private void finishSimulation() {
+        if (simulation == null) return;
+        simulation.join();
+        simulation = null;
+        // El join garantiza que este hilo ve todo lo que escribio la simulacion
+        profiler.count(updateScope, simulationTime);
+        simulatedScene.swapCommands();
+        preparedAlpha = pendingAlpha;
+    }
+
+    private void renderFrame(double alpha) {
+        profiler.begin(clearScope);
+        // Establece el color de limpieza
+        gl.clearColor((float) r, (float) g, (float) b, (float) a);
+        gl.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); // Limpia el framebuffer
+        profiler.end(clearScope);
+
+        profiler.begin(renderScope);
+        currentScene.render(alpha);
+        profiler.end(renderScope);
+
+        if (hud != null) {
+            profiler.begin(hudScope);
+            hud.render(System.nanoTime() / 1_000_000_000.0);
+            profiler.end(hudScope);
+        }
+    }
 
+    private void endFrame() {
+        profiler.count(glIssuedCounter, gl.getIssued());
+        profiler.count(glSkippedCounter, gl.getSkipped());
+        gl.resetCounters();
+
+        // Los buffers temporales del hilo de OpenGL viven hasta el final del frame
+        MemoryArena arena = MemoryArena.get();
+        BufferPool pool = BufferPool.get();
+        profiler.count(arenaAllocationsCounter, arena.getAllocations() - lastArenaAllocations);
+        profiler.count(arenaBytesCounter, arena.getUsed());
+        lastArenaAllocations = arena.getAllocations();
+        arena.clear();
+        long poolAllocations = pool.getAllocations();
+        profiler.count(poolAllocationsCounter, poolAllocations - lastPoolAllocations);
+        profiler.count(poolBytesCounter, pool.getBytesInUse());
+        lastPoolAllocations = poolAllocations;
+
+        profiler.endFrame();
+    }
 
+    /**
+     * Muestra las metricas principales en el titulo de la ventana una vez por segundo, guarda el reporte completo al presionar
+     * F2 y muestra u oculta el panel del profiler con F3.
+     */
+    private void updateProfilerOverlay(double time) {
+        if (Input.get().current().isKeyPressed(GLFW_KEY_F2))
+            dumpProfile(Path.of("profile-" + System.currentTimeMillis() + ".txt"));
+        if (hud != null && Input.get().current().isKeyPressed(GLFW_KEY_F3)) hud.toggle();
+
+        if (!overlay || time - lastOverlayUpdate < 1.0) return;
+        lastOverlayUpdate = time;
+        double average = profiler.average(Profiler.FRAME);
+        glfwSetWindowTitle(glfwWindow, String.format("%s | %d FPS | p50 %.2fms p99 %.2fms | %d draw calls | gc %dms",
+                title,
+                average > 0 ? Math.round(1_000_000_000.0 / average) : 0,
+                profiler.percentile(Profiler.FRAME, 50) / 1_000_000.0,
+                profiler.percentile(Profiler.FRAME, 99) / 1_000_000.0,
+                profiler.last(Profiler.DRAW_CALLS),
+                profiler.percentile(Profiler.GC, 100) / 1_000_000));
+    }
+
+    private void dumpProfile(Path path) {
+        try {
+            profiler.dump(path);
+            System.out.println("Profile saved to '" + path.toAbsolutePath() + "'");
+        } catch (IOException e) {
+            System.err.println("The profile could not be saved to '" + path + "'!");
         }
     }
 
@@ -104,15 +379,22 @@ public class Window {
         glfwDefaultWindowHints();
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE); // La ventana permanecera oculta despues de la creacion
         glfwWindowHint(GLFW_RESIZABLE, GLFW_TRUE);
+        /* Contexto OpenGL 3.3 core: el renderizador usa bloques de uniforms, atributos instanciados y shaders #version 330 core.
+         * Sin estas indicaciones algunas plataformas (macOS en particular, que ademas exige forward-compatible) entregan un
+         * contexto 2.1. */
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        if (Platform.get() == Platform.MACOSX) glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
 
         // Crea la ventana
         glfwWindow = glfwCreateWindow(this.width, this.height, this.title, NULL, NULL);
 
         // Configura todos los oyenetes (mouse y teclado) para devolucion de llamda y asi recibir notificaciones cuando el cursor se mueva, etc.
-        glfwSetCursorPosCallback(glfwWindow, MouseListener::mousePosCallback);
-        glfwSetMouseButtonCallback(glfwWindow, MouseListener::mouesButtonCallback);
-        glfwSetScrollCallback(glfwWindow, MouseListener::mouseScrollCallback);
-        glfwSetKeyCallback(glfwWindow, KeyListener::keyCallback);
+        glfwSetCursorPosCallback(glfwWindow, Input::mousePosCallback);
+        glfwSetMouseButtonCallback(glfwWindow, Input::mouseButtonCallback);
+        glfwSetScrollCallback(glfwWindow, Input::mouseScrollCallback);
+        glfwSetKeyCallback(glfwWindow, Input::keyCallback);
 
         if (glfwWindow == NULL) throw new IllegalStateException("Fail to create the GLFW window");
 
@@ -127,8 +409,170 @@ public class Window {
          * que los enlaces OpenGL esten disponibles para su uso. */
         GL.createCapabilities();
 
-        changeScene(0);
+        gl = GLState.get();
+        initServices();
+    }
+
+    /**
+     * Crea los servicios que dependen del backend grafico y carga la escena inicial.
+     */
+    private void initServices() {
+        /* Los binarios de los programas se guardan en una carpeta temporal (o en -Djade.shaderCache=<dir>). Con
+         * -Djade.assets=<dir> (por ejemplo, src/main/resources) los shaders se recompilan al guardarlos. */
+        shaderLibrary = new ShaderLibrary(gl,
+                Path.of(System.getProperty("jade.shaderCache", System.getProperty("java.io.tmpdir") + "/jade-shader-cache")));
+        String assets = System.getProperty("jade.assets");
+        if (assets != null) {
+            try {
+                shaderLibrary.watch(Path.of(assets));
+            } catch (IOException e) {
+                System.err.println("The '" + assets + "' directory could not be watched!");
+            }
+        }
+
+        // Un nucleo queda libre para el hilo de OpenGL
+        jobSystem = new JobSystem(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        resourceManager = new ResourceManager(RESOURCE_CACHE_BUDGET, workers);
+        textureLoader = new TextureLoader(gl, resourceManager, workers, 16);
+
+        audio = new AudioEngine(openAudioDevice(), resourceManager, AUDIO_VOICES);
+        // Con -Djade.music=<recurso> se reproduce en bucle una pista por streaming
+        String music = System.getProperty("jade.music");
+        if (music != null) audio.playMusic(music, true);
+
+        sceneManager = new SceneManager();
+        sceneManager.register("editor", LevelEditorScene::new);
+        sceneManager.register("level", LevelScene::new);
+        sceneManager.register("crowd", CrowdScene::new);
+        sceneManager.register("particles", ParticleScene::new);
+        sceneManager.register("physics", PhysicsScene::new);
+        // Con -Djade.scene=<nombre> se empieza por otra escena registrada
+        String scene = System.getProperty("jade.scene", "editor");
+        if (!sceneManager.getSceneNames().contains(scene)) {
+            System.err.println("The '" + scene + "' scene does not exist!");
+            scene = "editor";
+        }
+        currentScene = sceneManager.loadNow(scene);
+
+        // Panel del profiler sobre la escena (F3). Sin ventana se pide con -Djade.hud=true, para no alterar las imagenes de
+        // referencia
+        if (Boolean.parseBoolean(System.getProperty("jade.hud", String.valueOf(!headless)))) hud = new ProfilerHud(gl,
+                shaderLibrary.get("shaders/instancedVertex.glsl", "shaders/textFragment.glsl"), width, height, glIssuedCounter);
+
+    }
+
+    /**
+     * Abre la salida de audio del sistema. Sin ventana, con {@code -Djade.audio=false} o si no hay dispositivo de audio, el
+     * sonido se simula sin emitirse.
+     */
+    private AudioDevice openAudioDevice() {
+        if (headless || !Boolean.parseBoolean(System.getProperty("jade.audio", "true"))) return new NullAudioDevice(AUDIO_VOICES);
+        try {
+            return OpenALDevice.open();
+        } catch (IllegalStateException e) {
+            System.err.println("The audio device could not be opened, the sound is disabled!");
+            return new NullAudioDevice(AUDIO_VOICES);
+        }
+    }
+
+    private void disposeServices() {
+        finishSimulation();
+        sceneManager.dispose();
+        currentScene = null;
+        if (hud != null) hud.dispose();
+        hud = null;
+        audio.dispose();
+        jobSystem.shutdown();
+        shaderLibrary.dispose();
+        textureLoader.shutdown();
+        resourceManager.shutdown();
+        MemoryArena.get().clear();
+        BufferPool.get().trim();
+        BufferPool.get().reportLeaks();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return backend grafico del motor (con la cache de estado), que las escenas deben usar para crear sus recursos
+     */
+    public GLState getGL() {
+        return gl;
+    }
+
+    public ResourceManager getResourceManager() {
+        return resourceManager;
+    }
+
+    public TextureLoader getTextureLoader() {
+        return textureLoader;
+    }
+
+    public ShaderLibrary getShaderLibrary() {
+        return shaderLibrary;
+    }
+
+    public SceneManager getSceneManager() {
+        return sceneManager;
+    }
+
+    /**
+     * @return motor de audio, con el que las escenas cargan y reproducen sonidos
+     */
+    public AudioEngine getAudio() {
+        return audio;
+    }
+
+    public JobSystem getJobSystem() {
+        return jobSystem;
+    }
+
+    /**
+     * @param pipelined true para simular el frame siguiente en paralelo con el render del actual (con un frame de latencia)
+     */
+    public void setPipelined(boolean pipelined) {
+        finishSimulation();
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * @param fixedTimestep true para simular con paso fijo, false para llamar a {@code update} una vez por frame con el delta
+     *                      real
+     */
+    public void setFixedTimestep(boolean fixedTimestep) {
+        this.fixedTimestep = fixedTimestep;
+    }
+
+    public void setTickRate(int tickRate) {
+        assert tickRate > 0 : "The tick rate must be positive!";
+        this.tickRate = tickRate;
+    }
+
+    public void setMaxUpdatesPerFrame(int maxUpdatesPerFrame) {
+        assert maxUpdatesPerFrame > 0 : "At least one update per frame is required!";
+        this.maxUpdatesPerFrame = maxUpdatesPerFrame;
+    }
+
+    /**
+     * @param overlay true para mostrar las metricas del profiler en el titulo de la ventana
+     */
+    public void setProfilerOverlay(boolean overlay) {
+        this.overlay = overlay;
+    }
 
+    /**
+     * @param targetFps limite de frames por segundo (0 para desactivarlo)
+     */
+    public void setTargetFps(int targetFps) {
+        this.targetFps = targetFps;
     }
 
     private static class SingletonHolder {
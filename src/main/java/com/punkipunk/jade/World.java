@@ -0,0 +1,107 @@
+package com.punkipunk.jade;
+
+import java.util.Arrays;
+
+/**
+ * Contenedor de entidades y componentes.
+ * <p>
+ * Una entidad es solo un {@code int}: los bits bajos son el indice (que se recicla al destruir la entidad) y los bits altos una
+ * generacion que se incrementa en cada reciclaje, de forma que un id viejo no se confunda con la entidad que ocupa ahora su
+ * indice. Los componentes viven en un {@link ComponentStorage} por tipo.
+ */
+
+public class World {
+
+    public static final int NULL = -1;
+    private static final int INDEX_BITS = 22;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (Integer.SIZE - 1 - INDEX_BITS)) - 1;
+
+    private ComponentStorage[] storages = new ComponentStorage[8];
+    private int[] generations = new int[64];
+    private int[] freeIndices = new int[64];
+    private int freeCount;
+    private int nextIndex;
+    private int entityCount;
+
+    public static int index(int entity) {
+        return entity & INDEX_MASK;
+    }
+
+    public static int generation(int entity) {
+        return entity >>> INDEX_BITS;
+    }
+
+    public int create() {
+        int index;
+        if (freeCount > 0) index = freeIndices[--freeCount];
+        else {
+            index = nextIndex++;
+            assert index <= INDEX_MASK : "Too many entities!";
+            if (index == generations.length) generations = Arrays.copyOf(generations, index * 2);
+        }
+        entityCount++;
+        return generations[index] << INDEX_BITS | index;
+    }
+
+    /**
+     * Destruye la entidad y elimina todos sus componentes.
+     */
+    public void destroy(int entity) {
+        if (!isAlive(entity)) return;
+        for (ComponentStorage storage : storages)
+            if (storage != null) storage.remove(entity);
+        int index = index(entity);
+        generations[index] = (generations[index] + 1) & GENERATION_MASK;
+        if (freeCount == freeIndices.length) freeIndices = Arrays.copyOf(freeIndices, freeCount * 2);
+        freeIndices[freeCount++] = index;
+        entityCount--;
+    }
+
+    /**
+     * @return id actual de la entidad que ocupa el indice (por ejemplo, el id guardado en un {@code SpatialIndex})
+     */
+    public int entityAt(int index) {
+        assert index < nextIndex : "The index " + index + " was never used!";
+        return generations[index] << INDEX_BITS | index;
+    }
+
+    public boolean isAlive(int entity) {
+        int index = index(entity);
+        return entity >= 0 && index < nextIndex && generations[index] == generation(entity);
+    }
+
+    /**
+     * Agrega un componente a la entidad.
+     *
+     * @return posicion del componente en las columnas de su almacenamiento
+     */
+    public int add(int entity, ComponentType type) {
+        assert isAlive(entity) : "The entity " + entity + " is not alive!";
+        return storage(type).add(entity);
+    }
+
+    public void remove(int entity, ComponentType type) {
+        storage(type).remove(entity);
+    }
+
+    public boolean has(int entity, ComponentType type) {
+        return storage(type).has(entity);
+    }
+
+    /**
+     * Devuelve el almacenamiento del tipo de componente, creandolo la primera vez.
+     */
+    public ComponentStorage storage(ComponentType type) {
+        int id = type.getId();
+        if (id >= storages.length) storages = Arrays.copyOf(storages, Math.max(id + 1, storages.length * 2));
+        ComponentStorage storage = storages[id];
+        if (storage == null) storage = storages[id] = new ComponentStorage(type);
+        return storage;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+}
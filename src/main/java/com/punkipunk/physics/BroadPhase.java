@@ -0,0 +1,87 @@
+package com.punkipunk.physics;
+
+import java.util.Arrays;
+
+/**
+ * Fase amplia por barrido y poda (sweep and prune) sobre el eje X.
+ * <p>
+ * Los cuerpos se mantienen ordenados por el borde izquierdo de su AABB. Como entre un paso y el siguiente los cuerpos se mueven
+ * poco, el orden del paso anterior esta casi ordenado y un ordenamiento por insercion lo corrige en tiempo casi lineal. El
+ * barrido compara cada cuerpo solo con los siguientes cuyo borde izquierdo no supera su borde derecho, y descarta los que no
+ * se superponen en Y.
+ * <p>
+ * Se informan todos los pares salvo los de dos cuerpos estaticos, tambien los de cuerpos dormidos, para que los contactos de
+ * las islas dormidas se conserven y despertar un cuerpo despierte a toda su isla. Los pares se devuelven ordenados por su clave,
+ * por lo que el resultado no depende del orden de creacion ni de los empates del ordenamiento.
+ */
+
+final class BroadPhase {
+
+    private int[] order = new int[64];
+    private int count;
+    // true si se elimino algun cuerpo desde el ultimo paso
+    private boolean removed;
+    private long[] pairs = new long[256];
+    private int pairCount;
+
+    void add(int body) {
+        if (count == order.length) order = Arrays.copyOf(order, count * 2);
+        order[count++] = body;
+    }
+
+    void remove() {
+        removed = true;
+    }
+
+    /**
+     * Ordena los cuerpos y busca los pares cuyas AABB se superponen.
+     */
+    void update(PhysicsWorld world) {
+        float[] minX = world.minX, minY = world.minY, maxX = world.maxX, maxY = world.maxY;
+        float[] invMass = world.invMass;
+
+        if (removed) {
+            int kept = 0;
+            for (int i = 0; i < count; i++)
+                if (world.alive[order[i]]) order[kept++] = order[i];
+            count = kept;
+            removed = false;
+        }
+
+        // Ordenamiento por insercion, con el id como desempate para que el orden sea siempre el mismo
+        for (int i = 1; i < count; i++) {
+            int body = order[i];
+            float key = minX[body];
+            int j = i - 1;
+            while (j >= 0 && (minX[order[j]] > key || (minX[order[j]] == key && order[j] > body))) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = body;
+        }
+
+        pairCount = 0;
+        for (int i = 0; i < count; i++) {
+            int a = order[i];
+            float right = maxX[a];
+            for (int j = i + 1; j < count; j++) {
+                int b = order[j];
+                if (minX[b] > right) break;
+                if (invMass[a] == 0 && invMass[b] == 0) continue;
+                if (minY[b] > maxY[a] || minY[a] > maxY[b]) continue;
+                if (pairCount == pairs.length) pairs = Arrays.copyOf(pairs, pairCount * 2);
+                pairs[pairCount++] = Contacts.key(a, b);
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+    }
+
+    int getPairCount() {
+        return pairCount;
+    }
+
+    long getPair(int index) {
+        return pairs[index];
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.punkipunk.physics;
+
+/**
+ * Fase estrecha: calcula los puntos de contacto entre dos cuerpos a partir de sus formas en coordenadas del mundo.
+ * <p>
+ * Los poligonos convexos se prueban con el teorema de los ejes separadores (SAT): si alguna normal de cualquiera de los dos
+ * poligonos separa sus vertices, no hay contacto. Si no, la arista con menor penetracion es la de referencia, y la arista mas
+ * opuesta del otro poligono (la incidente) se recorta contra los lados de la de referencia para obtener hasta dos puntos. Los
+ * circulos se resuelven con la distancia entre centros o a la arista o vertice mas cercano del poligono.
+ * <p>
+ * Se conservan los contactos con una separacion de hasta {@code margin}, para que los cuerpos en reposo no pierdan el contacto
+ * en cada paso. Cada hilo usa su propia instancia, ya que el recorte guarda el segmento en campos.
+ */
+
+final class Collider {
+
+    private static final float EPSILON = 1e-6f;
+
+    private final PhysicsWorld world;
+    private final float margin;
+    // Segmento incidente durante el recorte
+    private float x0, y0, x1, y1;
+    // Arista de la ultima busqueda de maxima separacion
+    private int edge;
+
+    Collider(PhysicsWorld world, float margin) {
+        this.world = world;
+        this.margin = margin;
+    }
+
+    /**
+     * Escribe en la posicion {@code slot} de {@code contacts} el contacto entre {@code a} y {@code b}.
+     *
+     * @return false si los cuerpos no se tocan (en ese caso el contacto queda sin puntos)
+     */
+    boolean collide(int a, int b, Contacts contacts, int slot) {
+        contacts.points[slot] = 0;
+        int shapeA = world.shape[a], shapeB = world.shape[b];
+        if (shapeA == PhysicsWorld.POLYGON && shapeB == PhysicsWorld.POLYGON) return polygons(a, b, contacts, slot);
+        if (shapeA == PhysicsWorld.POLYGON) return polygonCircle(a, b, contacts, slot);
+        // La normal siempre va del poligono al circulo, por lo que el poligono pasa a ser el cuerpo a
+        if (shapeB == PhysicsWorld.POLYGON) return polygonCircle(b, a, contacts, slot);
+        return circles(a, b, contacts, slot);
+    }
+
+    private boolean circles(int a, int b, Contacts contacts, int slot) {
+        float dx = world.x[b] - world.x[a], dy = world.y[b] - world.y[a];
+        float ra = world.radius[a], rb = world.radius[b];
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        float separation = distance - ra - rb;
+        if (separation > margin) return false;
+        float nx = 0, ny = 1;
+        if (distance > EPSILON) {
+            nx = dx / distance;
+            ny = dy / distance;
+        }
+        begin(contacts, slot, a, b, nx, ny);
+        float offset = ra + separation / 2;
+        point(contacts, slot, world.x[a] + nx * offset, world.y[a] + ny * offset, separation, 0);
+        return true;
+    }
+
+    private boolean polygonCircle(int polygon, int circle, Contacts contacts, int slot) {
+        float[] vertices = world.worldVertices[polygon], normals = world.worldNormals[polygon];
+        int count = world.vertexCount[polygon];
+        float cx = world.x[circle], cy = world.y[circle], radius = world.radius[circle];
+
+        // Arista con la mayor distancia al centro
+        float maxSeparation = -Float.MAX_VALUE;
+        int face = 0;
+        for (int i = 0; i < count; i++) {
+            float s = normals[2 * i] * (cx - vertices[2 * i]) + normals[2 * i + 1] * (cy - vertices[2 * i + 1]);
+            if (s > radius + margin) return false;
+            if (s > maxSeparation) {
+                maxSeparation = s;
+                face = i;
+            }
+        }
+
+        int next = face + 1 == count ? 0 : face + 1;
+        float v1x = vertices[2 * face], v1y = vertices[2 * face + 1], v2x = vertices[2 * next], v2y = vertices[2 * next + 1];
+        float nx = normals[2 * face], ny = normals[2 * face + 1], separation = maxSeparation - radius;
+        if (maxSeparation > EPSILON) {
+            // Fuera del poligono: el punto mas cercano puede ser uno de los vertices de la arista
+            float u1 = (cx - v1x) * (v2x - v1x) + (cy - v1y) * (v2y - v1y);
+            float u2 = (cx - v2x) * (v1x - v2x) + (cy - v2y) * (v1y - v2y);
+            if (u1 <= 0 || u2 <= 0) {
+                float vx = u1 <= 0 ? v1x : v2x, vy = u1 <= 0 ? v1y : v2y;
+                float dx = cx - vx, dy = cy - vy;
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                separation = distance - radius;
+                if (separation > margin) return false;
+                if (distance > EPSILON) {
+                    nx = dx / distance;
+                    ny = dy / distance;
+                }
+            }
+        }
+
+        begin(contacts, slot, polygon, circle, nx, ny);
+        float offset = radius + separation / 2;
+        point(contacts, slot, cx - nx * offset, cy - ny * offset, separation, 0);
+        return true;
+    }
+
+    private boolean polygons(int a, int b, Contacts contacts, int slot) {
+        float separationA = maxSeparation(a, b);
+        int edgeA = edge;
+        if (separationA > margin) return false;
+        float separationB = maxSeparation(b, a);
+        int edgeB = edge;
+        if (separationB > margin) return false;
+
+        // La referencia es la arista que menos penetra; la tolerancia evita alternar entre dos aristas casi iguales
+        int reference = a, incident = b, referenceEdge = edgeA;
+        boolean flip = false;
+        if (separationB > separationA + 0.1f * margin) {
+            reference = b;
+            incident = a;
+            referenceEdge = edgeB;
+            flip = true;
+        }
+
+        float[] referenceVertices = world.worldVertices[reference], referenceNormals = world.worldNormals[reference];
+        float[] incidentVertices = world.worldVertices[incident], incidentNormals = world.worldNormals[incident];
+        int referenceCount = world.vertexCount[reference], incidentCount = world.vertexCount[incident];
+        float nx = referenceNormals[2 * referenceEdge], ny = referenceNormals[2 * referenceEdge + 1];
+
+        // La arista incidente es la que tiene la normal mas opuesta a la de referencia
+        int incidentEdge = 0;
+        float minDot = Float.MAX_VALUE;
+        for (int i = 0; i < incidentCount; i++) {
+            float dot = nx * incidentNormals[2 * i] + ny * incidentNormals[2 * i + 1];
+            if (dot < minDot) {
+                minDot = dot;
+                incidentEdge = i;
+            }
+        }
+        int i1 = incidentEdge, i2 = incidentEdge + 1 == incidentCount ? 0 : incidentEdge + 1;
+        x0 = incidentVertices[2 * i1];
+        y0 = incidentVertices[2 * i1 + 1];
+        x1 = incidentVertices[2 * i2];
+        y1 = incidentVertices[2 * i2 + 1];
+
+        int r2 = referenceEdge + 1 == referenceCount ? 0 : referenceEdge + 1;
+        float ax = referenceVertices[2 * referenceEdge], ay = referenceVertices[2 * referenceEdge + 1];
+        float bx = referenceVertices[2 * r2], by = referenceVertices[2 * r2 + 1];
+        // Tangente de la arista de referencia (la normal de un poligono antihorario es (ty, -tx))
+        float tx = -ny, ty = nx;
+        float front = nx * ax + ny * ay;
+        if (!clip(-tx, -ty, -(tx * ax + ty * ay))) return false;
+        if (!clip(tx, ty, tx * bx + ty * by)) return false;
+
+        begin(contacts, slot, a, b, flip ? -nx : nx, flip ? -ny : ny);
+        int base = (flip ? 1 << 16 : 0) | referenceEdge << 8;
+        float s0 = nx * x0 + ny * y0 - front, s1 = nx * x1 + ny * y1 - front;
+        // Cada punto se ubica a mitad de camino entre las dos superficies
+        if (s0 <= margin) point(contacts, slot, x0 - nx * s0 / 2, y0 - ny * s0 / 2, s0, base | i1);
+        if (s1 <= margin) point(contacts, slot, x1 - nx * s1 / 2, y1 - ny * s1 / 2, s1, base | i2);
+        return contacts.points[slot] > 0;
+    }
+
+    /**
+     * Busca la normal de {@code a} que mas separa los vertices de {@code b}, y deja su arista en {@link #edge}.
+     *
+     * @return la separacion de esa normal (negativa si los poligonos se superponen en ella)
+     */
+    private float maxSeparation(int a, int b) {
+        float[] verticesA = world.worldVertices[a], normalsA = world.worldNormals[a], verticesB = world.worldVertices[b];
+        int countA = world.vertexCount[a], countB = world.vertexCount[b];
+        float best = -Float.MAX_VALUE;
+        int bestEdge = 0;
+        for (int i = 0; i < countA; i++) {
+            float nx = normalsA[2 * i], ny = normalsA[2 * i + 1], vx = verticesA[2 * i], vy = verticesA[2 * i + 1];
+            float min = Float.MAX_VALUE;
+            for (int j = 0; j < countB; j++)
+                min = Math.min(min, nx * (verticesB[2 * j] - vx) + ny * (verticesB[2 * j + 1] - vy));
+            if (min > best) {
+                best = min;
+                bestEdge = i;
+            }
+        }
+        edge = bestEdge;
+        return best;
+    }
+
+    /**
+     * Recorta el segmento incidente contra el semiplano {@code n . p <= offset}.
+     *
+     * @return false si el segmento queda completamente fuera
+     */
+    private boolean clip(float nx, float ny, float offset) {
+        float d0 = nx * x0 + ny * y0 - offset, d1 = nx * x1 + ny * y1 - offset;
+        if (d0 > 0 && d1 > 0) return false;
+        if (d0 <= 0 && d1 <= 0) return true;
+        float t = d0 / (d0 - d1);
+        float ix = x0 + t * (x1 - x0), iy = y0 + t * (y1 - y0);
+        if (d0 > 0) {
+            x0 = ix;
+            y0 = iy;
+        } else {
+            x1 = ix;
+            y1 = iy;
+        }
+        return true;
+    }
+
+    private void begin(Contacts contacts, int slot, int a, int b, float nx, float ny) {
+        contacts.a[slot] = a;
+        contacts.b[slot] = b;
+        contacts.key[slot] = Contacts.key(a, b);
+        contacts.nx[slot] = nx;
+        contacts.ny[slot] = ny;
+        contacts.friction[slot] = (float) Math.sqrt(world.friction[a] * world.friction[b]);
+        contacts.restitution[slot] = Math.max(world.restitution[a], world.restitution[b]);
+        contacts.points[slot] = 0;
+    }
+
+    private void point(Contacts contacts, int slot, float x, float y, float separation, int feature) {
+        int i = slot * Contacts.MAX_POINTS + contacts.points[slot]++;
+        contacts.px[i] = x;
+        contacts.py[i] = y;
+        contacts.separation[i] = separation;
+        contacts.feature[i] = feature;
+        contacts.normalImpulse[i] = 0;
+        contacts.tangentImpulse[i] = 0;
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.punkipunk.physics;
+
+import java.util.Arrays;
+
+/**
+ * Contactos de un paso como estructura de arreglos.
+ * <p>
+ * Cada contacto une dos cuerpos {@code a} y {@code b} con una normal que va de {@code a} hacia {@code b} y hasta
+ * {@link #MAX_POINTS} puntos; los campos de cada punto estan en el indice {@code contacto * MAX_POINTS + punto}. Los contactos
+ * se guardan ordenados por {@link #key}, lo que permite encontrar los del paso anterior con un recorrido en paralelo de ambas
+ * listas para reutilizar sus impulsos (warm starting).
+ */
+
+final class Contacts {
+
+    static final int MAX_POINTS = 2;
+
+    int size;
+    int[] a, b, points;
+    long[] key;
+    float[] nx, ny, friction, restitution;
+    // Matriz K de los dos puntos normales y su inversa, si esta bien condicionada para resolverlos juntos
+    boolean[] block;
+    float[] k11, k12, k22, m11, m12, m22;
+
+    // Por punto
+    int[] feature;
+    float[] px, py, separation;
+    float[] normalImpulse, tangentImpulse;
+    float[] rax, ray, rbx, rby, normalMass, tangentMass, bias;
+
+    Contacts() {
+        allocate(64);
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > a.length) allocate(Math.max(capacity, a.length * 2));
+    }
+
+    /**
+     * Copia el contacto {@code from} en la posicion {@code to}, para compactar la lista.
+     */
+    void move(int from, int to) {
+        copy(this, from, to);
+    }
+
+    /**
+     * Copia el contacto {@code from} de {@code source} en la posicion {@code to}.
+     */
+    void copy(Contacts source, int from, int to) {
+        a[to] = source.a[from];
+        b[to] = source.b[from];
+        points[to] = source.points[from];
+        key[to] = source.key[from];
+        nx[to] = source.nx[from];
+        ny[to] = source.ny[from];
+        friction[to] = source.friction[from];
+        restitution[to] = source.restitution[from];
+        for (int p = 0; p < MAX_POINTS; p++) {
+            int i = from * MAX_POINTS + p, j = to * MAX_POINTS + p;
+            feature[j] = source.feature[i];
+            px[j] = source.px[i];
+            py[j] = source.py[i];
+            separation[j] = source.separation[i];
+            normalImpulse[j] = source.normalImpulse[i];
+            tangentImpulse[j] = source.tangentImpulse[i];
+        }
+    }
+
+    static long key(int a, int b) {
+        return (long) Math.min(a, b) << 32 | Math.max(a, b);
+    }
+
+    private void allocate(int capacity) {
+        int pointCapacity = capacity * MAX_POINTS;
+        if (a == null) {
+            a = new int[capacity];
+            b = new int[capacity];
+            points = new int[capacity];
+            key = new long[capacity];
+            nx = new float[capacity];
+            ny = new float[capacity];
+            friction = new float[capacity];
+            restitution = new float[capacity];
+            block = new boolean[capacity];
+            k11 = new float[capacity];
+            k12 = new float[capacity];
+            k22 = new float[capacity];
+            m11 = new float[capacity];
+            m12 = new float[capacity];
+            m22 = new float[capacity];
+            feature = new int[pointCapacity];
+            px = new float[pointCapacity];
+            py = new float[pointCapacity];
+            separation = new float[pointCapacity];
+            normalImpulse = new float[pointCapacity];
+            tangentImpulse = new float[pointCapacity];
+            rax = new float[pointCapacity];
+            ray = new float[pointCapacity];
+            rbx = new float[pointCapacity];
+            rby = new float[pointCapacity];
+            normalMass = new float[pointCapacity];
+            tangentMass = new float[pointCapacity];
+            bias = new float[pointCapacity];
+            return;
+        }
+        a = Arrays.copyOf(a, capacity);
+        b = Arrays.copyOf(b, capacity);
+        points = Arrays.copyOf(points, capacity);
+        key = Arrays.copyOf(key, capacity);
+        nx = Arrays.copyOf(nx, capacity);
+        ny = Arrays.copyOf(ny, capacity);
+        friction = Arrays.copyOf(friction, capacity);
+        restitution = Arrays.copyOf(restitution, capacity);
+        block = Arrays.copyOf(block, capacity);
+        k11 = Arrays.copyOf(k11, capacity);
+        k12 = Arrays.copyOf(k12, capacity);
+        k22 = Arrays.copyOf(k22, capacity);
+        m11 = Arrays.copyOf(m11, capacity);
+        m12 = Arrays.copyOf(m12, capacity);
+        m22 = Arrays.copyOf(m22, capacity);
+        feature = Arrays.copyOf(feature, pointCapacity);
+        px = Arrays.copyOf(px, pointCapacity);
+        py = Arrays.copyOf(py, pointCapacity);
+        separation = Arrays.copyOf(separation, pointCapacity);
+        normalImpulse = Arrays.copyOf(normalImpulse, pointCapacity);
+        tangentImpulse = Arrays.copyOf(tangentImpulse, pointCapacity);
+        rax = Arrays.copyOf(rax, pointCapacity);
+        ray = Arrays.copyOf(ray, pointCapacity);
+        rbx = Arrays.copyOf(rbx, pointCapacity);
+        rby = Arrays.copyOf(rby, pointCapacity);
+        normalMass = Arrays.copyOf(normalMass, pointCapacity);
+        tangentMass = Arrays.copyOf(tangentMass, pointCapacity);
+        bias = Arrays.copyOf(bias, pointCapacity);
+    }
+
+}
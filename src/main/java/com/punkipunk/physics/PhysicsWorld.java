@@ -0,0 +1,935 @@
+package com.punkipunk.physics;
+
+import com.punkipunk.util.IntArrayList;
+import com.punkipunk.util.JobSystem;
+
+import java.util.Arrays;
+
+/**
+ * Mundo de fisica 2D de cuerpos rigidos con formas de circulo y poligono convexo (las cajas son poligonos de cuatro vertices;
+ * con {@link #setFixedRotation(int, boolean)} quedan siempre alineadas a los ejes).
+ * <p>
+ * Los cuerpos se identifican con un id entero y se guardan como estructura de arreglos. Cada {@link #step(float)}:
+ * <ol>
+ * <li>recalcula las AABB de los cuerpos despiertos,</li>
+ * <li>busca los pares cuyas AABB se superponen con barrido y poda ({@link BroadPhase}),</li>
+ * <li>calcula los puntos de contacto de cada par con SAT ({@link Collider}) y recupera los impulsos del paso anterior; los
+ * pares de cuerpos dormidos conservan el contacto del paso anterior sin recalcularlo,</li>
+ * <li>agrupa los cuerpos dinamicos en contacto en islas (los estaticos no unen islas), despertando las islas dormidas que toca
+ * un cuerpo despierto,</li>
+ * <li>resuelve cada isla por separado con impulsos secuenciales: gravedad, {@code velocityIterations} pasadas sobre los
+ * contactos con friccion de Coulomb y restitucion, correccion de la penetracion con un sesgo de Baumgarte e integracion de las
+ * posiciones. Si todos los cuerpos de una isla estan casi quietos durante {@code 0.5} segundos, la isla se duerme y deja de
+ * costar hasta que algo la toque.</li>
+ * </ol>
+ * Con un {@link JobSystem}, las AABB, la fase estrecha y las islas se reparten entre los hilos. Cada tarea escribe solo en sus
+ * propios cuerpos y contactos, y todo lo que depende del orden (pares, contactos, islas) se ordena por id, por lo que el
+ * resultado es identico bit a bit con cualquier cantidad de hilos y en cualquier maquina (las rotaciones usan
+ * {@link StrictMath}), lo que permite reproducir una partida a partir de sus entradas. {@link #getStateHash()} resume el estado
+ * para comprobarlo. Una sola pila grande de cuerpos forma una unica isla y se resuelve en un hilo.
+ * <p>
+ * Las unidades son libres, pero los valores por defecto (gravedad de 10 hacia abajo, tolerancias de milimetros) suponen metros,
+ * con cuerpos de entre 0.1 y 10 unidades.
+ */
+
+public class PhysicsWorld {
+
+    public static final int CIRCLE = 0, POLYGON = 1;
+    public static final int MAX_POLYGON_VERTICES = 8;
+
+    // Cuerpos, pares e islas por bloque de los recorridos en paralelo
+    private static final int BODY_GRAIN = 1024, PAIR_GRAIN = 256, ISLAND_GRAIN = 16;
+    // Segundos que tiene que estar quieta una isla para dormirse
+    private static final float TIME_TO_SLEEP = 0.5f;
+
+    private final JobSystem jobs;
+    private final BroadPhase broadPhase = new BroadPhase();
+    // Los ids eliminados se reutilizan recien despues del proximo paso, cuando ya no estan en la fase amplia ni en los contactos
+    private final IntArrayList freeIds = new IntArrayList(), destroyedIds = new IntArrayList();
+    // Cuerpos estaticos movidos desde el ultimo paso, que despiertan a los que tocan en su nueva posicion
+    private final IntArrayList movedIds = new IntArrayList();
+    private Contacts contacts = new Contacts(), previous = new Contacts();
+    private int capacity, idLimit, bodyCount;
+
+    // Estado de los cuerpos, indexado por id
+    float[] x, y, angle, cos, sin, vx, vy, w;
+    float[] invMass, invInertia, inertia, friction, restitution, radius, sleepTime;
+    float[] minX, minY, maxX, maxY;
+    int[] shape, vertexCount;
+    // Vertices (x, y intercalados, en sentido antihorario) y normales de las aristas de los poligonos; null en los circulos
+    float[][] localVertices, localNormals, worldVertices, worldNormals;
+    boolean[] alive, awake;
+
+    // Islas del ultimo paso: los cuerpos y contactos de la isla k estan en [start[k], start[k + 1])
+    private int[] parent, rootIsland, bodyIsland, islandBodyStart, islandBodies, islandContactStart, islandContacts;
+    private int islandCount, awakeCount;
+
+    private float gravityX, gravityY = -10;
+    private int velocityIterations = 8;
+    private float linearSlop = 0.005f, baumgarte = 0.2f, restitutionThreshold = 1;
+    private float linearSleepTolerance = 0.01f, angularSleepTolerance = 0.035f;
+    private boolean sleeping = true;
+
+    public PhysicsWorld() {
+        this(null);
+    }
+
+    /**
+     * @param jobs planificador con el que se reparte cada paso, o null para hacerlo en el hilo actual
+     */
+    public PhysicsWorld(JobSystem jobs) {
+        this.jobs = jobs;
+        grow(64);
+        islandBodyStart = new int[65];
+        islandContactStart = new int[65];
+        islandContacts = new int[64];
+    }
+
+    /**
+     * Crea un circulo. Con densidad 0 el cuerpo es estatico.
+     *
+     * @return id del cuerpo
+     */
+    public int createCircle(float x, float y, float radius, float density) {
+        int id = allocate(x, y, CIRCLE);
+        this.radius[id] = radius;
+        float mass = density * (float) Math.PI * radius * radius;
+        setMass(id, mass, mass * radius * radius / 2);
+        updateBounds(id);
+        return id;
+    }
+
+    /**
+     * Crea una caja centrada en (x, y). Con densidad 0 el cuerpo es estatico.
+     *
+     * @return id del cuerpo
+     */
+    public int createBox(float x, float y, float halfWidth, float halfHeight, float density) {
+        return createPolygon(x, y, new float[]{-halfWidth, -halfHeight, halfWidth, -halfHeight, halfWidth, halfHeight,
+                -halfWidth, halfHeight}, density);
+    }
+
+    /**
+     * Crea un poligono convexo. La posicion del cuerpo (y el centro de rotacion) es el centroide del poligono, que puede no
+     * coincidir con (x, y) si los vertices no estan centrados.
+     *
+     * @param vertices coordenadas x, y de entre 3 y {@link #MAX_POLYGON_VERTICES} vertices relativas a (x, y), en cualquier
+     *                 sentido
+     * @return id del cuerpo
+     */
+    public int createPolygon(float x, float y, float[] vertices, float density) {
+        int count = vertices.length / 2;
+        if (count < 3 || count > MAX_POLYGON_VERTICES || vertices.length % 2 != 0)
+            throw new IllegalArgumentException("A polygon needs between 3 and " + MAX_POLYGON_VERTICES + " vertices!");
+        float[] local = vertices.clone();
+        if (signedArea(local) < 0) reverse(local);
+
+        // Area, centroide e inercia sumando triangulos con un vertice en el primer vertice del poligono
+        float sx = local[0], sy = local[1];
+        float area = 0, cx = 0, cy = 0, inertiaAboutFirst = 0;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            float e1x = local[2 * i] - sx, e1y = local[2 * i + 1] - sy, e2x = local[2 * j] - sx, e2y = local[2 * j + 1] - sy;
+            float cross = e1x * e2y - e1y * e2x;
+            float triangleArea = cross / 2;
+            area += triangleArea;
+            cx += triangleArea * (e1x + e2x) / 3;
+            cy += triangleArea * (e1y + e2y) / 3;
+            float intX2 = e1x * e1x + e2x * e1x + e2x * e2x, intY2 = e1y * e1y + e2y * e1y + e2y * e2y;
+            inertiaAboutFirst += (0.25f / 3 * cross) * (intX2 + intY2);
+        }
+        cx /= area;
+        cy /= area;
+        // Centra los vertices en el centroide
+        for (int i = 0; i < count; i++) {
+            local[2 * i] -= sx + cx;
+            local[2 * i + 1] -= sy + cy;
+        }
+
+        float[] normals = new float[2 * count];
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            float ex = local[2 * j] - local[2 * i], ey = local[2 * j + 1] - local[2 * i + 1];
+            float length = (float) Math.sqrt(ex * ex + ey * ey);
+            if (length < 1e-6f) throw new IllegalArgumentException("The polygon has repeated vertices!");
+            normals[2 * i] = ey / length;
+            normals[2 * i + 1] = -ex / length;
+        }
+
+        int id = allocate(x + sx + cx, y + sy + cy, POLYGON);
+        vertexCount[id] = count;
+        localVertices[id] = local;
+        localNormals[id] = normals;
+        worldVertices[id] = new float[2 * count];
+        worldNormals[id] = new float[2 * count];
+        float mass = density * area;
+        // Inercia respecto del centroide por el teorema de los ejes paralelos
+        setMass(id, mass, density * inertiaAboutFirst - mass * (cx * cx + cy * cy));
+        updateBounds(id);
+        return id;
+    }
+
+    /**
+     * Elimina un cuerpo y despierta a los que lo tocaban. Su id puede reutilizarse en las creaciones posteriores al proximo paso.
+     */
+    public void destroy(int body) {
+        checkBody(body);
+        wakeTouching(body);
+        alive[body] = false;
+        awake[body] = false;
+        localVertices[body] = localNormals[body] = worldVertices[body] = worldNormals[body] = null;
+        destroyedIds.add(body);
+        broadPhase.remove();
+        bodyCount--;
+    }
+
+    /**
+     * Avanza la simulacion. Para que sea estable y determinista debe llamarse siempre con el mismo {@code dt}, por ejemplo desde
+     * el paso fijo de la escena.
+     */
+    public void step(float dt) {
+        if (dt <= 0) return;
+
+        if (jobs != null) jobs.parallelFor(idLimit, BODY_GRAIN, this::updateAwakeBounds);
+        else updateAwakeBounds(0, idLimit);
+
+        broadPhase.update(this);
+        for (int i = 0; i < movedIds.size(); i++)
+            if (alive[movedIds.get(i)]) wakeTouching(movedIds.get(i));
+        movedIds.clear();
+        collide();
+        buildIslands();
+
+        if (jobs != null) jobs.parallelFor(islandCount, ISLAND_GRAIN, (start, end) -> solveIslands(start, end, dt));
+        else solveIslands(0, islandCount, dt);
+
+        // Los contactos de este paso, con sus impulsos, se usan para arrancar el siguiente
+        Contacts swap = previous;
+        previous = contacts;
+        contacts = swap;
+
+        for (int i = 0; i < destroyedIds.size(); i++) freeIds.add(destroyedIds.get(i));
+        destroyedIds.clear();
+    }
+
+    /**
+     * Mueve el cuerpo. Si es estatico, despierta a los que tocaba y a los que toque en su nueva posicion.
+     */
+    public void setPosition(int body, float x, float y) {
+        checkBody(body);
+        this.x[body] = x;
+        this.y[body] = y;
+        updateBounds(body);
+        moved(body);
+    }
+
+    /**
+     * @param angle rotacion en radianes, en sentido antihorario
+     */
+    public void setAngle(int body, float angle) {
+        checkBody(body);
+        this.angle[body] = angle;
+        cos[body] = (float) StrictMath.cos(angle);
+        sin[body] = (float) StrictMath.sin(angle);
+        updateBounds(body);
+        moved(body);
+    }
+
+    public void setVelocity(int body, float vx, float vy) {
+        checkBody(body);
+        this.vx[body] = vx;
+        this.vy[body] = vy;
+        wake(body);
+    }
+
+    public void setAngularVelocity(int body, float w) {
+        checkBody(body);
+        this.w[body] = w;
+        wake(body);
+    }
+
+    /**
+     * Aplica un impulso en el centro del cuerpo, cambiando su velocidad de inmediato.
+     */
+    public void applyImpulse(int body, float ix, float iy) {
+        checkBody(body);
+        vx[body] += ix * invMass[body];
+        vy[body] += iy * invMass[body];
+        wake(body);
+    }
+
+    /**
+     * @param friction coeficiente de friccion; el de un contacto es la media geometrica de los de ambos cuerpos
+     */
+    public void setFriction(int body, float friction) {
+        checkBody(body);
+        this.friction[body] = friction;
+    }
+
+    /**
+     * @param restitution fraccion de la velocidad de choque que se devuelve (0 sin rebote, 1 elastico); la de un contacto es la
+     *                    mayor de ambos cuerpos
+     */
+    public void setRestitution(int body, float restitution) {
+        checkBody(body);
+        this.restitution[body] = restitution;
+    }
+
+    /**
+     * Impide que el cuerpo rote, como un AABB que se mueve sin girar.
+     */
+    public void setFixedRotation(int body, boolean fixed) {
+        checkBody(body);
+        invInertia[body] = fixed || inertia[body] <= 0 || invMass[body] == 0 ? 0 : 1 / inertia[body];
+        if (fixed) w[body] = 0;
+    }
+
+    /**
+     * Despierta un cuerpo dinamico dormido (los setters que cambian su estado ya lo hacen).
+     */
+    public void wake(int body) {
+        if (invMass[body] == 0 || awake[body]) return;
+        awake[body] = true;
+        sleepTime[body] = 0;
+    }
+
+    public void setGravity(float x, float y) {
+        gravityX = x;
+        gravityY = y;
+    }
+
+    /**
+     * @param iterations pasadas del solver por paso; mas pasadas dan pilas mas estables a cambio de tiempo
+     */
+    public void setVelocityIterations(int iterations) {
+        velocityIterations = iterations;
+    }
+
+    /**
+     * @param slop penetracion que se tolera sin corregir, y distancia a la que se conservan los contactos, en unidades del mundo
+     */
+    public void setLinearSlop(float slop) {
+        linearSlop = slop;
+    }
+
+    /**
+     * @param linear  velocidad por debajo de la cual un cuerpo se considera quieto, en unidades del mundo por segundo
+     * @param angular velocidad angular por debajo de la cual un cuerpo se considera quieto, en radianes por segundo
+     */
+    public void setSleepTolerance(float linear, float angular) {
+        linearSleepTolerance = linear;
+        angularSleepTolerance = angular;
+    }
+
+    public void setSleeping(boolean sleeping) {
+        this.sleeping = sleeping;
+        if (!sleeping)
+            for (int id = 0; id < idLimit; id++)
+                if (alive[id]) wake(id);
+    }
+
+    public boolean isAlive(int body) {
+        return body >= 0 && body < idLimit && alive[body];
+    }
+
+    public boolean isAwake(int body) {
+        return awake[body];
+    }
+
+    public boolean isStatic(int body) {
+        return invMass[body] == 0;
+    }
+
+    public float getX(int body) {
+        return x[body];
+    }
+
+    public float getY(int body) {
+        return y[body];
+    }
+
+    public float getAngle(int body) {
+        return angle[body];
+    }
+
+    public float getVelocityX(int body) {
+        return vx[body];
+    }
+
+    public float getVelocityY(int body) {
+        return vy[body];
+    }
+
+    public float getAngularVelocity(int body) {
+        return w[body];
+    }
+
+    /**
+     * @return {@link #CIRCLE} o {@link #POLYGON}
+     */
+    public int getShape(int body) {
+        return shape[body];
+    }
+
+    public float getRadius(int body) {
+        return radius[body];
+    }
+
+    public int getVertexCount(int body) {
+        return vertexCount[body];
+    }
+
+    /**
+     * @return vertices del poligono en coordenadas del mundo, actualizados en el ultimo paso en que el cuerpo estuvo despierto
+     */
+    public float[] getWorldVertices(int body) {
+        return worldVertices[body];
+    }
+
+    /**
+     * @return cota superior de los ids de los cuerpos vivos, para recorrerlos con {@link #isAlive(int)}
+     */
+    public int getIdLimit() {
+        return idLimit;
+    }
+
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    /**
+     * @return pares de AABB superpuestas en el ultimo paso
+     */
+    public int getPairCount() {
+        return broadPhase.getPairCount();
+    }
+
+    /**
+     * @return contactos con al menos un punto en el ultimo paso
+     */
+    public int getContactCount() {
+        return previous.size;
+    }
+
+    public int getIslandCount() {
+        return islandCount;
+    }
+
+    /**
+     * @return cuerpos dinamicos despiertos en el ultimo paso
+     */
+    public int getAwakeCount() {
+        return awakeCount;
+    }
+
+    /**
+     * Resume la posicion, rotacion y velocidad de todos los cuerpos, para comprobar que dos simulaciones son identicas.
+     */
+    public long getStateHash() {
+        long hash = 0xcbf29ce484222325L;
+        for (int id = 0; id < idLimit; id++) {
+            if (!alive[id]) continue;
+            hash = mix(hash, id);
+            hash = mix(hash, Float.floatToIntBits(x[id]));
+            hash = mix(hash, Float.floatToIntBits(y[id]));
+            hash = mix(hash, Float.floatToIntBits(angle[id]));
+            hash = mix(hash, Float.floatToIntBits(vx[id]));
+            hash = mix(hash, Float.floatToIntBits(vy[id]));
+            hash = mix(hash, Float.floatToIntBits(w[id]));
+        }
+        return hash;
+    }
+
+    private int allocate(float x, float y, int shape) {
+        int id;
+        if (!freeIds.isEmpty()) {
+            id = freeIds.get(freeIds.size() - 1);
+            freeIds.removeSwap(freeIds.size() - 1);
+        } else {
+            if (idLimit == capacity) grow(capacity * 2);
+            id = idLimit++;
+        }
+        alive[id] = true;
+        this.shape[id] = shape;
+        this.x[id] = x;
+        this.y[id] = y;
+        angle[id] = vx[id] = vy[id] = w[id] = sleepTime[id] = radius[id] = 0;
+        cos[id] = 1;
+        sin[id] = 0;
+        friction[id] = 0.6f;
+        restitution[id] = 0;
+        vertexCount[id] = 0;
+        broadPhase.add(id);
+        bodyCount++;
+        return id;
+    }
+
+    private void moved(int body) {
+        if (invMass[body] > 0) {
+            wake(body);
+            return;
+        }
+        wakeTouching(body);
+        movedIds.add(body);
+    }
+
+    /**
+     * Despierta a los cuerpos cuya AABB se superponia con la del cuerpo en el ultimo paso (y con ellos, a sus islas).
+     */
+    private void wakeTouching(int body) {
+        for (int i = 0; i < broadPhase.getPairCount(); i++) {
+            long pair = broadPhase.getPair(i);
+            int a = (int) (pair >>> 32), b = (int) pair;
+            int other = a == body ? b : b == body ? a : -1;
+            if (other >= 0 && alive[other]) wake(other);
+        }
+    }
+
+    private void setMass(int body, float mass, float inertia) {
+        boolean dynamic = mass > 0;
+        invMass[body] = dynamic ? 1 / mass : 0;
+        this.inertia[body] = inertia;
+        invInertia[body] = dynamic && inertia > 0 ? 1 / inertia : 0;
+        awake[body] = dynamic;
+    }
+
+    private void updateAwakeBounds(int start, int end) {
+        for (int id = start; id < end; id++)
+            if (awake[id]) updateBounds(id);
+    }
+
+    private void updateBounds(int id) {
+        if (shape[id] == CIRCLE) {
+            float r = radius[id];
+            minX[id] = x[id] - r;
+            minY[id] = y[id] - r;
+            maxX[id] = x[id] + r;
+            maxY[id] = y[id] + r;
+            return;
+        }
+        float[] local = localVertices[id], normals = localNormals[id], world = worldVertices[id], worldN = worldNormals[id];
+        float c = cos[id], s = sin[id], px = x[id], py = y[id];
+        float lowX = Float.MAX_VALUE, lowY = Float.MAX_VALUE, highX = -Float.MAX_VALUE, highY = -Float.MAX_VALUE;
+        for (int i = 0; i < vertexCount[id]; i++) {
+            float lx = local[2 * i], ly = local[2 * i + 1];
+            float wx = px + c * lx - s * ly, wy = py + s * lx + c * ly;
+            world[2 * i] = wx;
+            world[2 * i + 1] = wy;
+            worldN[2 * i] = c * normals[2 * i] - s * normals[2 * i + 1];
+            worldN[2 * i + 1] = s * normals[2 * i] + c * normals[2 * i + 1];
+            lowX = Math.min(lowX, wx);
+            lowY = Math.min(lowY, wy);
+            highX = Math.max(highX, wx);
+            highY = Math.max(highY, wy);
+        }
+        minX[id] = lowX;
+        minY[id] = lowY;
+        maxX[id] = highX;
+        maxY[id] = highY;
+    }
+
+    /**
+     * Calcula los contactos de los pares de la fase amplia, descarta los que no se tocan y recupera los impulsos del paso
+     * anterior de los puntos que siguen existiendo. Los pares de dos cuerpos dormidos no se mueven, por lo que copian el contacto
+     * del paso anterior si lo tenian.
+     */
+    private void collide() {
+        int pairs = broadPhase.getPairCount();
+        Contacts current = contacts, old = previous;
+        current.ensureCapacity(pairs);
+        JobSystem.Range narrowPhase = (start, end) -> {
+            Collider collider = new Collider(this, linearSlop);
+            for (int i = start; i < end; i++) {
+                long pair = broadPhase.getPair(i);
+                int a = (int) (pair >>> 32), b = (int) pair;
+                if (awake[a] || awake[b]) collider.collide(a, b, current, i);
+                else {
+                    int j = Arrays.binarySearch(old.key, 0, old.size, pair);
+                    if (j >= 0) current.copy(old, j, i);
+                    else current.points[i] = 0;
+                }
+            }
+        };
+        if (jobs != null) jobs.parallelFor(pairs, PAIR_GRAIN, narrowPhase);
+        else narrowPhase.run(0, pairs);
+
+        // Compacta conservando el orden por clave
+        int size = 0;
+        for (int i = 0; i < pairs; i++) {
+            if (current.points[i] == 0) continue;
+            if (i != size) current.move(i, size);
+            size++;
+        }
+        current.size = size;
+
+        // Ambas listas estan ordenadas por clave, por lo que se recorren juntas
+        int j = 0;
+        for (int i = 0; i < current.size && j < old.size; i++) {
+            long key = current.key[i];
+            while (j < old.size && old.key[j] < key) j++;
+            if (j == old.size || old.key[j] != key) continue;
+            for (int p = 0; p < current.points[i]; p++) {
+                int point = i * Contacts.MAX_POINTS + p;
+                for (int q = 0; q < old.points[j]; q++) {
+                    int oldPoint = j * Contacts.MAX_POINTS + q;
+                    if (old.feature[oldPoint] != current.feature[point]) continue;
+                    current.normalImpulse[point] = old.normalImpulse[oldPoint];
+                    current.tangentImpulse[point] = old.tangentImpulse[oldPoint];
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Une con union-find los cuerpos dinamicos en contacto, despierta las islas que tienen algun cuerpo despierto y numera las
+     * islas despiertas en orden de id. Los contactos de las islas que siguen dormidas se conservan pero no se resuelven.
+     */
+    private void buildIslands() {
+        if (parent == null || parent.length < capacity) {
+            parent = new int[capacity];
+            rootIsland = new int[capacity];
+            bodyIsland = new int[capacity];
+            islandBodies = new int[capacity];
+        }
+        for (int id = 0; id < idLimit; id++) parent[id] = id;
+
+        Contacts current = contacts;
+        for (int i = 0; i < current.size; i++) {
+            int a = current.a[i], b = current.b[i];
+            if (invMass[a] > 0 && invMass[b] > 0) union(a, b);
+        }
+
+        // Un cuerpo despierto despierta a toda su isla, aunque la toque a traves de otros cuerpos dormidos
+        Arrays.fill(rootIsland, 0, idLimit, -1);
+        for (int id = 0; id < idLimit; id++)
+            if (awake[id]) rootIsland[find(id)] = 0;
+        for (int id = 0; id < idLimit; id++)
+            if (alive[id] && rootIsland[find(id)] == 0) wake(id);
+
+        islandCount = 0;
+        awakeCount = 0;
+        Arrays.fill(rootIsland, 0, idLimit, -1);
+        for (int id = 0; id < idLimit; id++) {
+            if (!awake[id]) continue;
+            int root = find(id);
+            if (rootIsland[root] < 0) rootIsland[root] = islandCount++;
+            bodyIsland[id] = rootIsland[root];
+            awakeCount++;
+        }
+
+        if (islandBodyStart.length < islandCount + 1) {
+            islandBodyStart = new int[Math.max(islandCount + 1, islandBodyStart.length * 2)];
+            islandContactStart = new int[islandBodyStart.length];
+        }
+        if (islandContacts.length < current.size) islandContacts = new int[Math.max(current.size, islandContacts.length * 2)];
+
+        // Ordenamiento por conteo de los cuerpos y los contactos por isla, conservando el orden de id y de clave
+        Arrays.fill(islandBodyStart, 0, islandCount + 1, 0);
+        Arrays.fill(islandContactStart, 0, islandCount + 1, 0);
+        for (int id = 0; id < idLimit; id++)
+            if (awake[id]) islandBodyStart[bodyIsland[id] + 1]++;
+        for (int i = 0; i < current.size; i++) {
+            int island = contactIsland(current, i);
+            if (island >= 0) islandContactStart[island + 1]++;
+        }
+        for (int k = 0; k < islandCount; k++) {
+            islandBodyStart[k + 1] += islandBodyStart[k];
+            islandContactStart[k + 1] += islandContactStart[k];
+        }
+        // parent ya no se usa, por lo que sirve como cursor de llenado
+        int[] cursor = parent;
+        System.arraycopy(islandBodyStart, 0, cursor, 0, islandCount);
+        for (int id = 0; id < idLimit; id++)
+            if (awake[id]) islandBodies[cursor[bodyIsland[id]]++] = id;
+        System.arraycopy(islandContactStart, 0, cursor, 0, islandCount);
+        for (int i = 0; i < current.size; i++) {
+            int island = contactIsland(current, i);
+            if (island >= 0) islandContacts[cursor[island]++] = i;
+        }
+    }
+
+    /**
+     * @return isla del contacto, o -1 si sus cuerpos dinamicos duermen
+     */
+    private int contactIsland(Contacts current, int contact) {
+        int a = current.a[contact], body = invMass[a] > 0 ? a : current.b[contact];
+        return awake[body] ? bodyIsland[body] : -1;
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a), rootB = find(b);
+        if (rootA == rootB) return;
+        // La raiz es siempre el menor id, para que el resultado no dependa del orden de las uniones
+        if (rootA < rootB) parent[rootB] = rootA;
+        else parent[rootA] = rootB;
+    }
+
+    private void solveIslands(int start, int end, float dt) {
+        for (int k = start; k < end; k++) solveIsland(k, dt);
+    }
+
+    private void solveIsland(int island, float dt) {
+        int bodyStart = islandBodyStart[island], bodyEnd = islandBodyStart[island + 1];
+        int contactStart = islandContactStart[island], contactEnd = islandContactStart[island + 1];
+        Contacts c = contacts;
+
+        for (int i = bodyStart; i < bodyEnd; i++) {
+            int id = islandBodies[i];
+            vx[id] += gravityX * dt;
+            vy[id] += gravityY * dt;
+        }
+
+        // Prepara los puntos (brazos, masas efectivas y velocidad objetivo) y aplica los impulsos del paso anterior
+        float inverseDt = 1 / dt;
+        for (int j = contactStart; j < contactEnd; j++) {
+            int m = islandContacts[j];
+            int a = c.a[m], b = c.b[m];
+            float mA = invMass[a], iA = invInertia[a], mB = invMass[b], iB = invInertia[b];
+            float nx = c.nx[m], ny = c.ny[m], tx = ny, ty = -nx;
+            for (int p = 0; p < c.points[m]; p++) {
+                int i = m * Contacts.MAX_POINTS + p;
+                float rax = c.px[i] - x[a], ray = c.py[i] - y[a], rbx = c.px[i] - x[b], rby = c.py[i] - y[b];
+                c.rax[i] = rax;
+                c.ray[i] = ray;
+                c.rbx[i] = rbx;
+                c.rby[i] = rby;
+                float rnA = rax * ny - ray * nx, rnB = rbx * ny - rby * nx;
+                float kNormal = mA + mB + iA * rnA * rnA + iB * rnB * rnB;
+                c.normalMass[i] = kNormal > 0 ? 1 / kNormal : 0;
+                float rtA = rax * ty - ray * tx, rtB = rbx * ty - rby * tx;
+                float kTangent = mA + mB + iA * rtA * rtA + iB * rtB * rtB;
+                c.tangentMass[i] = kTangent > 0 ? 1 / kTangent : 0;
+
+                float dvx = vx[b] - w[b] * rby - vx[a] + w[a] * ray;
+                float dvy = vy[b] + w[b] * rbx - vy[a] - w[a] * rax;
+                float vn = dvx * nx + dvy * ny;
+                float bias = baumgarte * inverseDt * Math.max(0, -c.separation[i] - linearSlop);
+                if (vn < -restitutionThreshold) bias = Math.max(bias, -c.restitution[m] * vn);
+                c.bias[i] = bias;
+
+                float impulseX = nx * c.normalImpulse[i] + tx * c.tangentImpulse[i];
+                float impulseY = ny * c.normalImpulse[i] + ty * c.tangentImpulse[i];
+                applyImpulse(a, b, rax, ray, rbx, rby, impulseX, impulseY);
+            }
+            prepareBlock(c, m, mA + mB, iA, iB);
+        }
+
+        for (int iteration = 0; iteration < velocityIterations; iteration++) {
+            for (int j = contactStart; j < contactEnd; j++) {
+                int m = islandContacts[j];
+                int a = c.a[m], b = c.b[m];
+                float nx = c.nx[m], ny = c.ny[m], tx = ny, ty = -nx;
+                int first = m * Contacts.MAX_POINTS, last = first + c.points[m];
+
+                // Friccion primero, limitada por el impulso normal actual
+                for (int i = first; i < last; i++) {
+                    float rax = c.rax[i], ray = c.ray[i], rbx = c.rbx[i], rby = c.rby[i];
+                    float dvx = vx[b] - w[b] * rby - vx[a] + w[a] * ray;
+                    float dvy = vy[b] + w[b] * rbx - vy[a] - w[a] * rax;
+                    float lambda = -c.tangentMass[i] * (dvx * tx + dvy * ty);
+                    float maxFriction = c.friction[m] * c.normalImpulse[i];
+                    float impulse = Math.max(-maxFriction, Math.min(maxFriction, c.tangentImpulse[i] + lambda));
+                    lambda = impulse - c.tangentImpulse[i];
+                    c.tangentImpulse[i] = impulse;
+                    applyImpulse(a, b, rax, ray, rbx, rby, tx * lambda, ty * lambda);
+                }
+
+                if (c.block[m]) {
+                    solveBlock(c, m, a, b, nx, ny);
+                    continue;
+                }
+                for (int i = first; i < last; i++) {
+                    float rax = c.rax[i], ray = c.ray[i], rbx = c.rbx[i], rby = c.rby[i];
+                    float dvx = vx[b] - w[b] * rby - vx[a] + w[a] * ray;
+                    float dvy = vy[b] + w[b] * rbx - vy[a] - w[a] * rax;
+                    float lambda = -c.normalMass[i] * (dvx * nx + dvy * ny - c.bias[i]);
+                    // El impulso acumulado solo puede empujar
+                    float impulse = Math.max(0, c.normalImpulse[i] + lambda);
+                    lambda = impulse - c.normalImpulse[i];
+                    c.normalImpulse[i] = impulse;
+                    applyImpulse(a, b, rax, ray, rbx, rby, nx * lambda, ny * lambda);
+                }
+            }
+        }
+
+        float minSleepTime = Float.MAX_VALUE;
+        float linearTolerance = linearSleepTolerance * linearSleepTolerance;
+        float angularTolerance = angularSleepTolerance * angularSleepTolerance;
+        for (int i = bodyStart; i < bodyEnd; i++) {
+            int id = islandBodies[i];
+            x[id] += vx[id] * dt;
+            y[id] += vy[id] * dt;
+            if (w[id] != 0) {
+                angle[id] += w[id] * dt;
+                cos[id] = (float) StrictMath.cos(angle[id]);
+                sin[id] = (float) StrictMath.sin(angle[id]);
+            }
+            if (w[id] * w[id] > angularTolerance || vx[id] * vx[id] + vy[id] * vy[id] > linearTolerance) sleepTime[id] = 0;
+            else sleepTime[id] += dt;
+            minSleepTime = Math.min(minSleepTime, sleepTime[id]);
+        }
+
+        if (sleeping && minSleepTime >= TIME_TO_SLEEP) {
+            for (int i = bodyStart; i < bodyEnd; i++) {
+                int id = islandBodies[i];
+                awake[id] = false;
+                vx[id] = vy[id] = w[id] = 0;
+            }
+        }
+    }
+
+    /**
+     * Decide si los dos puntos de un contacto se resuelven juntos. Resolverlos uno tras otro reparte el impulso de forma
+     * desigual entre las dos esquinas y hace oscilar las pilas; juntos se obtiene la solucion exacta del par, salvo que los puntos
+     * esten tan cerca que la matriz sea casi singular.
+     */
+    private void prepareBlock(Contacts c, int m, float mass, float iA, float iB) {
+        c.block[m] = false;
+        if (c.points[m] != 2) return;
+        int i = m * Contacts.MAX_POINTS, j = i + 1;
+        float nx = c.nx[m], ny = c.ny[m];
+        float rn1A = c.rax[i] * ny - c.ray[i] * nx, rn1B = c.rbx[i] * ny - c.rby[i] * nx;
+        float rn2A = c.rax[j] * ny - c.ray[j] * nx, rn2B = c.rbx[j] * ny - c.rby[j] * nx;
+        float k11 = mass + iA * rn1A * rn1A + iB * rn1B * rn1B;
+        float k22 = mass + iA * rn2A * rn2A + iB * rn2B * rn2B;
+        float k12 = mass + iA * rn1A * rn2A + iB * rn1B * rn2B;
+        float determinant = k11 * k22 - k12 * k12;
+        if (k11 * k11 >= 1000 * determinant) return;
+        c.block[m] = true;
+        c.k11[m] = k11;
+        c.k12[m] = k12;
+        c.k22[m] = k22;
+        c.m11[m] = k22 / determinant;
+        c.m12[m] = -k12 / determinant;
+        c.m22[m] = k11 / determinant;
+    }
+
+    /**
+     * Resuelve los impulsos normales de los dos puntos como un problema de complementariedad lineal de 2x2, probando en orden los
+     * cuatro casos: ambos puntos activos, solo el primero, solo el segundo y ninguno.
+     */
+    private void solveBlock(Contacts c, int m, int a, int b, float nx, float ny) {
+        int i = m * Contacts.MAX_POINTS, j = i + 1;
+        float old1 = c.normalImpulse[i], old2 = c.normalImpulse[j];
+        float dv1x = vx[b] - w[b] * c.rby[i] - vx[a] + w[a] * c.ray[i];
+        float dv1y = vy[b] + w[b] * c.rbx[i] - vy[a] - w[a] * c.rax[i];
+        float dv2x = vx[b] - w[b] * c.rby[j] - vx[a] + w[a] * c.ray[j];
+        float dv2y = vy[b] + w[b] * c.rbx[j] - vy[a] - w[a] * c.rax[j];
+        float k11 = c.k11[m], k12 = c.k12[m], k22 = c.k22[m];
+        // b = vn - bias - K * a, de modo que vn' = K * x + b con x los nuevos impulsos acumulados
+        float b1 = dv1x * nx + dv1y * ny - c.bias[i] - (k11 * old1 + k12 * old2);
+        float b2 = dv2x * nx + dv2y * ny - c.bias[j] - (k12 * old1 + k22 * old2);
+
+        float x1 = -(c.m11[m] * b1 + c.m12[m] * b2), x2 = -(c.m12[m] * b1 + c.m22[m] * b2);
+        if (x1 < 0 || x2 < 0) {
+            x1 = -c.normalMass[i] * b1;
+            x2 = 0;
+            if (x1 < 0 || k12 * x1 + b2 < 0) {
+                x1 = 0;
+                x2 = -c.normalMass[j] * b2;
+                if (x2 < 0 || k12 * x2 + b1 < 0) {
+                    // Sin impulso solo es valido si ambos puntos se separan; si no, se conserva el estado actual
+                    if (b1 < 0 || b2 < 0) return;
+                    x2 = 0;
+                }
+            }
+        }
+
+        float d1 = x1 - old1, d2 = x2 - old2;
+        c.normalImpulse[i] = x1;
+        c.normalImpulse[j] = x2;
+        applyImpulse(a, b, c.rax[i], c.ray[i], c.rbx[i], c.rby[i], nx * d1, ny * d1);
+        applyImpulse(a, b, c.rax[j], c.ray[j], c.rbx[j], c.rby[j], nx * d2, ny * d2);
+    }
+
+    /**
+     * Aplica un impulso en el punto de contacto: {@code -P} sobre {@code a} y {@code P} sobre {@code b}. Los cuerpos estaticos no
+     * se tocan, ya que pueden compartirse entre islas que se resuelven en paralelo.
+     */
+    private void applyImpulse(int a, int b, float rax, float ray, float rbx, float rby, float impulseX, float impulseY) {
+        float mA = invMass[a], mB = invMass[b];
+        if (mA > 0) {
+            vx[a] -= mA * impulseX;
+            vy[a] -= mA * impulseY;
+            w[a] -= invInertia[a] * (rax * impulseY - ray * impulseX);
+        }
+        if (mB > 0) {
+            vx[b] += mB * impulseX;
+            vy[b] += mB * impulseY;
+            w[b] += invInertia[b] * (rbx * impulseY - rby * impulseX);
+        }
+    }
+
+    private void checkBody(int body) {
+        if (!isAlive(body)) throw new IllegalArgumentException("The body " + body + " does not exist!");
+    }
+
+    private void grow(int capacity) {
+        this.capacity = capacity;
+        x = Arrays.copyOf(x == null ? new float[0] : x, capacity);
+        y = Arrays.copyOf(y == null ? new float[0] : y, capacity);
+        angle = Arrays.copyOf(angle == null ? new float[0] : angle, capacity);
+        cos = Arrays.copyOf(cos == null ? new float[0] : cos, capacity);
+        sin = Arrays.copyOf(sin == null ? new float[0] : sin, capacity);
+        vx = Arrays.copyOf(vx == null ? new float[0] : vx, capacity);
+        vy = Arrays.copyOf(vy == null ? new float[0] : vy, capacity);
+        w = Arrays.copyOf(w == null ? new float[0] : w, capacity);
+        invMass = Arrays.copyOf(invMass == null ? new float[0] : invMass, capacity);
+        invInertia = Arrays.copyOf(invInertia == null ? new float[0] : invInertia, capacity);
+        inertia = Arrays.copyOf(inertia == null ? new float[0] : inertia, capacity);
+        friction = Arrays.copyOf(friction == null ? new float[0] : friction, capacity);
+        restitution = Arrays.copyOf(restitution == null ? new float[0] : restitution, capacity);
+        radius = Arrays.copyOf(radius == null ? new float[0] : radius, capacity);
+        sleepTime = Arrays.copyOf(sleepTime == null ? new float[0] : sleepTime, capacity);
+        minX = Arrays.copyOf(minX == null ? new float[0] : minX, capacity);
+        minY = Arrays.copyOf(minY == null ? new float[0] : minY, capacity);
+        maxX = Arrays.copyOf(maxX == null ? new float[0] : maxX, capacity);
+        maxY = Arrays.copyOf(maxY == null ? new float[0] : maxY, capacity);
+        shape = Arrays.copyOf(shape == null ? new int[0] : shape, capacity);
+        vertexCount = Arrays.copyOf(vertexCount == null ? new int[0] : vertexCount, capacity);
+        localVertices = Arrays.copyOf(localVertices == null ? new float[0][] : localVertices, capacity);
+        localNormals = Arrays.copyOf(localNormals == null ? new float[0][] : localNormals, capacity);
+        worldVertices = Arrays.copyOf(worldVertices == null ? new float[0][] : worldVertices, capacity);
+        worldNormals = Arrays.copyOf(worldNormals == null ? new float[0][] : worldNormals, capacity);
+        alive = Arrays.copyOf(alive == null ? new boolean[0] : alive, capacity);
+        awake = Arrays.copyOf(awake == null ? new boolean[0] : awake, capacity);
+    }
+
+    private static float signedArea(float[] vertices) {
+        float area = 0;
+        int count = vertices.length / 2;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            area += vertices[2 * i] * vertices[2 * j + 1] - vertices[2 * j] * vertices[2 * i + 1];
+        }
+        return area / 2;
+    }
+
+    private static void reverse(float[] vertices) {
+        for (int i = 0, j = vertices.length / 2 - 1; i < j; i++, j--) {
+            float tx = vertices[2 * i], ty = vertices[2 * i + 1];
+            vertices[2 * i] = vertices[2 * j];
+            vertices[2 * i + 1] = vertices[2 * j + 1];
+            vertices[2 * j] = tx;
+            vertices[2 * j + 1] = ty;
+        }
+    }
+
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.punkipunk.renderer;
+
+/**
+ * Region rectangular de una pagina de un {@link TextureAtlas}, en pixeles y en coordenadas de textura. {@code (u0, v0)} es la
+ * esquina superior izquierda y {@code (u1, v1)} la inferior derecha.
+ */
+
+public record AtlasRegion(int page, int x, int y, int width, int height, float u0, float v0, float u1, float v1) {
+
+}
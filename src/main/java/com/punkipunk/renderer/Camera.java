@@ -0,0 +1,207 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.BufferPool;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.GL_DYNAMIC_DRAW;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+/**
+ * Camara ortografica 2D.
+ * <p>
+ * La posicion es el centro de la vista en coordenadas del mundo, y con zoom 1 una unidad del mundo ocupa un pixel del viewport.
+ * Las matrices de proyeccion, vista, vista-proyeccion y su inversa se recalculan solo cuando cambia la posicion, el zoom o el
+ * viewport, y {@link #upload()} las sube a un uniform buffer (bloque {@code Camera} en layout std140, vinculado a
+ * {@link #BINDING}) solo si cambiaron desde la ultima subida, por lo que todos los shaders que usan el bloque comparten una
+ * unica copia sin volver a subir uniforms por programa.
+ * <p>
+ * Los metodos estan sincronizados porque, con el bucle en pipeline, la simulacion consulta la camara (culling, seleccion con el
+ * mouse) mientras el hilo de OpenGL la sube. Las matrices devueltas por los getters se comparten, por lo que solo se deben leer
+ * desde el hilo que modifica la camara.
+ */
+
+public class Camera {
+
+    /** Punto de vinculacion del uniform buffer de la camara. */
+    public static final int BINDING = 0;
+    /** Nombre del bloque de uniforms en los shaders. */
+    public static final String BLOCK_NAME = "Camera";
+    // uProjection, uView y uViewProjection, cada una de 16 floats
+    private static final int BLOCK_FLOATS = 3 * 16;
+
+    private final GLBackend gl;
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f inverse = new Matrix4f();
+    private final Vector3f scratch = new Vector3f();
+    // Copia del bloque que se sube al uniform buffer, reservada en el BufferPool con el uniform buffer
+    private FloatBuffer block;
+    private int ubo;
+
+    private float x, y, zoom = 1;
+    private float viewportWidth, viewportHeight;
+    private boolean projectionDirty = true, viewDirty = true, uploadDirty = true;
+    private long uploads;
+
+    public Camera(GLBackend gl, float viewportWidth, float viewportHeight) {
+        this.gl = gl;
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+    }
+
+    /**
+     * Sube las matrices al uniform buffer si cambiaron y lo vincula a {@link #BINDING}. Se llama una vez por frame, antes de
+     * dibujar.
+     */
+    public synchronized void upload() {
+        if (ubo == 0) {
+            ubo = gl.genBuffers();
+            block = BufferPool.get().allocateFloats(BLOCK_FLOATS);
+            gl.bindBuffer(GL_UNIFORM_BUFFER, ubo);
+            gl.bufferData(GL_UNIFORM_BUFFER, (long) BLOCK_FLOATS * Float.BYTES, GL_DYNAMIC_DRAW);
+            uploadDirty = true;
+        }
+        if (update() || uploadDirty) {
+            projection.get(0, block);
+            view.get(16, block);
+            viewProjection.get(32, block);
+            gl.bindBuffer(GL_UNIFORM_BUFFER, ubo);
+            gl.bufferSubData(GL_UNIFORM_BUFFER, 0, block);
+            uploadDirty = false;
+            uploads++;
+        }
+        gl.bindBufferBase(GL_UNIFORM_BUFFER, BINDING, ubo);
+    }
+
+    public synchronized void dispose() {
+        if (ubo != 0) gl.deleteBuffers(ubo);
+        if (block != null) BufferPool.get().free(block);
+        ubo = 0;
+        block = null;
+    }
+
+    public synchronized void setPosition(float x, float y) {
+        if (this.x == x && this.y == y) return;
+        this.x = x;
+        this.y = y;
+        viewDirty = true;
+    }
+
+    public synchronized void move(float dx, float dy) {
+        setPosition(x + dx, y + dy);
+    }
+
+    /**
+     * @param zoom factor de escala; 2 muestra la mitad del mundo al doble de tamaño
+     */
+    public synchronized void setZoom(float zoom) {
+        assert zoom > 0 : "The zoom must be positive";
+        if (this.zoom == zoom) return;
+        this.zoom = zoom;
+        projectionDirty = true;
+    }
+
+    public synchronized void setViewport(float width, float height) {
+        if (viewportWidth == width && viewportHeight == height) return;
+        viewportWidth = width;
+        viewportHeight = height;
+        projectionDirty = true;
+    }
+
+    /**
+     * Convierte una posicion del viewport (en pixeles, con y hacia abajo, como la del cursor) a coordenadas del mundo.
+     *
+     * @return {@code dest}
+     */
+    public synchronized Vector2f screenToWorld(float screenX, float screenY, Vector2f dest) {
+        update();
+        float ndcX = screenX / viewportWidth * 2 - 1;
+        float ndcY = 1 - screenY / viewportHeight * 2;
+        inverse.transformPosition(scratch.set(ndcX, ndcY, 0));
+        return dest.set(scratch.x, scratch.y);
+    }
+
+    public synchronized Matrix4fc getProjection() {
+        update();
+        return projection;
+    }
+
+    public synchronized Matrix4fc getView() {
+        update();
+        return view;
+    }
+
+    public synchronized Matrix4fc getViewProjection() {
+        update();
+        return viewProjection;
+    }
+
+    public synchronized Matrix4fc getInverseViewProjection() {
+        update();
+        return inverse;
+    }
+
+    public synchronized float getX() {
+        return x;
+    }
+
+    public synchronized float getY() {
+        return y;
+    }
+
+    public synchronized float getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Limites de la region visible en coordenadas del mundo, por ejemplo para el culling.
+     */
+    public synchronized float getViewMinX() {
+        return x - viewportWidth / (2 * zoom);
+    }
+
+    public synchronized float getViewMinY() {
+        return y - viewportHeight / (2 * zoom);
+    }
+
+    public synchronized float getViewMaxX() {
+        return x + viewportWidth / (2 * zoom);
+    }
+
+    public synchronized float getViewMaxY() {
+        return y + viewportHeight / (2 * zoom);
+    }
+
+    /**
+     * @return cantidad de veces que se subieron las matrices al uniform buffer
+     */
+    public synchronized long getUploads() {
+        return uploads;
+    }
+
+    /**
+     * Recalcula las matrices que quedaron desactualizadas.
+     *
+     * @return true si alguna matriz cambio
+     */
+    private boolean update() {
+        if (!projectionDirty && !viewDirty) return false;
+        if (projectionDirty) {
+            float halfWidth = viewportWidth / (2 * zoom), halfHeight = viewportHeight / (2 * zoom);
+            projection.setOrtho(-halfWidth, halfWidth, -halfHeight, halfHeight, -1, 1);
+        }
+        if (viewDirty) view.translation(-x, -y, 0);
+        projection.mulOrthoAffine(view, viewProjection);
+        viewProjection.invertAffine(inverse);
+        projectionDirty = viewDirty = false;
+        uploadDirty = true;
+        return true;
+    }
+
+}
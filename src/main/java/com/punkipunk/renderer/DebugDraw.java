@@ -0,0 +1,165 @@
+package com.punkipunk.renderer;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Dibujo inmediato de lineas, rectangulos, circulos y texto para depuracion y overlays.
+ * <p>
+ * Cada frame se vuelve a pedir todo lo que se quiere ver: las llamadas agregan instancias a un {@link InstanceBuffer} y
+ * {@link #render(Shader)} las dibuja con el {@link InstancedRenderer} en una sola draw call. Las lineas son quads rotados, y las
+ * figuras y el texto comparten la textura de la {@link Font} (las figuras usan su bloque blanco), por lo que se pueden mezclar
+ * sin cortar el lote. Los textos pasan por un {@link TextCache}, asi que dibujar cada frame un texto que no cambio no vuelve a
+ * distribuirlo, y ninguna llamada reserva memoria una vez que los buffers alcanzaron su tamaño.
+ * <p>
+ * Como el {@link ParticleSystem}, usa dos buffers: las llamadas se graban en uno (en {@code prepare}, fuera del hilo de OpenGL)
+ * mientras el render dibuja el otro, y {@link #swap()} los intercambia junto con las listas de comandos. Las coordenadas son las
+ * de la camara vinculada al dibujar: del mundo o, con una camara del tamaño del viewport, pixeles de la pantalla. Se dibuja con
+ * {@code shaders/instancedVertex.glsl} y {@code shaders/textFragment.glsl}.
+ */
+
+public class DebugDraw {
+
+    private static final int CIRCLE_SEGMENTS = 24;
+    private static final String SDF_NAME = "uSdf";
+
+    private final Font font;
+    private final TextCache text;
+    private final InstancedRenderer renderer;
+    private final InstanceBuffer[] instances = {new InstanceBuffer(1024), new InstanceBuffer(1024)};
+    private final GLBackend gl;
+    private final float whiteU, whiteV;
+    private int recording;
+
+    /**
+     * @param font fuente de los textos, o null para dibujar solo figuras
+     */
+    public DebugDraw(GLBackend gl, Font font) {
+        this.gl = gl;
+        this.font = font;
+        text = font != null ? new TextCache(font, 256) : null;
+        renderer = new InstancedRenderer(gl);
+        whiteU = font != null ? font.getWhiteU() : 0;
+        whiteV = font != null ? font.getWhiteV() : 0;
+    }
+
+    /**
+     * Linea de {@code (x0, y0)} a {@code (x1, y1)}.
+     *
+     * @param color color empaquetado con {@link InstanceBuffer#color(float, float, float, float)}
+     */
+    public void line(float x0, float y0, float x1, float y1, float thickness, int color) {
+        float dx = x1 - x0, dy = y1 - y0;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) return;
+        instances[recording].add((x0 + x1) / 2, (y0 + y1) / 2, length + thickness, thickness, (float) Math.atan2(dy, dx), color,
+                whiteU, whiteV, whiteU, whiteV);
+    }
+
+    /**
+     * Contorno de un rectangulo con su esquina inferior izquierda en (x, y). El borde se dibuja hacia adentro.
+     */
+    public void rect(float x, float y, float width, float height, float thickness, int color) {
+        float t = Math.min(thickness, Math.min(width, height) / 2);
+        fillRect(x, y, width, t, color);
+        fillRect(x, y + height - t, width, t, color);
+        fillRect(x, y + t, t, height - 2 * t, color);
+        fillRect(x + width - t, y + t, t, height - 2 * t, color);
+    }
+
+    /**
+     * Rectangulo relleno con su esquina inferior izquierda en (x, y).
+     */
+    public void fillRect(float x, float y, float width, float height, int color) {
+        if (width <= 0 || height <= 0) return;
+        instances[recording].add(x + width / 2, y + height / 2, width, height, 0, color, whiteU, whiteV, whiteU, whiteV);
+    }
+
+    public void circle(float x, float y, float radius, float thickness, int color) {
+        float previousX = x + radius, previousY = y;
+        for (int i = 1; i <= CIRCLE_SEGMENTS; i++) {
+            double angle = 2 * Math.PI * i / CIRCLE_SEGMENTS;
+            float nextX = x + radius * (float) Math.cos(angle), nextY = y + radius * (float) Math.sin(angle);
+            line(previousX, previousY, nextX, nextY, thickness, color);
+            previousX = nextX;
+            previousY = nextY;
+        }
+    }
+
+    /**
+     * Texto con la linea base de su primera linea empezando en (x, y); los saltos de linea bajan una linea.
+     *
+     * @param size altura del texto (la de la fuente horneada para dibujarla sin escalar)
+     * @return ancho del texto dibujado
+     */
+    public float text(CharSequence value, float x, float y, float size, int color) {
+        if (font == null) return 0;
+        GlyphRun run = text.get(value);
+        float scale = size / font.getSize();
+        // Sin escalar, los mapas de cobertura se alinean a pixeles enteros para que se vean nitidos
+        if (!font.isSdf() && scale == 1) {
+            x = Math.round(x);
+            y = Math.round(y);
+        }
+        float[] glyphs = run.glyphs();
+        InstanceBuffer buffer = instances[recording];
+        for (int i = 0; i < run.getGlyphCount(); i++) {
+            int offset = i * GlyphRun.FLOATS_PER_GLYPH;
+            float x0 = glyphs[offset] * scale, y0 = glyphs[offset + 1] * scale;
+            float x1 = glyphs[offset + 2] * scale, y1 = glyphs[offset + 3] * scale;
+            buffer.add(x + (x0 + x1) / 2, y + (y0 + y1) / 2, x1 - x0, y1 - y0, 0, color, glyphs[offset + 4], glyphs[offset + 5],
+                    glyphs[offset + 6], glyphs[offset + 7]);
+        }
+        return run.getWidth() * scale;
+    }
+
+    /**
+     * @return ancho que ocuparia el texto con esa altura
+     */
+    public float textWidth(CharSequence value, float size) {
+        return font != null ? text.get(value).getWidth() * size / font.getSize() : 0;
+    }
+
+    /**
+     * Intercambia el buffer grabado con el que se dibuja y vacia el nuevo buffer de grabacion.
+     */
+    public void swap() {
+        recording ^= 1;
+        instances[recording].clear();
+    }
+
+    /**
+     * Dibuja lo grabado antes del ultimo {@link #swap()} con mezcla alfa. El shader debe estar en uso y la camara subida.
+     */
+    public void render(Shader shader) {
+        if (font != null) font.upload(gl);
+        shader.uploadInt(SDF_NAME, font != null && font.isSdf() ? 1 : 0);
+        gl.enable(GL_BLEND);
+        gl.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        renderer.render(shader, font != null ? font.getTexture() : null, instances[recording ^ 1]);
+        gl.disable(GL_BLEND);
+    }
+
+    /**
+     * Libera los buffers. La fuente no pertenece al DebugDraw.
+     */
+    public void dispose() {
+        renderer.dispose();
+        for (InstanceBuffer buffer : instances) buffer.dispose();
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public TextCache getTextCache() {
+        return text;
+    }
+
+    /**
+     * @return instancias grabadas en el frame en curso
+     */
+    public int getInstanceCount() {
+        return instances[recording].size();
+    }
+
+}
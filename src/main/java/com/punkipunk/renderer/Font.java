@@ -0,0 +1,358 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.BufferPool;
+import org.lwjgl.stb.STBTTFontinfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.stb.STBTruetype.*;
+
+/**
+ * Fuente TrueType horneada en un atlas con {@code stb_truetype}, con los caracteres de {@link #FIRST_CHAR} a
+ * {@link #LAST_CHAR} (ASCII imprimible y Latin-1) a un tamaño fijo en pixeles.
+ * <p>
+ * Cada glifo se rasteriza una sola vez al cargar la fuente, de dos formas posibles: como mapa de cobertura, nitido al tamaño
+ * horneado, o como campo de distancia con signo (SDF), en el que el alfa de cada texel es la distancia al contorno del glifo
+ * ({@link #SDF_EDGE} sobre el borde). El shader {@code shaders/textFragment.glsl} recorta el SDF en el borde con un suavizado de
+ * un pixel de pantalla, por lo que el texto se puede escalar o rotar sin pixelarse. Los glifos se empaquetan con el
+ * {@link SkylinePacker} junto con un bloque blanco opaco ({@link #getWhiteU()}, {@link #getWhiteV()}) que permite dibujar lineas
+ * y rectangulos con la misma textura y en la misma draw call que el texto.
+ * <p>
+ * La carga y el horneado no usan OpenGL, por lo que pueden correr en un hilo de trabajo (por ejemplo, en el {@code preload} de
+ * una escena); {@link #upload(GLBackend)} crea la textura en el hilo de OpenGL. Las metricas estan en pixeles del tamaño
+ * horneado, con y hacia arriba desde la linea base.
+ */
+
+public class Font {
+
+    public static final int FIRST_CHAR = 32, LAST_CHAR = 255;
+    public static final int CHAR_COUNT = LAST_CHAR - FIRST_CHAR + 1;
+    /** Valor del alfa de un SDF sobre el contorno del glifo. */
+    public static final int SDF_EDGE = 128;
+    // Solo se guarda el kerning entre caracteres ASCII, para que la tabla ocupe 95 x 95 floats
+    private static final int KERNING_CHARS = 127 - FIRST_CHAR;
+    // Lado del bloque blanco y separacion entre glifos del atlas, en pixeles
+    private static final int WHITE_SIZE = 4, PADDING = 1;
+
+    private final float size, ascent, descent, lineHeight;
+    private final boolean sdf;
+    // Por glifo, indexados por caracter - FIRST_CHAR: avance, caja respecto del origen (y hacia arriba) y region del atlas
+    private final float[] advance = new float[CHAR_COUNT];
+    private final float[] x0 = new float[CHAR_COUNT], y0 = new float[CHAR_COUNT], x1 = new float[CHAR_COUNT], y1 = new float[CHAR_COUNT];
+    private final float[] u0 = new float[CHAR_COUNT], v0 = new float[CHAR_COUNT], u1 = new float[CHAR_COUNT], v1 = new float[CHAR_COUNT];
+    private final boolean[] present = new boolean[CHAR_COUNT];
+    private final float[] kerning = new float[KERNING_CHARS * KERNING_CHARS];
+    private float whiteU, whiteV;
+    private ImageData atlas;
+    private Texture texture;
+
+    private Font(float size, float ascent, float descent, float lineHeight, boolean sdf) {
+        this.size = size;
+        this.ascent = ascent;
+        this.descent = descent;
+        this.lineHeight = lineHeight;
+        this.sdf = sdf;
+    }
+
+    /**
+     * Lee un archivo {@code .ttf} (o el primer tipo de letra de un {@code .ttc}) y hornea sus glifos.
+     *
+     * @param size altura en pixeles entre el ascendente y el descendente
+     * @param sdf  true para hornear campos de distancia en lugar de mapas de cobertura
+     */
+    public static Font load(Path path, float size, boolean sdf) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer ttf = BufferPool.get().allocate(bytes.length);
+        try {
+            ttf.put(bytes).flip();
+            return bake(ttf, size, sdf);
+        } finally {
+            BufferPool.get().free(ttf);
+        }
+    }
+
+    /**
+     * Hornea los glifos de una fuente ya cargada en memoria. El buffer solo se usa durante la llamada.
+     */
+    public static Font bake(ByteBuffer ttf, float size, boolean sdf) throws IOException {
+        STBTTFontinfo info = STBTTFontinfo.malloc();
+        try {
+            int offset = stbtt_GetFontOffsetForIndex(ttf, 0);
+            if (offset < 0 || !stbtt_InitFont(info, ttf, offset)) throw new IOException("The font data is not valid!");
+            float scale = stbtt_ScaleForPixelHeight(info, size);
+            int[] ascent = new int[1], descent = new int[1], lineGap = new int[1];
+            stbtt_GetFontVMetrics(info, ascent, descent, lineGap);
+            Font font = new Font(size, ascent[0] * scale, descent[0] * scale, (ascent[0] - descent[0] + lineGap[0]) * scale, sdf);
+            font.rasterize(info, scale);
+            return font;
+        } finally {
+            info.free();
+        }
+    }
+
+    /**
+     * Busca una fuente monoespaciada para texto de depuracion: la indicada con {@code -Djade.font=<archivo>} o alguna de las que
+     * suelen venir con el sistema operativo.
+     *
+     * @return ruta de la fuente, o null si no se encontro ninguna
+     */
+    public static Path findDebugFont() {
+        String property = System.getProperty("jade.font");
+        if (property != null) return Files.isRegularFile(Path.of(property)) ? Path.of(property) : null;
+        String[] candidates = {
+                "/usr/share/fonts/truetype/dejavu/DejaVuSansMono.ttf",
+                "/usr/share/fonts/dejavu/DejaVuSansMono.ttf",
+                "/usr/share/fonts/TTF/DejaVuSansMono.ttf",
+                "/usr/share/fonts/truetype/liberation/LiberationMono-Regular.ttf",
+                "C:/Windows/Fonts/consola.ttf",
+                "C:/Windows/Fonts/cour.ttf",
+                "/System/Library/Fonts/Menlo.ttc",
+                "/System/Library/Fonts/Monaco.ttf"
+        };
+        for (String candidate : candidates)
+            if (Files.isRegularFile(Path.of(candidate))) return Path.of(candidate);
+        return null;
+    }
+
+    /**
+     * Crea la textura del atlas y libera la imagen. Debe llamarse en el hilo de OpenGL antes de dibujar con la fuente.
+     */
+    public void upload(GLBackend gl) {
+        if (texture != null) return;
+        texture = new Texture(gl, atlas.getWidth(), atlas.getHeight(), atlas.getPixels());
+        // Los SDF se interpolan entre texeles, lo que mantiene el borde suave al ampliarlos
+        if (sdf) texture.setFilter(GL_LINEAR);
+        atlas.free();
+        atlas = null;
+    }
+
+    public void dispose() {
+        if (texture != null) texture.dispose();
+        if (atlas != null) atlas.free();
+        texture = null;
+        atlas = null;
+    }
+
+    /**
+     * @return ancho en pixeles del tamaño horneado de la linea mas larga del texto
+     */
+    public float width(CharSequence text) {
+        float width = 0, line = 0;
+        char previous = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                width = Math.max(width, line);
+                line = 0;
+                previous = 0;
+                continue;
+            }
+            c = glyph(c);
+            line += kerning(previous, c) + advance[c - FIRST_CHAR];
+            previous = c;
+        }
+        return Math.max(width, line);
+    }
+
+    /**
+     * @return el caracter, o {@code '?'} si la fuente no tiene su glifo
+     */
+    public char glyph(char c) {
+        return c >= FIRST_CHAR && c <= LAST_CHAR && present[c - FIRST_CHAR] ? c : '?';
+    }
+
+    /**
+     * @return ajuste del avance entre dos caracteres consecutivos (0 fuera de ASCII)
+     */
+    public float kerning(char previous, char c) {
+        if (previous < FIRST_CHAR || previous >= FIRST_CHAR + KERNING_CHARS || c < FIRST_CHAR || c >= FIRST_CHAR + KERNING_CHARS)
+            return 0;
+        return kerning[(previous - FIRST_CHAR) * KERNING_CHARS + c - FIRST_CHAR];
+    }
+
+    public float getAdvance(char c) {
+        return advance[glyph(c) - FIRST_CHAR];
+    }
+
+    public float getSize() {
+        return size;
+    }
+
+    /**
+     * @return distancia desde la linea base hasta el punto mas alto de los glifos
+     */
+    public float getAscent() {
+        return ascent;
+    }
+
+    /**
+     * @return distancia (negativa) desde la linea base hasta el punto mas bajo de los glifos
+     */
+    public float getDescent() {
+        return descent;
+    }
+
+    /**
+     * @return distancia entre las lineas base de dos lineas consecutivas
+     */
+    public float getLineHeight() {
+        return lineHeight;
+    }
+
+    public boolean isSdf() {
+        return sdf;
+    }
+
+    /**
+     * @return textura del atlas, o null antes de {@link #upload(GLBackend)}
+     */
+    public Texture getTexture() {
+        return texture;
+    }
+
+    /**
+     * @return coordenada u del centro del bloque blanco del atlas
+     */
+    public float getWhiteU() {
+        return whiteU;
+    }
+
+    /**
+     * @return coordenada v del centro del bloque blanco del atlas
+     */
+    public float getWhiteV() {
+        return whiteV;
+    }
+
+    // Caja y region de cada glifo, para armar los quads
+
+    float glyphX0(char c) {
+        return x0[c - FIRST_CHAR];
+    }
+
+    float glyphY0(char c) {
+        return y0[c - FIRST_CHAR];
+    }
+
+    float glyphX1(char c) {
+        return x1[c - FIRST_CHAR];
+    }
+
+    float glyphY1(char c) {
+        return y1[c - FIRST_CHAR];
+    }
+
+    float glyphU0(char c) {
+        return u0[c - FIRST_CHAR];
+    }
+
+    float glyphV0(char c) {
+        return v0[c - FIRST_CHAR];
+    }
+
+    float glyphU1(char c) {
+        return u1[c - FIRST_CHAR];
+    }
+
+    float glyphV1(char c) {
+        return v1[c - FIRST_CHAR];
+    }
+
+    /**
+     * Rasteriza los glifos, los empaqueta en el atlas y calcula sus metricas y el kerning.
+     */
+    private void rasterize(STBTTFontinfo info, float scale) {
+        // Con SDF, el campo se extiende unos pixeles fuera del contorno para poder suavizar y ampliar el borde
+        int padding = sdf ? Math.max(2, Math.round(size / 8)) : 0;
+        float pixelDistanceScale = (float) SDF_EDGE / Math.max(1, padding);
+        byte[][] bitmaps = new byte[CHAR_COUNT][];
+        int[] widths = new int[CHAR_COUNT], heights = new int[CHAR_COUNT];
+        int[] advanceWidth = new int[1], leftBearing = new int[1], w = new int[1], h = new int[1], xoff = new int[1], yoff = new int[1];
+        long area = WHITE_SIZE * WHITE_SIZE;
+
+        for (int i = 0; i < CHAR_COUNT; i++) {
+            int codepoint = FIRST_CHAR + i;
+            // Los caracteres de control de Latin-1 (127 a 159) y los que no tiene la fuente se reemplazan por '?'
+            if (codepoint > 126 && codepoint < 160 || codepoint != ' ' && stbtt_FindGlyphIndex(info, codepoint) == 0) continue;
+            present[i] = true;
+            stbtt_GetCodepointHMetrics(info, codepoint, advanceWidth, leftBearing);
+            advance[i] = advanceWidth[0] * scale;
+            ByteBuffer bitmap = sdf
+                    ? stbtt_GetCodepointSDF(info, scale, codepoint, padding, (byte) SDF_EDGE, pixelDistanceScale, w, h, xoff, yoff)
+                    : stbtt_GetCodepointBitmap(info, 0, scale, codepoint, w, h, xoff, yoff);
+            if (bitmap == null) continue;
+            bitmaps[i] = new byte[w[0] * h[0]];
+            bitmap.get(0, bitmaps[i]);
+            if (sdf) stbtt_FreeSDF(bitmap);
+            else stbtt_FreeBitmap(bitmap);
+            widths[i] = w[0];
+            heights[i] = h[0];
+            // stb mide hacia abajo desde la linea base
+            x0[i] = xoff[0];
+            x1[i] = xoff[0] + w[0];
+            y1[i] = -yoff[0];
+            y0[i] = -yoff[0] - h[0];
+            area += (long) (w[0] + PADDING) * (h[0] + PADDING);
+        }
+
+        for (int a = 0; a < KERNING_CHARS; a++)
+            for (int b = 0; b < KERNING_CHARS; b++)
+                kerning[a * KERNING_CHARS + b] = stbtt_GetCodepointKernAdvance(info, FIRST_CHAR + a, FIRST_CHAR + b) * scale;
+
+        // El skyline empaqueta mejor de mayor a menor altura
+        Integer[] order = new Integer[CHAR_COUNT];
+        for (int i = 0; i < CHAR_COUNT; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> heights[b] - heights[a]);
+
+        // Atlas cuadrado de potencia de dos, que se duplica hasta que entren todos los glifos
+        int side = 64;
+        while ((long) side * side < area) side *= 2;
+        long[] positions = new long[CHAR_COUNT];
+        long white;
+        while (true) {
+            SkylinePacker packer = new SkylinePacker(side, side);
+            white = packer.insert(WHITE_SIZE + PADDING, WHITE_SIZE + PADDING);
+            boolean fits = true;
+            for (int k = 0; k < CHAR_COUNT && fits; k++) {
+                int i = order[k];
+                if (bitmaps[i] == null) continue;
+                positions[i] = packer.insert(widths[i] + PADDING, heights[i] + PADDING);
+                fits = positions[i] >= 0;
+            }
+            if (fits) break;
+            side *= 2;
+        }
+
+        // Pixeles blancos con el alfa del glifo, para que el color de cada instancia lo tiña
+        atlas = ImageData.allocate(side, side);
+        ByteBuffer pixels = atlas.getPixels();
+        for (int y = 0; y < WHITE_SIZE; y++)
+            for (int x = 0; x < WHITE_SIZE; x++)
+                pixels.putInt(((SkylinePacker.y(white) + y) * side + SkylinePacker.x(white) + x) * ImageData.CHANNELS, -1);
+        whiteU = (SkylinePacker.x(white) + WHITE_SIZE / 2f) / side;
+        whiteV = (SkylinePacker.y(white) + WHITE_SIZE / 2f) / side;
+        for (int i = 0; i < CHAR_COUNT; i++) {
+            if (bitmaps[i] == null) continue;
+            int px = SkylinePacker.x(positions[i]), py = SkylinePacker.y(positions[i]);
+            for (int y = 0; y < heights[i]; y++) {
+                for (int x = 0; x < widths[i]; x++) {
+                    int offset = ((py + y) * side + px + x) * ImageData.CHANNELS;
+                    pixels.put(offset, (byte) 0xFF).put(offset + 1, (byte) 0xFF).put(offset + 2, (byte) 0xFF);
+                    pixels.put(offset + 3, bitmaps[i][y * widths[i] + x]);
+                }
+            }
+            u0[i] = (float) px / side;
+            v0[i] = (float) py / side;
+            u1[i] = (float) (px + widths[i]) / side;
+            v1[i] = (float) (py + heights[i]) / side;
+        }
+        // Sin '?' no habria reemplazo para los caracteres que faltan
+        present['?' - FIRST_CHAR] = true;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.punkipunk.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Abstraccion de las llamadas a OpenGL que utiliza el motor.
+ * <p>
+ * El renderizador nunca llama a las funciones estaticas de LWJGL directamente, sino a traves de esta interfaz. Esto permite
+ * reemplazar la GPU por una implementacion que solo registre las llamadas, y asi verificar el empaquetado de vertices, el
+ * seguimiento de rangos sucios y la cantidad de draw calls sin necesidad de un contexto OpenGL.
+ */
+
+public interface GLBackend {
+
+    int genVertexArrays();
+
+    void bindVertexArray(int vao);
+
+    void deleteVertexArrays(int vao);
+
+    int genBuffers();
+
+    void bindBuffer(int target, int buffer);
+
+    /**
+     * Reserva memoria para el buffer vinculado a {@code target} sin inicializarla.
+     */
+    void bufferData(int target, long size, int usage);
+
+    void bufferData(int target, FloatBuffer data, int usage);
+
+    void bufferData(int target, IntBuffer data, int usage);
+
+    /**
+     * Copia los elementos restantes de {@code data} (entre position y limit) al buffer vinculado a {@code target}, a partir de
+     * {@code offset} bytes.
+     */
+    void bufferSubData(int target, long offset, FloatBuffer data);
+
+    void bufferSubData(int target, long offset, ByteBuffer data);
+
+    void deleteBuffers(int buffer);
+
+    void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer);
+
+    void enableVertexAttribArray(int index);
+
+    void disableVertexAttribArray(int index);
+
+    /**
+     * Indica cada cuantas instancias avanza el atributo en un dibujo instanciado (0 para que avance por vertice).
+     */
+    void vertexAttribDivisor(int index, int divisor);
+
+    void drawElements(int mode, int count, int type, long indices);
+
+    /**
+     * Dibuja {@code instances} veces los mismos {@code count} indices en una sola llamada.
+     */
+    void drawElementsInstanced(int mode, int count, int type, long indices, int instances);
+
+    void clearColor(float r, float g, float b, float a);
+
+    void clear(int mask);
+
+    void enable(int capability);
+
+    void disable(int capability);
+
+    void blendFunc(int sfactor, int dfactor);
+
+    int genTextures();
+
+    void activeTexture(int unit);
+
+    void bindTexture(int target, int texture);
+
+    void deleteTextures(int texture);
+
+    /**
+     * @param pixels datos de la imagen, o null para reservar la memoria de la textura sin inicializarla
+     */
+    void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type, ByteBuffer pixels);
+
+    void texSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, ByteBuffer pixels);
+
+    void texParameteri(int target, int pname, int param);
+
+    /**
+     * Lee un rectangulo del framebuffer en {@code pixels}, empezando por la fila inferior como {@code glReadPixels}.
+     */
+    void readPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels);
+
+    String getString(int name);
+
+    int createShader(int type);
+
+    void shaderSource(int shader, CharSequence source);
+
+    void compileShader(int shader);
+
+    int getShaderi(int shader, int pname);
+
+    String getShaderInfoLog(int shader);
+
+    void deleteShader(int shader);
+
+    int createProgram();
+
+    void attachShader(int program, int shader);
+
+    void linkProgram(int program);
+
+    int getProgrami(int program, int pname);
+
+    String getProgramInfoLog(int program);
+
+    void deleteProgram(int program);
+
+    void useProgram(int program);
+
+    int getUniformLocation(int program, CharSequence name);
+
+    void uniform1i(int location, int value);
+
+    void uniform1f(int location, float x);
+
+    void uniform2f(int location, float x, float y);
+
+    void uniform3f(int location, float x, float y, float z);
+
+    void uniform4f(int location, float x, float y, float z, float w);
+
+    void uniformMatrix4fv(int location, boolean transpose, FloatBuffer value);
+
+    /**
+     * @return indice del bloque de uniforms, o {@code GL_INVALID_INDEX} si el programa no lo usa
+     */
+    int getUniformBlockIndex(int program, CharSequence name);
+
+    void uniformBlockBinding(int program, int blockIndex, int binding);
+
+    /**
+     * Vincula el buffer a un punto de vinculacion indexado (y tambien al punto generico de {@code target}).
+     */
+    void bindBufferBase(int target, int index, int buffer);
+
+    /**
+     * @return true si el contexto permite leer y cargar programas ya vinculados (OpenGL 4.1 o ARB_get_program_binary)
+     */
+    boolean supportsProgramBinary();
+
+    void programParameteri(int program, int pname, int value);
+
+    /**
+     * Lee el binario del programa vinculado en {@code binary} (que debe tener al menos {@code GL_PROGRAM_BINARY_LENGTH} bytes
+     * restantes) y devuelve su formato en {@code format}.
+     */
+    void getProgramBinary(int program, IntBuffer format, ByteBuffer binary);
+
+    void programBinary(int program, int format, ByteBuffer binary);
+
+}
@@ -0,0 +1,538 @@
+package com.punkipunk.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+/**
+ * Cache central del estado de OpenGL.
+ * <p>
+ * Envuelve a otro {@link GLBackend} y recuerda el programa, el VAO, los buffers, las texturas por unidad, el blending y el
+ * color de limpieza vinculados actualmente, descartando las llamadas que no cambiarian nada. Como cada cambio de estado
+ * implica un viaje al driver, esto reduce el costo de CPU en equipos de gama baja sin que el resto del motor tenga que
+ * coordinar quien vinculo que. Cuenta las llamadas emitidas y las descartadas.
+ * <p>
+ * Supone que todo el codigo que toca el contexto pasa por esta instancia; si no es asi, hay que llamar a {@link #invalidate()}
+ * para que vuelva a emitir todo.
+ */
+
+public class GLState implements GLBackend {
+
+    private static final int UNKNOWN = -1;
+    private static final int MAX_TEXTURE_UNITS = 32;
+    private static final int MAX_UNIFORM_BINDINGS = 16;
+    private static final int[] TRACKED_CAPABILITIES = {GL_BLEND, GL_DEPTH_TEST, GL_CULL_FACE, GL_SCISSOR_TEST};
+
+    private final GLBackend gl;
+    private int program, vao, arrayBuffer, elementBuffer, uniformBuffer, activeTexture;
+    private final int[] textures = new int[MAX_TEXTURE_UNITS];
+    private final int[] uniformBindings = new int[MAX_UNIFORM_BINDINGS];
+    private final int[] capabilities = new int[TRACKED_CAPABILITIES.length];
+    private int blendSrc, blendDst;
+    private float clearR, clearG, clearB, clearA;
+    private boolean clearColorKnown;
+    private long issued, skipped;
+
+    public GLState(GLBackend gl) {
+        this.gl = gl;
+        invalidate();
+    }
+
+    /**
+     * @return estado compartido sobre el contexto OpenGL real
+     */
+    public static GLState get() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Olvida todo el estado conocido, de modo que la proxima llamada de cada tipo se emita.
+     */
+    public void invalidate() {
+        program = vao = arrayBuffer = elementBuffer = uniformBuffer = activeTexture = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        Arrays.fill(uniformBindings, UNKNOWN);
+        Arrays.fill(capabilities, UNKNOWN);
+        blendSrc = blendDst = UNKNOWN;
+        clearColorKnown = false;
+    }
+
+    public long getIssued() {
+        return issued;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void resetCounters() {
+        issued = skipped = 0;
+    }
+
+    public int getProgram() {
+        return program;
+    }
+
+    public int getVertexArray() {
+        return vao;
+    }
+
+    // ============================================================
+    // Llamadas filtradas
+    // ============================================================
+
+    @Override
+    public void useProgram(int program) {
+        if (this.program == program) {
+            skipped++;
+            return;
+        }
+        this.program = program;
+        issued++;
+        gl.useProgram(program);
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        if (this.vao == vao) {
+            skipped++;
+            return;
+        }
+        this.vao = vao;
+        // El EBO vinculado forma parte del estado del VAO
+        elementBuffer = UNKNOWN;
+        issued++;
+        gl.bindVertexArray(vao);
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        int current = switch (target) {
+            case GL_ARRAY_BUFFER -> arrayBuffer;
+            case GL_ELEMENT_ARRAY_BUFFER -> elementBuffer;
+            case GL_UNIFORM_BUFFER -> uniformBuffer;
+            default -> UNKNOWN;
+        };
+        if (current == buffer) {
+            skipped++;
+            return;
+        }
+        switch (target) {
+            case GL_ARRAY_BUFFER -> arrayBuffer = buffer;
+            case GL_ELEMENT_ARRAY_BUFFER -> elementBuffer = buffer;
+            case GL_UNIFORM_BUFFER -> uniformBuffer = buffer;
+        }
+        issued++;
+        gl.bindBuffer(target, buffer);
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        if (activeTexture == unit) {
+            skipped++;
+            return;
+        }
+        activeTexture = unit;
+        issued++;
+        gl.activeTexture(unit);
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        int unit = activeTexture == UNKNOWN ? UNKNOWN : activeTexture - GL_TEXTURE0;
+        boolean tracked = target == GL_TEXTURE_2D && unit >= 0 && unit < MAX_TEXTURE_UNITS;
+        if (tracked && textures[unit] == texture) {
+            skipped++;
+            return;
+        }
+        if (tracked) textures[unit] = texture;
+        issued++;
+        gl.bindTexture(target, texture);
+    }
+
+    @Override
+    public void enable(int capability) {
+        setCapability(capability, true);
+    }
+
+    @Override
+    public void disable(int capability) {
+        setCapability(capability, false);
+    }
+
+    @Override
+    public void blendFunc(int sfactor, int dfactor) {
+        if (blendSrc == sfactor && blendDst == dfactor) {
+            skipped++;
+            return;
+        }
+        blendSrc = sfactor;
+        blendDst = dfactor;
+        issued++;
+        gl.blendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        if (clearColorKnown && clearR == r && clearG == g && clearB == b && clearA == a) {
+            skipped++;
+            return;
+        }
+        clearR = r;
+        clearG = g;
+        clearB = b;
+        clearA = a;
+        clearColorKnown = true;
+        issued++;
+        gl.clearColor(r, g, b, a);
+    }
+
+    // ============================================================
+    // Llamadas que invalidan el estado conocido
+    // ============================================================
+
+    @Override
+    public void deleteVertexArrays(int vao) {
+        // Eliminar el VAO vinculado lo desvincula
+        if (this.vao == vao) this.vao = 0;
+        issued++;
+        gl.deleteVertexArrays(vao);
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+        if (arrayBuffer == buffer) arrayBuffer = 0;
+        if (elementBuffer == buffer) elementBuffer = 0;
+        if (uniformBuffer == buffer) uniformBuffer = 0;
+        for (int i = 0; i < uniformBindings.length; i++)
+            if (uniformBindings[i] == buffer) uniformBindings[i] = 0;
+        issued++;
+        gl.deleteBuffers(buffer);
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+        for (int i = 0; i < textures.length; i++)
+            if (textures[i] == texture) textures[i] = 0;
+        issued++;
+        gl.deleteTextures(texture);
+    }
+
+    // ============================================================
+    // Llamadas que siempre se emiten
+    // ============================================================
+
+    @Override
+    public int genVertexArrays() {
+        issued++;
+        return gl.genVertexArrays();
+    }
+
+    @Override
+    public int genBuffers() {
+        issued++;
+        return gl.genBuffers();
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        issued++;
+        gl.bufferData(target, size, usage);
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage) {
+        issued++;
+        gl.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage) {
+        issued++;
+        gl.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+        issued++;
+        gl.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        issued++;
+        gl.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        issued++;
+        gl.vertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        issued++;
+        gl.enableVertexAttribArray(index);
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+        issued++;
+        gl.disableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        issued++;
+        gl.vertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        issued++;
+        gl.drawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instances) {
+        issued++;
+        gl.drawElementsInstanced(mode, count, type, indices, instances);
+    }
+
+    @Override
+    public void clear(int mask) {
+        issued++;
+        gl.clear(mask);
+    }
+
+    @Override
+    public int genTextures() {
+        issued++;
+        return gl.genTextures();
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type, ByteBuffer pixels) {
+        issued++;
+        gl.texImage2D(target, level, internalFormat, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        issued++;
+        gl.texSubImage2D(target, level, x, y, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void texParameteri(int target, int pname, int param) {
+        issued++;
+        gl.texParameteri(target, pname, param);
+    }
+
+    @Override
+    public void readPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        issued++;
+        gl.readPixels(x, y, width, height, format, type, pixels);
+    }
+
+    @Override
+    public String getString(int name) {
+        issued++;
+        return gl.getString(name);
+    }
+
+    @Override
+    public int createShader(int type) {
+        issued++;
+        return gl.createShader(type);
+    }
+
+    @Override
+    public void shaderSource(int shader, CharSequence source) {
+        issued++;
+        gl.shaderSource(shader, source);
+    }
+
+    @Override
+    public void compileShader(int shader) {
+        issued++;
+        gl.compileShader(shader);
+    }
+
+    @Override
+    public int getShaderi(int shader, int pname) {
+        issued++;
+        return gl.getShaderi(shader, pname);
+    }
+
+    @Override
+    public String getShaderInfoLog(int shader) {
+        issued++;
+        return gl.getShaderInfoLog(shader);
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+        issued++;
+        gl.deleteShader(shader);
+    }
+
+    @Override
+    public int createProgram() {
+        issued++;
+        return gl.createProgram();
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+        issued++;
+        gl.attachShader(program, shader);
+    }
+
+    @Override
+    public void linkProgram(int program) {
+        issued++;
+        gl.linkProgram(program);
+    }
+
+    @Override
+    public int getProgrami(int program, int pname) {
+        issued++;
+        return gl.getProgrami(program, pname);
+    }
+
+    @Override
+    public String getProgramInfoLog(int program) {
+        issued++;
+        return gl.getProgramInfoLog(program);
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        issued++;
+        gl.deleteProgram(program);
+    }
+
+    @Override
+    public int getUniformLocation(int program, CharSequence name) {
+        issued++;
+        return gl.getUniformLocation(program, name);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        issued++;
+        gl.uniform1i(location, value);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        issued++;
+        gl.uniform1f(location, x);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        issued++;
+        gl.uniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        issued++;
+        gl.uniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        issued++;
+        gl.uniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, FloatBuffer value) {
+        issued++;
+        gl.uniformMatrix4fv(location, transpose, value);
+    }
+
+    @Override
+    public int getUniformBlockIndex(int program, CharSequence name) {
+        issued++;
+        return gl.getUniformBlockIndex(program, name);
+    }
+
+    @Override
+    public void uniformBlockBinding(int program, int blockIndex, int binding) {
+        issued++;
+        gl.uniformBlockBinding(program, blockIndex, binding);
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+        if (target == GL_UNIFORM_BUFFER && index < uniformBindings.length) {
+            if (uniformBindings[index] == buffer) {
+                skipped++;
+                return;
+            }
+            uniformBindings[index] = buffer;
+            uniformBuffer = buffer;
+        }
+        issued++;
+        gl.bindBufferBase(target, index, buffer);
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        return gl.supportsProgramBinary();
+    }
+
+    @Override
+    public void programParameteri(int program, int pname, int value) {
+        issued++;
+        gl.programParameteri(program, pname, value);
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+        issued++;
+        gl.getProgramBinary(program, format, binary);
+    }
+
+    @Override
+    public void programBinary(int program, int format, ByteBuffer binary) {
+        issued++;
+        gl.programBinary(program, format, binary);
+    }
+
+    private void setCapability(int capability, boolean enabled) {
+        int index = -1;
+        for (int i = 0; i < TRACKED_CAPABILITIES.length; i++) {
+            if (TRACKED_CAPABILITIES[i] == capability) {
+                index = i;
+                break;
+            }
+        }
+        int state = enabled ? 1 : 0;
+        if (index >= 0 && capabilities[index] == state) {
+            skipped++;
+            return;
+        }
+        if (index >= 0) capabilities[index] = state;
+        issued++;
+        if (enabled) gl.enable(capability);
+        else gl.disable(capability);
+    }
+
+    private static class SingletonHolder {
+        private static final GLState INSTANCE = new GLState(OpenGLBackend.get());
+    }
+
+}
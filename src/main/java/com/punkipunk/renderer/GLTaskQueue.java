@@ -0,0 +1,72 @@
+package com.punkipunk.renderer;
+
+import java.util.ArrayDeque;
+
+/**
+ * Cola de trabajos que necesitan el contexto OpenGL (crear buffers, subir vertices, compilar shaders) y que se reparten entre
+ * varios frames.
+ * <p>
+ * {@link #process(long)} ejecuta trabajos en orden hasta agotar un presupuesto de tiempo, de modo que preparar una escena
+ * pesada no congela el frame actual. Siempre se ejecuta al menos un trabajo por llamada para que la cola avance aunque uno solo
+ * supere el presupuesto; por eso conviene dividir el trabajo en pasos cortos. Solo debe usarse desde el hilo de OpenGL.
+ */
+
+public class GLTaskQueue {
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private int total, completed;
+
+    public void add(Runnable task) {
+        tasks.add(task);
+        total++;
+    }
+
+    /**
+     * Ejecuta trabajos hasta vaciar la cola o superar el presupuesto.
+     *
+     * @param budgetNanos tiempo maximo (aproximado) a consumir
+     * @return cantidad de trabajos ejecutados
+     */
+    public int process(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int executed = 0;
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+            completed++;
+            executed++;
+            if (System.nanoTime() >= deadline) break;
+        }
+        return executed;
+    }
+
+    /**
+     * Ejecuta todos los trabajos pendientes sin limite de tiempo.
+     */
+    public void flush() {
+        process(Long.MAX_VALUE / 2);
+    }
+
+    /**
+     * Descarta los trabajos pendientes y reinicia el progreso.
+     */
+    public void clear() {
+        tasks.clear();
+        total = completed = 0;
+    }
+
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * @return fraccion de los trabajos agregados desde el ultimo {@link #clear()} que ya se ejecutaron (1 si no hubo ninguno)
+     */
+    public float getProgress() {
+        return total == 0 ? 1 : (float) completed / total;
+    }
+
+}
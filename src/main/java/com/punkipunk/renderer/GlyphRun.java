@@ -0,0 +1,103 @@
+package com.punkipunk.renderer;
+
+import java.util.Arrays;
+
+/**
+ * Texto ya distribuido con una {@link Font}: la caja y la region del atlas de cada glifo visible, en pixeles del tamaño
+ * horneado, con el origen en la linea base de la primera linea y las lineas siguientes hacia abajo.
+ * <p>
+ * Los arreglos solo crecen, por lo que volver a distribuir otro texto de largo parecido en la misma instancia no reserva
+ * memoria. Las instancias pertenecen a un {@link TextCache}.
+ */
+
+public final class GlyphRun {
+
+    // x0, y0, x1, y1, u0, v0, u1, v1 de cada glifo
+    static final int FLOATS_PER_GLYPH = 8;
+
+    private final StringBuilder text = new StringBuilder();
+    private float[] glyphs = new float[16 * FLOATS_PER_GLYPH];
+    private int count, lines;
+    private float width;
+
+    GlyphRun() {
+
+    }
+
+    void layout(Font font, CharSequence source) {
+        text.setLength(0);
+        text.append(source);
+        count = 0;
+        lines = 1;
+        width = 0;
+        float x = 0, y = 0;
+        char previous = 0;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\n') {
+                width = Math.max(width, x);
+                x = 0;
+                y -= font.getLineHeight();
+                lines++;
+                previous = 0;
+                continue;
+            }
+            c = font.glyph(c);
+            x += font.kerning(previous, c);
+            // Los espacios avanzan sin generar un quad
+            if (font.glyphX1(c) > font.glyphX0(c)) {
+                if ((count + 1) * FLOATS_PER_GLYPH > glyphs.length) glyphs = Arrays.copyOf(glyphs, glyphs.length * 2);
+                int offset = count * FLOATS_PER_GLYPH;
+                glyphs[offset] = x + font.glyphX0(c);
+                glyphs[offset + 1] = y + font.glyphY0(c);
+                glyphs[offset + 2] = x + font.glyphX1(c);
+                glyphs[offset + 3] = y + font.glyphY1(c);
+                glyphs[offset + 4] = font.glyphU0(c);
+                glyphs[offset + 5] = font.glyphV0(c);
+                glyphs[offset + 6] = font.glyphU1(c);
+                glyphs[offset + 7] = font.glyphV1(c);
+                count++;
+            }
+            x += font.getAdvance(c);
+            previous = c;
+        }
+        width = Math.max(width, x);
+    }
+
+    /**
+     * @return true si el texto distribuido es igual a {@code other}
+     */
+    boolean matches(CharSequence other) {
+        if (text.length() != other.length()) return false;
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) != other.charAt(i)) return false;
+        return true;
+    }
+
+    float[] glyphs() {
+        return glyphs;
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * @return glifos visibles (sin contar espacios ni saltos de linea)
+     */
+    public int getGlyphCount() {
+        return count;
+    }
+
+    /**
+     * @return ancho de la linea mas larga, en pixeles del tamaño horneado
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    public int getLineCount() {
+        return lines;
+    }
+
+}
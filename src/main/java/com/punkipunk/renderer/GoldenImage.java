@@ -0,0 +1,103 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.MemoryArena;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+
+/**
+ * Captura del framebuffer y comparacion con imagenes de referencia ("golden images") para detectar regresiones del render.
+ * <p>
+ * La comparacion es por canal con una tolerancia, ya que distintos backends (o drivers) pueden redondear los colores de forma
+ * ligeramente distinta.
+ */
+
+public final class GoldenImage {
+
+    private GoldenImage() {
+    }
+
+    /**
+     * Lee el framebuffer completo con {@link GLBackend#readPixels} y lo devuelve con la fila 0 arriba.
+     */
+    public static BufferedImage capture(GLBackend gl, int width, int height) {
+        MemoryArena arena = MemoryArena.get();
+        long mark = arena.mark();
+        ByteBuffer pixels = arena.bytes(width * height * 4);
+        gl.readPixels(0, 0, width, height, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = (y * width + x) * 4;
+                row[x] = (pixels.get(i + 3) & 0xFF) << 24 | (pixels.get(i) & 0xFF) << 16 | (pixels.get(i + 1) & 0xFF) << 8 | pixels.get(i + 2) & 0xFF;
+            }
+            // OpenGL devuelve primero la fila inferior
+            image.setRGB(0, height - 1 - y, width, 1, row, 0, width);
+        }
+        arena.reset(mark);
+        return image;
+    }
+
+    /**
+     * Compara dos imagenes pixel a pixel.
+     *
+     * @param tolerance diferencia maxima aceptada por canal (0 a 255)
+     */
+    public static Comparison compare(BufferedImage actual, BufferedImage expected, int tolerance) {
+        if (actual.getWidth() != expected.getWidth() || actual.getHeight() != expected.getHeight())
+            return new Comparison(actual.getWidth() * actual.getHeight(), 255, null);
+
+        int width = actual.getWidth(), height = actual.getHeight();
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int mismatched = 0, maxDifference = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int a = actual.getRGB(x, y), b = expected.getRGB(x, y);
+                int difference = 0;
+                for (int shift = 0; shift < 32; shift += 8)
+                    difference = Math.max(difference, Math.abs((a >>> shift & 0xFF) - (b >>> shift & 0xFF)));
+                maxDifference = Math.max(maxDifference, difference);
+                // En la imagen de diferencias los pixeles distintos se marcan en rojo sobre la imagen esperada atenuada
+                if (difference > tolerance) {
+                    mismatched++;
+                    diff.setRGB(x, y, 0xFFFF0000);
+                } else diff.setRGB(x, y, 0xFF000000 | (b >> 2 & 0x3F3F3F));
+            }
+        }
+        return new Comparison(mismatched, maxDifference, diff);
+    }
+
+    public static BufferedImage read(Path path) throws IOException {
+        BufferedImage image = ImageIO.read(path.toFile());
+        if (image == null) throw new IOException("The '" + path + "' image could not be read!");
+        return image;
+    }
+
+    public static void write(BufferedImage image, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        ImageIO.write(image, "png", path.toFile());
+    }
+
+    /**
+     * @param mismatched    pixeles con alguna diferencia mayor a la tolerancia
+     * @param maxDifference diferencia maxima encontrada en un canal
+     * @param diff          imagen con los pixeles distintos marcados, o null si los tamaños no coinciden
+     */
+    public record Comparison(int mismatched, int maxDifference, BufferedImage diff) {
+
+        public boolean matches() {
+            return mismatched == 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.BufferPool;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.stb.STBImage.stbi_image_free;
+
+/**
+ * Imagen decodificada en memoria fuera del heap con pixeles RGBA de 8 bits, fila por fila desde la esquina superior izquierda.
+ */
+
+public class ImageData {
+
+    public static final int CHANNELS = 4;
+
+    private final int width;
+    private final int height;
+    private ByteBuffer pixels;
+    // true si los pixeles fueron reservados por STB y deben liberarse con stbi_image_free
+    private final boolean stbOwned;
+    // true si los pixeles pertenecen al BufferPool
+    private final boolean pooled;
+
+    public ImageData(int width, int height, ByteBuffer pixels, boolean stbOwned) {
+        this(width, height, pixels, stbOwned, false);
+    }
+
+    private ImageData(int width, int height, ByteBuffer pixels, boolean stbOwned, boolean pooled) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.stbOwned = stbOwned;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Crea una imagen transparente, con los pixeles en el {@link BufferPool} hasta que se llame a {@link #free()}.
+     */
+    public static ImageData allocate(int width, int height) {
+        return new ImageData(width, height, BufferPool.get().callocate(width * height * CHANNELS), false, true);
+    }
+
+    /**
+     * Copia esta imagen dentro de {@code target} con su esquina superior izquierda en (x, y).
+     */
+    public void copyTo(ImageData target, int x, int y) {
+        int rowBytes = width * CHANNELS;
+        ByteBuffer src = pixels.duplicate();
+        ByteBuffer dst = target.pixels.duplicate();
+        for (int row = 0; row < height; row++) {
+            src.limit((row + 1) * rowBytes).position(row * rowBytes);
+            dst.position(((y + row) * target.width + x) * CHANNELS);
+            dst.put(src);
+        }
+    }
+
+    public void free() {
+        if (pixels == null) return;
+        if (stbOwned) stbi_image_free(pixels);
+        else if (pooled) BufferPool.get().free(pixels);
+        pixels = null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    public int getSizeBytes() {
+        return width * height * CHANNELS;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.BufferPool;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Datos por instancia de los sprites que dibuja el {@link InstancedRenderer}, empaquetados fuera del heap con el mismo formato
+ * que el VBO de instancias, por lo que se suben a la GPU con una sola copia.
+ * <p>
+ * Cada instancia ocupa {@link #INSTANCE_SIZE} bytes:
+ * <pre>
+ * float x, y            centro
+ * float width, height
+ * float rotation        radianes, alrededor del centro
+ * float u0, v0, u1, v1  region de la textura, como en un {@link AtlasRegion}
+ * byte  r, g, b, a      color normalizado
+ * </pre>
+ * Son 40 bytes por sprite en lugar de los 160 de los cuatro vertices de un {@link RenderBatch}. Los valores se escriben
+ * directamente en la direccion del buffer con {@link MemoryUtil}, sin comprobar limites ni mover la posicion de un
+ * {@link ByteBuffer}; {@link #set} escribe en un indice absoluto, por lo que varios hilos pueden llenar rangos distintos despues
+ * de un {@link #resize(int)}. La instancia no se libera sola: hay que llamar a {@link #dispose()}.
+ */
+
+public class InstanceBuffer {
+
+    public static final int INSTANCE_SIZE = 40;
+    static final int RECT_OFFSET = 0;
+    static final int ROTATION_OFFSET = 16;
+    static final int REGION_OFFSET = 20;
+    static final int COLOR_OFFSET = 36;
+
+    private ByteBuffer data;
+    private long address;
+    private int capacity, size;
+
+    public InstanceBuffer(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        data = BufferPool.get().allocate(this.capacity * INSTANCE_SIZE);
+        address = MemoryUtil.memAddress(data);
+    }
+
+    /**
+     * Agrega una instancia sin textura.
+     *
+     * @return indice de la instancia
+     */
+    public int add(float x, float y, float width, float height, float rotation, int color) {
+        return add(x, y, width, height, rotation, color, 0, 0, 1, 1);
+    }
+
+    /**
+     * Agrega una instancia, haciendo crecer el buffer si esta lleno.
+     *
+     * @param color color empaquetado con {@link #color(float, float, float, float)}
+     * @return indice de la instancia
+     */
+    public int add(float x, float y, float width, float height, float rotation, int color, float u0, float v0, float u1, float v1) {
+        if (size == capacity) reserve(capacity * 2);
+        int index = size++;
+        set(index, x, y, width, height, rotation, color, u0, v0, u1, v1);
+        return index;
+    }
+
+    /**
+     * Escribe la instancia {@code index}, que debe ser menor que {@link #size()}.
+     */
+    public void set(int index, float x, float y, float width, float height, float rotation, int color, float u0, float v0,
+                    float u1, float v1) {
+        assert index >= 0 && index < size : "The instance " + index + " is out of range!";
+        long offset = address + (long) index * INSTANCE_SIZE;
+        MemoryUtil.memPutFloat(offset, x);
+        MemoryUtil.memPutFloat(offset + 4, y);
+        MemoryUtil.memPutFloat(offset + 8, width);
+        MemoryUtil.memPutFloat(offset + 12, height);
+        MemoryUtil.memPutFloat(offset + ROTATION_OFFSET, rotation);
+        MemoryUtil.memPutFloat(offset + REGION_OFFSET, u0);
+        MemoryUtil.memPutFloat(offset + REGION_OFFSET + 4, v0);
+        MemoryUtil.memPutFloat(offset + REGION_OFFSET + 8, u1);
+        MemoryUtil.memPutFloat(offset + REGION_OFFSET + 12, v1);
+        MemoryUtil.memPutInt(offset + COLOR_OFFSET, color);
+    }
+
+    /**
+     * Copia la instancia {@code sourceIndex} de otro buffer a la posicion {@code index}, que debe ser menor que {@link #size()}.
+     */
+    public void copy(int index, InstanceBuffer source, int sourceIndex) {
+        assert index >= 0 && index < size && sourceIndex >= 0 && sourceIndex < source.size
+                : "The instance " + sourceIndex + " cannot be copied to " + index + "!";
+        MemoryUtil.memCopy(source.address + (long) sourceIndex * INSTANCE_SIZE, address + (long) index * INSTANCE_SIZE,
+                INSTANCE_SIZE);
+    }
+
+    /**
+     * Cambia la cantidad de instancias, reservando lugar si hace falta. Las instancias nuevas quedan sin inicializar y deben
+     * escribirse con {@link #set}.
+     */
+    public void resize(int size) {
+        if (size > capacity) reserve(Math.max(size, capacity * 2));
+        this.size = size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void dispose() {
+        if (data != null) BufferPool.get().free(data);
+        data = null;
+        address = 0;
+        capacity = size = 0;
+    }
+
+    /**
+     * Empaqueta un color en el formato del buffer: un byte por canal en el orden r, g, b, a de la memoria (todas las plataformas
+     * que soporta LWJGL son little-endian).
+     */
+    public static int color(float r, float g, float b, float a) {
+        return channel(a) << 24 | channel(b) << 16 | channel(g) << 8 | channel(r);
+    }
+
+    /**
+     * @return vista de las instancias escritas, lista para subir a la GPU
+     */
+    ByteBuffer data() {
+        return data.limit(size * INSTANCE_SIZE).position(0);
+    }
+
+    private void reserve(int capacity) {
+        data = BufferPool.get().reallocate(data, capacity * INSTANCE_SIZE);
+        address = MemoryUtil.memAddress(data);
+        this.capacity = capacity;
+    }
+
+    private static int channel(float value) {
+        return Math.round(Math.max(0, Math.min(1, value)) * 255);
+    }
+
+}
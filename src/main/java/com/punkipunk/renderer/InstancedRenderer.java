@@ -0,0 +1,167 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.Profiler;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Dibuja cualquier cantidad de sprites iguales salvo por posicion, tamaño, rotacion, color y region de textura con una sola
+ * llamada a {@code glDrawElementsInstanced}.
+ * <p>
+ * La geometria es un unico cuadrado (cuatro esquinas entre 0 y 1 y seis indices) que se comparte entre todas las instancias;
+ * los datos de cada sprite viven en un {@link InstanceBuffer} y se leen como atributos que avanzan por instancia. Se dibuja con
+ * {@code shaders/instancedVertex.glsl}, que calcula la posicion de cada esquina en la GPU, junto con el fragment shader de los
+ * sprites.
+ * <p>
+ * El VBO de instancias se reescribe entero en cada frame. Para no esperar a que la GPU termine de leer el contenido del frame
+ * anterior, antes de copiar los datos se le vuelve a asignar almacenamiento con {@code glBufferData} ("orphaning"): el driver
+ * entrega un bloque nuevo y libera el viejo cuando la GPU deja de usarlo.
+ */
+
+public class InstancedRenderer {
+
+    static final String SAMPLER_NAME = "uTextures[0]";
+    static final String TEX_ID_NAME = "uTexId";
+    // Esquinas en el mismo orden que el patron de indices del Renderer
+    private static final float[] CORNERS = {1, 0, 0, 1, 1, 1, 0, 0};
+
+    private final GLBackend gl;
+    private int vaoID, cornerVboID, eboID, instanceVboID;
+    private long instanceCapacity;
+    // Primera instancia a la que apuntan los atributos de instancia
+    private int baseInstance;
+    private int drawCalls;
+    private long bytesUploaded;
+
+    public InstancedRenderer(GLBackend gl) {
+        this.gl = gl;
+    }
+
+    /**
+     * Crea el VAO con el cuadrado compartido y el VBO de instancias, y configura los atributos una sola vez.
+     */
+    public void start() {
+        vaoID = gl.genVertexArrays();
+        gl.bindVertexArray(vaoID);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer corners = stack.floats(CORNERS);
+            cornerVboID = gl.genBuffers();
+            gl.bindBuffer(GL_ARRAY_BUFFER, cornerVboID);
+            gl.bufferData(GL_ARRAY_BUFFER, corners, GL_STATIC_DRAW);
+            gl.vertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
+            gl.enableVertexAttribArray(0);
+
+            IntBuffer indices = stack.ints(Renderer.generateIndices(1));
+            eboID = gl.genBuffers();
+            gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+            gl.bufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        }
+
+        instanceVboID = gl.genBuffers();
+        gl.bindBuffer(GL_ARRAY_BUFFER, instanceVboID);
+        pointInstances(0);
+        for (int index = 1; index <= 4; index++) {
+            gl.enableVertexAttribArray(index);
+            gl.vertexAttribDivisor(index, 1);
+        }
+        baseInstance = 0;
+
+        gl.bindVertexArray(0);
+    }
+
+    /**
+     * Sube las instancias y las dibuja con una sola draw call. El shader debe estar en uso.
+     *
+     * @param texture textura de la que toman su region las instancias, o null para dibujarlas sin textura
+     */
+    public void render(Shader shader, Texture texture, InstanceBuffer instances) {
+        drawCalls = 0;
+        upload(instances);
+        int count = instances.size();
+        if (count == 0) return;
+
+        if (texture != null) {
+            shader.uploadInt(SAMPLER_NAME, 0);
+            texture.bind(0);
+        }
+        shader.uploadInt(TEX_ID_NAME, texture != null ? 1 : 0);
+
+        draw(0, count);
+        drawCalls = 1;
+        Profiler.get().count(Profiler.DRAW_CALLS, drawCalls);
+    }
+
+    /**
+     * Sube las instancias sin dibujarlas, para dibujarlas despues por tramos con {@link #draw(int, int)}.
+     */
+    public void upload(InstanceBuffer instances) {
+        if (vaoID == 0) start();
+        bytesUploaded = 0;
+        if (instances.size() == 0) return;
+
+        ByteBuffer data = instances.data();
+        gl.bindBuffer(GL_ARRAY_BUFFER, instanceVboID);
+        // El almacenamiento solo crece, para que el driver pueda reciclar los bloques huerfanos del mismo tamaño
+        if (data.remaining() > instanceCapacity) instanceCapacity = Math.max(data.remaining(), instanceCapacity * 2);
+        gl.bufferData(GL_ARRAY_BUFFER, instanceCapacity, GL_STREAM_DRAW);
+        gl.bufferSubData(GL_ARRAY_BUFFER, 0, data);
+        bytesUploaded = data.remaining();
+    }
+
+    /**
+     * Dibuja con una draw call las instancias {@code [first, first + count)} de las ultimas subidas. El shader debe estar en uso,
+     * con sus uniforms de textura cargados y la textura vinculada. La draw call no se cuenta en el {@link Profiler}.
+     */
+    public void draw(int first, int count) {
+        gl.bindVertexArray(vaoID);
+        if (first != baseInstance) {
+            // OpenGL 3.3 no tiene glDrawElementsInstancedBaseInstance: se corre el comienzo de los atributos de instancia
+            gl.bindBuffer(GL_ARRAY_BUFFER, instanceVboID);
+            pointInstances((long) first * InstanceBuffer.INSTANCE_SIZE);
+            baseInstance = first;
+        }
+        gl.drawElementsInstanced(GL_TRIANGLES, RenderBatch.INDICES_PER_QUAD, GL_UNSIGNED_INT, 0, count);
+    }
+
+    public void dispose() {
+        if (instanceVboID != 0) gl.deleteBuffers(instanceVboID);
+        if (cornerVboID != 0) gl.deleteBuffers(cornerVboID);
+        if (eboID != 0) gl.deleteBuffers(eboID);
+        if (vaoID != 0) gl.deleteVertexArrays(vaoID);
+        vaoID = cornerVboID = eboID = instanceVboID = 0;
+        instanceCapacity = 0;
+    }
+
+    /**
+     * @return draw calls emitidas en el ultimo render (0 o 1)
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * @return bytes de instancias subidos en el ultimo render
+     */
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    /**
+     * Apunta los atributos de instancia del VAO vinculado al VBO de instancias, empezando en el byte {@code base}.
+     */
+    private void pointInstances(long base) {
+        int stride = InstanceBuffer.INSTANCE_SIZE;
+        gl.vertexAttribPointer(1, 4, GL_FLOAT, false, stride, base + InstanceBuffer.RECT_OFFSET);
+        gl.vertexAttribPointer(2, 1, GL_FLOAT, false, stride, base + InstanceBuffer.ROTATION_OFFSET);
+        gl.vertexAttribPointer(3, 4, GL_UNSIGNED_BYTE, true, stride, base + InstanceBuffer.COLOR_OFFSET);
+        gl.vertexAttribPointer(4, 4, GL_FLOAT, false, stride, base + InstanceBuffer.REGION_OFFSET);
+    }
+
+}
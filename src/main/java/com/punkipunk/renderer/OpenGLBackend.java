@@ -0,0 +1,331 @@
+package com.punkipunk.renderer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL41.*;
+
+/**
+ * Implementacion de {@link GLBackend} que delega cada llamada en los bindings de LWJGL. Requiere que el contexto OpenGL sea
+ * actual en el hilo que la utiliza.
+ */
+
+public class OpenGLBackend implements GLBackend {
+
+    private OpenGLBackend() {
+
+    }
+
+    public static OpenGLBackend get() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    @Override
+    public int genVertexArrays() {
+        return glGenVertexArrays();
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        glBindVertexArray(vao);
+    }
+
+    @Override
+    public void deleteVertexArrays(int vao) {
+        glDeleteVertexArrays(vao);
+    }
+
+    @Override
+    public int genBuffers() {
+        return glGenBuffers();
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        glBufferData(target, size, usage);
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage) {
+        glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage) {
+        glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+        glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+        glDeleteBuffers(buffer);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+        glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instances) {
+        glDrawElementsInstanced(mode, count, type, indices, instances);
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        glClearColor(r, g, b, a);
+    }
+
+    @Override
+    public void clear(int mask) {
+        glClear(mask);
+    }
+
+    @Override
+    public void enable(int capability) {
+        glEnable(capability);
+    }
+
+    @Override
+    public void disable(int capability) {
+        glDisable(capability);
+    }
+
+    @Override
+    public void blendFunc(int sfactor, int dfactor) {
+        glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public int genTextures() {
+        return glGenTextures();
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        glActiveTexture(unit);
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        glBindTexture(target, texture);
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+        glDeleteTextures(texture);
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type, ByteBuffer pixels) {
+        glTexImage2D(target, level, internalFormat, width, height, 0, format, type, pixels);
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        glTexSubImage2D(target, level, x, y, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void texParameteri(int target, int pname, int param) {
+        glTexParameteri(target, pname, param);
+    }
+
+    @Override
+    public void readPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        glReadPixels(x, y, width, height, format, type, pixels);
+    }
+
+    @Override
+    public String getString(int name) {
+        return glGetString(name);
+    }
+
+    @Override
+    public int createShader(int type) {
+        return glCreateShader(type);
+    }
+
+    @Override
+    public void shaderSource(int shader, CharSequence source) {
+        glShaderSource(shader, source);
+    }
+
+    @Override
+    public void compileShader(int shader) {
+        glCompileShader(shader);
+    }
+
+    @Override
+    public int getShaderi(int shader, int pname) {
+        return glGetShaderi(shader, pname);
+    }
+
+    @Override
+    public String getShaderInfoLog(int shader) {
+        return glGetShaderInfoLog(shader, glGetShaderi(shader, GL_INFO_LOG_LENGTH));
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+        glDeleteShader(shader);
+    }
+
+    @Override
+    public int createProgram() {
+        return glCreateProgram();
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+        glAttachShader(program, shader);
+    }
+
+    @Override
+    public void linkProgram(int program) {
+        glLinkProgram(program);
+    }
+
+    @Override
+    public int getProgrami(int program, int pname) {
+        return glGetProgrami(program, pname);
+    }
+
+    @Override
+    public String getProgramInfoLog(int program) {
+        return glGetProgramInfoLog(program, glGetProgrami(program, GL_INFO_LOG_LENGTH));
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        glDeleteProgram(program);
+    }
+
+    @Override
+    public void useProgram(int program) {
+        glUseProgram(program);
+    }
+
+    @Override
+    public int getUniformLocation(int program, CharSequence name) {
+        return glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        glUniform1f(location, x);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, FloatBuffer value) {
+        glUniformMatrix4fv(location, transpose, value);
+    }
+
+    @Override
+    public int getUniformBlockIndex(int program, CharSequence name) {
+        return glGetUniformBlockIndex(program, name);
+    }
+
+    @Override
+    public void uniformBlockBinding(int program, int blockIndex, int binding) {
+        glUniformBlockBinding(program, blockIndex, binding);
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+        glBindBufferBase(target, index, buffer);
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        GLCapabilities caps = GL.getCapabilities();
+        return (caps.OpenGL41 || caps.GL_ARB_get_program_binary) && glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+    }
+
+    @Override
+    public void programParameteri(int program, int pname, int value) {
+        glProgramParameteri(program, pname, value);
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+        glGetProgramBinary(program, null, format, binary);
+    }
+
+    @Override
+    public void programBinary(int program, int format, ByteBuffer binary) {
+        glProgramBinary(program, format, binary);
+    }
+
+    private static class SingletonHolder {
+        private static final OpenGLBackend INSTANCE = new OpenGLBackend();
+    }
+
+}
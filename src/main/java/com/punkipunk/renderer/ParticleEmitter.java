@@ -0,0 +1,303 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.JobSystem;
+
+import java.util.SplittableRandom;
+
+/**
+ * Emisor de particulas con una capacidad fija.
+ * <p>
+ * Las particulas se guardan como estructura de arreglos: un arreglo primitivo por campo, todos reservados al crear el emisor.
+ * Las vivas ocupan siempre los indices {@code [0, count)}; cuando una muere, la ultima se copia en su lugar, por lo que emitir
+ * y morir no crean objetos ni dejan huecos. Si el emisor esta lleno, las particulas nuevas se descartan.
+ * <p>
+ * La integracion es un recorrido sin ramas sobre arreglos alineados, que el compilador JIT puede vectorizar, y con un
+ * {@link JobSystem} se reparte en bloques entre los hilos. La eliminacion de las muertas se hace despues, en un recorrido
+ * secuencial que solo lee las edades. El tamaño y el color se interpolan entre los valores iniciales y finales del emisor segun
+ * la fraccion de vida transcurrida, al empaquetar las particulas en un {@link InstanceBuffer}.
+ * <p>
+ * La emision usa un generador con semilla, de modo que la misma secuencia de llamadas produce siempre las mismas particulas.
+ */
+
+public class ParticleEmitter {
+
+    // Particulas por bloque de los recorridos en paralelo
+    private static final int GRAIN = 16384;
+
+    private final int capacity;
+    private final float[] x, y, vx, vy, rotation, spin, age, lifetime;
+    private final SplittableRandom random;
+    private int count;
+    private float pending;
+    private long dropped;
+
+    private float originX, originY, radius;
+    private float rate;
+    private float direction, spread = (float) Math.PI;
+    private float minSpeed, maxSpeed;
+    private float minLifetime = 1, maxLifetime = 1;
+    private float minSpin, maxSpin;
+    private float gravityX, gravityY, drag;
+    private float startSize = 1, endSize = 1;
+    private final float[] startColor = {1, 1, 1, 1}, endColor = {1, 1, 1, 1};
+    private float u0, v0, u1 = 1, v1 = 1;
+
+    public ParticleEmitter(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * @param seed semilla del generador de la emision
+     */
+    public ParticleEmitter(int capacity, long seed) {
+        assert capacity > 0 : "The capacity must be positive";
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        rotation = new float[capacity];
+        spin = new float[capacity];
+        age = new float[capacity];
+        lifetime = new float[capacity];
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Avanza las particulas, elimina las que cumplieron su vida y emite las que corresponden al {@link #setRate(float) ritmo}
+     * del emisor.
+     *
+     * @param jobs planificador con el que se reparte la integracion, o null para hacerla en el hilo actual
+     */
+    public void update(float dt, JobSystem jobs) {
+        // El rozamiento se aplica como un factor por paso, para que el recorrido no tenga ramas
+        float damping = Math.max(0, 1 - drag * dt);
+        float dvx = gravityX * dt, dvy = gravityY * dt;
+        if (jobs != null) jobs.parallelFor(count, GRAIN, (start, end) -> integrate(dt, damping, dvx, dvy, start, end));
+        else integrate(dt, damping, dvx, dvy, 0, count);
+        removeDead();
+
+        pending += rate * dt;
+        int emitted = (int) pending;
+        pending -= emitted;
+        emit(emitted);
+    }
+
+    /**
+     * Emite {@code amount} particulas desde el origen del emisor, o las que entren si se llena.
+     */
+    public void emit(int amount) {
+        int free = capacity - count;
+        if (amount > free) {
+            dropped += amount - free;
+            amount = free;
+        }
+        for (int n = 0; n < amount; n++) {
+            int i = count++;
+            // Punto uniforme dentro del circulo de radio radius
+            float distance = radius * (float) Math.sqrt(random.nextDouble());
+            float angle = (float) (random.nextDouble() * 2 * Math.PI);
+            x[i] = originX + distance * (float) Math.cos(angle);
+            y[i] = originY + distance * (float) Math.sin(angle);
+            float heading = direction + spread * (float) (random.nextDouble() * 2 - 1);
+            float speed = between(minSpeed, maxSpeed);
+            vx[i] = speed * (float) Math.cos(heading);
+            vy[i] = speed * (float) Math.sin(heading);
+            rotation[i] = (float) (random.nextDouble() * 2 * Math.PI);
+            spin[i] = between(minSpin, maxSpin);
+            age[i] = 0;
+            lifetime[i] = between(minLifetime, maxLifetime);
+        }
+    }
+
+    /**
+     * Escribe las particulas vivas en {@code instances}, a partir de la instancia {@code first}, que debe dejar lugar para
+     * {@link #getCount()} instancias.
+     *
+     * @param jobs planificador con el que se reparte el empaquetado, o null para hacerlo en el hilo actual
+     */
+    public void pack(InstanceBuffer instances, int first, JobSystem jobs) {
+        assert first + count <= instances.size() : "The instance buffer is too small!";
+        if (jobs != null) jobs.parallelFor(count, GRAIN, (start, end) -> pack(instances, first, start, end));
+        else pack(instances, first, 0, count);
+    }
+
+    /**
+     * Elimina todas las particulas.
+     */
+    public void clear() {
+        count = 0;
+        pending = 0;
+    }
+
+    public void setPosition(float x, float y) {
+        originX = x;
+        originY = y;
+    }
+
+    /**
+     * @param radius radio del circulo alrededor de la posicion en el que nacen las particulas
+     */
+    public void setRadius(float radius) {
+        this.radius = radius;
+    }
+
+    /**
+     * @param rate particulas por segundo que se emiten en cada {@link #update(float, JobSystem)} (0 para emitir solo con
+     *             {@link #emit(int)})
+     */
+    public void setRate(float rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @param direction angulo en radianes de la direccion de salida
+     * @param spread    desvio maximo en radianes a cada lado de la direccion (PI para salir en todas las direcciones)
+     */
+    public void setDirection(float direction, float spread) {
+        this.direction = direction;
+        this.spread = spread;
+    }
+
+    public void setSpeed(float min, float max) {
+        minSpeed = min;
+        maxSpeed = max;
+    }
+
+    /**
+     * @param min vida minima en segundos
+     * @param max vida maxima en segundos
+     */
+    public void setLifetime(float min, float max) {
+        assert min > 0 && max >= min : "The lifetime must be positive";
+        minLifetime = min;
+        maxLifetime = max;
+    }
+
+    /**
+     * @param min velocidad angular minima en radianes por segundo
+     * @param max velocidad angular maxima en radianes por segundo
+     */
+    public void setSpin(float min, float max) {
+        minSpin = min;
+        maxSpin = max;
+    }
+
+    /**
+     * Aceleracion constante, en unidades del mundo por segundo al cuadrado.
+     */
+    public void setGravity(float x, float y) {
+        gravityX = x;
+        gravityY = y;
+    }
+
+    /**
+     * @param drag fraccion de la velocidad que se pierde por segundo
+     */
+    public void setDrag(float drag) {
+        this.drag = drag;
+    }
+
+    public void setSize(float start, float end) {
+        startSize = start;
+        endSize = end;
+    }
+
+    public void setStartColor(float r, float g, float b, float a) {
+        startColor[0] = r;
+        startColor[1] = g;
+        startColor[2] = b;
+        startColor[3] = a;
+    }
+
+    public void setEndColor(float r, float g, float b, float a) {
+        endColor[0] = r;
+        endColor[1] = g;
+        endColor[2] = b;
+        endColor[3] = a;
+    }
+
+    /**
+     * @param region region de la textura del {@link ParticleSystem} que usan las particulas
+     */
+    public void setRegion(AtlasRegion region) {
+        u0 = region.u0();
+        v0 = region.v0();
+        u1 = region.u1();
+        v1 = region.v1();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return particulas descartadas desde la creacion del emisor porque estaba lleno
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    private void integrate(float dt, float damping, float dvx, float dvy, int start, int end) {
+        for (int i = start; i < end; i++) {
+            vx[i] = vx[i] * damping + dvx;
+            vy[i] = vy[i] * damping + dvy;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+            rotation[i] += spin[i] * dt;
+            age[i] += dt;
+        }
+    }
+
+    /**
+     * Reemplaza cada particula muerta por la ultima viva.
+     */
+    private void removeDead() {
+        int n = count;
+        for (int i = 0; i < n; ) {
+            if (age[i] < lifetime[i]) {
+                i++;
+                continue;
+            }
+            n--;
+            x[i] = x[n];
+            y[i] = y[n];
+            vx[i] = vx[n];
+            vy[i] = vy[n];
+            rotation[i] = rotation[n];
+            spin[i] = spin[n];
+            age[i] = age[n];
+            lifetime[i] = lifetime[n];
+        }
+        count = n;
+    }
+
+    private void pack(InstanceBuffer instances, int first, int start, int end) {
+        // Los colores se interpolan ya escalados a bytes; entre dos extremos en [0, 255] el resultado no necesita recortarse
+        float r0 = scaled(startColor[0]), g0 = scaled(startColor[1]), b0 = scaled(startColor[2]), a0 = scaled(startColor[3]);
+        float dr = scaled(endColor[0]) - r0, dg = scaled(endColor[1]) - g0, db = scaled(endColor[2]) - b0;
+        float da = scaled(endColor[3]) - a0;
+        float dSize = endSize - startSize;
+        for (int i = start; i < end; i++) {
+            float t = Math.min(1, age[i] / lifetime[i]);
+            float size = startSize + dSize * t;
+            // Redondea sumando 0.5 antes de truncar, igual que InstanceBuffer.color()
+            int color = (int) (a0 + da * t + 0.5f) << 24 | (int) (b0 + db * t + 0.5f) << 16 | (int) (g0 + dg * t + 0.5f) << 8
+                    | (int) (r0 + dr * t + 0.5f);
+            instances.set(first + i, x[i], y[i], size, size, rotation[i], color, u0, v0, u1, v1);
+        }
+    }
+
+    private static float scaled(float channel) {
+        return Math.max(0, Math.min(1, channel)) * 255;
+    }
+
+    private float between(float min, float max) {
+        return min + (max - min) * (float) random.nextDouble();
+    }
+
+}
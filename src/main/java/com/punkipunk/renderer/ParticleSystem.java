@@ -0,0 +1,105 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.JobSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conjunto de {@link ParticleEmitter}s que se dibujan juntos con el {@link InstancedRenderer}, en una sola draw call.
+ * <p>
+ * Sigue las fases del frame de una {@link com.punkipunk.jade.Scene}: {@link #update(float)} avanza los emisores,
+ * {@link #prepare()} empaqueta las particulas vivas en uno de dos {@link InstanceBuffer}s y {@link #render(Shader)} dibuja el
+ * otro, por lo que con el bucle en pipeline el render nunca lee particulas que la simulacion esta modificando. La escena debe
+ * llamar a {@link #swap()} desde su {@code swapFrameData()}. Todos los emisores comparten la textura; cada uno elige su region.
+ */
+
+public class ParticleSystem {
+
+    private final JobSystem jobs;
+    private final List<ParticleEmitter> emitters = new ArrayList<>();
+    private final InstanceBuffer[] instances = new InstanceBuffer[2];
+    private final InstancedRenderer renderer;
+    private Texture texture;
+    // Buffer que se esta llenando; el otro es el que se dibuja
+    private int recording;
+
+    /**
+     * @param jobs planificador con el que se reparten los emisores grandes, o null para hacer todo en el hilo actual
+     */
+    public ParticleSystem(GLBackend gl, JobSystem jobs) {
+        this.jobs = jobs;
+        renderer = new InstancedRenderer(gl);
+        instances[0] = new InstanceBuffer(1024);
+        instances[1] = new InstanceBuffer(1024);
+    }
+
+    public void add(ParticleEmitter emitter) {
+        emitters.add(emitter);
+    }
+
+    public void remove(ParticleEmitter emitter) {
+        emitters.remove(emitter);
+    }
+
+    /**
+     * @param texture textura de la que toman su region las particulas, o null para dibujarlas sin textura
+     */
+    public void setTexture(Texture texture) {
+        this.texture = texture;
+    }
+
+    public void update(float dt) {
+        for (int i = 0; i < emitters.size(); i++) emitters.get(i).update(dt, jobs);
+    }
+
+    /**
+     * Empaqueta las particulas vivas de todos los emisores, en orden de registro.
+     */
+    public void prepare() {
+        InstanceBuffer buffer = instances[recording];
+        buffer.resize(getParticleCount());
+        int first = 0;
+        for (int i = 0; i < emitters.size(); i++) {
+            ParticleEmitter emitter = emitters.get(i);
+            emitter.pack(buffer, first, jobs);
+            first += emitter.getCount();
+        }
+    }
+
+    /**
+     * Entrega al render las particulas empaquetadas por el ultimo {@link #prepare()}.
+     */
+    public void swap() {
+        recording ^= 1;
+    }
+
+    /**
+     * Dibuja las particulas enviadas con {@link #swap()}. Se llama en el hilo de OpenGL, con el shader de instancias en uso.
+     */
+    public void render(Shader shader) {
+        renderer.render(shader, texture, instances[recording ^ 1]);
+    }
+
+    public void dispose() {
+        renderer.dispose();
+        for (InstanceBuffer buffer : instances) buffer.dispose();
+    }
+
+    /**
+     * @return particulas vivas en todos los emisores
+     */
+    public int getParticleCount() {
+        int count = 0;
+        for (int i = 0; i < emitters.size(); i++) count += emitters.get(i).getCount();
+        return count;
+    }
+
+    /**
+     * @return draw calls emitidas en el ultimo render (0 o 1)
+     */
+    public int getDrawCalls() {
+        return renderer.getDrawCalls();
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.punkipunk.renderer;
+
+/**
+ * Destino de las actualizaciones de cuadrados: el {@link Renderer} directamente, o una {@link RenderCommandList} que las
+ * aplica despues en el hilo de OpenGL.
+ */
+
+@FunctionalInterface
+public interface QuadWriter {
+
+    /**
+     * Actualiza la posicion y el color del cuadrado identificado por {@code handle}.
+     */
+    void set(int handle, float x, float y, float width, float height, float r, float g, float b, float a);
+
+}
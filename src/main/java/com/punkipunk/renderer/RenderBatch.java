@@ -0,0 +1,307 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.BufferPool;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Lote de cuadrados que comparten un unico VAO/VBO y se dibujan con una sola llamada a {@code glDrawElements}.
+ * <p>
+ * Cada vertice tiene posicion, color, coordenadas de textura y el indice de la textura dentro del lote (0 para los cuadrados sin
+ * textura, 1 a {@link #MAX_TEXTURES} para las texturas vinculadas a las unidades 0 a {@code MAX_TEXTURES - 1}). Cada unidad
+ * cuenta los cuadrados que usan su textura y se libera cuando la cuenta llega a cero. Con un atlas, todos los sprites de un lote
+ * comparten la misma textura.
+ * <p>
+ * Los vertices de todos los cuadrados se empaquetan en un {@code FloatBuffer} fuera del heap reservado una sola vez con la
+ * capacidad maxima del lote, que se libera explicitamente en {@link #dispose()} en lugar de esperar al GC. Cada modificacion
+ * marca un rango sucio (en cuadrados) y en {@link #render()} solo se sube a la GPU ese rango mediante {@code glBufferSubData}.
+ * Los indices no pertenecen al lote: se comparte el EBO estatico que crea el {@link Renderer}, ya que el patron de indices es
+ * siempre el mismo para cada cuadrado.
+ */
+
+public class RenderBatch {
+
+    public static final int POSITION_SIZE = 3;
+    public static final int COLOR_SIZE = 4;
+    public static final int TEX_COORDS_SIZE = 2;
+    public static final int TEX_ID_SIZE = 1;
+    public static final int VERTEX_SIZE = POSITION_SIZE + COLOR_SIZE + TEX_COORDS_SIZE + TEX_ID_SIZE;
+    public static final int VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDICES_PER_QUAD = 6;
+    public static final int QUAD_SIZE = VERTEX_SIZE * VERTICES_PER_QUAD;
+    public static final int MAX_TEXTURES = 8;
+    private static final int COLOR_OFFSET = POSITION_SIZE;
+    private static final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE;
+    private static final int TEX_ID_OFFSET = TEX_COORDS_OFFSET + TEX_COORDS_SIZE;
+
+    /* Posicion de cada esquina relativa al cuadrado (en unidades de ancho y alto) respetando el mismo orden de vertices que usa
+     * el patron de indices (v0 inferior derecha, v1 superior izquierda, v2 superior derecha, v3 inferior izquierda). */
+    private static final float[] CORNER_X = {1, 0, 1, 0};
+    private static final float[] CORNER_Y = {0, 1, 1, 0};
+
+    private final GLBackend gl;
+    private final int maxQuads;
+    private final FloatBuffer vertices;
+    // Pila de ranuras liberadas que se reutilizan antes de crecer
+    private final int[] freeSlots;
+    // Ranuras ocupadas por un cuadrado, para detectar que una ranura se libere dos veces
+    private final boolean[] live;
+    // Textura de cada unidad (null si esta libre) y cantidad de cuadrados que la usan
+    private final Texture[] textures = new Texture[MAX_TEXTURES];
+    private final int[] textureRefs = new int[MAX_TEXTURES];
+    // Indice de textura de cada ranura, como en los vertices
+    private final int[] slotTextures;
+    private int textureCount;
+    private int freeCount;
+    // Cantidad de ranuras usadas (incluye las liberadas que aun no se reutilizaron)
+    private int quadCount;
+    // Rango sucio [dirtyStart, dirtyEnd) expresado en cuadrados
+    private int dirtyStart = Integer.MAX_VALUE, dirtyEnd;
+    private int vaoID, vboID;
+    private long uploadedFloats;
+    private boolean disposed;
+
+    public RenderBatch(GLBackend gl, int maxQuads) {
+        this.gl = gl;
+        this.maxQuads = maxQuads;
+        // En cero para que las ranuras sin usar sean cuadrados degenerados
+        this.vertices = BufferPool.get().callocateFloats(maxQuads * QUAD_SIZE);
+        this.freeSlots = new int[maxQuads];
+        this.live = new boolean[maxQuads];
+        this.slotTextures = new int[maxQuads];
+    }
+
+    /**
+     * Crea el VAO y un VBO dinamico con la capacidad completa del lote, y configura los punteros de atributos de vertice una sola
+     * vez (el VAO los recuerda, por lo que no hace falta habilitarlos en cada frame).
+     *
+     * @param eboID EBO compartido con el patron de indices precalculado
+     */
+    public void start(int eboID) {
+        vaoID = gl.genVertexArrays();
+        gl.bindVertexArray(vaoID);
+
+        vboID = gl.genBuffers();
+        gl.bindBuffer(GL_ARRAY_BUFFER, vboID);
+        // GL_DYNAMIC_DRAW ya que el contenido cambia a menudo y se actualiza por rangos
+        gl.bufferData(GL_ARRAY_BUFFER, (long) vertices.capacity() * Float.BYTES, GL_DYNAMIC_DRAW);
+
+        gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+        vertexAttributes(gl);
+
+        gl.bindVertexArray(0);
+    }
+
+    /**
+     * Configura los atributos del formato de vertice del lote sobre el VAO y el VBO vinculados.
+     */
+    static void vertexAttributes(GLBackend gl) {
+        gl.vertexAttribPointer(0, POSITION_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, 0);
+        gl.enableVertexAttribArray(0);
+        gl.vertexAttribPointer(1, COLOR_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, COLOR_OFFSET * Float.BYTES);
+        gl.enableVertexAttribArray(1);
+        gl.vertexAttribPointer(2, TEX_COORDS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET * Float.BYTES);
+        gl.enableVertexAttribArray(2);
+        gl.vertexAttribPointer(3, TEX_ID_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, TEX_ID_OFFSET * Float.BYTES);
+        gl.enableVertexAttribArray(3);
+    }
+
+    public boolean hasRoom() {
+        return freeCount > 0 || quadCount < maxQuads;
+    }
+
+    /**
+     * @return true si la textura ya esta en el lote o queda una unidad libre para ella
+     */
+    public boolean hasTextureRoom(Texture texture) {
+        return texture == null || textureIndex(texture) > 0 || textureCount < MAX_TEXTURES;
+    }
+
+    /**
+     * Agrega un cuadrado con textura al lote.
+     *
+     * @param texture textura (o null para un cuadrado sin textura)
+     * @return ranura del cuadrado dentro del lote
+     */
+    public int addQuad(float x, float y, float width, float height, float r, float g, float b, float a, Texture texture,
+                       float u0, float v0, float u1, float v1) {
+        int slot = addQuad(x, y, width, height, r, g, b, a);
+        setTexture(slot, texture, u0, v0, u1, v1);
+        return slot;
+    }
+
+    /**
+     * Agrega un cuadrado al lote.
+     *
+     * @return ranura del cuadrado dentro del lote
+     */
+    public int addQuad(float x, float y, float width, float height, float r, float g, float b, float a) {
+        assert hasRoom() : "The batch is full!";
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : quadCount++;
+        live[slot] = true;
+        setQuad(slot, x, y, width, height, r, g, b, a);
+        setTexture(slot, null, 0, 0, 1, 1);
+        return slot;
+    }
+
+    /**
+     * Reescribe la posicion y el color de un cuadrado (sin tocar su textura) y marca su ranura como sucia.
+     */
+    public void setQuad(int slot, float x, float y, float width, float height, float r, float g, float b, float a) {
+        int offset = slot * QUAD_SIZE;
+        for (int i = 0; i < VERTICES_PER_QUAD; i++) {
+            vertices.put(offset, x + CORNER_X[i] * width);
+            vertices.put(offset + 1, y + CORNER_Y[i] * height);
+            vertices.put(offset + 2, 0.0f);
+            vertices.put(offset + COLOR_OFFSET, r);
+            vertices.put(offset + COLOR_OFFSET + 1, g);
+            vertices.put(offset + COLOR_OFFSET + 2, b);
+            vertices.put(offset + COLOR_OFFSET + 3, a);
+            offset += VERTEX_SIZE;
+        }
+        markDirty(slot);
+    }
+
+    /**
+     * Asigna la textura y las coordenadas de textura de un cuadrado. {@code (u0, v0)} corresponde a la esquina superior
+     * izquierda y {@code (u1, v1)} a la inferior derecha, como en un {@link AtlasRegion}.
+     *
+     * @param texture textura (o null para quitarla); debe cumplir {@link #hasTextureRoom(Texture)}
+     */
+    public void setTexture(int slot, Texture texture, float u0, float v0, float u1, float v1) {
+        int texId = 0;
+        if (texture != null) {
+            texId = textureIndex(texture);
+            if (texId == 0) {
+                assert textureCount < MAX_TEXTURES : "The batch has no room for another texture!";
+                while (textures[texId] != null) texId++;
+                textures[texId++] = texture;
+                textureCount++;
+            }
+            textureRefs[texId - 1]++;
+        }
+        // Despues de sumar la nueva, para no liberar la unidad si el cuadrado conserva su textura
+        releaseTexture(slot);
+        slotTextures[slot] = texId;
+        int offset = slot * QUAD_SIZE;
+        for (int i = 0; i < VERTICES_PER_QUAD; i++) {
+            // La fila 0 de la imagen es la primera que se sube, por lo que el borde superior del cuadrado usa v0
+            vertices.put(offset + TEX_COORDS_OFFSET, CORNER_X[i] == 0 ? u0 : u1);
+            vertices.put(offset + TEX_COORDS_OFFSET + 1, CORNER_Y[i] == 0 ? v1 : v0);
+            vertices.put(offset + TEX_ID_OFFSET, texId);
+            offset += VERTEX_SIZE;
+        }
+        markDirty(slot);
+    }
+
+    /**
+     * Libera la ranura convirtiendo el cuadrado en uno degenerado (area cero), que la GPU descarta sin generar fragmentos.
+     */
+    public void removeQuad(int slot) {
+        assert slot >= 0 && slot < quadCount && live[slot] : "The slot " + slot + " is not in use!";
+        live[slot] = false;
+        releaseTexture(slot);
+        int offset = slot * QUAD_SIZE;
+        for (int i = 0; i < QUAD_SIZE; i++) vertices.put(offset + i, 0.0f);
+        freeSlots[freeCount++] = slot;
+        markDirty(slot);
+    }
+
+    /**
+     * Sube el rango sucio a la GPU y dibuja el lote.
+     *
+     * @return true si se emitio una draw call
+     */
+    public boolean render() {
+        if (quadCount == 0) return false;
+
+        if (dirtyStart < dirtyEnd) {
+            gl.bindBuffer(GL_ARRAY_BUFFER, vboID);
+            // Restringe la vista del buffer al rango sucio para no crear un slice por frame
+            vertices.limit(dirtyEnd * QUAD_SIZE).position(dirtyStart * QUAD_SIZE);
+            uploadedFloats += vertices.remaining();
+            gl.bufferSubData(GL_ARRAY_BUFFER, (long) dirtyStart * QUAD_SIZE * Float.BYTES, vertices);
+            vertices.clear();
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyEnd = 0;
+        }
+
+        // Las texturas repetidas entre lotes no generan llamadas gracias al GLState
+        for (int i = 0; i < MAX_TEXTURES; i++)
+            if (textures[i] != null) textures[i].bind(i);
+
+        gl.bindVertexArray(vaoID);
+        gl.drawElements(GL_TRIANGLES, quadCount * INDICES_PER_QUAD, GL_UNSIGNED_INT, 0);
+        return true;
+    }
+
+    /**
+     * Libera el VAO, el VBO y el buffer de vertices. El lote no se puede usar despues.
+     */
+    public void dispose() {
+        if (vboID != 0) gl.deleteBuffers(vboID);
+        if (vaoID != 0) gl.deleteVertexArrays(vaoID);
+        vboID = vaoID = 0;
+        if (!disposed) BufferPool.get().free(vertices);
+        disposed = true;
+    }
+
+    public int getQuadCount() {
+        return quadCount - freeCount;
+    }
+
+    /**
+     * @return cantidad de floats subidos a la GPU desde la ultima llamada (y reinicia el contador)
+     */
+    public long pollUploadedFloats() {
+        long uploaded = uploadedFloats;
+        uploadedFloats = 0;
+        return uploaded;
+    }
+
+    /**
+     * @return unidades de textura ocupadas
+     */
+    public int getTextureCount() {
+        return textureCount;
+    }
+
+    /**
+     * Vista de solo lectura de los vertices empaquetados.
+     */
+    public FloatBuffer getVertices() {
+        return vertices.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return indice de la textura en el lote (a partir de 1), o 0 si no esta
+     */
+    private int textureIndex(Texture texture) {
+        for (int i = 0; i < MAX_TEXTURES; i++)
+            if (textures[i] == texture) return i + 1;
+        return 0;
+    }
+
+    /**
+     * Descuenta la textura de la ranura y libera su unidad si ningun otro cuadrado la usa.
+     */
+    private void releaseTexture(int slot) {
+        int texId = slotTextures[slot];
+        if (texId == 0) return;
+        slotTextures[slot] = 0;
+        if (--textureRefs[texId - 1] == 0) {
+            textures[texId - 1] = null;
+            textureCount--;
+        }
+    }
+
+    private void markDirty(int slot) {
+        dirtyStart = Math.min(dirtyStart, slot);
+        dirtyEnd = Math.max(dirtyEnd, slot + 1);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.punkipunk.renderer;
+
+import java.util.Arrays;
+
+/**
+ * Lista de comandos de render grabada fuera del hilo de OpenGL.
+ * <p>
+ * Guarda las actualizaciones de cuadrados en arreglos primitivos (un handle y 8 floats por comando) para que la simulacion
+ * pueda preparar el frame en un hilo de trabajo sin tocar el {@link Renderer}, cuyos buffers lee el hilo de OpenGL al dibujar.
+ * Luego el hilo de OpenGL la reproduce con {@link #replay(QuadWriter)}, que solo copia los valores. Se usan de a pares: mientras
+ * se reproduce la lista de un frame, se graba la del siguiente.
+ */
+
+public class RenderCommandList implements QuadWriter {
+
+    private static final int COMMAND_SIZE = 8;
+
+    private int[] handles;
+    private float[] values;
+    private int size;
+
+    public RenderCommandList() {
+        this(1024);
+    }
+
+    public RenderCommandList(int capacity) {
+        handles = new int[Math.max(1, capacity)];
+        values = new float[handles.length * COMMAND_SIZE];
+    }
+
+    @Override
+    public void set(int handle, float x, float y, float width, float height, float r, float g, float b, float a) {
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, size * 2);
+            values = Arrays.copyOf(values, size * 2 * COMMAND_SIZE);
+        }
+        handles[size] = handle;
+        int offset = size * COMMAND_SIZE;
+        float[] v = values;
+        v[offset] = x;
+        v[offset + 1] = y;
+        v[offset + 2] = width;
+        v[offset + 3] = height;
+        v[offset + 4] = r;
+        v[offset + 5] = g;
+        v[offset + 6] = b;
+        v[offset + 7] = a;
+        size++;
+    }
+
+    /**
+     * Aplica los comandos, en el orden en que se grabaron.
+     */
+    public void replay(QuadWriter target) {
+        float[] v = values;
+        for (int i = 0, offset = 0; i < size; i++, offset += COMMAND_SIZE)
+            target.set(handles[i], v[offset], v[offset + 1], v[offset + 2], v[offset + 3], v[offset + 4], v[offset + 5], v[offset + 6], v[offset + 7]);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+}
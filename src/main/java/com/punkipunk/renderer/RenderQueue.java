@@ -0,0 +1,346 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.Profiler;
+import com.punkipunk.util.RadixSort;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Cola de sprites que se ordenan antes de dibujarse, para que el orden de dibujo dependa de la capa y la profundidad de cada
+ * sprite y no del orden en que la escena los agrega, y para agrupar los que usan el mismo shader y la misma textura.
+ * <p>
+ * Cada comando es una instancia del {@link InstancedRenderer} acompañada de una clave de 64 bits que, de los bits mas altos a los
+ * mas bajos, codifica:
+ * <pre>
+ * capa (8) | translucido (1) | profundidad (24) | shader (10) | textura (21)
+ * </pre>
+ * Como no hay buffer de profundidad, dentro de cada capa los sprites se dibujan de atras hacia adelante (de mayor a menor
+ * profundidad), primero los opacos y despues los translucidos, con mezcla alfa; un translucido que tenga que quedar detras de un
+ * opaco va en una capa inferior. Los comandos con la misma capa, translucidez y profundidad quedan agrupados por shader y
+ * textura, por lo que conviene darles la misma profundidad a los sprites cuyo orden relativo no importa.
+ * <p>
+ * {@link #sort()} ordena las claves con un {@link RadixSort} (estable: los comandos con la misma clave conservan el orden en que
+ * se agregaron), copia las instancias en ese orden a otro {@link InstanceBuffer} y arma las corridas de comandos consecutivos con
+ * el mismo shader, textura y translucidez. {@link #render()} sube todas las instancias de una vez y dibuja cada corrida con una
+ * draw call, cambiando de programa, textura o mezcla solo en los limites entre corridas. Los arreglos solo crecen, asi que una vez
+ * que alcanzaron su tamaño un frame no reserva memoria. Para comparar, al agregar los comandos se cuentan los cambios de programa
+ * y textura que harian falta dibujandolos en ese orden.
+ * <p>
+ * Como el {@link ParticleSystem}, tiene dos juegos de arreglos: los comandos se agregan y ordenan en uno (en {@code prepare},
+ * fuera del hilo de OpenGL) mientras el render dibuja el otro, y {@link #swap()} los intercambia junto con las listas de comandos.
+ * Los shaders y las texturas se registran antes desde el hilo de OpenGL con {@link #addShader(Shader)} y
+ * {@link #addTexture(Texture)}; los shaders deben dibujar instancias como {@code shaders/instancedVertex.glsl} y tener subido el
+ * bloque de la camara.
+ */
+
+public class RenderQueue {
+
+    public static final int MAX_LAYERS = 1 << 8;
+    public static final int MAX_SHADERS = 1 << 10;
+    /** La textura 0 es "sin textura". */
+    public static final int MAX_TEXTURES = 1 << 21;
+    private static final int DEPTH_LEVELS = 1 << 24;
+
+    private static final int TEXTURE_BITS = 21;
+    private static final int SHADER_SHIFT = TEXTURE_BITS;
+    private static final int DEPTH_SHIFT = SHADER_SHIFT + 10;
+    private static final int TRANSLUCENT_SHIFT = DEPTH_SHIFT + 24;
+    private static final int LAYER_SHIFT = TRANSLUCENT_SHIFT + 1;
+
+    private final GLBackend gl;
+    private final InstancedRenderer renderer;
+    private final Frame[] frames = {new Frame(), new Frame()};
+    private int recording;
+    private Shader[] shaders = new Shader[8];
+    private Texture[] textures = new Texture[8];
+    private int shaderCount, textureCount = 1;
+
+    public RenderQueue(GLBackend gl) {
+        this.gl = gl;
+        renderer = new InstancedRenderer(gl);
+    }
+
+    /**
+     * Registra un shader, o devuelve su id si ya estaba registrado.
+     *
+     * @return id del shader para las claves
+     */
+    public int addShader(Shader shader) {
+        for (int i = 0; i < shaderCount; i++)
+            if (shaders[i] == shader) return i;
+        if (shaderCount == MAX_SHADERS)
+            throw new IllegalStateException("The render queue cannot hold more than " + MAX_SHADERS + " shaders!");
+        if (shaderCount == shaders.length) shaders = Arrays.copyOf(shaders, shaderCount * 2);
+        shaders[shaderCount] = shader;
+        return shaderCount++;
+    }
+
+    /**
+     * Registra una textura, o devuelve su id si ya estaba registrada.
+     *
+     * @return id de la textura para las claves, o 0 si es null
+     */
+    public int addTexture(Texture texture) {
+        if (texture == null) return 0;
+        for (int i = 1; i < textureCount; i++)
+            if (textures[i] == texture) return i;
+        if (textureCount == MAX_TEXTURES)
+            throw new IllegalStateException("The render queue cannot hold more than " + MAX_TEXTURES + " textures!");
+        if (textureCount == textures.length) textures = Arrays.copyOf(textures, textureCount * 2);
+        textures[textureCount] = texture;
+        return textureCount++;
+    }
+
+    /**
+     * Empaqueta la clave de un comando.
+     *
+     * @param layer       capa entre 0 y {@link #MAX_LAYERS} - 1; las capas mayores se dibujan encima
+     * @param translucent true si el sprite necesita mezcla alfa
+     * @param depth       profundidad dentro de la capa entre 0 (adelante) y 1 (atras); se guarda con 24 bits
+     * @param shader      id de {@link #addShader(Shader)}
+     * @param texture     id de {@link #addTexture(Texture)}, o 0 sin textura
+     */
+    public static long key(int layer, boolean translucent, float depth, int shader, int texture) {
+        assert layer >= 0 && layer < MAX_LAYERS : "The layer " + layer + " is out of range!";
+        assert shader >= 0 && shader < MAX_SHADERS : "The shader id " + shader + " is out of range!";
+        assert texture >= 0 && texture < MAX_TEXTURES : "The texture id " + texture + " is out of range!";
+        // Invertida, para que los sprites del fondo queden primero
+        long back = DEPTH_LEVELS - 1 - (int) (Math.max(0, Math.min(1, depth)) * (DEPTH_LEVELS - 1));
+        return (long) layer << LAYER_SHIFT | (translucent ? 1L : 0L) << TRANSLUCENT_SHIFT | back << DEPTH_SHIFT |
+                (long) shader << SHADER_SHIFT | texture;
+    }
+
+    /**
+     * Agrega un sprite. Ver {@link #key(int, boolean, float, int, int)} y {@link InstanceBuffer#add}.
+     */
+    public void submit(int layer, boolean translucent, float depth, int shader, int texture, float x, float y, float width,
+                       float height, float rotation, int color, float u0, float v0, float u1, float v1) {
+        submit(key(layer, translucent, depth, shader, texture), x, y, width, height, rotation, color, u0, v0, u1, v1);
+    }
+
+    /**
+     * Agrega un sprite con una clave de {@link #key(int, boolean, float, int, int)}.
+     */
+    public void submit(long key, float x, float y, float width, float height, float rotation, int color, float u0, float v0,
+                       float u1, float v1) {
+        Frame frame = frames[recording];
+        int index = frame.commands.add(x, y, width, height, rotation, color, u0, v0, u1, v1);
+        if (index == frame.keys.length) {
+            frame.keys = Arrays.copyOf(frame.keys, index * 2);
+            frame.order = Arrays.copyOf(frame.order, index * 2);
+        }
+        frame.keys[index] = key;
+        frame.order[index] = index;
+        frame.sorted = false;
+
+        // Cambios de estado que haria falta dibujando en el orden en que llegan los comandos
+        int shader = shaderOf(key), texture = textureOf(key);
+        if (shader != frame.lastShader) frame.naiveProgramBinds++;
+        if (texture != 0 && texture != frame.lastTexture) {
+            frame.naiveTextureBinds++;
+            frame.lastTexture = texture;
+        }
+        frame.lastShader = shader;
+    }
+
+    /**
+     * Ordena los comandos agregados desde el ultimo {@link #swap()} y los agrupa en corridas. Se puede llamar desde un hilo de
+     * trabajo al final de {@code prepare}; si no, lo hace {@link #render()}.
+     */
+    public void sort() {
+        sort(frames[recording]);
+    }
+
+    /**
+     * Intercambia los comandos grabados con los que se dibujan y vacia los nuevos comandos de grabacion.
+     */
+    public void swap() {
+        recording ^= 1;
+        frames[recording].clear();
+    }
+
+    /**
+     * Dibuja lo grabado antes del ultimo {@link #swap()}. Debe llamarse desde el hilo de OpenGL, con la camara subida. Al terminar
+     * queda en uso el ultimo shader dibujado y la mezcla desactivada.
+     */
+    public void render() {
+        Frame frame = frames[recording ^ 1];
+        sort(frame);
+        frame.drawCalls = frame.programBinds = frame.textureBinds = 0;
+        int count = frame.sortedInstances.size();
+        renderer.upload(frame.sortedInstances);
+        if (count == 0) return;
+
+        Shader shader = null;
+        int program = -1, bound = 0;
+        boolean blending = false;
+        for (int run = 0; run < frame.runs; run++) {
+            int material = frame.runMaterials[run];
+            int shaderId = shaderOf(material), texture = textureOf(material);
+            boolean translucent = material < 0;
+            if (shaderId != program) {
+                shader = shaders[shaderId];
+                shader.use();
+                shader.uploadInt(InstancedRenderer.SAMPLER_NAME, 0);
+                program = shaderId;
+                frame.programBinds++;
+            }
+            if (texture != 0 && texture != bound) {
+                textures[texture].bind(0);
+                bound = texture;
+                frame.textureBinds++;
+            }
+            shader.uploadInt(InstancedRenderer.TEX_ID_NAME, texture != 0 ? 1 : 0);
+            if (translucent != blending) {
+                if (translucent) {
+                    gl.enable(GL_BLEND);
+                    gl.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+                } else gl.disable(GL_BLEND);
+                blending = translucent;
+            }
+            int first = frame.runStarts[run], end = run + 1 < frame.runs ? frame.runStarts[run + 1] : count;
+            renderer.draw(first, end - first);
+            frame.drawCalls++;
+        }
+        if (blending) gl.disable(GL_BLEND);
+        Profiler.get().count(Profiler.DRAW_CALLS, frame.drawCalls);
+    }
+
+    /**
+     * Libera los buffers. Los shaders y las texturas registrados no pertenecen a la cola.
+     */
+    public void dispose() {
+        renderer.dispose();
+        for (Frame frame : frames) frame.dispose();
+    }
+
+    /**
+     * @return comandos agregados en el frame en curso
+     */
+    public int getRecordedCount() {
+        return frames[recording].commands.size();
+    }
+
+    /**
+     * @return comandos del ultimo frame dibujado
+     */
+    public int getCommandCount() {
+        return frames[recording ^ 1].commands.size();
+    }
+
+    /**
+     * @return draw calls del ultimo render, una por corrida
+     */
+    public int getDrawCalls() {
+        return frames[recording ^ 1].drawCalls;
+    }
+
+    /**
+     * @return cambios de programa del ultimo render
+     */
+    public int getProgramBinds() {
+        return frames[recording ^ 1].programBinds;
+    }
+
+    /**
+     * @return texturas vinculadas en el ultimo render
+     */
+    public int getTextureBinds() {
+        return frames[recording ^ 1].textureBinds;
+    }
+
+    /**
+     * @return cambios de programa que habria hecho el ultimo frame dibujando los comandos en el orden en que se agregaron
+     */
+    public int getUnsortedProgramBinds() {
+        return frames[recording ^ 1].naiveProgramBinds;
+    }
+
+    /**
+     * @return texturas que habria vinculado el ultimo frame dibujando los comandos en el orden en que se agregaron
+     */
+    public int getUnsortedTextureBinds() {
+        return frames[recording ^ 1].naiveTextureBinds;
+    }
+
+    /**
+     * @return pasadas del radix sort del ultimo frame dibujado (las de bytes iguales en todas las claves se saltean)
+     */
+    public int getSortPasses() {
+        return frames[recording ^ 1].passes;
+    }
+
+    private static void sort(Frame frame) {
+        if (frame.sorted) return;
+        int count = frame.commands.size();
+        frame.radix.sort(frame.keys, frame.order, count);
+        frame.passes = frame.radix.getPasses();
+
+        frame.sortedInstances.resize(count);
+        frame.runs = 0;
+        long[] keys = frame.keys;
+        int[] order = frame.order;
+        int material = 0;
+        for (int i = 0; i < count; i++) {
+            frame.sortedInstances.copy(i, frame.commands, order[i]);
+            int next = material(keys[i]);
+            if (i > 0 && next == material) continue;
+            if (frame.runs == frame.runStarts.length) {
+                frame.runStarts = Arrays.copyOf(frame.runStarts, frame.runs * 2);
+                frame.runMaterials = Arrays.copyOf(frame.runMaterials, frame.runs * 2);
+            }
+            frame.runStarts[frame.runs] = i;
+            frame.runMaterials[frame.runs++] = next;
+            material = next;
+        }
+        frame.sorted = true;
+    }
+
+    private static int shaderOf(long key) {
+        return (int) (key >>> SHADER_SHIFT) & MAX_SHADERS - 1;
+    }
+
+    private static int textureOf(long key) {
+        return (int) key & MAX_TEXTURES - 1;
+    }
+
+    /**
+     * @return lo que obliga a cortar la draw call: el shader y la textura en los 31 bits bajos y la translucidez en el de signo
+     */
+    private static int material(long key) {
+        return (int) key & (1 << DEPTH_SHIFT) - 1 | (int) (key >>> TRANSLUCENT_SHIFT) << 31;
+    }
+
+    /**
+     * Comandos de un frame y su orden.
+     */
+    private static class Frame {
+        final InstanceBuffer commands = new InstanceBuffer(1024), sortedInstances = new InstanceBuffer(1024);
+        // Cada uno con su RadixSort, porque el frame grabado puede ordenarse en otro hilo mientras se dibuja el otro
+        final RadixSort radix = new RadixSort();
+        long[] keys = new long[1024];
+        int[] order = new int[1024];
+        // Primer comando y material (shader, textura y translucidez) de cada corrida
+        int[] runStarts = new int[64], runMaterials = new int[64];
+        int runs, passes, drawCalls, programBinds, textureBinds;
+        int naiveProgramBinds, naiveTextureBinds, lastShader = -1, lastTexture;
+        boolean sorted = true;
+
+        void clear() {
+            commands.clear();
+            sortedInstances.clear();
+            runs = passes = 0;
+            naiveProgramBinds = naiveTextureBinds = lastTexture = 0;
+            lastShader = -1;
+            sorted = true;
+        }
+
+        void dispose() {
+            commands.dispose();
+            sortedInstances.dispose();
+        }
+    }
+
+}
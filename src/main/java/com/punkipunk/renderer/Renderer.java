@@ -0,0 +1,192 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.MemoryArena;
+import com.punkipunk.util.Profiler;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Renderizador de sprites por lotes.
+ * <p>
+ * Agrupa los cuadrados en {@link RenderBatch}es de tamaño fijo y crea un nuevo lote solo cuando todos los existentes estan
+ * llenos, por lo que una escena con miles de sprites cuesta tantas draw calls como lotes haya. Todos los lotes comparten un EBO
+ * estatico con el patron de indices precalculado para la cantidad maxima de cuadrados por lote.
+ * <p>
+ * Cada cuadrado se identifica con un handle que codifica el lote y la ranura ({@code lote * maxBatchSize + ranura}). Como un
+ * cuadrado no cambia de lote, solo se le puede asignar una textura que ya este en su lote o para la que quede una unidad libre.
+ */
+
+public class Renderer implements QuadWriter {
+
+    public static final int MAX_BATCH_SIZE = 4096;
+
+    // Nombres de los samplers del fragment shader, precalculados para no concatenar strings en cada frame
+    private static final String[] SAMPLER_NAMES = new String[RenderBatch.MAX_TEXTURES];
+
+    static {
+        for (int i = 0; i < SAMPLER_NAMES.length; i++) SAMPLER_NAMES[i] = "uTextures[" + i + "]";
+    }
+
+    private final GLBackend gl;
+    private final int maxBatchSize;
+    private final List<RenderBatch> batches = new ArrayList<>();
+    private int eboID;
+    private int drawCalls;
+    private long verticesUploaded;
+
+    public Renderer() {
+        this(GLState.get(), MAX_BATCH_SIZE);
+    }
+
+    public Renderer(GLBackend gl, int maxBatchSize) {
+        this.gl = gl;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Genera los indices de {@code maxQuads} cuadrados en orden antihorario. Cada cuadrado usa los 4 vertices siguientes al
+     * anterior y repite el patron {@code 2, 1, 0, 0, 1, 3}.
+     */
+    public static int[] generateIndices(int maxQuads) {
+        int[] indices = new int[maxQuads * RenderBatch.INDICES_PER_QUAD];
+        for (int i = 0; i < maxQuads; i++) {
+            int offset = i * RenderBatch.VERTICES_PER_QUAD;
+            int index = i * RenderBatch.INDICES_PER_QUAD;
+            // Triangulo superior derecho
+            indices[index] = offset + 2;
+            indices[index + 1] = offset + 1;
+            indices[index + 2] = offset;
+            // Triangulo inferior izquierdo
+            indices[index + 3] = offset;
+            indices[index + 4] = offset + 1;
+            indices[index + 5] = offset + 3;
+        }
+        return indices;
+    }
+
+    /**
+     * Agrega un cuadrado en el primer lote con espacio, creando uno nuevo si todos estan llenos.
+     *
+     * @return handle del cuadrado
+     */
+    public int add(float x, float y, float width, float height, float r, float g, float b, float a) {
+        return add(x, y, width, height, r, g, b, a, null, 0, 0, 1, 1);
+    }
+
+    /**
+     * Agrega un sprite con una region de un atlas.
+     *
+     * @return handle del cuadrado
+     */
+    public int add(float x, float y, float width, float height, float r, float g, float b, float a, Texture texture, AtlasRegion region) {
+        return add(x, y, width, height, r, g, b, a, texture, region.u0(), region.v0(), region.u1(), region.v1());
+    }
+
+    /**
+     * Agrega un cuadrado con textura en el primer lote que tenga espacio para el cuadrado y para la textura.
+     *
+     * @return handle del cuadrado
+     */
+    public int add(float x, float y, float width, float height, float r, float g, float b, float a, Texture texture,
+                   float u0, float v0, float u1, float v1) {
+        for (int i = 0; i < batches.size(); i++) {
+            RenderBatch batch = batches.get(i);
+            if (batch.hasRoom() && batch.hasTextureRoom(texture))
+                return i * maxBatchSize + batch.addQuad(x, y, width, height, r, g, b, a, texture, u0, v0, u1, v1);
+        }
+        RenderBatch batch = createBatch();
+        return (batches.size() - 1) * maxBatchSize + batch.addQuad(x, y, width, height, r, g, b, a, texture, u0, v0, u1, v1);
+    }
+
+    /**
+     * Actualiza la posicion y el color de un cuadrado, conservando su textura.
+     */
+    @Override
+    public void set(int handle, float x, float y, float width, float height, float r, float g, float b, float a) {
+        batches.get(handle / maxBatchSize).setQuad(handle % maxBatchSize, x, y, width, height, r, g, b, a);
+    }
+
+    public void setTexture(int handle, Texture texture, AtlasRegion region) {
+        batches.get(handle / maxBatchSize).setTexture(handle % maxBatchSize, texture, region.u0(), region.v0(), region.u1(), region.v1());
+    }
+
+    public void remove(int handle) {
+        batches.get(handle / maxBatchSize).removeQuad(handle % maxBatchSize);
+    }
+
+    /**
+     * Asigna a cada sampler del shader su unidad de textura y dibuja todos los lotes. El shader debe estar en uso; gracias a la
+     * cache de uniforms del {@link Shader}, los samplers solo se suben la primera vez.
+     */
+    public void render(Shader shader) {
+        for (int i = 0; i < SAMPLER_NAMES.length; i++) shader.uploadInt(SAMPLER_NAMES[i], i);
+        render();
+    }
+
+    /**
+     * Dibuja todos los lotes subiendo solo los rangos modificados desde el frame anterior.
+     */
+    public void render() {
+        drawCalls = 0;
+        verticesUploaded = 0;
+        for (RenderBatch batch : batches) {
+            if (batch.render()) drawCalls++;
+            verticesUploaded += batch.pollUploadedFloats() / RenderBatch.VERTEX_SIZE;
+        }
+        Profiler.get().count(Profiler.DRAW_CALLS, drawCalls);
+        Profiler.get().count(Profiler.VERTICES_UPLOADED, verticesUploaded);
+    }
+
+    /**
+     * Libera los lotes y el EBO compartido.
+     */
+    public void dispose() {
+        for (RenderBatch batch : batches) batch.dispose();
+        batches.clear();
+        if (eboID != 0) gl.deleteBuffers(eboID);
+        eboID = 0;
+    }
+
+    /**
+     * @return draw calls emitidas en el ultimo {@link #render()}
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * @return vertices subidos a la GPU en el ultimo {@link #render()}
+     */
+    public long getVerticesUploaded() {
+        return verticesUploaded;
+    }
+
+    public int getBatchCount() {
+        return batches.size();
+    }
+
+    private RenderBatch createBatch() {
+        if (eboID == 0) {
+            // El EBO se crea una sola vez y lo comparten todos los lotes
+            int[] indices = generateIndices(maxBatchSize);
+            // Desvincula el VAO actual para no reemplazar su EBO al vincular el nuevo
+            gl.bindVertexArray(0);
+            MemoryArena arena = MemoryArena.get();
+            long mark = arena.mark();
+            IntBuffer elementBuffer = arena.ints(indices.length).put(indices).flip();
+            eboID = gl.genBuffers();
+            gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+            gl.bufferData(GL_ELEMENT_ARRAY_BUFFER, elementBuffer, GL_STATIC_DRAW);
+            arena.reset(mark);
+        }
+        RenderBatch batch = new RenderBatch(gl, maxBatchSize);
+        batch.start(eboID);
+        batches.add(batch);
+        return batch;
+    }
+
+}
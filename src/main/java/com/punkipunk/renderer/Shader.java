@@ -1,96 +1,333 @@
 package com.punkipunk.renderer;
 
 import com.punkipunk.util.ResourceLoader;
+import com.punkipunk.util.StringIntMap;
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.GL_FALSE;
+import static org.lwjgl.opengl.GL11.GL_TRUE;
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT;
 
 /**
  * Para que OpenGL pueda utilizar el shader, debe compilarlo dinamicamente en tiempo de ejecucion a partir de su codigo fuente.
+ * <p>
+ * Cada uniform se resuelve con {@code glGetUniformLocation} una sola vez y su ubicacion se guarda en un mapa primitivo por
+ * nombre. Tambien se recuerda el ultimo valor subido, de modo que volver a subir el mismo valor no genera una llamada a OpenGL.
+ * Los metodos {@code upload*} requieren que el shader este en uso.
+ * <p>
+ * Los bloques de uniforms (por ejemplo, el de la {@link Camera}) se asignan a su punto de vinculacion con
+ * {@link #bindUniformBlock(String, int)}, que se vuelve a aplicar cada vez que el programa se recompila o se reemplaza.
  */
 
 public class Shader {
 
+    // Cada uniform reserva espacio para el tipo mas grande (mat4)
+    private static final int UNIFORM_STRIDE = 16;
+
+    private final GLBackend gl;
     private final String vertexPath;
     private final String fragmentPath;
-    private final String vertexSource;
-    private final String fragmentSource;
+    private String vertexSource;
+    private String fragmentSource;
     private int shaderProgramID;
-    private boolean beingUsed = false;
+    boolean binaryRetrievable;
+
+    private final StringIntMap uniformSlots = new StringIntMap(-1);
+    private int[] uniformLocations = new int[8];
+    private boolean[] uniformSet = new boolean[8];
+    private float[] uniformValues = new float[8 * UNIFORM_STRIDE];
+    private int uniformCount;
+    private final float[] matrix = new float[UNIFORM_STRIDE];
+    private long uploads, skippedUploads;
+    private final Map<String, Integer> blockBindings = new LinkedHashMap<>();
 
     public Shader(String vertexPath, String fragmentPath) {
+        // Carga los shaders
+        this(GLState.get(), vertexPath, fragmentPath, ResourceLoader.loadAsString(vertexPath), ResourceLoader.loadAsString(fragmentPath));
+    }
+
+    public Shader(GLBackend gl, String vertexPath, String fragmentPath, String vertexSource, String fragmentSource) {
+        this.gl = gl;
         this.vertexPath = vertexPath;
         this.fragmentPath = fragmentPath;
-        // Carga los shaders
-        vertexSource = ResourceLoader.loadAsString(vertexPath);
-        fragmentSource = ResourceLoader.loadAsString(fragmentPath);
+        this.vertexSource = vertexSource;
+        this.fragmentSource = fragmentSource;
         assert vertexSource != null && fragmentSource != null : "The shaders files could not be loaded!";
     }
 
     public void compile() {
+        shaderProgramID = link(vertexSource, fragmentSource);
+        assert shaderProgramID != 0 : "The shader '" + vertexPath + "' / '" + fragmentPath + "' could not be compiled!";
+        applyBlockBindings();
+    }
+
+    /**
+     * Asigna el bloque de uniforms al punto de vinculacion indicado. A diferencia de los uniforms, no requiere que el shader este
+     * en uso. Si el programa no tiene un bloque con ese nombre, no hace nada.
+     */
+    public void bindUniformBlock(String name, int binding) {
+        Integer previous = blockBindings.put(name, binding);
+        if (shaderProgramID != 0 && (previous == null || previous != binding)) applyBlockBinding(name, binding);
+    }
+
+    /**
+     * Recompila el shader con un nuevo codigo fuente. Si falla, se conserva el programa anterior.
+     *
+     * @return true si el nuevo programa reemplazo al anterior
+     */
+    public boolean reload(String vertexSource, String fragmentSource) {
+        int program = link(vertexSource, fragmentSource);
+        if (program == 0) return false;
+        this.vertexSource = vertexSource;
+        this.fragmentSource = fragmentSource;
+        setProgram(program);
+        return true;
+    }
+
+    /**
+     * Vincula el programa de shader. Si el backend es un {@link GLState}, la llamada se descarta cuando el programa ya esta en
+     * uso, por lo que no hace falta desvincularlo entre frames.
+     */
+    public void use() {
+        gl.useProgram(shaderProgramID);
+    }
+
+    public void detach() {
+        gl.useProgram(0);
+    }
+
+    public void dispose() {
+        if (shaderProgramID != 0) gl.deleteProgram(shaderProgramID);
+        shaderProgramID = 0;
+    }
+
+    public void uploadInt(String name, int value) {
+        int slot = slot(name);
+        int location = uniformLocations[slot];
+        if (location < 0) return;
+        int offset = slot * UNIFORM_STRIDE;
+        if (uniformSet[slot] && Float.floatToRawIntBits(uniformValues[offset]) == value) {
+            skippedUploads++;
+            return;
+        }
+        uniformValues[offset] = Float.intBitsToFloat(value);
+        uniformSet[slot] = true;
+        uploads++;
+        gl.uniform1i(location, value);
+    }
+
+    public void uploadFloat(String name, float x) {
+        int slot = slot(name);
+        int location = uniformLocations[slot];
+        if (location < 0) return;
+        int offset = slot * UNIFORM_STRIDE;
+        if (uniformSet[slot] && uniformValues[offset] == x) {
+            skippedUploads++;
+            return;
+        }
+        uniformValues[offset] = x;
+        uniformSet[slot] = true;
+        uploads++;
+        gl.uniform1f(location, x);
+    }
+
+    public void uploadVec2f(String name, float x, float y) {
+        int slot = slot(name);
+        int location = uniformLocations[slot];
+        if (location < 0) return;
+        int offset = slot * UNIFORM_STRIDE;
+        float[] v = uniformValues;
+        if (uniformSet[slot] && v[offset] == x && v[offset + 1] == y) {
+            skippedUploads++;
+            return;
+        }
+        v[offset] = x;
+        v[offset + 1] = y;
+        uniformSet[slot] = true;
+        uploads++;
+        gl.uniform2f(location, x, y);
+    }
+
+    public void uploadVec4f(String name, float x, float y, float z, float w) {
+        int slot = slot(name);
+        int location = uniformLocations[slot];
+        if (location < 0) return;
+        int offset = slot * UNIFORM_STRIDE;
+        float[] v = uniformValues;
+        if (uniformSet[slot] && v[offset] == x && v[offset + 1] == y && v[offset + 2] == z && v[offset + 3] == w) {
+            skippedUploads++;
+            return;
+        }
+        v[offset] = x;
+        v[offset + 1] = y;
+        v[offset + 2] = z;
+        v[offset + 3] = w;
+        uniformSet[slot] = true;
+        uploads++;
+        gl.uniform4f(location, x, y, z, w);
+    }
+
+    public void uploadMat4f(String name, Matrix4f value) {
+        int slot = slot(name);
+        int location = uniformLocations[slot];
+        if (location < 0) return;
+        int offset = slot * UNIFORM_STRIDE;
+        value.get(matrix);
+        if (uniformSet[slot] && Arrays.equals(uniformValues, offset, offset + UNIFORM_STRIDE, matrix, 0, UNIFORM_STRIDE)) {
+            skippedUploads++;
+            return;
+        }
+        System.arraycopy(matrix, 0, uniformValues, offset, UNIFORM_STRIDE);
+        uniformSet[slot] = true;
+        uploads++;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            gl.uniformMatrix4fv(location, false, stack.floats(matrix));
+        }
+    }
+
+    public int getProgramID() {
+        return shaderProgramID;
+    }
+
+    public String getVertexPath() {
+        return vertexPath;
+    }
+
+    public String getFragmentPath() {
+        return fragmentPath;
+    }
+
+    public String getVertexSource() {
+        return vertexSource;
+    }
+
+    public String getFragmentSource() {
+        return fragmentSource;
+    }
+
+    /**
+     * @return cantidad de valores de uniforms enviados a la GPU
+     */
+    public long getUploads() {
+        return uploads;
+    }
+
+    /**
+     * @return cantidad de valores de uniforms descartados por ser iguales al ultimo enviado
+     */
+    public long getSkippedUploads() {
+        return skippedUploads;
+    }
+
+    /**
+     * Reemplaza el programa actual (por ejemplo, uno cargado desde la cache de binarios) y olvida las ubicaciones y valores de
+     * los uniforms, ya que pertenecen al programa anterior.
+     */
+    void setProgram(int program) {
+        if (shaderProgramID != 0 && shaderProgramID != program) gl.deleteProgram(shaderProgramID);
+        shaderProgramID = program;
+        uniformSlots.clear();
+        uniformCount = 0;
+        applyBlockBindings();
+    }
+
+    private void applyBlockBindings() {
+        if (shaderProgramID == 0) return;
+        for (Map.Entry<String, Integer> entry : blockBindings.entrySet()) applyBlockBinding(entry.getKey(), entry.getValue());
+    }
+
+    private void applyBlockBinding(String name, int binding) {
+        int index = gl.getUniformBlockIndex(shaderProgramID, name);
+        if (index != GL_INVALID_INDEX) gl.uniformBlockBinding(shaderProgramID, index, binding);
+    }
+
+    /**
+     * Compila y vincula los shaders.
+     *
+     * @return id del programa, o 0 si fallo la compilacion o la vinculacion
+     */
+    private int link(String vertexSource, String fragmentSource) {
         int vertexID, fragmentID;
 
         // Primero carga y compila el vertex shader
-        vertexID = glCreateShader(GL_VERTEX_SHADER);
+        vertexID = gl.createShader(GL_VERTEX_SHADER);
         // Pasa el codigo del vertex shader a la GPU
-        glShaderSource(vertexID, vertexSource);
-        glCompileShader(vertexID);
+        gl.shaderSource(vertexID, vertexSource);
+        gl.compileShader(vertexID);
 
         // Verifica errores en compilacion
-        int success = glGetShaderi(vertexID, GL_COMPILE_STATUS);
+        int success = gl.getShaderi(vertexID, GL_COMPILE_STATUS);
         if (success == GL_FALSE) {
-            int len = glGetShaderi(vertexID, GL_INFO_LOG_LENGTH);
             System.out.println("ERROR: '" + vertexPath + "'\n\tVertex shader compilation failed.");
-            System.out.println(glGetShaderInfoLog(vertexID, len));
-            assert false : "";
+            System.out.println(gl.getShaderInfoLog(vertexID));
+            gl.deleteShader(vertexID);
+            return 0;
         }
 
         // Carga y compila el fragment shader
-        fragmentID = glCreateShader(GL_FRAGMENT_SHADER);
+        fragmentID = gl.createShader(GL_FRAGMENT_SHADER);
         // Pasa el codigo del fragment shader a la GPU
-        glShaderSource(fragmentID, fragmentSource);
-        glCompileShader(fragmentID);
+        gl.shaderSource(fragmentID, fragmentSource);
+        gl.compileShader(fragmentID);
 
         // Verifica errores en compilacion
-        success = glGetShaderi(fragmentID, GL_COMPILE_STATUS);
+        success = gl.getShaderi(fragmentID, GL_COMPILE_STATUS);
         if (success == GL_FALSE) {
-            int len = glGetShaderi(fragmentID, GL_INFO_LOG_LENGTH);
             System.out.println("ERROR: '" + fragmentPath + "'\n\tFragment shader compilation failed.");
-            System.out.println(glGetShaderInfoLog(fragmentID, len));
-            assert false : "";
+            System.out.println(gl.getShaderInfoLog(fragmentID));
+            gl.deleteShader(vertexID);
+            gl.deleteShader(fragmentID);
+            return 0;
         }
 
         // Vincula los shaders y verifica errores
-        shaderProgramID = glCreateProgram();
-        glAttachShader(shaderProgramID, vertexID);
-        glAttachShader(shaderProgramID, fragmentID);
-        glLinkProgram(shaderProgramID);
+        int program = gl.createProgram();
+        gl.attachShader(program, vertexID);
+        gl.attachShader(program, fragmentID);
+        // Permite leer el binario del programa para guardarlo en la cache de la ShaderLibrary
+        if (binaryRetrievable) gl.programParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        gl.linkProgram(program);
+
+        // Los shaders ya estan vinculados al programa (o fallaron), podemos eliminarlos
+        gl.deleteShader(vertexID);
+        gl.deleteShader(fragmentID);
 
         // Verifica errores de vinculacion
-        success = glGetProgrami(shaderProgramID, GL_LINK_STATUS);
+        success = gl.getProgrami(program, GL_LINK_STATUS);
         if (success == GL_FALSE) {
-            int len = glGetProgrami(shaderProgramID, GL_INFO_LOG_LENGTH);
             System.out.println("ERROR: '" + vertexPath + "' or '" + fragmentPath + "'\n\tLinking of shaders failed.");
-            System.out.println(glGetProgramInfoLog(shaderProgramID, len));
-            assert false : "";
+            System.out.println(gl.getProgramInfoLog(program));
+            gl.deleteProgram(program);
+            return 0;
         }
 
-        // Los shaders ya estan vinculados al programa, podemos eliminarlos
-        glDeleteShader(vertexID);
-        glDeleteShader(fragmentID);
+        return program;
     }
 
-    public void use() {
-        if (!beingUsed) {
-            // Vincula el programa de shader
-            glUseProgram(shaderProgramID);
-            beingUsed = true;
+    /**
+     * Devuelve la ranura del uniform en la cache, resolviendo su ubicacion la primera vez que se usa.
+     */
+    private int slot(String name) {
+        int slot = uniformSlots.get(name);
+        if (slot >= 0) return slot;
+        slot = uniformCount++;
+        if (slot == uniformLocations.length) {
+            uniformLocations = Arrays.copyOf(uniformLocations, slot * 2);
+            uniformSet = Arrays.copyOf(uniformSet, slot * 2);
+            uniformValues = Arrays.copyOf(uniformValues, slot * 2 * UNIFORM_STRIDE);
         }
-    }
-
-    public void detach() {
-        glUseProgram(0);
-        beingUsed = false;
+        uniformLocations[slot] = gl.getUniformLocation(shaderProgramID, name);
+        uniformSet[slot] = false;
+        uniformSlots.put(name, slot);
+        return slot;
     }
 
 }
@@ -0,0 +1,252 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.MemoryArena;
+import com.punkipunk.util.ResourceLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.GL_LINK_STATUS;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_LENGTH;
+
+/**
+ * Biblioteca de shaders.
+ * <p>
+ * Crea cada programa una sola vez por par de rutas (vertex, fragment) y lo devuelve en las siguientes llamadas a
+ * {@link #get(String, String)}. Si el driver lo permite, el binario de cada programa vinculado se guarda en disco, indexado por
+ * un hash del codigo fuente y del driver, y en el siguiente inicio se carga con {@code glProgramBinary} en lugar de compilar.
+ * <p>
+ * Con {@link #watch(Path)} se observan los archivos de los shaders en el sistema de archivos y {@link #poll()} (llamado una
+ * vez por frame desde el hilo de OpenGL) recompila los programas cuyos archivos cambiaron, sin reiniciar el motor.
+ */
+
+public class ShaderLibrary {
+
+    private final GLBackend gl;
+    private final Map<String, Shader> shaders = new HashMap<>();
+    private final Path binaryCache;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Set<Path> registeredDirectories = new HashSet<>();
+    private WatchService watcher;
+    private Path sourceRoot;
+    private int binaryHits, binaryMisses, reloads;
+
+    /**
+     * @param binaryCache directorio de la cache de binarios, o null para compilar siempre desde el codigo fuente
+     */
+    public ShaderLibrary(GLBackend gl, Path binaryCache) {
+        this.gl = gl;
+        this.binaryCache = binaryCache;
+    }
+
+    /**
+     * Devuelve el shader compilado para el par de rutas, creandolo la primera vez.
+     */
+    public Shader get(String vertexPath, String fragmentPath) {
+        String key = vertexPath + '|' + fragmentPath;
+        Shader shader = shaders.get(key);
+        if (shader != null) return shader;
+
+        shader = new Shader(gl, vertexPath, fragmentPath, loadSource(vertexPath), loadSource(fragmentPath));
+        boolean cacheable = binaryCache != null && gl.supportsProgramBinary();
+        if (!cacheable || !loadBinary(shader)) {
+            shader.binaryRetrievable = cacheable;
+            shader.compile();
+            if (cacheable && shader.getProgramID() != 0) saveBinary(shader);
+        }
+
+        if (watcher != null) register(vertexPath, fragmentPath);
+        shaders.put(key, shader);
+        return shader;
+    }
+
+    /**
+     * Comienza a observar los shaders bajo {@code sourceRoot}. Las rutas de los shaders se resuelven contra este directorio (por
+     * ejemplo, {@code src/main/resources}) en lugar del classpath, de modo que los cambios se vean sin recompilar el proyecto.
+     */
+    public void watch(Path sourceRoot) throws IOException {
+        if (watcher == null) watcher = FileSystems.getDefault().newWatchService();
+        this.sourceRoot = sourceRoot;
+        for (Shader shader : shaders.values()) register(shader.getVertexPath(), shader.getFragmentPath());
+    }
+
+    /**
+     * Procesa los cambios de archivos pendientes y recompila los shaders afectados. No bloquea.
+     */
+    public void poll() {
+        if (watcher == null) return;
+        Set<String> changed = null;
+        WatchKey key;
+        while ((key = watcher.poll()) != null) {
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (directory == null || !(event.context() instanceof Path file)) continue;
+                if (changed == null) changed = new HashSet<>();
+                // Convierte el archivo modificado en una ruta de recurso relativa a la raiz observada
+                changed.add(sourceRoot.relativize(directory.resolve(file)).toString().replace('\\', '/'));
+            }
+            key.reset();
+        }
+        if (changed == null) return;
+
+        for (Shader shader : shaders.values()) {
+            if (!changed.contains(shader.getVertexPath()) && !changed.contains(shader.getFragmentPath())) continue;
+            String vertexSource = loadSource(shader.getVertexPath());
+            String fragmentSource = loadSource(shader.getFragmentPath());
+            // Los editores suelen guardar en varios pasos, por lo que el archivo puede estar vacio momentaneamente
+            if (vertexSource == null || fragmentSource == null || vertexSource.isBlank() || fragmentSource.isBlank()) continue;
+            if (shader.reload(vertexSource, fragmentSource)) {
+                reloads++;
+                System.out.println("Shader '" + shader.getVertexPath() + "' / '" + shader.getFragmentPath() + "' reloaded");
+            }
+        }
+    }
+
+    /**
+     * Elimina todos los programas y deja de observar los archivos.
+     */
+    public void dispose() {
+        for (Shader shader : shaders.values()) shader.dispose();
+        shaders.clear();
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+            }
+            watcher = null;
+        }
+    }
+
+    public int size() {
+        return shaders.size();
+    }
+
+    /**
+     * @return programas cargados desde la cache de binarios
+     */
+    public int getBinaryHits() {
+        return binaryHits;
+    }
+
+    /**
+     * @return programas que hubo que compilar porque no estaban en la cache de binarios
+     */
+    public int getBinaryMisses() {
+        return binaryMisses;
+    }
+
+    public int getReloads() {
+        return reloads;
+    }
+
+    private String loadSource(String path) {
+        if (sourceRoot != null) {
+            Path file = sourceRoot.resolve(path);
+            if (Files.isRegularFile(file)) {
+                try {
+                    return Files.readString(file, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    System.err.println("The '" + file + "' shader could not be read!");
+                }
+            }
+        }
+        return ResourceLoader.loadAsString(path);
+    }
+
+    private void register(String... paths) {
+        for (String path : paths) {
+            Path directory = sourceRoot.resolve(path).getParent();
+            if (directory == null || !Files.isDirectory(directory) || !registeredDirectories.add(directory)) continue;
+            try {
+                watchedDirectories.put(directory.register(watcher, ENTRY_MODIFY, ENTRY_CREATE), directory);
+            } catch (IOException e) {
+                System.err.println("The '" + directory + "' directory could not be watched!");
+            }
+        }
+    }
+
+    private boolean loadBinary(Shader shader) {
+        Path file = binaryFile(shader);
+        if (!Files.isRegularFile(file)) {
+            binaryMisses++;
+            return false;
+        }
+        MemoryArena arena = MemoryArena.get();
+        long mark = arena.mark();
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer data = arena.bytes(bytes.length).put(bytes).flip();
+            // Los primeros 4 bytes guardan el formato del binario, escrito en big-endian como todo ByteBuffer de Java (los de la
+            // arena usan el orden nativo)
+            int format = data.order(ByteOrder.BIG_ENDIAN).getInt();
+            int program = gl.createProgram();
+            gl.programBinary(program, format, data);
+            if (gl.getProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+                // El driver cambio o rechazo el binario, se descarta y se compila desde el codigo fuente
+                gl.deleteProgram(program);
+                Files.deleteIfExists(file);
+                binaryMisses++;
+                return false;
+            }
+            shader.setProgram(program);
+            binaryHits++;
+            return true;
+        } catch (IOException e) {
+            binaryMisses++;
+            return false;
+        } finally {
+            arena.reset(mark);
+        }
+    }
+
+    private void saveBinary(Shader shader) {
+        int program = shader.getProgramID();
+        int length = gl.getProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) return;
+        MemoryArena arena = MemoryArena.get();
+        long mark = arena.mark();
+        ByteBuffer binary = arena.bytes(length);
+        IntBuffer format = arena.ints(1);
+        gl.getProgramBinary(program, format, binary);
+
+        byte[] bytes = new byte[Integer.BYTES + length];
+        ByteBuffer.wrap(bytes).putInt(format.get(0)).put(binary);
+        arena.reset(mark);
+        try {
+            Files.createDirectories(binaryCache);
+            Files.write(binaryFile(shader), bytes);
+        } catch (IOException e) {
+            System.err.println("The binary of the shader '" + shader.getVertexPath() + "' could not be cached!");
+        }
+    }
+
+    /**
+     * El nombre del archivo depende del codigo fuente y del driver, ya que un binario solo es valido para el driver que lo
+     * genero.
+     */
+    private Path binaryFile(Shader shader) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(gl.getString(GL_VENDOR)).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.valueOf(gl.getString(GL_RENDERER)).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.valueOf(gl.getString(GL_VERSION)).getBytes(StandardCharsets.UTF_8));
+            digest.update(shader.getVertexSource().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(shader.getFragmentSource().getBytes(StandardCharsets.UTF_8));
+            return binaryCache.resolve(HexFormat.of().formatHex(digest.digest()) + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.punkipunk.renderer;
+
+import java.util.Arrays;
+
+/**
+ * Empaquetador de rectangulos con el algoritmo skyline (bottom-left).
+ * <p>
+ * Mantiene el "horizonte" formado por los rectangulos ya colocados como una lista de segmentos horizontales {@code (x, y,
+ * ancho)} y coloca cada nuevo rectangulo sobre el segmento que deja su borde inferior mas abajo. Es rapido, no crea objetos y
+ * da buenos resultados con sprites ordenados por altura descendente.
+ */
+
+public class SkylinePacker {
+
+    private final int width;
+    private final int height;
+    private int[] nodeX, nodeY, nodeWidth;
+    private int nodeCount;
+    private long usedArea;
+
+    public SkylinePacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        nodeX = new int[16];
+        nodeY = new int[16];
+        nodeWidth = new int[16];
+        reset();
+    }
+
+    public static int x(long position) {
+        return (int) (position >>> 32);
+    }
+
+    public static int y(long position) {
+        return (int) position;
+    }
+
+    public void reset() {
+        nodeCount = 1;
+        nodeX[0] = 0;
+        nodeY[0] = 0;
+        nodeWidth[0] = width;
+        usedArea = 0;
+    }
+
+    /**
+     * Coloca un rectangulo.
+     *
+     * @return posicion codificada como {@code (x << 32) | y} (se decodifica con {@link #x(long)} y {@link #y(long)}), o -1 si no
+     * hay espacio
+     */
+    public long insert(int rectWidth, int rectHeight) {
+        int bestIndex = -1, bestY = Integer.MAX_VALUE, bestBottom = Integer.MAX_VALUE, bestWidth = Integer.MAX_VALUE;
+        for (int i = 0; i < nodeCount; i++) {
+            int y = fit(i, rectWidth, rectHeight);
+            if (y < 0) continue;
+            int bottom = y + rectHeight;
+            if (bottom < bestBottom || (bottom == bestBottom && nodeWidth[i] < bestWidth)) {
+                bestIndex = i;
+                bestY = y;
+                bestBottom = bottom;
+                bestWidth = nodeWidth[i];
+            }
+        }
+        if (bestIndex < 0) return -1;
+
+        int x = nodeX[bestIndex];
+        addNode(bestIndex, x, bestY + rectHeight, rectWidth);
+        usedArea += (long) rectWidth * rectHeight;
+        return ((long) x << 32) | bestY;
+    }
+
+    /**
+     * @return fraccion del area ocupada (entre 0 y 1)
+     */
+    public float getOccupancy() {
+        return (float) usedArea / ((long) width * height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return altura a la que quedaria el rectangulo apoyado desde el segmento {@code index}, o -1 si no entra
+     */
+    private int fit(int index, int rectWidth, int rectHeight) {
+        int x = nodeX[index];
+        if (x + rectWidth > width) return -1;
+        int remaining = rectWidth, y = nodeY[index];
+        for (int i = index; remaining > 0; i++) {
+            if (i == nodeCount) return -1;
+            y = Math.max(y, nodeY[i]);
+            if (y + rectHeight > height) return -1;
+            remaining -= nodeWidth[i];
+        }
+        return y;
+    }
+
+    private void addNode(int index, int x, int y, int nodeWidthValue) {
+        if (nodeCount == nodeX.length) {
+            nodeX = Arrays.copyOf(nodeX, nodeCount * 2);
+            nodeY = Arrays.copyOf(nodeY, nodeCount * 2);
+            nodeWidth = Arrays.copyOf(nodeWidth, nodeCount * 2);
+        }
+        System.arraycopy(nodeX, index, nodeX, index + 1, nodeCount - index);
+        System.arraycopy(nodeY, index, nodeY, index + 1, nodeCount - index);
+        System.arraycopy(nodeWidth, index, nodeWidth, index + 1, nodeCount - index);
+        nodeX[index] = x;
+        nodeY[index] = y;
+        nodeWidth[index] = nodeWidthValue;
+        nodeCount++;
+
+        // Recorta o elimina los segmentos que quedaron debajo del nuevo
+        for (int i = index + 1; i < nodeCount; i++) {
+            int previousEnd = nodeX[i - 1] + nodeWidth[i - 1];
+            if (nodeX[i] >= previousEnd) break;
+            int shrink = previousEnd - nodeX[i];
+            nodeX[i] += shrink;
+            nodeWidth[i] -= shrink;
+            if (nodeWidth[i] > 0) break;
+            removeNode(i--);
+        }
+
+        // Une los segmentos vecinos que quedaron a la misma altura
+        for (int i = 0; i < nodeCount - 1; i++) {
+            if (nodeY[i] == nodeY[i + 1]) {
+                nodeWidth[i] += nodeWidth[i + 1];
+                removeNode(i + 1);
+                i--;
+            }
+        }
+    }
+
+    private void removeNode(int index) {
+        System.arraycopy(nodeX, index + 1, nodeX, index, nodeCount - index - 1);
+        System.arraycopy(nodeY, index + 1, nodeY, index, nodeCount - index - 1);
+        System.arraycopy(nodeWidth, index + 1, nodeWidth, index, nodeCount - index - 1);
+        nodeCount--;
+    }
+
+}
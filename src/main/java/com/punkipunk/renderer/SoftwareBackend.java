@@ -0,0 +1,789 @@
+package com.punkipunk.renderer;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL20.GL_COMPILE_STATUS;
+import static org.lwjgl.opengl.GL20.GL_LINK_STATUS;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+/**
+ * Rasterizador por software que implementa el pipeline de sprites del motor sin GPU ni contexto OpenGL.
+ * <p>
+ * Guarda buffers, VAOs y texturas en memoria y, en lugar de compilar los shaders, emula los del motor: la posicion del atributo
+ * 0 se multiplica por la matriz {@code uViewProjection} del bloque de uniforms {@code Camera} (si el programa lo tiene vinculado
+ * a un uniform buffer; si no, se usa directamente en coordenadas de dispositivo normalizadas), y el color final es el color del
+ * atributo 1 multiplicado por
+ * la textura indicada por el atributo 3, muestreada con las coordenadas del atributo 2 (filtrado NEAREST). Los triangulos se
+ * rasterizan con funciones de borde y la regla superior izquierda, de modo que dos triangulos que comparten un borde no pintan
+ * dos veces el mismo pixel. Soporta blending; el depth test y el scissor se ignoran.
+ * <p>
+ * Si el atributo 1 avanza por instancia ({@link #vertexAttribDivisor}), se emula en cambio el shader instanciado del
+ * {@link InstancedRenderer}, y el indice de la textura sale del uniform {@code uTexId}. Si ademas el uniform {@code uSdf} no es
+ * 0 se emula {@code textFragment.glsl}: el alfa de la textura es una distancia y el borde se suaviza con un ancho fijo, ya que
+ * aca no hay derivadas de pantalla.
+ * <p>
+ * Sirve para correr escenas en maquinas sin GPU, leer el framebuffer con {@link #readPixels} y compararlo con imagenes de
+ * referencia ({@link GoldenImage}). Al igual que el framebuffer de OpenGL, la fila 0 es la inferior.
+ */
+
+public class SoftwareBackend implements GLBackend {
+
+    private static final int MAX_ATTRIBUTES = 16;
+    private static final int MAX_TEXTURE_UNITS = 32;
+    private static final int MAX_UNIFORM_BINDINGS = 16;
+    /** Bloque de uniforms de la camara y desplazamiento (en floats) de {@code uViewProjection} dentro de el. */
+    private static final String CAMERA_BLOCK = "Camera";
+    private static final int VIEW_PROJECTION_OFFSET = 32;
+    /** Mitad del ancho del borde suavizado de los textos SDF, en unidades de alfa. */
+    private static final float SDF_WIDTH = 0.1f;
+
+    private final int width, height;
+    // Pixeles en formato ARGB empaquetado, empezando por la fila inferior
+    private final int[] framebuffer;
+
+    private int nextId = 1;
+    private final Map<Integer, Buffer> buffers = new HashMap<>();
+    private final Map<Integer, VertexArray> vertexArrays = new HashMap<>();
+    private final Map<Integer, SoftwareTexture> textures = new HashMap<>();
+    private final Map<Integer, Program> programs = new HashMap<>();
+    private final VertexArray defaultVertexArray = new VertexArray();
+    private VertexArray vertexArray = defaultVertexArray;
+    private Program program;
+    private int arrayBuffer, uniformBuffer;
+    private final int[] uniformBindings = new int[MAX_UNIFORM_BINDINGS];
+    private final float[] viewProjection = new float[16];
+    private int activeUnit;
+    private final int[] units = new int[MAX_TEXTURE_UNITS];
+    private float clearR, clearG, clearB, clearA;
+    private boolean blend, cullFace, sdf;
+    private int blendSrc = GL_ONE, blendDst = GL_ZERO;
+    private long drawCalls, triangles, fragments;
+
+    // Atributos del triangulo actual, reutilizados para no crear objetos por triangulo
+    private final float[] vx = new float[3], vy = new float[3];
+    private final float[] vr = new float[3], vg = new float[3], vb = new float[3], va = new float[3];
+    private final float[] vu = new float[3], vv = new float[3];
+    private float vz;
+    private final SoftwareTexture[] samplers = new SoftwareTexture[RenderBatch.MAX_TEXTURES];
+
+    public SoftwareBackend(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.framebuffer = new int[width * height];
+    }
+
+    @Override
+    public int genVertexArrays() {
+        int id = nextId++;
+        vertexArrays.put(id, new VertexArray());
+        return id;
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        vertexArray = vao == 0 ? defaultVertexArray : vertexArrays.get(vao);
+    }
+
+    @Override
+    public void deleteVertexArrays(int vao) {
+        if (vertexArrays.remove(vao) == vertexArray) vertexArray = defaultVertexArray;
+    }
+
+    @Override
+    public int genBuffers() {
+        int id = nextId++;
+        buffers.put(id, new Buffer());
+        return id;
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        // El EBO forma parte del estado del VAO, igual que en OpenGL
+        if (target == GL_ARRAY_BUFFER) arrayBuffer = buffer;
+        else if (target == GL_UNIFORM_BUFFER) uniformBuffer = buffer;
+        else if (target == GL_ELEMENT_ARRAY_BUFFER) vertexArray.elementBuffer = buffer;
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        Buffer buffer = bound(target);
+        if (buffer != null) buffer.data = allocate((int) size);
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage) {
+        Buffer buffer = bound(target);
+        if (buffer == null) return;
+        buffer.data = allocate(data.remaining() * Float.BYTES);
+        buffer.data.asFloatBuffer().put(data.duplicate());
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage) {
+        Buffer buffer = bound(target);
+        if (buffer == null) return;
+        buffer.data = allocate(data.remaining() * Integer.BYTES);
+        buffer.data.asIntBuffer().put(data.duplicate());
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+        Buffer buffer = bound(target);
+        if (buffer == null) return;
+        buffer.data.position((int) offset);
+        buffer.data.asFloatBuffer().put(data.duplicate());
+        buffer.data.position(0);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        Buffer buffer = bound(target);
+        if (buffer == null) return;
+        buffer.data.put((int) offset, data, data.position(), data.remaining());
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+        buffers.remove(buffer);
+        if (arrayBuffer == buffer) arrayBuffer = 0;
+        if (uniformBuffer == buffer) uniformBuffer = 0;
+        for (int i = 0; i < uniformBindings.length; i++)
+            if (uniformBindings[i] == buffer) uniformBindings[i] = 0;
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        Attribute attribute = vertexArray.attributes[index];
+        // Como en OpenGL, el atributo queda asociado al VBO vinculado en este momento
+        attribute.buffer = arrayBuffer;
+        attribute.size = size;
+        attribute.type = type;
+        attribute.normalized = normalized;
+        attribute.stride = stride;
+        attribute.offset = (int) pointer;
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        vertexArray.attributes[index].enabled = true;
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+        vertexArray.attributes[index].enabled = false;
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        vertexArray.attributes[index].divisor = divisor;
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        drawElementsInstanced(mode, count, type, indices, 1);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instances) {
+        if (mode != GL_TRIANGLES || type != GL_UNSIGNED_INT) return;
+        Buffer elements = buffers.get(vertexArray.elementBuffer);
+        if (elements == null) return;
+        drawCalls++;
+
+        Attribute[] attributes = vertexArray.attributes;
+        if (source(attributes[0]) == null) return;
+        boolean transform = resolveViewProjection();
+        resolveSamplers();
+        // El shader instanciado lee los datos del sprite de atributos que avanzan por instancia
+        boolean instanced = attributes[1].divisor > 0;
+        int uniformTexId = instanced ? (int) uniformValue("uTexId") : 0;
+        sdf = instanced && uniformValue("uSdf") != 0;
+
+        int first = (int) (indices / Integer.BYTES);
+        for (int instance = 0; instance < instances; instance++) {
+            for (int t = 0; t + 2 < count; t += 3) {
+                int provoking = uniformTexId;
+                for (int k = 0; k < 3; k++) {
+                    int vertex = elements.data.getInt((first + t + k) * Integer.BYTES);
+                    if (instanced) fetchInstanced(k, vertex, instance);
+                    else {
+                        fetchSprite(k, vertex, instance);
+                        // Con "flat" OpenGL toma el valor del ultimo vertice del triangulo
+                        if (k == 2 && source(attributes[3]) != null) provoking = (int) read(attributes[3], vertex, instance, 0);
+                    }
+                    if (transform) {
+                        float[] m = viewProjection;
+                        float x = vx[k], y = vy[k], z = vz;
+                        // Matriz en orden de columnas, como la guarda std140
+                        float w = m[3] * x + m[7] * y + m[11] * z + m[15];
+                        vx[k] = (m[0] * x + m[4] * y + m[8] * z + m[12]) / w;
+                        vy[k] = (m[1] * x + m[5] * y + m[9] * z + m[13]) / w;
+                    }
+                    vx[k] = (vx[k] + 1) * 0.5f * width;
+                    vy[k] = (vy[k] + 1) * 0.5f * height;
+                }
+                rasterize(provoking > 0 && provoking <= samplers.length ? samplers[provoking - 1] : null);
+            }
+        }
+    }
+
+    /**
+     * Emula el vertex shader de los sprites: posicion (atributo 0), color (1) y coordenadas de textura (2) por vertice.
+     */
+    private void fetchSprite(int k, int vertex, int instance) {
+        Attribute[] attributes = vertexArray.attributes;
+        vx[k] = read(attributes[0], vertex, instance, 0);
+        vy[k] = read(attributes[0], vertex, instance, 1);
+        vz = attributes[0].size > 2 ? read(attributes[0], vertex, instance, 2) : 0;
+        if (source(attributes[1]) != null) {
+            vr[k] = read(attributes[1], vertex, instance, 0);
+            vg[k] = read(attributes[1], vertex, instance, 1);
+            vb[k] = read(attributes[1], vertex, instance, 2);
+            va[k] = read(attributes[1], vertex, instance, 3);
+        } else vr[k] = vg[k] = vb[k] = va[k] = 1;
+        if (source(attributes[2]) != null) {
+            vu[k] = read(attributes[2], vertex, instance, 0);
+            vv[k] = read(attributes[2], vertex, instance, 1);
+        }
+    }
+
+    /**
+     * Emula el vertex shader instanciado: la esquina del cuadrado (atributo 0, entre 0 y 1) se escala y rota alrededor del centro
+     * de la instancia (atributo 1: centro y tamaño, 2: rotacion), y toma el color (3) y la region de textura (4) de la instancia.
+     */
+    private void fetchInstanced(int k, int vertex, int instance) {
+        Attribute[] attributes = vertexArray.attributes;
+        float cornerX = read(attributes[0], vertex, instance, 0), cornerY = read(attributes[0], vertex, instance, 1);
+        float localX = (cornerX - 0.5f) * read(attributes[1], vertex, instance, 2);
+        float localY = (cornerY - 0.5f) * read(attributes[1], vertex, instance, 3);
+        float rotation = source(attributes[2]) != null ? read(attributes[2], vertex, instance, 0) : 0;
+        float cos = (float) Math.cos(rotation), sin = (float) Math.sin(rotation);
+        vx[k] = read(attributes[1], vertex, instance, 0) + localX * cos - localY * sin;
+        vy[k] = read(attributes[1], vertex, instance, 1) + localX * sin + localY * cos;
+        vz = 0;
+        if (source(attributes[3]) != null) {
+            vr[k] = read(attributes[3], vertex, instance, 0);
+            vg[k] = read(attributes[3], vertex, instance, 1);
+            vb[k] = read(attributes[3], vertex, instance, 2);
+            va[k] = read(attributes[3], vertex, instance, 3);
+        } else vr[k] = vg[k] = vb[k] = va[k] = 1;
+        if (source(attributes[4]) != null) {
+            float u0 = read(attributes[4], vertex, instance, 0), v0 = read(attributes[4], vertex, instance, 1);
+            float u1 = read(attributes[4], vertex, instance, 2), v1 = read(attributes[4], vertex, instance, 3);
+            vu[k] = u0 + (u1 - u0) * cornerX;
+            vv[k] = v1 + (v0 - v1) * cornerY;
+        }
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        clearR = r;
+        clearG = g;
+        clearB = b;
+        clearA = a;
+    }
+
+    @Override
+    public void clear(int mask) {
+        if ((mask & GL_COLOR_BUFFER_BIT) != 0) Arrays.fill(framebuffer, pack(clearR, clearG, clearB, clearA));
+    }
+
+    @Override
+    public void enable(int capability) {
+        setCapability(capability, true);
+    }
+
+    @Override
+    public void disable(int capability) {
+        setCapability(capability, false);
+    }
+
+    @Override
+    public void blendFunc(int sfactor, int dfactor) {
+        blendSrc = sfactor;
+        blendDst = dfactor;
+    }
+
+    @Override
+    public int genTextures() {
+        int id = nextId++;
+        textures.put(id, new SoftwareTexture());
+        return id;
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        activeUnit = unit - GL_TEXTURE0;
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        if (target == GL_TEXTURE_2D) units[activeUnit] = texture;
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+        textures.remove(texture);
+        for (int i = 0; i < units.length; i++)
+            if (units[i] == texture) units[i] = 0;
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type, ByteBuffer pixels) {
+        SoftwareTexture texture = textures.get(units[activeUnit]);
+        if (texture == null || level != 0) return;
+        texture.width = width;
+        texture.height = height;
+        texture.pixels = new int[width * height];
+        if (pixels != null) texSubImage2D(target, level, 0, 0, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        SoftwareTexture texture = textures.get(units[activeUnit]);
+        if (texture == null || level != 0 || format != GL_RGBA || type != GL_UNSIGNED_BYTE) return;
+        int base = pixels.position();
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int i = base + (row * width + col) * 4;
+                int r = pixels.get(i) & 0xFF, g = pixels.get(i + 1) & 0xFF, b = pixels.get(i + 2) & 0xFF, a = pixels.get(i + 3) & 0xFF;
+                texture.pixels[(y + row) * texture.width + x + col] = a << 24 | r << 16 | g << 8 | b;
+            }
+        }
+    }
+
+    @Override
+    public void texParameteri(int target, int pname, int param) {
+        // Solo se implementa el filtrado NEAREST con CLAMP_TO_EDGE, que es lo que usan las texturas del motor
+    }
+
+    @Override
+    public void readPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        if (format != GL_RGBA || type != GL_UNSIGNED_BYTE) return;
+        int index = pixels.position();
+        for (int row = y; row < y + height; row++) {
+            for (int col = x; col < x + width; col++) {
+                int argb = row >= 0 && row < this.height && col >= 0 && col < this.width ? framebuffer[row * this.width + col] : 0;
+                pixels.put(index++, (byte) (argb >> 16));
+                pixels.put(index++, (byte) (argb >> 8));
+                pixels.put(index++, (byte) argb);
+                pixels.put(index++, (byte) (argb >>> 24));
+            }
+        }
+    }
+
+    @Override
+    public String getString(int name) {
+        return switch (name) {
+            case GL_VENDOR -> "punkipunk";
+            case GL_RENDERER -> "Software rasterizer";
+            case GL_VERSION -> "3.3";
+            default -> null;
+        };
+    }
+
+    @Override
+    public int createShader(int type) {
+        return nextId++;
+    }
+
+    @Override
+    public void shaderSource(int shader, CharSequence source) {
+    }
+
+    @Override
+    public void compileShader(int shader) {
+    }
+
+    @Override
+    public int getShaderi(int shader, int pname) {
+        return pname == GL_COMPILE_STATUS ? GL_TRUE : 0;
+    }
+
+    @Override
+    public String getShaderInfoLog(int shader) {
+        return "";
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+    }
+
+    @Override
+    public int createProgram() {
+        int id = nextId++;
+        programs.put(id, new Program());
+        return id;
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+    }
+
+    @Override
+    public void linkProgram(int program) {
+    }
+
+    @Override
+    public int getProgrami(int program, int pname) {
+        return pname == GL_LINK_STATUS ? GL_TRUE : 0;
+    }
+
+    @Override
+    public String getProgramInfoLog(int program) {
+        return "";
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        if (programs.remove(program) == this.program) this.program = null;
+    }
+
+    @Override
+    public void useProgram(int program) {
+        this.program = programs.get(program);
+    }
+
+    @Override
+    public int getUniformLocation(int program, CharSequence name) {
+        Program target = programs.get(program);
+        if (target == null) return -1;
+        return target.locations.computeIfAbsent(name.toString(), key -> target.locations.size());
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        uniform(location, value, 0, 0, 0);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        uniform(location, x, 0, 0, 0);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        uniform(location, x, y, 0, 0);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        uniform(location, x, y, z, 0);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        uniform(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, FloatBuffer value) {
+        if (program == null || location < 0) return;
+        float[] values = program.values(location);
+        for (int i = 0; i < 16; i++) values[i] = value.get(value.position() + i);
+    }
+
+    @Override
+    public int getUniformBlockIndex(int program, CharSequence name) {
+        Program target = programs.get(program);
+        // El unico bloque que usan los shaders emulados es el de la camara
+        if (target == null || !name.toString().equals(CAMERA_BLOCK)) return GL_INVALID_INDEX;
+        return 0;
+    }
+
+    @Override
+    public void uniformBlockBinding(int program, int blockIndex, int binding) {
+        Program target = programs.get(program);
+        if (target != null && blockIndex == 0) target.cameraBinding = binding;
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+        if (target != GL_UNIFORM_BUFFER) return;
+        if (index >= 0 && index < uniformBindings.length) uniformBindings[index] = buffer;
+        uniformBuffer = buffer;
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        return false;
+    }
+
+    @Override
+    public void programParameteri(int program, int pname, int value) {
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+    }
+
+    @Override
+    public void programBinary(int program, int format, ByteBuffer binary) {
+    }
+
+    /**
+     * Copia el framebuffer a una imagen, con la fila 0 arriba como en los archivos de imagen.
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int row = 0; row < height; row++)
+            image.setRGB(0, height - 1 - row, width, 1, framebuffer, row * width, width);
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    public long getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * @return fragmentos sombreados desde la creacion del backend
+     */
+    public long getFragments() {
+        return fragments;
+    }
+
+    /**
+     * Rasteriza el triangulo cargado en los arreglos de vertices.
+     */
+    private void rasterize(SoftwareTexture texture) {
+        float area = edge(vx[0], vy[0], vx[1], vy[1], vx[2], vy[2]);
+        // Los cuadrados liberados del RenderBatch son degenerados y no generan fragmentos
+        if (area == 0) return;
+        // Los triangulos antihorarios son los frontales
+        if (cullFace && area < 0) return;
+        triangles++;
+
+        int minX = Math.max(0, (int) Math.floor(Math.min(vx[0], Math.min(vx[1], vx[2]))));
+        int maxX = Math.min(width - 1, (int) Math.ceil(Math.max(vx[0], Math.max(vx[1], vx[2]))));
+        int minY = Math.max(0, (int) Math.floor(Math.min(vy[0], Math.min(vy[1], vy[2]))));
+        int maxY = Math.min(height - 1, (int) Math.ceil(Math.max(vy[0], Math.max(vy[1], vy[2]))));
+        if (minX > maxX || minY > maxY) return;
+
+        float sign = Math.signum(area), inverseArea = 1 / area;
+        boolean topLeft0 = isTopLeft(1, 2, sign), topLeft1 = isTopLeft(2, 0, sign), topLeft2 = isTopLeft(0, 1, sign);
+
+        for (int y = minY; y <= maxY; y++) {
+            float py = y + 0.5f;
+            for (int x = minX; x <= maxX; x++) {
+                float px = x + 0.5f;
+                float w0 = edge(vx[1], vy[1], vx[2], vy[2], px, py) * sign;
+                float w1 = edge(vx[2], vy[2], vx[0], vy[0], px, py) * sign;
+                float w2 = edge(vx[0], vy[0], vx[1], vy[1], px, py) * sign;
+                if (w0 < 0 || w1 < 0 || w2 < 0) continue;
+                if ((w0 == 0 && !topLeft0) || (w1 == 0 && !topLeft1) || (w2 == 0 && !topLeft2)) continue;
+
+                // Coordenadas baricentricas para interpolar los atributos
+                float b0 = w0 * sign * inverseArea, b1 = w1 * sign * inverseArea, b2 = w2 * sign * inverseArea;
+                float r = b0 * vr[0] + b1 * vr[1] + b2 * vr[2];
+                float g = b0 * vg[0] + b1 * vg[1] + b2 * vg[2];
+                float b = b0 * vb[0] + b1 * vb[1] + b2 * vb[2];
+                float a = b0 * va[0] + b1 * va[1] + b2 * va[2];
+                if (texture != null && texture.pixels != null) {
+                    int texel = texture.sample(b0 * vu[0] + b1 * vu[1] + b2 * vu[2], b0 * vv[0] + b1 * vv[1] + b2 * vv[2]);
+                    r *= (texel >> 16 & 0xFF) / 255f;
+                    g *= (texel >> 8 & 0xFF) / 255f;
+                    b *= (texel & 0xFF) / 255f;
+                    float alpha = (texel >>> 24) / 255f;
+                    a *= sdf ? smoothstep(0.5f - SDF_WIDTH, 0.5f + SDF_WIDTH, alpha) : alpha;
+                }
+                write(y * width + x, r, g, b, a);
+                fragments++;
+            }
+        }
+    }
+
+    private static float smoothstep(float edge0, float edge1, float x) {
+        float t = Math.max(0, Math.min(1, (x - edge0) / (edge1 - edge0)));
+        return t * t * (3 - 2 * t);
+    }
+
+    private void write(int index, float r, float g, float b, float a) {
+        if (blend) {
+            int dst = framebuffer[index];
+            float dr = (dst >> 16 & 0xFF) / 255f, dg = (dst >> 8 & 0xFF) / 255f, db = (dst & 0xFF) / 255f, da = (dst >>> 24) / 255f;
+            float sf = factor(blendSrc, a, da), df = factor(blendDst, a, da);
+            r = r * sf + dr * df;
+            g = g * sf + dg * df;
+            b = b * sf + db * df;
+            a = a * sf + da * df;
+        }
+        framebuffer[index] = pack(r, g, b, a);
+    }
+
+    private static float factor(int factor, float srcAlpha, float dstAlpha) {
+        return switch (factor) {
+            case GL_ONE -> 1;
+            case GL_SRC_ALPHA -> srcAlpha;
+            case GL_ONE_MINUS_SRC_ALPHA -> 1 - srcAlpha;
+            case GL_DST_ALPHA -> dstAlpha;
+            case GL_ONE_MINUS_DST_ALPHA -> 1 - dstAlpha;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Un borde es superior (horizontal, con el triangulo debajo) o izquierdo. Los pixeles que caen justo sobre el borde solo se
+     * pintan si el borde es de uno de estos tipos.
+     */
+    private boolean isTopLeft(int from, int to, float sign) {
+        float dx = (vx[to] - vx[from]) * sign, dy = (vy[to] - vy[from]) * sign;
+        return (dy == 0 && dx < 0) || dy > 0;
+    }
+
+    private static float edge(float ax, float ay, float bx, float by, float px, float py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private static int pack(float r, float g, float b, float a) {
+        return channel(a) << 24 | channel(r) << 16 | channel(g) << 8 | channel(b);
+    }
+
+    private static int channel(float value) {
+        return Math.round(Math.max(0, Math.min(1, value)) * 255);
+    }
+
+    /**
+     * Resuelve la textura de cada sampler {@code uTextures[i]} del programa actual a partir de su unidad.
+     */
+    private void resolveSamplers() {
+        for (int i = 0; i < samplers.length; i++) {
+            // Sin programa o sin valor asignado, el sampler i usa la unidad i
+            Integer location = program != null ? program.locations.get("uTextures[" + i + "]") : null;
+            int unit = location != null && program.values.containsKey(location) ? (int) program.values(location)[0] : i;
+            samplers[i] = null;
+            if (unit >= 0 && unit < units.length) samplers[i] = textures.get(units[unit]);
+        }
+    }
+
+    /**
+     * Copia {@code uViewProjection} del uniform buffer vinculado al bloque de la camara del programa actual.
+     *
+     * @return false si no hay camara, en cuyo caso las posiciones ya estan en coordenadas de dispositivo normalizadas
+     */
+    private boolean resolveViewProjection() {
+        if (program == null || program.cameraBinding < 0 || program.cameraBinding >= uniformBindings.length) return false;
+        Buffer buffer = buffers.get(uniformBindings[program.cameraBinding]);
+        if (buffer == null || buffer.data.capacity() < (VIEW_PROJECTION_OFFSET + 16) * Float.BYTES) return false;
+        for (int i = 0; i < 16; i++)
+            viewProjection[i] = buffer.data.getFloat((VIEW_PROJECTION_OFFSET + i) * Float.BYTES);
+        return true;
+    }
+
+    private void uniform(int location, float x, float y, float z, float w) {
+        if (program == null || location < 0) return;
+        float[] values = program.values(location);
+        values[0] = x;
+        values[1] = y;
+        values[2] = z;
+        values[3] = w;
+    }
+
+    private void setCapability(int capability, boolean enabled) {
+        if (capability == GL_BLEND) blend = enabled;
+        else if (capability == GL_CULL_FACE) cullFace = enabled;
+    }
+
+    private ByteBuffer source(Attribute attribute) {
+        if (!attribute.enabled) return null;
+        Buffer buffer = buffers.get(attribute.buffer);
+        return buffer != null ? buffer.data : null;
+    }
+
+    /**
+     * Lee un componente de un atributo para el vertice y la instancia dados. Admite floats y bytes sin signo (normalizados o no).
+     */
+    private float read(Attribute attribute, int vertex, int instance, int component) {
+        ByteBuffer data = source(attribute);
+        boolean bytes = attribute.type == GL_UNSIGNED_BYTE;
+        int stride = attribute.stride != 0 ? attribute.stride : attribute.size * (bytes ? 1 : Float.BYTES);
+        int element = attribute.divisor > 0 ? instance / attribute.divisor : vertex;
+        int position = attribute.offset + element * stride;
+        if (!bytes) return data.getFloat(position + component * Float.BYTES);
+        int value = data.get(position + component) & 0xFF;
+        return attribute.normalized ? value / 255f : value;
+    }
+
+    /**
+     * @return primer componente del uniform del programa actual, o 0 si no tiene valor
+     */
+    private float uniformValue(String name) {
+        Integer location = program != null ? program.locations.get(name) : null;
+        return location != null && program.values.containsKey(location) ? program.values.get(location)[0] : 0;
+    }
+
+    private Buffer bound(int target) {
+        if (target == GL_ARRAY_BUFFER) return buffers.get(arrayBuffer);
+        if (target == GL_ELEMENT_ARRAY_BUFFER) return buffers.get(vertexArray.elementBuffer);
+        if (target == GL_UNIFORM_BUFFER) return buffers.get(uniformBuffer);
+        return null;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+    }
+
+    private static class Buffer {
+        ByteBuffer data = allocate(0);
+    }
+
+    private static class Attribute {
+        int buffer, size, type = GL_FLOAT, stride, offset, divisor;
+        boolean enabled, normalized;
+    }
+
+    private static class VertexArray {
+        final Attribute[] attributes = new Attribute[MAX_ATTRIBUTES];
+        int elementBuffer;
+
+        VertexArray() {
+            for (int i = 0; i < attributes.length; i++) attributes[i] = new Attribute();
+        }
+    }
+
+    private static class SoftwareTexture {
+        int width, height;
+        int[] pixels;
+
+        int sample(float u, float v) {
+            int x = Math.max(0, Math.min(width - 1, (int) Math.floor(u * width)));
+            int y = Math.max(0, Math.min(height - 1, (int) Math.floor(v * height)));
+            return pixels[y * width + x];
+        }
+    }
+
+    private static class Program {
+        final Map<String, Integer> locations = new HashMap<>();
+        final Map<Integer, float[]> values = new HashMap<>();
+        // Punto de vinculacion del bloque de la camara, -1 si no se asigno
+        int cameraBinding = -1;
+
+        float[] values(int location) {
+            return values.computeIfAbsent(location, key -> new float[16]);
+        }
+    }
+
+}
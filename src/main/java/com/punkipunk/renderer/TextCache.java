@@ -0,0 +1,114 @@
+package com.punkipunk.renderer;
+
+import java.util.Arrays;
+
+/**
+ * Cache de los {@link GlyphRun} de una {@link Font}, indexada por el contenido del texto.
+ * <p>
+ * Los textos de un HUD casi no cambian de un frame a otro, por lo que distribuirlos de nuevo en cada frame seria trabajo
+ * repetido. {@link #get(CharSequence)} acepta cualquier {@link CharSequence} (por ejemplo, un {@link StringBuilder} que se
+ * reutiliza) y compara caracter por caracter, sin crear un {@code String}. Cuando la cache se llena, el texto que se uso hace
+ * mas tiempo se reemplaza reutilizando su {@code GlyphRun}, por lo que una vez llena no vuelve a reservar memoria aunque los
+ * textos cambien en cada frame.
+ */
+
+public class TextCache {
+
+    private final Font font;
+    private final GlyphRun[] runs;
+    private final int[] hashes, next, buckets;
+    private final long[] lastUse;
+    private int size;
+    private long clock, hits, misses;
+
+    /**
+     * @param capacity cantidad maxima de textos distintos que se conservan
+     */
+    public TextCache(Font font, int capacity) {
+        this.font = font;
+        runs = new GlyphRun[capacity];
+        hashes = new int[capacity];
+        next = new int[capacity];
+        lastUse = new long[capacity];
+        buckets = new int[Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) * 2];
+        Arrays.fill(buckets, -1);
+    }
+
+    /**
+     * @return el texto distribuido, valido hasta que la cache lo reemplace (como minimo, hasta la siguiente llamada)
+     */
+    public GlyphRun get(CharSequence text) {
+        int hash = hash(text), bucket = hash & buckets.length - 1;
+        for (int i = buckets[bucket]; i >= 0; i = next[i]) {
+            if (hashes[i] == hash && runs[i].matches(text)) {
+                lastUse[i] = ++clock;
+                hits++;
+                return runs[i];
+            }
+        }
+
+        misses++;
+        int slot;
+        if (size < runs.length) {
+            slot = size++;
+            runs[slot] = new GlyphRun();
+        } else {
+            slot = 0;
+            for (int i = 1; i < size; i++)
+                if (lastUse[i] < lastUse[slot]) slot = i;
+            unlink(slot);
+        }
+        hashes[slot] = hash;
+        next[slot] = buckets[bucket];
+        buckets[bucket] = slot;
+        lastUse[slot] = ++clock;
+        runs[slot].layout(font, text);
+        return runs[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(buckets, -1);
+        size = 0;
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return textos que hubo que distribuir por no estar en la cache
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    private void unlink(int slot) {
+        int bucket = hashes[slot] & buckets.length - 1;
+        if (buckets[bucket] == slot) {
+            buckets[bucket] = next[slot];
+            return;
+        }
+        for (int i = buckets[bucket]; i >= 0; i = next[i]) {
+            if (next[i] == slot) {
+                next[i] = next[slot];
+                return;
+            }
+        }
+    }
+
+    private static int hash(CharSequence text) {
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) hash = 31 * hash + text.charAt(i);
+        // Mezcla los bits altos, ya que el cubo se elige con los bajos
+        return hash ^ hash >>> 16;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.punkipunk.renderer;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+
+/**
+ * Textura 2D RGBA en la GPU.
+ * <p>
+ * Usa filtrado {@code GL_NEAREST} para que los sprites de pixel art no se vean borrosos, y {@code GL_CLAMP_TO_EDGE} para que
+ * las regiones de un atlas no tomen pixeles del borde opuesto.
+ */
+
+public class Texture {
+
+    private final GLBackend gl;
+    private final int width;
+    private final int height;
+    private int textureID;
+
+    /**
+     * Crea la textura y reserva su memoria en la GPU.
+     *
+     * @param pixels pixeles RGBA iniciales, o null para dejarla sin inicializar
+     */
+    public Texture(GLBackend gl, int width, int height, ByteBuffer pixels) {
+        this.gl = gl;
+        this.width = width;
+        this.height = height;
+        textureID = gl.genTextures();
+        gl.bindTexture(GL_TEXTURE_2D, textureID);
+        gl.texParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        gl.texParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        gl.texParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        gl.texParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        gl.texImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, width, height, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    /**
+     * Reemplaza una region de la textura.
+     */
+    public void upload(int x, int y, int regionWidth, int regionHeight, ByteBuffer pixels) {
+        gl.bindTexture(GL_TEXTURE_2D, textureID);
+        gl.texSubImage2D(GL_TEXTURE_2D, 0, x, y, regionWidth, regionHeight, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    /**
+     * @param filter filtro de minificacion y magnificacion ({@code GL_NEAREST}, el predeterminado, o {@code GL_LINEAR})
+     */
+    public void setFilter(int filter) {
+        gl.bindTexture(GL_TEXTURE_2D, textureID);
+        gl.texParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, filter);
+        gl.texParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, filter);
+    }
+
+    /**
+     * Vincula la textura a una unidad de textura.
+     */
+    public void bind(int unit) {
+        gl.activeTexture(GL_TEXTURE0 + unit);
+        gl.bindTexture(GL_TEXTURE_2D, textureID);
+    }
+
+    public void dispose() {
+        if (textureID != 0) gl.deleteTextures(textureID);
+        textureID = 0;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.punkipunk.renderer;
+
+import java.util.*;
+
+/**
+ * Conjunto de sprites empaquetados en una o mas paginas de textura.
+ * <p>
+ * El empaquetado y la composicion de las paginas se hacen en la CPU (y pueden correr en un hilo de trabajo): los sprites se
+ * ordenan por altura descendente y se colocan con un {@link SkylinePacker}, abriendo una nueva pagina cuando la actual se
+ * llena. Las paginas se suben a la GPU por separado con {@link #upload(GLBackend)}, lo que permite que el renderizador dibuje
+ * miles de sprites distintos con una sola textura vinculada.
+ */
+
+public class TextureAtlas {
+
+    private final Map<String, AtlasRegion> regions;
+    private final ImageData[] pageImages;
+    private Texture[] pages;
+
+    private TextureAtlas(Map<String, AtlasRegion> regions, ImageData[] pageImages) {
+        this.regions = regions;
+        this.pageImages = pageImages;
+    }
+
+    /**
+     * Empaqueta las imagenes en paginas cuadradas.
+     *
+     * @param images   imagenes por nombre
+     * @param pageSize lado de cada pagina en pixeles
+     * @param padding  pixeles transparentes entre sprites, para evitar que el filtrado mezcle sprites vecinos
+     */
+    public static TextureAtlas pack(Map<String, ImageData> images, int pageSize, int padding) {
+        List<Map.Entry<String, ImageData>> entries = new ArrayList<>(images.entrySet());
+        // Ordenar por altura mejora mucho el aprovechamiento del skyline; el nombre desempata para que el resultado sea estable
+        entries.sort(Comparator.<Map.Entry<String, ImageData>>comparingInt(e -> -e.getValue().getHeight()).thenComparing(Map.Entry::getKey));
+
+        Map<String, AtlasRegion> regions = new HashMap<>();
+        List<SkylinePacker> packers = new ArrayList<>();
+        List<ImageData> pages = new ArrayList<>();
+
+        for (Map.Entry<String, ImageData> entry : entries) {
+            ImageData image = entry.getValue();
+            int width = image.getWidth() + padding, height = image.getHeight() + padding;
+            if (width > pageSize || height > pageSize)
+                throw new IllegalArgumentException("The sprite '" + entry.getKey() + "' does not fit in a " + pageSize + "px page!");
+
+            long position = -1;
+            int page;
+            for (page = 0; page < packers.size(); page++) {
+                position = packers.get(page).insert(width, height);
+                if (position >= 0) break;
+            }
+            if (position < 0) {
+                SkylinePacker packer = new SkylinePacker(pageSize, pageSize);
+                packers.add(packer);
+                pages.add(ImageData.allocate(pageSize, pageSize));
+                page = packers.size() - 1;
+                position = packer.insert(width, height);
+            }
+
+            int x = SkylinePacker.x(position), y = SkylinePacker.y(position);
+            image.copyTo(pages.get(page), x, y);
+            float size = pageSize;
+            regions.put(entry.getKey(), new AtlasRegion(page, x, y, image.getWidth(), image.getHeight(),
+                    x / size, y / size, (x + image.getWidth()) / size, (y + image.getHeight()) / size));
+        }
+
+        return new TextureAtlas(regions, pages.toArray(new ImageData[0]));
+    }
+
+    /**
+     * Sube las paginas a la GPU y libera su copia en memoria. Debe llamarse desde el hilo de OpenGL.
+     */
+    public void upload(GLBackend gl) {
+        pages = new Texture[pageImages.length];
+        for (int i = 0; i < pageImages.length; i++) pages[i] = uploadPage(gl, i);
+    }
+
+    /**
+     * Sube una sola pagina, para repartir la carga de un atlas grande entre varios frames.
+     */
+    Texture uploadPage(GLBackend gl, int page) {
+        if (pages == null) pages = new Texture[pageImages.length];
+        ImageData image = pageImages[page];
+        pages[page] = new Texture(gl, image.getWidth(), image.getHeight(), image.getPixels());
+        image.free();
+        return pages[page];
+    }
+
+    public AtlasRegion getRegion(String name) {
+        return regions.get(name);
+    }
+
+    public Texture getTexture(int page) {
+        return pages[page];
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(regions.keySet());
+    }
+
+    public int getPageCount() {
+        return pageImages.length;
+    }
+
+    /**
+     * @return bytes de cada pagina (todas tienen el mismo tamaño)
+     */
+    public int getPageSizeBytes() {
+        return pageImages.length == 0 ? 0 : pageImages[0].getSizeBytes();
+    }
+
+    public void dispose() {
+        if (pages != null) for (Texture page : pages) if (page != null) page.dispose();
+        for (ImageData image : pageImages) image.free();
+    }
+
+}
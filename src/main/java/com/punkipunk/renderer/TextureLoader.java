@@ -0,0 +1,204 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.ResourceHandle;
+import com.punkipunk.util.ResourceManager;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.stb.STBImage.stbi_failure_reason;
+import static org.lwjgl.stb.STBImage.stbi_load_from_memory;
+
+/**
+ * Carga asincronica de texturas.
+ * <p>
+ * La lectura y la decodificacion de las imagenes (con STB) y el empaquetado de atlas corren en un pool de hilos de trabajo. Lo
+ * unico que necesita el contexto OpenGL, la subida de los pixeles, se encola en una cola acotada que el hilo principal vacia
+ * con {@link #processUploads(long)} respetando un presupuesto de bytes por frame, de modo que cargar texturas nunca congela
+ * un frame. Si la cola se llena, los hilos de trabajo esperan, lo que limita la memoria ocupada por imagenes decodificadas que
+ * aun no se subieron. Por eso las subidas se encolan siempre desde un hilo de trabajo: si lo hiciera el hilo de OpenGL (por
+ * ejemplo, al pedir una imagen que ya estaba decodificada) y la cola estuviera llena, esperaria a su propio consumidor.
+ */
+
+public class TextureLoader {
+
+    private final GLBackend gl;
+    private final ResourceManager resources;
+    private final ExecutorService workers;
+    private final BlockingQueue<Upload> uploads;
+    private long uploadedBytes;
+
+    /**
+     * @param resources administrador del que se leen los archivos de las imagenes
+     */
+    public TextureLoader(GLBackend gl, ResourceManager resources, int threads, int queueCapacity) {
+        this.gl = gl;
+        this.resources = resources;
+        this.uploads = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "texture-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Decodifica una imagen PNG, JPG, BMP, TGA, etc. a RGBA de 8 bits. Puede llamarse desde cualquier hilo.
+     *
+     * @param encoded contenido del archivo en un buffer directo
+     * @param name    nombre de la imagen, para los mensajes de error
+     */
+    public static ImageData decode(ByteBuffer encoded, String name) throws IOException {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer width = stack.mallocInt(1), height = stack.mallocInt(1), channels = stack.mallocInt(1);
+            ByteBuffer pixels = stbi_load_from_memory(encoded, width, height, channels, ImageData.CHANNELS);
+            if (pixels == null) throw new IOException("The '" + name + "' image could not be decoded: " + stbi_failure_reason());
+            return new ImageData(width.get(0), height.get(0), pixels, true);
+        }
+    }
+
+    /**
+     * Lee y decodifica la imagen en segundo plano. El archivo se libera del {@link ResourceManager} despues de decodificarlo, de
+     * modo que queda en su cache mientras haya presupuesto de memoria.
+     */
+    public CompletableFuture<ImageData> decodeAsync(String resourceName) {
+        ResourceHandle<ByteBuffer> file = resources.loadBytes(resourceName);
+        return file.future().thenApplyAsync(encoded -> {
+            try {
+                // El buffer es compartido por la cache, por lo que STB recibe una vista propia
+                return decode(encoded.duplicate(), resourceName);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, workers).whenComplete((image, error) -> file.release());
+    }
+
+    /**
+     * Carga una imagen como textura. El futuro se completa en el hilo principal, durante {@link #processUploads(long)}.
+     */
+    public CompletableFuture<Texture> loadTexture(String resourceName) {
+        CompletableFuture<Texture> result = new CompletableFuture<>();
+        decodeAsync(resourceName).whenCompleteAsync((image, error) -> {
+            if (error != null) result.completeExceptionally(error);
+            else enqueue(new Upload(image.getSizeBytes(), () -> {
+                Texture texture = new Texture(gl, image.getWidth(), image.getHeight(), image.getPixels());
+                image.free();
+                result.complete(texture);
+            }), result);
+        }, workers);
+        return result;
+    }
+
+    /**
+     * Decodifica las imagenes en paralelo, las empaqueta en un atlas y sube cada pagina por separado.
+     *
+     * @param resourceNames recursos de las imagenes, que tambien son los nombres de sus regiones en el atlas
+     */
+    public CompletableFuture<TextureAtlas> loadAtlas(Collection<String> resourceNames, int pageSize, int padding) {
+        List<String> names = new ArrayList<>(resourceNames);
+        List<CompletableFuture<ImageData>> decoded = new ArrayList<>(names.size());
+        for (String name : names) decoded.add(decodeAsync(name));
+
+        CompletableFuture<TextureAtlas> result = new CompletableFuture<>();
+        CompletableFuture.allOf(decoded.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+            Map<String, ImageData> images = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) images.put(names.get(i), decoded.get(i).join());
+            TextureAtlas atlas = TextureAtlas.pack(images, pageSize, padding);
+            // Las imagenes ya se copiaron a las paginas
+            for (ImageData image : images.values()) image.free();
+            return atlas;
+        }, workers).whenCompleteAsync((atlas, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                for (CompletableFuture<ImageData> image : decoded) image.thenAccept(ImageData::free);
+                return;
+            }
+            int pages = atlas.getPageCount();
+            if (pages == 0) result.complete(atlas);
+            for (int page = 0; page < pages; page++) {
+                int index = page;
+                enqueue(new Upload(atlas.getPageSizeBytes(), () -> {
+                    atlas.uploadPage(gl, index);
+                    if (index == pages - 1) result.complete(atlas);
+                }), result);
+            }
+        }, workers);
+        return result;
+    }
+
+    /**
+     * Espera a que se complete una carga de este cargador, ejecutando las subidas a medida que llegan y sin respetar ningun
+     * presupuesto. Sirve para terminar de cargar una escena antes de activarla. Debe llamarse desde el hilo de OpenGL.
+     *
+     * @return el resultado de la carga
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        while (!future.isDone()) {
+            try {
+                Upload upload = uploads.poll(1, TimeUnit.MILLISECONDS);
+                if (upload != null) {
+                    upload.action.run();
+                    uploadedBytes += upload.bytes;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Ejecuta subidas pendientes hasta consumir el presupuesto. Siempre procesa al menos una (si hay), para que una imagen mas
+     * grande que el presupuesto no quede bloqueada. Debe llamarse desde el hilo de OpenGL.
+     *
+     * @param budgetBytes bytes maximos a subir en este frame
+     * @return cantidad de subidas procesadas
+     */
+    public int processUploads(long budgetBytes) {
+        int processed = 0;
+        long spent = 0;
+        Upload upload;
+        while (spent < budgetBytes && (upload = uploads.poll()) != null) {
+            upload.action.run();
+            spent += upload.bytes;
+            processed++;
+        }
+        uploadedBytes += spent;
+        return processed;
+    }
+
+    public int getPendingUploads() {
+        return uploads.size();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void enqueue(Upload upload, CompletableFuture<?> result) {
+        try {
+            // Bloquea al hilo de trabajo mientras la cola este llena
+            uploads.put(upload);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        }
+    }
+
+    private record Upload(long bytes, Runnable action) {
+
+    }
+
+}
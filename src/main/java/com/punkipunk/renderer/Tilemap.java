@@ -0,0 +1,363 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.BufferPool;
+import com.punkipunk.util.IntArrayList;
+import com.punkipunk.util.MemoryArena;
+import com.punkipunk.util.Profiler;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Mapa de tiles dividido en chunks de {@link #CHUNK_SIZE} x {@link #CHUNK_SIZE} tiles.
+ * <p>
+ * Los vertices de cada chunk se generan una sola vez en un VBO {@code GL_STATIC_DRAW} propio (con el mismo formato de vertice
+ * que el {@link RenderBatch}, por lo que se dibuja con el shader de los sprites), y solo se vuelven a generar los chunks cuyos
+ * tiles cambiaron. En cada frame se dibujan unicamente los chunks que se cruzan con la region visible, con una draw call por
+ * chunk, de modo que el costo por frame no depende del tamaño del mapa sino de cuantos chunks entran en la pantalla.
+ * <p>
+ * Los chunks se crean la primera vez que se ven. Para que un mapa enorme no ocupe toda la memoria de video, cuando hay mas de
+ * {@code maxResidentChunks} chunks en la GPU se liberan los que hace mas tiempo que no se dibujan (nunca los del frame actual).
+ * <p>
+ * Los tiles se identifican con un tipo entre 1 y 65535 (0 es un tile vacio, que no genera vertices); cada tipo tiene un color
+ * y, si el mapa tiene textura, una region de ella. Como {@link #setTile(int, int, int)} puede llamarse desde la simulacion
+ * mientras el hilo de OpenGL dibuja, los metodos que tocan los tiles estan sincronizados.
+ */
+
+public class Tilemap {
+
+    public static final int CHUNK_SIZE = 64;
+    private static final int TILES_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int MAX_TYPES = 1 << Short.SIZE;
+    private static final String SAMPLER_NAME = "uTextures[0]";
+
+    private final GLBackend gl;
+    private final int width, height;
+    private final float tileWidth, tileHeight;
+    private final int chunksX, chunksY;
+    private final int maxResidentChunks;
+    // Tipo de cada tile por filas, empezando por la fila inferior
+    private final short[] tiles;
+    private Texture texture;
+    // Color (4 floats) y coordenadas de textura (u0, v0, u1, v1) de cada tipo
+    private float[] typeColors = new float[0], typeRegions = new float[0];
+
+    // Por chunk: buffers en la GPU (0 si no esta cargado), cuadrados y ultimo frame en que se dibujo
+    private final int[] chunkVao, chunkVbo, chunkQuads;
+    private final long[] chunkLastDrawn;
+    private final boolean[] chunkDirty;
+    private final IntArrayList resident = new IntArrayList();
+    private final IntArrayList dirty = new IntArrayList();
+    private FloatBuffer vertices;
+    private int eboID;
+    private long frame;
+    private int drawCalls, rebuilds;
+
+    /**
+     * @param width             ancho del mapa en tiles
+     * @param height            alto del mapa en tiles
+     * @param tileWidth         ancho de un tile en unidades del mundo
+     * @param tileHeight        alto de un tile en unidades del mundo
+     * @param maxResidentChunks chunks que se conservan en la GPU aunque no se vean
+     */
+    public Tilemap(GLBackend gl, int width, int height, float tileWidth, float tileHeight, int maxResidentChunks) {
+        this.gl = gl;
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.maxResidentChunks = maxResidentChunks;
+        this.tiles = new short[Math.multiplyExact(width, height)];
+        chunksX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunksY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int chunks = chunksX * chunksY;
+        chunkVao = new int[chunks];
+        chunkVbo = new int[chunks];
+        chunkQuads = new int[chunks];
+        chunkLastDrawn = new long[chunks];
+        chunkDirty = new boolean[chunks];
+    }
+
+    /**
+     * Asigna la textura de la que toman sus regiones los tipos de tile. Los chunks ya cargados se regeneran.
+     */
+    public synchronized void setTexture(Texture texture) {
+        this.texture = texture;
+        markAllDirty();
+    }
+
+    /**
+     * Define un tipo de tile sin textura.
+     */
+    public void setType(int type, float r, float g, float b, float a) {
+        setType(type, r, g, b, a, 0, 0, 1, 1);
+    }
+
+    /**
+     * Define un tipo de tile con una region de la textura del mapa.
+     */
+    public void setType(int type, float r, float g, float b, float a, AtlasRegion region) {
+        setType(type, r, g, b, a, region.u0(), region.v0(), region.u1(), region.v1());
+    }
+
+    /**
+     * Define el color y las coordenadas de textura de un tipo de tile. Los chunks ya cargados se regeneran.
+     */
+    public synchronized void setType(int type, float r, float g, float b, float a, float u0, float v0, float u1, float v1) {
+        assert type > 0 && type < MAX_TYPES : "The tile type " + type + " is out of range!";
+        if (type * 4 >= typeColors.length) {
+            int capacity = Math.min(MAX_TYPES, Math.max(16, Integer.highestOneBit(type) * 2)) * 4;
+            typeColors = Arrays.copyOf(typeColors, capacity);
+            typeRegions = Arrays.copyOf(typeRegions, capacity);
+        }
+        int offset = type * 4;
+        typeColors[offset] = r;
+        typeColors[offset + 1] = g;
+        typeColors[offset + 2] = b;
+        typeColors[offset + 3] = a;
+        typeRegions[offset] = u0;
+        typeRegions[offset + 1] = v0;
+        typeRegions[offset + 2] = u1;
+        typeRegions[offset + 3] = v1;
+        markAllDirty();
+    }
+
+    /**
+     * Cambia un tile y marca su chunk para que se regenere en el proximo {@link #render(Shader, float, float, float, float)}.
+     *
+     * @param type tipo del tile, o 0 para vaciarlo
+     */
+    public synchronized void setTile(int x, int y, int type) {
+        assert type >= 0 && type < MAX_TYPES : "The tile type " + type + " is out of range!";
+        int index = y * width + x;
+        if ((tiles[index] & 0xFFFF) == type) return;
+        tiles[index] = (short) type;
+        markDirty(y / CHUNK_SIZE * chunksX + x / CHUNK_SIZE);
+    }
+
+    public synchronized int getTile(int x, int y) {
+        return tiles[y * width + x] & 0xFFFF;
+    }
+
+    /**
+     * Llena una region de filas completas sin marcar chunks; pensado para generar el mapa antes del primer render (por ejemplo,
+     * en paralelo desde {@code Scene.preload()}).
+     *
+     * @param firstRow primera fila
+     * @param rows     tipos de las filas, {@code width} por fila
+     */
+    public void fillRows(int firstRow, short[] rows) {
+        assert rows.length % width == 0 : "The rows must be complete!";
+        System.arraycopy(rows, 0, tiles, firstRow * width, rows.length);
+    }
+
+    /**
+     * @return columna del tile que contiene la coordenada x del mundo (puede quedar fuera del mapa)
+     */
+    public int tileX(float worldX) {
+        return (int) Math.floor(worldX / tileWidth);
+    }
+
+    /**
+     * @return fila del tile que contiene la coordenada y del mundo (puede quedar fuera del mapa)
+     */
+    public int tileY(float worldY) {
+        return (int) Math.floor(worldY / tileHeight);
+    }
+
+    /**
+     * Dibuja los chunks que se cruzan con la region visible, generando los que faltan o cambiaron. El shader debe estar en uso.
+     */
+    public synchronized void render(Shader shader, float minX, float minY, float maxX, float maxY) {
+        frame++;
+        drawCalls = 0;
+        rebuilds = 0;
+
+        // Los chunks modificados que no estan cargados se generaran cuando se vean
+        for (int i = 0; i < dirty.size(); i++) {
+            int chunk = dirty.get(i);
+            chunkDirty[chunk] = false;
+            if (chunkVbo[chunk] != 0) build(chunk);
+        }
+        dirty.clear();
+
+        int firstX = Math.max(0, (int) Math.floor(minX / (tileWidth * CHUNK_SIZE)));
+        int firstY = Math.max(0, (int) Math.floor(minY / (tileHeight * CHUNK_SIZE)));
+        int lastX = Math.min(chunksX - 1, (int) Math.floor(maxX / (tileWidth * CHUNK_SIZE)));
+        int lastY = Math.min(chunksY - 1, (int) Math.floor(maxY / (tileHeight * CHUNK_SIZE)));
+        if (firstX > lastX || firstY > lastY) return;
+
+        if (texture != null) {
+            shader.uploadInt(SAMPLER_NAME, 0);
+            texture.bind(0);
+        }
+        for (int cy = firstY; cy <= lastY; cy++) {
+            for (int cx = firstX; cx <= lastX; cx++) {
+                int chunk = cy * chunksX + cx;
+                if (chunkVbo[chunk] == 0) {
+                    evict();
+                    build(chunk);
+                }
+                chunkLastDrawn[chunk] = frame;
+                if (chunkQuads[chunk] == 0) continue;
+                gl.bindVertexArray(chunkVao[chunk]);
+                gl.drawElements(GL_TRIANGLES, chunkQuads[chunk] * RenderBatch.INDICES_PER_QUAD, GL_UNSIGNED_INT, 0);
+                drawCalls++;
+            }
+        }
+        Profiler.get().count(Profiler.DRAW_CALLS, drawCalls);
+    }
+
+    /**
+     * Libera los buffers de todos los chunks y el de vertices. El mapa se puede volver a dibujar despues (los chunks se
+     * regeneran), pero los tiles se conservan.
+     */
+    public synchronized void dispose() {
+        for (int i = 0; i < resident.size(); i++) release(resident.get(i));
+        resident.clear();
+        if (eboID != 0) gl.deleteBuffers(eboID);
+        eboID = 0;
+        if (vertices != null) BufferPool.get().free(vertices);
+        vertices = null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public float getTileWidth() {
+        return tileWidth;
+    }
+
+    public float getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * @return draw calls emitidas en el ultimo render
+     */
+    public synchronized int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * @return chunks generados (por primera vez o por cambios) en el ultimo render
+     */
+    public synchronized int getRebuilds() {
+        return rebuilds;
+    }
+
+    public synchronized int getResidentChunks() {
+        return resident.size();
+    }
+
+    /**
+     * Genera los vertices del chunk y los sube a su VBO, creando el VAO y el VBO si no estaba cargado.
+     */
+    private void build(int chunk) {
+        if (vertices == null) vertices = BufferPool.get().allocateFloats(TILES_PER_CHUNK * RenderBatch.QUAD_SIZE);
+        if (eboID == 0) createIndices();
+
+        int cx = chunk % chunksX, cy = chunk / chunksX;
+        int startX = cx * CHUNK_SIZE, startY = cy * CHUNK_SIZE;
+        int endX = Math.min(width, startX + CHUNK_SIZE), endY = Math.min(height, startY + CHUNK_SIZE);
+        float texId = texture != null ? 1 : 0;
+
+        vertices.clear();
+        int quads = 0;
+        for (int y = startY; y < endY; y++) {
+            int row = y * width;
+            float y0 = y * tileHeight, y1 = y0 + tileHeight;
+            for (int x = startX; x < endX; x++) {
+                int type = tiles[row + x] & 0xFFFF;
+                if (type == 0 || type * 4 >= typeColors.length) continue;
+                float x0 = x * tileWidth, x1 = x0 + tileWidth;
+                int t = type * 4;
+                float r = typeColors[t], g = typeColors[t + 1], b = typeColors[t + 2], a = typeColors[t + 3];
+                float u0 = typeRegions[t], v0 = typeRegions[t + 1], u1 = typeRegions[t + 2], v1 = typeRegions[t + 3];
+                // Mismo orden de esquinas que el RenderBatch: inferior derecha, superior izquierda, superior derecha, inferior izquierda
+                vertex(x1, y0, r, g, b, a, u1, v1, texId);
+                vertex(x0, y1, r, g, b, a, u0, v0, texId);
+                vertex(x1, y1, r, g, b, a, u1, v0, texId);
+                vertex(x0, y0, r, g, b, a, u0, v1, texId);
+                quads++;
+            }
+        }
+        vertices.flip();
+
+        if (chunkVbo[chunk] == 0) {
+            chunkVao[chunk] = gl.genVertexArrays();
+            gl.bindVertexArray(chunkVao[chunk]);
+            chunkVbo[chunk] = gl.genBuffers();
+            gl.bindBuffer(GL_ARRAY_BUFFER, chunkVbo[chunk]);
+            gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+            RenderBatch.vertexAttributes(gl);
+            resident.add(chunk);
+        } else gl.bindBuffer(GL_ARRAY_BUFFER, chunkVbo[chunk]);
+        // Se reemplaza el contenido entero: el tamaño cambia con la cantidad de tiles no vacios
+        gl.bufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        gl.bindVertexArray(0);
+        chunkQuads[chunk] = quads;
+        rebuilds++;
+    }
+
+    private void vertex(float x, float y, float r, float g, float b, float a, float u, float v, float texId) {
+        vertices.put(x).put(y).put(0.0f).put(r).put(g).put(b).put(a).put(u).put(v).put(texId);
+    }
+
+    /**
+     * Libera los chunks cargados que hace mas tiempo que no se dibujan hasta dejar lugar para uno nuevo.
+     */
+    private void evict() {
+        while (resident.size() >= maxResidentChunks) {
+            int oldest = -1;
+            for (int i = 0; i < resident.size(); i++) {
+                int chunk = resident.get(i);
+                if (chunkLastDrawn[chunk] < frame && (oldest < 0 || chunkLastDrawn[chunk] < chunkLastDrawn[resident.get(oldest)]))
+                    oldest = i;
+            }
+            // Todos los cargados estan en pantalla: se supera el limite en lugar de dibujar de menos
+            if (oldest < 0) return;
+            release(resident.get(oldest));
+            resident.removeSwap(oldest);
+        }
+    }
+
+    private void release(int chunk) {
+        gl.deleteBuffers(chunkVbo[chunk]);
+        gl.deleteVertexArrays(chunkVao[chunk]);
+        chunkVbo[chunk] = chunkVao[chunk] = chunkQuads[chunk] = 0;
+    }
+
+    private void createIndices() {
+        int[] indices = Renderer.generateIndices(TILES_PER_CHUNK);
+        MemoryArena arena = MemoryArena.get();
+        long mark = arena.mark();
+        IntBuffer elementBuffer = arena.ints(indices.length).put(indices).flip();
+        // Desvincula el VAO actual para no reemplazar su EBO al vincular el nuevo
+        gl.bindVertexArray(0);
+        eboID = gl.genBuffers();
+        gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+        gl.bufferData(GL_ELEMENT_ARRAY_BUFFER, elementBuffer, GL_STATIC_DRAW);
+        arena.reset(mark);
+    }
+
+    private void markDirty(int chunk) {
+        if (chunkDirty[chunk]) return;
+        chunkDirty[chunk] = true;
+        dirty.add(chunk);
+    }
+
+    private void markAllDirty() {
+        for (int i = 0; i < resident.size(); i++) markDirty(resident.get(i));
+    }
+
+}
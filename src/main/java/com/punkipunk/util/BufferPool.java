@@ -0,0 +1,229 @@
+package com.punkipunk.util;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reserva de buffers fuera del heap para datos de larga vida, como los vertices de los lotes, las paginas de los atlas o los
+ * bloques de uniforms.
+ * <p>
+ * A diferencia de {@code BufferUtils}, cuyos buffers los libera el GC de forma diferida (y cuyo ritmo de reserva puede forzar
+ * colecciones completas), los buffers del pool se reservan con {@link MemoryUtil} y se devuelven explicitamente con
+ * {@link #free(Buffer)}. Los tamaños se redondean a la siguiente potencia de dos (como minimo {@link #MIN_SIZE} bytes) y los
+ * bloques devueltos se guardan en una lista por tamaño para reutilizarlos, hasta {@code -Djade.memory.cache=<bytes>} en total
+ * (64 MiB por defecto); el resto se libera enseguida.
+ * <p>
+ * Con {@code -Djade.memory.debug=true} se guarda la pila de llamadas de cada reserva, se detectan las liberaciones dobles o de
+ * buffers ajenos al pool, y {@link #reportLeaks()} lista los buffers que nunca se liberaron y donde se reservaron. Todos los
+ * metodos estan sincronizados, ya que los buffers se reservan tanto en el hilo de OpenGL como en los hilos de carga.
+ */
+
+public class BufferPool {
+
+    public static final int MIN_SIZE = 256;
+    private static final int MIN_CLASS = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.SIZE;
+    private static final boolean DEBUG = Boolean.getBoolean("jade.memory.debug");
+
+    private final long maxCachedBytes = Long.getLong("jade.memory.cache", 64L << 20);
+    // Direcciones de los bloques libres de cada tamaño (el indice es el logaritmo en base 2 del tamaño)
+    private final long[][] free = new long[CLASSES][];
+    private final int[] freeCount = new int[CLASSES];
+    // Pila de llamadas de cada reserva viva, solo con la depuracion activada
+    private final Map<Long, Throwable> live = DEBUG ? new HashMap<>() : null;
+    private long bytesInUse, peakBytes, cachedBytes;
+    private long allocations, reused, frees;
+
+    private BufferPool() {
+        for (int i = 0; i < CLASSES; i++) free[i] = new long[4];
+    }
+
+    public static BufferPool get() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Reserva un buffer de {@code bytes} bytes sin inicializar, con position en 0 y limit en su capacidad.
+     */
+    public synchronized ByteBuffer allocate(int bytes) {
+        return MemoryUtil.memByteBuffer(take(bytes), bytes);
+    }
+
+    /**
+     * Reserva un buffer de {@code bytes} bytes en cero.
+     */
+    public synchronized ByteBuffer callocate(int bytes) {
+        long address = take(bytes);
+        MemoryUtil.memSet(address, 0, bytes);
+        return MemoryUtil.memByteBuffer(address, bytes);
+    }
+
+    public synchronized FloatBuffer allocateFloats(int count) {
+        return MemoryUtil.memFloatBuffer(take(Math.multiplyExact(count, Float.BYTES)), count);
+    }
+
+    public synchronized FloatBuffer callocateFloats(int count) {
+        int bytes = Math.multiplyExact(count, Float.BYTES);
+        long address = take(bytes);
+        MemoryUtil.memSet(address, 0, bytes);
+        return MemoryUtil.memFloatBuffer(address, count);
+    }
+
+    public synchronized IntBuffer allocateInts(int count) {
+        return MemoryUtil.memIntBuffer(take(Math.multiplyExact(count, Integer.BYTES)), count);
+    }
+
+    /**
+     * Cambia el tamaño de un buffer del pool conservando su contenido (hasta el menor de los dos tamaños). Si el bloque actual
+     * alcanza, se devuelve una vista de el sin copiar nada. El buffer anterior no debe volver a usarse.
+     */
+    public synchronized ByteBuffer reallocate(ByteBuffer buffer, int bytes) {
+        long address = MemoryUtil.memAddress0(buffer);
+        if (sizeClass(buffer.capacity()) == sizeClass(bytes)) {
+            if (live != null) live.put(address, new Throwable());
+            return MemoryUtil.memByteBuffer(address, bytes);
+        }
+        long target = take(bytes);
+        MemoryUtil.memCopy(address, target, Math.min(buffer.capacity(), bytes));
+        release(address, buffer.capacity());
+        return MemoryUtil.memByteBuffer(target, bytes);
+    }
+
+    /**
+     * Devuelve al pool un buffer reservado con alguno de sus metodos (sin importar su position ni su limit).
+     */
+    public synchronized void free(Buffer buffer) {
+        int bytes;
+        if (buffer instanceof ByteBuffer) bytes = buffer.capacity();
+        else if (buffer instanceof FloatBuffer || buffer instanceof IntBuffer) bytes = buffer.capacity() * 4;
+        else throw new IllegalArgumentException("The " + buffer.getClass().getSimpleName() + " type is not supported!");
+        release(MemoryUtil.memAddress0(buffer), bytes);
+    }
+
+    /**
+     * Libera los bloques guardados para reutilizar.
+     */
+    public synchronized void trim() {
+        for (int c = 0; c < CLASSES; c++) {
+            for (int i = 0; i < freeCount[c]; i++) MemoryUtil.nmemFree(free[c][i]);
+            freeCount[c] = 0;
+        }
+        cachedBytes = 0;
+    }
+
+    /**
+     * Muestra por la salida de error los buffers que siguen reservados. Sin la depuracion activada solo se informa cuantos
+     * bytes quedan en uso.
+     *
+     * @return cantidad de buffers sin liberar (o bytes sin liberar, sin la depuracion)
+     */
+    public synchronized long reportLeaks() {
+        if (live == null) {
+            if (bytesInUse > 0)
+                System.err.println("The buffer pool still has " + bytesInUse + " bytes in use! Run with -Djade.memory.debug=true to find them.");
+            return bytesInUse;
+        }
+        for (Map.Entry<Long, Throwable> entry : live.entrySet()) {
+            StackTraceElement[] stack = entry.getValue().getStackTrace();
+            // Omite los metodos del propio pool, para mostrar desde quien reservo el buffer
+            StringBuilder trace = new StringBuilder();
+            for (int i = 0; i < stack.length; i++)
+                if (!stack[i].getClassName().equals(BufferPool.class.getName())) trace.append("\n\tat ").append(stack[i]);
+            System.err.println("The buffer at 0x" + Long.toHexString(entry.getKey()) + " was never freed!" + trace);
+        }
+        return live.size();
+    }
+
+    /**
+     * @return bytes reservados por los buffers vivos (con el tamaño redondeado)
+     */
+    public synchronized long getBytesInUse() {
+        return bytesInUse;
+    }
+
+    /**
+     * @return maximo de {@link #getBytesInUse()} desde que se creo el pool
+     */
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * @return bytes de los bloques libres guardados para reutilizar
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return reservas desde que se creo el pool
+     */
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * @return reservas que se resolvieron con un bloque guardado, sin pedir memoria al sistema
+     */
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    public synchronized long getFrees() {
+        return frees;
+    }
+
+    private long take(int bytes) {
+        assert bytes > 0 : "The size must be positive";
+        int sizeClass = sizeClass(bytes);
+        long size = 1L << sizeClass;
+        long address;
+        if (freeCount[sizeClass] > 0) {
+            address = free[sizeClass][--freeCount[sizeClass]];
+            cachedBytes -= size;
+            reused++;
+        } else {
+            address = MemoryUtil.nmemAllocChecked(size);
+        }
+        allocations++;
+        bytesInUse += size;
+        peakBytes = Math.max(peakBytes, bytesInUse);
+        if (live != null) live.put(address, new Throwable());
+        return address;
+    }
+
+    private void release(long address, int bytes) {
+        if (live != null && live.remove(address) == null) {
+            System.err.println("The buffer at 0x" + Long.toHexString(address) + " was not allocated by the pool or was already freed!");
+            return;
+        }
+        int sizeClass = sizeClass(bytes);
+        long size = 1L << sizeClass;
+        bytesInUse -= size;
+        frees++;
+        if (cachedBytes + size > maxCachedBytes) {
+            MemoryUtil.nmemFree(address);
+            return;
+        }
+        if (freeCount[sizeClass] == free[sizeClass].length)
+            free[sizeClass] = Arrays.copyOf(free[sizeClass], freeCount[sizeClass] * 2);
+        free[sizeClass][freeCount[sizeClass]++] = address;
+        cachedBytes += size;
+    }
+
+    private static int sizeClass(int bytes) {
+        return Math.max(MIN_CLASS, Integer.SIZE - Integer.numberOfLeadingZeros(bytes - 1));
+    }
+
+    private static class SingletonHolder {
+        private static final BufferPool INSTANCE = new BufferPool();
+    }
+
+}
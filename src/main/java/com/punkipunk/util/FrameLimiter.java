@@ -0,0 +1,52 @@
+package com.punkipunk.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limitador de frames que combina sleep y espera activa.
+ * <p>
+ * {@code Thread.sleep()} es barato pero impreciso (el planificador del OS puede despertar al hilo varios milisegundos tarde),
+ * mientras que la espera activa es precisa pero consume un nucleo completo. El limitador duerme mientras el tiempo restante
+ * supera el error de sleep observado y solo gira el tiempo final. Ese error se estima de forma adaptativa a partir de los sleeps
+ * anteriores, por lo que en sistemas con timers precisos casi no se gira.
+ */
+
+public class FrameLimiter {
+
+    private static final long SLEEP_SLICE = 1_000_000L; // 1 ms
+    private static final long MAX_SLEEP_ERROR = 4_000_000L;
+
+    // Estimacion del peor retraso de un sleep (en nanosegundos)
+    private long sleepError = 2_000_000L;
+    private long nextFrame;
+
+    /**
+     * Bloquea hasta que se cumpla el periodo del frame desde la ultima llamada.
+     *
+     * @param targetFps frames por segundo deseados (0 o negativo desactiva el limite)
+     */
+    public void sync(int targetFps) {
+        if (targetFps <= 0) {
+            nextFrame = 0;
+            return;
+        }
+
+        long period = 1_000_000_000L / targetFps;
+        long now = System.nanoTime();
+        // Si es la primera vez o el frame se atraso mas de un periodo, no intenta recuperar el tiempo perdido
+        if (nextFrame == 0 || now - nextFrame > period) nextFrame = now;
+        nextFrame += period;
+
+        while (nextFrame - System.nanoTime() > sleepError) {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(SLEEP_SLICE);
+            long overshoot = System.nanoTime() - start - SLEEP_SLICE;
+            // Aumenta rapido ante un sleep tardio y reduce lento para no girar de mas en el siguiente frame
+            if (overshoot > sleepError) sleepError = Math.min(overshoot, MAX_SLEEP_ERROR);
+            else sleepError -= (sleepError - Math.max(overshoot, 0)) / 64;
+        }
+
+        while (nextFrame - System.nanoTime() > 0) Thread.onSpinWait();
+    }
+
+}
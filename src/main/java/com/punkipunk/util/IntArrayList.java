@@ -0,0 +1,75 @@
+package com.punkipunk.util;
+
+import java.util.Arrays;
+
+/**
+ * Lista de {@code int} sin encapsular los valores. Al vaciarla con {@link #clear()} conserva su capacidad, por lo que se puede
+ * reutilizar en cada frame (por ejemplo, como resultado de una consulta espacial) sin generar basura.
+ */
+
+public class IntArrayList {
+
+    private int[] elements;
+    private int size;
+
+    public IntArrayList() {
+        this(16);
+    }
+
+    public IntArrayList(int capacity) {
+        elements = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int value) {
+        if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = value;
+    }
+
+    public int get(int index) {
+        assert index < size : "Index " + index + " out of bounds for size " + size;
+        return elements[index];
+    }
+
+    public void set(int index, int value) {
+        assert index < size : "Index " + index + " out of bounds for size " + size;
+        elements[index] = value;
+    }
+
+    /**
+     * Elimina el elemento reemplazandolo por el ultimo (no conserva el orden).
+     */
+    public void removeSwap(int index) {
+        assert index < size : "Index " + index + " out of bounds for size " + size;
+        elements[index] = elements[--size];
+    }
+
+    public boolean contains(int value) {
+        for (int i = 0; i < size; i++)
+            if (elements[i] == value) return true;
+        return false;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Arreglo interno, valido hasta {@link #size()} y hasta la proxima modificacion que lo haga crecer.
+     */
+    public int[] elements() {
+        return elements;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+}
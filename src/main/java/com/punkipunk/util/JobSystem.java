@@ -0,0 +1,117 @@
+package com.punkipunk.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Planificador de trabajos con robo de tareas, basado en un {@link ForkJoinPool}.
+ * <p>
+ * {@link #parallelFor(int, int, Range)} divide un rango de indices en bloques de {@code grain} elementos que los hilos del pool
+ * se reparten: cada hilo tiene su propia cola y, cuando se queda sin trabajo, roba bloques de la cola de otro, por lo que la
+ * carga se equilibra sola aunque algunos bloques cuesten mas que otros. La division depende solo de la cantidad de elementos y
+ * del grano (nunca de la cantidad de hilos ni de quien termina primero), de modo que si cada indice escribe solo sus propios
+ * datos el resultado es identico al de un recorrido secuencial. El hilo que llama espera a que terminen todos los bloques.
+ * <p>
+ * Con {@link #submit(Runnable)} se ejecutan trabajos sueltos, por ejemplo la simulacion del frame siguiente mientras el hilo de
+ * OpenGL dibuja el actual. Un trabajo puede llamar a su vez a {@code parallelFor}; en ese caso el hilo del pool participa en
+ * los bloques en lugar de quedarse bloqueado.
+ */
+
+public class JobSystem {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param threads hilos de trabajo
+     */
+    public JobSystem(int threads) {
+        this.pool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("job-worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Ejecuta {@code range} sobre {@code [0, count)} en bloques de {@code grain} elementos y espera a que terminen. Si el rango
+     * entra en un solo bloque (o el pool tiene un solo hilo) se ejecuta directamente en el hilo que llama.
+     *
+     * @param grain cantidad de elementos por bloque; conviene que cada bloque cueste al menos unos microsegundos
+     */
+    public void parallelFor(int count, int grain, Range range) {
+        assert grain > 0 : "The grain must be positive";
+        if (count <= 0) return;
+        if (count <= grain || pool.getParallelism() == 1) {
+            range.run(0, count);
+            return;
+        }
+        RangeTask task = new RangeTask(range, 0, count, grain);
+        // Dentro del pool la tarea se ejecuta en el hilo actual, que roba el resto de los bloques mientras espera
+        if (ForkJoinTask.getPool() == pool) task.invoke();
+        else pool.invoke(task);
+    }
+
+    /**
+     * Ejecuta un trabajo en el pool.
+     *
+     * @return tarea cuyo {@code join()} espera a que termine y relanza sus excepciones
+     */
+    public ForkJoinTask<?> submit(Runnable job) {
+        return pool.submit(job);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return cantidad de bloques robados de la cola de otro hilo desde la creacion del pool (una medida del desbalance)
+     */
+    public long getSteals() {
+        return pool.getStealCount();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Trabajo sobre un rango de indices {@code [start, end)}.
+     */
+    @FunctionalInterface
+    public interface Range {
+        void run(int start, int end);
+    }
+
+    // Las tareas nunca se serializan
+    @SuppressWarnings("serial")
+    private static class RangeTask extends RecursiveAction {
+
+        private final Range range;
+        private final int start, end, grain;
+
+        RangeTask(Range range, int start, int end, int grain) {
+            this.range = range;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= grain) {
+                range.run(start, end);
+                return;
+            }
+            // Corta en un multiplo del grano para que los bloques sean siempre los mismos
+            int blocks = (end - start + grain - 1) / grain;
+            int middle = start + blocks / 2 * grain;
+            invokeAll(new RangeTask(range, start, middle, grain), new RangeTask(range, middle, end, grain));
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.punkipunk.util;
+
+import java.util.Arrays;
+
+/**
+ * Quadtree "suelto" de profundidad fija, para objetos estaticos o dispersos de tamaños muy distintos.
+ * <p>
+ * Los limites de cada nodo se agrandan hasta el doble de su celda, por lo que una caja se guarda en un unico nodo: el mas
+ * profundo cuya celda es al menos tan grande como la caja y contiene su centro. Ese nodo se calcula directamente a partir del
+ * tamaño y del centro, sin recorrer el arbol, y como los nodos de cada nivel forman una grilla implicita no hace falta guardar
+ * punteros a los hijos. Cada nodo guarda sus cajas en una lista enlazada de ids, de modo que insertar, mover y eliminar son
+ * O(1) y no reservan memoria.
+ * <p>
+ * Las cajas cuyo centro queda fuera del mundo se guardan en la raiz, que se revisa en todas las consultas.
+ */
+
+public class LooseQuadtree extends SpatialIndex {
+
+    private static final int NONE = -1;
+
+    private final float worldX, worldY, worldSize;
+    private final int maxDepth;
+    // Primer nodo de cada nivel; el nivel d tiene 4^d nodos
+    private final int[] levelOffsets;
+    // Cajas guardadas en cada nivel, para saltear los niveles vacios en las consultas
+    private final int[] levelCounts;
+    private final int[] heads;
+    private int[] next = new int[64], previous = new int[64], nodes = new int[64];
+    private final IntArrayList candidates = new IntArrayList();
+
+    /**
+     * @param worldX    coordenada x minima del mundo
+     * @param worldY    coordenada y minima del mundo
+     * @param worldSize lado del mundo (cuadrado)
+     * @param maxDepth  profundidad maxima; el nivel mas profundo tiene celdas de {@code worldSize / 2^maxDepth}
+     */
+    public LooseQuadtree(float worldX, float worldY, float worldSize, int maxDepth) {
+        assert maxDepth >= 0 && maxDepth <= 12 : "The depth must be between 0 and 12!";
+        this.worldX = worldX;
+        this.worldY = worldY;
+        this.worldSize = worldSize;
+        this.maxDepth = maxDepth;
+        levelOffsets = new int[maxDepth + 2];
+        for (int d = 1; d <= maxDepth + 1; d++) levelOffsets[d] = levelOffsets[d - 1] + (1 << 2 * (d - 1));
+        levelCounts = new int[maxDepth + 1];
+        heads = new int[levelOffsets[maxDepth + 1]];
+        Arrays.fill(heads, NONE);
+    }
+
+    @Override
+    public int queryRange(float minX, float minY, float maxX, float maxY, IntArrayList out) {
+        int before = out.size();
+        for (int d = 0; d <= maxDepth; d++) {
+            if (levelCounts[d] == 0) continue;
+            if (d == 0) {
+                collect(0, minX, minY, maxX, maxY, out);
+                continue;
+            }
+            int n = 1 << d;
+            float cell = worldSize / n, half = cell * 0.5f;
+            // Una caja de este nivel puede sobresalir de su celda hasta media celda por lado
+            int x0 = clamp((int) Math.floor((minX - half - worldX) / cell), n), x1 = clamp((int) Math.floor((maxX + half - worldX) / cell), n);
+            int y0 = clamp((int) Math.floor((minY - half - worldY) / cell), n), y1 = clamp((int) Math.floor((maxY + half - worldY) / cell), n);
+            int offset = levelOffsets[d];
+            for (int cy = y0; cy <= y1; cy++)
+                for (int cx = x0; cx <= x1; cx++) collect(offset + cy * n + cx, minX, minY, maxX, maxY, out);
+        }
+        return out.size() - before;
+    }
+
+    /**
+     * Prueba el rayo contra las cajas que se superponen con el rectangulo que envuelve al segmento. Para objetos dispersos el
+     * rectangulo contiene pocas cajas; para muchos objetos densos conviene un {@link SpatialHash}.
+     */
+    @Override
+    public int raycast(float ox, float oy, float dx, float dy, float maxDistance) {
+        setRayDistance(Float.NaN);
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) return -1;
+        dx /= length;
+        dy /= length;
+        float ex = ox + dx * maxDistance, ey = oy + dy * maxDistance;
+        candidates.clear();
+        queryRange(Math.min(ox, ex), Math.min(oy, ey), Math.max(ox, ex), Math.max(oy, ey), candidates);
+
+        float inverseDx = 1 / dx, inverseDy = 1 / dy;
+        int best = -1;
+        float bestT = maxDistance;
+        int[] ids = candidates.elements();
+        for (int i = 0, size = candidates.size(); i < size; i++) {
+            float t = intersect(ids[i], ox, oy, inverseDx, inverseDy, bestT);
+            if (t >= 0 && (best < 0 || t < bestT)) {
+                best = ids[i];
+                bestT = t;
+            }
+        }
+        if (best >= 0) setRayDistance(bestT);
+        return best;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(heads, NONE);
+        Arrays.fill(levelCounts, 0);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    protected void link(int id) {
+        int node = nodeFor(minX[id], minY[id], maxX[id], maxY[id]);
+        nodes[id] = node;
+        previous[id] = NONE;
+        next[id] = heads[node];
+        if (heads[node] != NONE) previous[heads[node]] = id;
+        heads[node] = id;
+        levelCounts[depth(node)]++;
+    }
+
+    @Override
+    protected void unlink(int id) {
+        int node = nodes[id];
+        if (previous[id] != NONE) next[previous[id]] = next[id];
+        else heads[node] = next[id];
+        if (next[id] != NONE) previous[next[id]] = previous[id];
+        levelCounts[depth(node)]--;
+    }
+
+    @Override
+    protected void relocate(int id, float minX, float minY, float maxX, float maxY) {
+        if (nodeFor(minX, minY, maxX, maxY) == nodes[id]) {
+            setBounds(id, minX, minY, maxX, maxY);
+            return;
+        }
+        unlink(id);
+        setBounds(id, minX, minY, maxX, maxY);
+        link(id);
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+    }
+
+    private void collect(int node, float minX, float minY, float maxX, float maxY, IntArrayList out) {
+        // Cada caja esta en un unico nodo, por lo que no hace falta evitar duplicados
+        for (int id = heads[node]; id != NONE; id = next[id])
+            if (overlaps(id, minX, minY, maxX, maxY)) out.add(id);
+    }
+
+    private int nodeFor(float minX, float minY, float maxX, float maxY) {
+        float centerX = (minX + maxX) * 0.5f - worldX, centerY = (minY + maxY) * 0.5f - worldY;
+        if (centerX < 0 || centerY < 0 || centerX >= worldSize || centerY >= worldSize) return 0;
+        float size = Math.max(maxX - minX, maxY - minY);
+        int depth = maxDepth;
+        float cell = worldSize / (1 << depth);
+        while (depth > 0 && cell < size) {
+            depth--;
+            cell *= 2;
+        }
+        int n = 1 << depth;
+        return levelOffsets[depth] + clamp((int) (centerY / cell), n) * n + clamp((int) (centerX / cell), n);
+    }
+
+    private int depth(int node) {
+        int depth = 0;
+        while (node >= levelOffsets[depth + 1]) depth++;
+        return depth;
+    }
+
+    private static int clamp(int cell, int n) {
+        return cell < 0 ? 0 : Math.min(cell, n - 1);
+    }
+
+}
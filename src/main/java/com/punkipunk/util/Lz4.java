@@ -0,0 +1,155 @@
+package com.punkipunk.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresor y descompresor del formato de bloque de LZ4.
+ * <p>
+ * Cada bloque es una serie de secuencias: un token (4 bits con la cantidad de literales y 4 con el largo de la coincidencia),
+ * los literales, la distancia hacia atras de la coincidencia (2 bytes) y, si no entran en el token, bytes extra con los
+ * largos. La compresion busca coincidencias de 4 bytes con una tabla hash de posiciones, sin cadenas ni busqueda exhaustiva, por
+ * lo que comprime menos que otros formatos pero tanto comprimir como descomprimir son muy rapidos (la descompresion es casi una
+ * copia de memoria). Los bloques son compatibles con los de la biblioteca LZ4 de referencia.
+ * <p>
+ * Una instancia reutiliza la tabla hash entre llamadas, por lo que no debe compartirse entre hilos.
+ */
+
+public final class Lz4 {
+
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_LOG = 16;
+    // Las ultimas coincidencias deben empezar al menos 12 bytes antes del final y los ultimos 5 bytes son siempre literales
+    private static final int MF_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = 65535;
+
+    // Posicion (+1) de la ultima aparicion de cada hash de 4 bytes; 0 si no hay ninguna
+    private final int[] table = new int[1 << HASH_LOG];
+
+    /**
+     * @return tamaño maximo que puede ocupar un bloque comprimido de {@code length} bytes
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Comprime {@code src[srcOff, srcOff + srcLen)} en {@code dst} a partir de {@code dstOff}, que debe tener lugar para
+     * {@link #maxCompressedLength(int)} bytes.
+     *
+     * @return tamaño del bloque comprimido
+     */
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        Arrays.fill(table, 0);
+        int end = srcOff + srcLen;
+        int matchLimit = end - LAST_LITERALS, mfLimit = end - MF_LIMIT;
+        int anchor = srcOff, ip = srcOff, op = dstOff;
+
+        while (ip < mfLimit) {
+            int sequence = readInt(src, ip);
+            int hash = sequence * -1640531535 >>> (Integer.SIZE - HASH_LOG);
+            int ref = table[hash] - 1 + srcOff;
+            table[hash] = ip - srcOff + 1;
+            if (ref < srcOff || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                ip++;
+                continue;
+            }
+            // Extiende la coincidencia hacia atras sobre los literales pendientes y luego hacia adelante
+            while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                ip--;
+                ref--;
+            }
+            int length = MIN_MATCH;
+            while (ip + length < matchLimit && src[ip + length] == src[ref + length]) length++;
+
+            op = writeLiterals(src, anchor, ip - anchor, length - MIN_MATCH, dst, op);
+            dst[op++] = (byte) (ip - ref);
+            dst[op++] = (byte) ((ip - ref) >>> 8);
+            if (length - MIN_MATCH >= 15) op = writeLength(length - MIN_MATCH - 15, dst, op);
+            ip += length;
+            anchor = ip;
+        }
+
+        return writeLiterals(src, anchor, end - anchor, 0, dst, op) - dstOff;
+    }
+
+    /**
+     * Descomprime un bloque.
+     *
+     * @param dstLen tamaño del contenido original (el bloque no lo guarda)
+     * @return cantidad de bytes escritos en {@code dst}
+     * @throws IOException si el bloque esta corrupto
+     */
+    public static int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen) throws IOException {
+        int ip = srcOff, end = srcOff + srcLen;
+        int op = dstOff, dstEnd = dstOff + dstLen;
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        if (ip == end) throw new IOException("Malformed LZ4 block: truncated length");
+                        literals += b = src[ip++] & 0xFF;
+                    } while (b == 255);
+                }
+                if (literals > end - ip || literals > dstEnd - op) throw new IOException("Malformed LZ4 block: literals out of bounds");
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                // La ultima secuencia no tiene coincidencia
+                if (ip == end) break;
+
+                // El bloque puede ocupar solo el principio del arreglo, por lo que se compara con end y no con su largo
+                if (end - ip < 2) throw new IOException("Malformed LZ4 block: truncated offset");
+                int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                int length = token & 0x0F;
+                if (length == 15) {
+                    int b;
+                    do {
+                        if (ip == end) throw new IOException("Malformed LZ4 block: truncated length");
+                        length += b = src[ip++] & 0xFF;
+                    } while (b == 255);
+                }
+                length += MIN_MATCH;
+                if (offset == 0 || op - offset < dstOff || length > dstEnd - op)
+                    throw new IOException("Malformed LZ4 block: match out of bounds");
+                int ref = op - offset;
+                // Si la coincidencia se superpone con lo que se esta escribiendo hay que copiar byte a byte
+                if (offset >= length) System.arraycopy(dst, ref, dst, op, length);
+                else for (int i = 0; i < length; i++) dst[op + i] = dst[ref + i];
+                op += length;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Malformed LZ4 block: truncated", e);
+        }
+        return op - dstOff;
+    }
+
+    /**
+     * Escribe el token, los bytes extra de la cantidad de literales y los literales.
+     */
+    private static int writeLiterals(byte[] src, int start, int count, int matchLength, byte[] dst, int op) {
+        dst[op++] = (byte) (Math.min(count, 15) << 4 | Math.min(matchLength, 15));
+        if (count >= 15) op = writeLength(count - 15, dst, op);
+        System.arraycopy(src, start, dst, op, count);
+        return op + count;
+    }
+
+    private static int writeLength(int length, byte[] dst, int op) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.punkipunk.util;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Reserva lineal fuera del heap para buffers temporales, como los indices que se suben una sola vez o los pixeles de una
+ * captura.
+ * <p>
+ * Cada hilo tiene su propia arena ({@link #get()}), por lo que reservar no necesita sincronizacion: solo avanza un puntero
+ * dentro de un bloque reservado con {@link MemoryUtil}. Los buffers no se liberan uno por uno, sino todos juntos: con
+ * {@link #reset(long)} hasta una marca tomada con {@link #mark()}, o con {@link #clear()}, que la {@code Window} llama en el
+ * hilo de OpenGL al final de cada frame. En los demas hilos hay que usar siempre una marca.
+ * <p>
+ * A diferencia del {@code MemoryStack} de LWJGL, la arena no tiene un tamaño fijo: si una reserva no entra en el bloque, se
+ * atiende con un bloque aparte que se libera al volver a la marca, y cuando la arena queda vacia el bloque principal crece
+ * hasta el maximo usado, de modo que en regimen todas las reservas caen en el.
+ */
+
+public class MemoryArena {
+
+    public static final int DEFAULT_CAPACITY = 256 * 1024;
+    // Alineacion de cada reserva, suficiente para cualquier tipo primitivo y para SSE
+    private static final int ALIGNMENT = 16;
+    private static final ThreadLocal<MemoryArena> ARENAS = ThreadLocal.withInitial(() -> new MemoryArena(DEFAULT_CAPACITY));
+
+    private long address;
+    private int capacity, offset;
+    // Bloques que no entraron en el principal, en orden de reserva
+    private long[] overflow = new long[4];
+    private int[] overflowSizes = new int[4];
+    private int overflowCount;
+    private long overflowBytes, peak, allocations;
+
+    public MemoryArena(int capacity) {
+        this.capacity = capacity;
+        address = MemoryUtil.nmemAllocChecked(capacity);
+    }
+
+    /**
+     * @return arena del hilo actual
+     */
+    public static MemoryArena get() {
+        return ARENAS.get();
+    }
+
+    /**
+     * Reserva un buffer sin inicializar, con position en 0 y limit en su capacidad, valido hasta el proximo {@link #reset(long)}
+     * o {@link #clear()} que lo alcance.
+     */
+    public ByteBuffer bytes(int bytes) {
+        return MemoryUtil.memByteBuffer(allocate(bytes), bytes);
+    }
+
+    public FloatBuffer floats(int count) {
+        return MemoryUtil.memFloatBuffer(allocate(Math.multiplyExact(count, Float.BYTES)), count);
+    }
+
+    public IntBuffer ints(int count) {
+        return MemoryUtil.memIntBuffer(allocate(Math.multiplyExact(count, Integer.BYTES)), count);
+    }
+
+    /**
+     * @return posicion actual de la arena, para volver a ella con {@link #reset(long)}
+     */
+    public long mark() {
+        return (long) overflowCount << 32 | offset;
+    }
+
+    /**
+     * Libera los buffers reservados despues de {@code mark}.
+     */
+    public void reset(long mark) {
+        int count = (int) (mark >>> 32);
+        assert count <= overflowCount && (int) mark <= offset : "The mark is newer than the arena position!";
+        while (overflowCount > count) {
+            overflowCount--;
+            MemoryUtil.nmemFree(overflow[overflowCount]);
+            overflowBytes -= overflowSizes[overflowCount];
+        }
+        offset = (int) mark;
+        // Vacia, la arena crece hasta el maximo usado para que el proximo uso no necesite bloques aparte
+        if (offset == 0 && overflowCount == 0 && peak > capacity) {
+            MemoryUtil.nmemFree(address);
+            capacity = (int) Math.min(Integer.MAX_VALUE - ALIGNMENT, peak);
+            address = MemoryUtil.nmemAllocChecked(capacity);
+        }
+    }
+
+    /**
+     * Libera todos los buffers de la arena.
+     */
+    public void clear() {
+        reset(0);
+    }
+
+    public void dispose() {
+        clear();
+        MemoryUtil.nmemFree(address);
+        address = 0;
+        capacity = 0;
+    }
+
+    /**
+     * @return bytes reservados en este momento
+     */
+    public long getUsed() {
+        return offset + overflowBytes;
+    }
+
+    /**
+     * @return maximo de {@link #getUsed()} desde que se creo la arena
+     */
+    public long getPeak() {
+        return peak;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return reservas desde que se creo la arena
+     */
+    public long getAllocations() {
+        return allocations;
+    }
+
+    private long allocate(int bytes) {
+        assert address != 0 : "The arena was disposed!";
+        allocations++;
+        int start = (offset + ALIGNMENT - 1) & -ALIGNMENT;
+        long result;
+        if (bytes <= capacity - start) {
+            result = address + start;
+            offset = start + bytes;
+        } else {
+            if (overflowCount == overflow.length) {
+                overflow = Arrays.copyOf(overflow, overflowCount * 2);
+                overflowSizes = Arrays.copyOf(overflowSizes, overflowCount * 2);
+            }
+            result = MemoryUtil.nmemAllocChecked(bytes);
+            overflow[overflowCount] = result;
+            overflowSizes[overflowCount++] = bytes;
+            overflowBytes += bytes;
+        }
+        peak = Math.max(peak, getUsed());
+        return result;
+    }
+
+}
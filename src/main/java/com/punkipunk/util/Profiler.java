@@ -0,0 +1,237 @@
+package com.punkipunk.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Profiler por frame de bajo costo.
+ * <p>
+ * Registra metricas con nombre, cada una identificada por un entero que se obtiene una sola vez con {@link #scope(String)} (para
+ * medir tiempos entre {@link #begin(int)} y {@link #end(int)}) o {@link #counter(String)} (para acumular valores como draw calls).
+ * Al final de cada frame el valor acumulado de cada metrica se guarda en un historial circular de {@link #HISTORY} frames, a
+ * partir del cual se calculan los percentiles. Durante el frame no se crea ningun objeto: todo vive en arreglos primitivos
+ * reservados al construir el profiler.
+ * <p>
+ * Ademas del tiempo de frame, se registran las pausas del GC reportadas por los {@link GarbageCollectorMXBean} de la JVM.
+ */
+
+public class Profiler {
+
+    public static final int HISTORY = 512;
+    public static final int MAX_METRICS = 32;
+
+    // Metricas predefinidas
+    public static final int FRAME = 0;
+    public static final int GC = 1;
+    public static final int DRAW_CALLS = 2;
+    public static final int VERTICES_UPLOADED = 3;
+
+    private final String[] names = new String[MAX_METRICS];
+    private final boolean[] timed = new boolean[MAX_METRICS];
+    private final long[] starts = new long[MAX_METRICS];
+    private final long[] current = new long[MAX_METRICS];
+    private final long[][] history = new long[MAX_METRICS][HISTORY];
+    private final long[] scratch = new long[HISTORY];
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private int metricCount;
+    private int frame;
+    private long frameStart;
+    private long lastGcTime;
+    private boolean enabled = true;
+
+    private Profiler() {
+        register("frame", true);
+        register("gc", true);
+        register("draw calls", false);
+        register("vertices uploaded", false);
+        lastGcTime = totalGcTime();
+    }
+
+    public static Profiler get() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Registra (o devuelve, si ya existe) una metrica de tiempo.
+     */
+    public synchronized int scope(String name) {
+        return register(name, true);
+    }
+
+    /**
+     * Registra (o devuelve, si ya existe) un contador.
+     */
+    public synchronized int counter(String name) {
+        return register(name, false);
+    }
+
+    public void beginFrame() {
+        if (!enabled) return;
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Cierra el frame guardando el valor de cada metrica en el historial y reiniciando los acumuladores.
+     */
+    public void endFrame() {
+        if (!enabled) return;
+        current[FRAME] = System.nanoTime() - frameStart;
+        // getCollectionTime() se expresa en milisegundos
+        long gcTime = totalGcTime();
+        current[GC] = (gcTime - lastGcTime) * 1_000_000L;
+        lastGcTime = gcTime;
+
+        int slot = frame % HISTORY;
+        for (int i = 0; i < metricCount; i++) {
+            history[i][slot] = current[i];
+            current[i] = 0;
+        }
+        frame++;
+    }
+
+    public void begin(int scope) {
+        if (enabled) starts[scope] = System.nanoTime();
+    }
+
+    public void end(int scope) {
+        if (enabled) current[scope] += System.nanoTime() - starts[scope];
+    }
+
+    public void count(int counter, long value) {
+        if (enabled) current[counter] += value;
+    }
+
+    /**
+     * Calcula un percentil sobre los frames del historial.
+     *
+     * @param metric     metrica
+     * @param percentile percentil entre 0 y 100
+     * @return valor del percentil (en nanosegundos para las metricas de tiempo)
+     */
+    public long percentile(int metric, double percentile) {
+        int samples = getSampleCount();
+        if (samples == 0) return 0;
+        System.arraycopy(history[metric], 0, scratch, 0, samples);
+        Arrays.sort(scratch, 0, samples);
+        int index = (int) Math.ceil(percentile / 100.0 * samples) - 1;
+        return scratch[Math.max(0, Math.min(samples - 1, index))];
+    }
+
+    /**
+     * @return valor de la metrica en el ultimo frame cerrado
+     */
+    public long last(int metric) {
+        return frame == 0 ? 0 : history[metric][(frame - 1) % HISTORY];
+    }
+
+    /**
+     * @param age frames hacia atras desde el ultimo frame cerrado (0 es el ultimo), menor que {@link #getSampleCount()}
+     * @return valor de la metrica en ese frame
+     */
+    public long sample(int metric, int age) {
+        return history[metric][(frame - 1 - age) % HISTORY];
+    }
+
+    public double average(int metric) {
+        int samples = getSampleCount();
+        if (samples == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < samples; i++) sum += history[metric][i];
+        return (double) sum / samples;
+    }
+
+    /**
+     * Escribe un resumen con los percentiles p50/p95/p99 y el maximo de cada metrica.
+     */
+    public void report(StringBuilder out) {
+        out.append(String.format("%-20s %10s %10s %10s %10s%n", "metric", "p50", "p95", "p99", "max"));
+        for (int i = 0; i < metricCount; i++) {
+            out.append(String.format("%-20s %10s %10s %10s %10s%n", names[i],
+                    format(i, percentile(i, 50)), format(i, percentile(i, 95)), format(i, percentile(i, 99)), format(i, percentile(i, 100))));
+        }
+    }
+
+    /**
+     * Escribe el resumen y el historial completo (una fila por frame, en CSV) en un archivo.
+     */
+    public void dump(Path path) throws IOException {
+        StringBuilder summary = new StringBuilder();
+        report(summary);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.print(summary);
+            out.println();
+            out.print("frame");
+            for (int i = 0; i < metricCount; i++) out.print("," + names[i]);
+            out.println();
+            int samples = getSampleCount();
+            // Recorre el historial desde el frame mas antiguo
+            for (int f = frame - samples; f < frame; f++) {
+                out.print(f);
+                for (int i = 0; i < metricCount; i++) out.print("," + history[i][f % HISTORY]);
+                out.println();
+            }
+        }
+    }
+
+    public int getMetricCount() {
+        return metricCount;
+    }
+
+    public String getName(int metric) {
+        return names[metric];
+    }
+
+    /**
+     * @return true si la metrica mide tiempos en nanosegundos, false si es un contador
+     */
+    public boolean isTimed(int metric) {
+        return timed[metric];
+    }
+
+    public int getSampleCount() {
+        return Math.min(frame, HISTORY);
+    }
+
+    public int getFrame() {
+        return frame;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    private int register(String name, boolean isTimed) {
+        for (int i = 0; i < metricCount; i++)
+            if (names[i].equals(name)) return i;
+        if (metricCount == MAX_METRICS) throw new IllegalStateException("Too many profiler metrics!");
+        names[metricCount] = name;
+        timed[metricCount] = isTimed;
+        return metricCount++;
+    }
+
+    private String format(int metric, long value) {
+        return timed[metric] ? String.format("%.2fms", value / 1_000_000.0) : Long.toString(value);
+    }
+
+    private long totalGcTime() {
+        long total = 0;
+        for (int i = 0; i < collectors.size(); i++) total += Math.max(0, collectors.get(i).getCollectionTime());
+        return total;
+    }
+
+    private static class SingletonHolder {
+        private static final Profiler INSTANCE = new Profiler();
+    }
+
+}
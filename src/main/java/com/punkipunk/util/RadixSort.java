@@ -0,0 +1,96 @@
+package com.punkipunk.util;
+
+import java.util.Arrays;
+
+/**
+ * Ordenamiento radix LSD de claves {@code long} sin signo, que mueve junto con cada clave un valor {@code int} (por ejemplo, el
+ * indice del elemento al que pertenece).
+ * <p>
+ * Hace hasta ocho pasadas de counting sort, una por byte empezando por el menos significativo. Los ocho histogramas se cuentan en
+ * una sola lectura de las claves, y se saltean las pasadas de los bytes que valen lo mismo en todas las claves, que en claves
+ * empaquetadas (campos sin usar, una sola capa, un solo shader) suelen ser la mayoria. Es estable, por lo que las claves iguales
+ * conservan su orden original. Los arreglos auxiliares solo crecen, asi que una vez que alcanzaron su tamaño ordenar no reserva
+ * memoria.
+ * <p>
+ * No es thread-safe: cada hilo que ordena necesita su propia instancia.
+ */
+
+public class RadixSort {
+
+    private static final int RADIX = 256;
+    private static final int PASSES = Long.BYTES;
+
+    private final int[] histograms = new int[PASSES * RADIX];
+    private long[] scratchKeys = new long[0];
+    private int[] scratchValues = new int[0];
+    private int passes;
+
+    /**
+     * Ordena de menor a mayor los primeros {@code count} elementos de {@code keys}, comparandolos sin signo, y aplica la misma
+     * permutacion a {@code values}.
+     */
+    public void sort(long[] keys, int[] values, int count) {
+        passes = 0;
+        if (count < 2) return;
+        if (scratchKeys.length < count) {
+            scratchKeys = new long[count];
+            scratchValues = new int[count];
+        }
+
+        int[] histograms = this.histograms;
+        Arrays.fill(histograms, 0);
+        // Desenrollado a mano: con el bucle por byte el conteo tarda casi el doble
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            histograms[(int) (key & 0xFF)]++;
+            histograms[RADIX + (int) (key >>> 8 & 0xFF)]++;
+            histograms[2 * RADIX + (int) (key >>> 16 & 0xFF)]++;
+            histograms[3 * RADIX + (int) (key >>> 24 & 0xFF)]++;
+            histograms[4 * RADIX + (int) (key >>> 32 & 0xFF)]++;
+            histograms[5 * RADIX + (int) (key >>> 40 & 0xFF)]++;
+            histograms[6 * RADIX + (int) (key >>> 48 & 0xFF)]++;
+            histograms[7 * RADIX + (int) (key >>> 56)]++;
+        }
+
+        long[] fromKeys = keys, toKeys = scratchKeys;
+        int[] fromValues = values, toValues = scratchValues;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int base = pass * RADIX, shift = pass * 8;
+            // Si todas las claves tienen el mismo byte, la pasada no cambiaria el orden
+            if (histograms[base + (int) (keys[0] >>> shift & 0xFF)] == count) continue;
+            // El histograma pasa a guardar la primera posicion de cada byte
+            for (int b = 0, offset = 0; b < RADIX; b++) {
+                int bucket = histograms[base + b];
+                histograms[base + b] = offset;
+                offset += bucket;
+            }
+            for (int i = 0; i < count; i++) {
+                long key = fromKeys[i];
+                int position = histograms[base + (int) (key >>> shift & 0xFF)]++;
+                toKeys[position] = key;
+                toValues[position] = fromValues[i];
+            }
+            long[] swapKeys = fromKeys;
+            fromKeys = toKeys;
+            toKeys = swapKeys;
+            int[] swapValues = fromValues;
+            fromValues = toValues;
+            toValues = swapValues;
+            passes++;
+        }
+
+        // Con una cantidad impar de pasadas el resultado quedo en los arreglos auxiliares
+        if (fromKeys != keys) {
+            System.arraycopy(fromKeys, 0, keys, 0, count);
+            System.arraycopy(fromValues, 0, values, 0, count);
+        }
+    }
+
+    /**
+     * @return pasadas que hizo el ultimo ordenamiento (entre 0 y 8)
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+}
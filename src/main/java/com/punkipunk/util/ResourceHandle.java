@@ -0,0 +1,68 @@
+package com.punkipunk.util;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Referencia contada a un recurso del {@link ResourceManager}.
+ * <p>
+ * Mientras exista al menos un handle sin liberar, el recurso no se expulsa de la cache. El recurso puede estar cargandose
+ * todavia: el hilo principal consulta {@link #isDone()} en cada frame en lugar de bloquearse.
+ */
+
+public final class ResourceHandle<T> {
+
+    private final ResourceManager manager;
+    private final ResourceManager.Entry entry;
+    private boolean released;
+
+    ResourceHandle(ResourceManager manager, ResourceManager.Entry entry) {
+        this.manager = manager;
+        this.entry = entry;
+    }
+
+    public boolean isDone() {
+        return entry.future.isDone();
+    }
+
+    public boolean isFailed() {
+        return entry.future.isCompletedExceptionally();
+    }
+
+    /**
+     * Devuelve el recurso, esperando a que termine de cargarse.
+     *
+     * @throws java.util.concurrent.CompletionException si la carga fallo
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        return (T) entry.future.join();
+    }
+
+    /**
+     * @return el recurso si ya esta cargado, o null si todavia no termino (o fallo)
+     */
+    @SuppressWarnings("unchecked")
+    public T getNow() {
+        CompletableFuture<Object> future = entry.future;
+        return future.isDone() && !future.isCompletedExceptionally() ? (T) future.join() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<T> future() {
+        return (CompletableFuture<T>) (CompletableFuture<?>) entry.future;
+    }
+
+    public String getName() {
+        return entry.key;
+    }
+
+    /**
+     * Libera la referencia. Llamarlo mas de una vez no tiene efecto.
+     */
+    public void release() {
+        if (released) return;
+        released = true;
+        manager.release(entry);
+    }
+
+}
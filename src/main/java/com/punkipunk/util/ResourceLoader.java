@@ -1,14 +1,14 @@
 package com.punkipunk.util;
 
-import java.io.BufferedReader;
+import org.lwjgl.BufferUtils;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
 
 /**
- * Cargador de recursos.
+ * Cargador de recursos sincronico. Para cargar muchos recursos en segundo plano y compartirlos, usar el {@link ResourceManager}.
  */
 
 public class ResourceLoader {
@@ -20,24 +20,32 @@ public class ResourceLoader {
      * @return contenido del recurso como string
      */
     public static String loadAsString(String resourceName) {
-        try {
-
-            InputStream inputStream = getInputStream(resourceName);
-
-            /* Crea un InputStreamReader con codificacion UTF-8 para manejar correctamente caracteres internacionales. Lo envuelve
-             * en un BufferedReader para leer lineas de texto de manera eficiente. Usa el metodo lines() para obtener un Stream de
-             * todas las lineas del archivo. Usa collect(Collectors.joining("\n")) para unir todas las lineas en un solo String,
-             * separandolas con saltos de linea. */
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-                return reader.lines().collect(Collectors.joining("\n"));
-            }
-
+        try (InputStream inputStream = getInputStream(resourceName)) {
+            /* Lee todos los bytes de una vez y los decodifica en UTF-8. Es mas rapido y genera menos basura que leer linea por
+             * linea con un BufferedReader y unirlas con Collectors.joining(). */
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
         } catch (IOException e) {
             System.err.println("The '" + resourceName + "' resource could not be loaded!");
             return null;
         }
     }
 
+    /**
+     * Carga un recurso binario en un buffer directo (fuera del heap), listo para pasarlo a librerias nativas como STB.
+     *
+     * @param resourceName nombre del recurso
+     * @return buffer con el contenido del recurso, con position en 0 y limit en su tamaño
+     * @throws IOException si el recurso no existe o no se pudo leer
+     */
+    public static ByteBuffer loadAsByteBuffer(String resourceName) throws IOException {
+        try (InputStream inputStream = getInputStream(resourceName)) {
+            byte[] bytes = inputStream.readAllBytes();
+            ByteBuffer buffer = BufferUtils.createByteBuffer(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer;
+        }
+    }
+
     /**
      * El {@code ClassLoader} es el componente de la JVM responsable de cargar las clases y recursos.
      * <p>
@@ -0,0 +1,228 @@
+package com.punkipunk.util;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Administrador de recursos asincronico con cache.
+ * <p>
+ * Cada recurso se carga una sola vez en un hilo de trabajo y se comparte entre todos los que lo piden mediante
+ * {@link ResourceHandle}s con conteo de referencias. Cuando un recurso se queda sin referencias no se descarta enseguida: pasa a
+ * una lista LRU y solo se expulsa cuando la memoria ocupada por la cache supera el presupuesto, de modo que volver a pedir un
+ * recurso reciente (por ejemplo, al volver a un nivel) no lo lee de nuevo.
+ * <p>
+ * Los recursos binarios se cargan en buffers directos. Si el recurso esta en el sistema de archivos (y no dentro de un jar), se
+ * mapea en memoria con {@link FileChannel#map}, lo que evita copiarlo y deja que el sistema operativo lo pagine.
+ */
+
+public class ResourceManager {
+
+    private final ExecutorService workers;
+    private final long memoryBudget;
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Recursos sin referencias, del menos al mas recientemente liberado
+    private final LinkedHashMap<String, Entry> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryUsed;
+    private int hits, misses, evictions;
+
+    /**
+     * @param memoryBudget bytes que puede ocupar la cache antes de expulsar recursos sin referencias
+     * @param threads      hilos de carga
+     */
+    public ResourceManager(long memoryBudget, int threads) {
+        this.memoryBudget = memoryBudget;
+        AtomicInteger counter = new AtomicInteger();
+        // Con Java 21 esto podria ser un executor de hilos virtuales; en Java 17 se usa un pool fijo de hilos daemon
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "resource-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Carga un recurso binario en un buffer directo (mapeado en memoria si es posible).
+     */
+    public ResourceHandle<ByteBuffer> loadBytes(String resourceName) {
+        return load("bytes:" + resourceName, () -> readBytes(resourceName), ByteBuffer::capacity);
+    }
+
+    /**
+     * Carga un recurso de texto en UTF-8.
+     */
+    public ResourceHandle<String> loadText(String resourceName) {
+        return load("text:" + resourceName, () -> {
+            ByteBuffer bytes = readBytes(resourceName);
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }, text -> (long) text.length() * Character.BYTES);
+    }
+
+    /**
+     * Carga (o reutiliza) un recurso con un cargador propio.
+     *
+     * @param key    clave unica del recurso en la cache
+     * @param loader funcion que carga el recurso; corre en un hilo de trabajo
+     * @param sizeOf bytes que ocupa el recurso cargado, para el presupuesto de la cache
+     */
+    public synchronized <T> ResourceHandle<T> load(String key, Loader<T> loader, ToLongFunction<T> sizeOf) {
+        Entry entry = entries.get(key);
+        // Una carga fallida que ya nadie referencia se reintenta
+        if (entry != null && entry.references == 0 && entry.future.isCompletedExceptionally()) {
+            entries.remove(key);
+            idle.remove(key);
+            entry = null;
+        }
+        if (entry != null) {
+            hits++;
+            idle.remove(key);
+        } else {
+            misses++;
+            Entry created = entry = new Entry(key);
+            created.future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    T resource = loader.load();
+                    created.size = sizeOf.applyAsLong(resource);
+                    return resource;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, workers);
+            entries.put(key, entry);
+            /* Se contabiliza con el futuro ya completo, para poder expulsar una entrada liberada durante la carga. Se registra
+             * despues de agregar la entrada: si la carga ya termino, onLoaded corre en este mismo hilo. */
+            created.future.thenRun(() -> onLoaded(created));
+        }
+        entry.references++;
+        return new ResourceHandle<>(this, entry);
+    }
+
+    /**
+     * Expulsa todos los recursos sin referencias.
+     */
+    public synchronized void trim() {
+        evict(0);
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized int getCachedCount() {
+        return entries.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized int getEvictions() {
+        return evictions;
+    }
+
+    synchronized void release(Entry entry) {
+        if (--entry.references > 0) return;
+        // Si la carga fallo no tiene sentido conservarla, asi se reintenta la proxima vez
+        if (entry.future.isCompletedExceptionally()) {
+            entries.remove(entry.key);
+            return;
+        }
+        idle.put(entry.key, entry);
+        evict(memoryBudget);
+    }
+
+    private synchronized void onLoaded(Entry entry) {
+        if (entries.get(entry.key) != entry) return;
+        memoryUsed += entry.size;
+        entry.accounted = true;
+        evict(memoryBudget);
+    }
+
+    /**
+     * Expulsa recursos sin referencias, empezando por los usados hace mas tiempo, hasta que la memoria ocupada no supere el
+     * limite.
+     */
+    private void evict(long limit) {
+        Iterator<Entry> iterator = idle.values().iterator();
+        while (memoryUsed > limit && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            // Un recurso que todavia se esta cargando no ocupa memoria contabilizada
+            if (!entry.accounted) continue;
+            iterator.remove();
+            entries.remove(entry.key);
+            memoryUsed -= entry.size;
+            evictions++;
+        }
+    }
+
+    private static ByteBuffer readBytes(String resourceName) throws IOException {
+        URL url = ResourceManager.class.getClassLoader().getResource(resourceName);
+        if (url == null) throw new IOException("The '" + resourceName + "' resource could not be found!");
+
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Path.of(url.toURI()), StandardOpenOption.READ)) {
+                // El mapeo sigue siendo valido despues de cerrar el canal
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+
+        // Dentro de un jar no se puede mapear, por lo que se copia a un buffer directo
+        try (InputStream inputStream = url.openStream()) {
+            byte[] bytes = inputStream.readAllBytes();
+            ByteBuffer buffer = BufferUtils.createByteBuffer(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    static final class Entry {
+        final String key;
+        volatile CompletableFuture<Object> future;
+        int references;
+        long size;
+        // Si su tamaño ya se sumo a la memoria ocupada
+        boolean accounted;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+package com.punkipunk.util;
+
+import java.util.Arrays;
+
+/**
+ * Grilla uniforme con celdas en una tabla hash, para muchos objetos dinamicos de tamaño parecido.
+ * <p>
+ * Cada caja se registra en todas las celdas que toca. Las celdas se crean a medida que se usan (el mundo no tiene limites) y no
+ * se eliminan al vaciarse, por lo que una vez que la escena se estabiliza mover objetos no reserva memoria. Como se recuerda el
+ * rango de celdas de cada caja, un movimiento que no cruza el borde de una celda solo actualiza sus limites.
+ * <p>
+ * El tamaño de celda ideal es del orden del tamaño de los objetos: mas chico hace que cada objeto ocupe muchas celdas, mas
+ * grande hace que cada celda tenga muchos objetos.
+ */
+
+public class SpatialHash extends SpatialIndex {
+
+    private static final int EMPTY = -1;
+    // Limite de celdas recorridas por un rayo, por si la distancia maxima es enorme comparada con las celdas
+    private static final int MAX_RAY_STEPS = 1 << 16;
+    // Las coordenadas de celda se limitan a este rango para que los recorridos con cx++ no desborden
+    private static final int MAX_CELL = 1 << 30;
+
+    private final float cellSize, inverseCellSize;
+    // Tabla hash de celdas (clave = coordenadas empaquetadas) con sondeo lineal
+    private long[] keys = new long[256];
+    private int[] cells = new int[256];
+    // Contenido de cada celda
+    private int[][] buckets = new int[128][];
+    private int[] bucketSizes = new int[128];
+    private int cellCount;
+    // Rango de celdas que ocupa cada id
+    private int[] cellMinX = new int[64], cellMinY = new int[64], cellMaxX = new int[64], cellMaxY = new int[64];
+
+    public SpatialHash(float cellSize) {
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1 / cellSize;
+        Arrays.fill(cells, EMPTY);
+    }
+
+    @Override
+    public int queryRange(float minX, float minY, float maxX, float maxY, IntArrayList out) {
+        beginQuery();
+        int before = out.size();
+        int x0 = cell(minX), y0 = cell(minY), x1 = cell(maxX), y1 = cell(maxY);
+        // Si el rango cubre mas celdas de las que existen, es mas rapido recorrer las existentes
+        if (((long) x1 - x0 + 1) * ((long) y1 - y0 + 1) > cellCount) {
+            for (int b = 0; b < cellCount; b++) collect(b, minX, minY, maxX, maxY, out);
+        } else {
+            for (int cy = y0; cy <= y1; cy++)
+                for (int cx = x0; cx <= x1; cx++) {
+                    int b = find(cx, cy);
+                    if (b != EMPTY) collect(b, minX, minY, maxX, maxY, out);
+                }
+        }
+        return out.size() - before;
+    }
+
+    /**
+     * Recorre las celdas que atraviesa el rayo en orden (algoritmo de Amanatides y Woo) y se detiene en cuanto el impacto mas
+     * cercano encontrado esta antes de la celda siguiente.
+     */
+    @Override
+    public int raycast(float ox, float oy, float dx, float dy, float maxDistance) {
+        setRayDistance(Float.NaN);
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) return -1;
+        dx /= length;
+        dy /= length;
+        float inverseDx = 1 / dx, inverseDy = 1 / dy;
+
+        int cx = cell(ox), cy = cell(oy);
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0, stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        float tMaxX = stepX == 0 ? Float.POSITIVE_INFINITY : ((cx + (stepX > 0 ? 1 : 0)) * cellSize - ox) * inverseDx;
+        float tMaxY = stepY == 0 ? Float.POSITIVE_INFINITY : ((cy + (stepY > 0 ? 1 : 0)) * cellSize - oy) * inverseDy;
+        float tDeltaX = stepX == 0 ? Float.POSITIVE_INFINITY : cellSize * Math.abs(inverseDx);
+        float tDeltaY = stepY == 0 ? Float.POSITIVE_INFINITY : cellSize * Math.abs(inverseDy);
+
+        beginQuery();
+        int best = -1;
+        float bestT = maxDistance;
+        for (int step = 0; step < MAX_RAY_STEPS; step++) {
+            int b = find(cx, cy);
+            if (b != EMPTY) {
+                int[] bucket = buckets[b];
+                for (int i = 0, size = bucketSizes[b]; i < size; i++) {
+                    int id = bucket[i];
+                    if (!mark(id)) continue;
+                    float t = intersect(id, ox, oy, inverseDx, inverseDy, bestT);
+                    if (t >= 0 && (best < 0 || t < bestT)) {
+                        best = id;
+                        bestT = t;
+                    }
+                }
+            }
+            float exit = Math.min(tMaxX, tMaxY);
+            // Ninguna celda posterior puede tener un impacto mas cercano
+            if ((best >= 0 && bestT <= exit) || exit > maxDistance) break;
+            if (tMaxX < tMaxY) {
+                cx += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                cy += stepY;
+                tMaxY += tDeltaY;
+            }
+        }
+        if (best >= 0) setRayDistance(bestT);
+        return best;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        // Conserva las celdas y su capacidad para reutilizarlas
+        Arrays.fill(bucketSizes, 0, cellCount, 0);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return cantidad de celdas creadas
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    @Override
+    protected void link(int id) {
+        int x0 = cell(minX[id]), y0 = cell(minY[id]), x1 = cell(maxX[id]), y1 = cell(maxY[id]);
+        cellMinX[id] = x0;
+        cellMinY[id] = y0;
+        cellMaxX[id] = x1;
+        cellMaxY[id] = y1;
+        for (int cy = y0; cy <= y1; cy++)
+            for (int cx = x0; cx <= x1; cx++) add(findOrCreate(cx, cy), id);
+    }
+
+    @Override
+    protected void unlink(int id) {
+        for (int cy = cellMinY[id]; cy <= cellMaxY[id]; cy++)
+            for (int cx = cellMinX[id]; cx <= cellMaxX[id]; cx++) {
+                int b = find(cx, cy);
+                if (b != EMPTY) remove(b, id);
+            }
+    }
+
+    @Override
+    protected void relocate(int id, float minX, float minY, float maxX, float maxY) {
+        boolean sameCells = cell(minX) == cellMinX[id] && cell(minY) == cellMinY[id] && cell(maxX) == cellMaxX[id] && cell(maxY) == cellMaxY[id];
+        if (!sameCells) unlink(id);
+        setBounds(id, minX, minY, maxX, maxY);
+        if (!sameCells) link(id);
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        cellMinX = Arrays.copyOf(cellMinX, capacity);
+        cellMinY = Arrays.copyOf(cellMinY, capacity);
+        cellMaxX = Arrays.copyOf(cellMaxX, capacity);
+        cellMaxY = Arrays.copyOf(cellMaxY, capacity);
+    }
+
+    private void collect(int b, float minX, float minY, float maxX, float maxY, IntArrayList out) {
+        int[] bucket = buckets[b];
+        for (int i = 0, size = bucketSizes[b]; i < size; i++) {
+            int id = bucket[i];
+            if (mark(id) && overlaps(id, minX, minY, maxX, maxY)) out.add(id);
+        }
+    }
+
+    private int cell(float coordinate) {
+        // Las coordenadas fuera del rango (incluidos los infinitos) caen en las celdas del borde
+        return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, Math.floor(coordinate * inverseCellSize)));
+    }
+
+    private static long key(int cx, int cy) {
+        return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    private int find(int cx, int cy) {
+        long key = key(cx, cy);
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int b = cells[i];
+            if (b == EMPTY) return EMPTY;
+            if (keys[i] == key) return b;
+        }
+    }
+
+    private int findOrCreate(int cx, int cy) {
+        int b = find(cx, cy);
+        if (b != EMPTY) return b;
+        // Mantiene el factor de carga por debajo de 0.5
+        if ((cellCount + 1) * 2 > keys.length) rehash(keys.length * 2);
+        if (cellCount == buckets.length) {
+            buckets = Arrays.copyOf(buckets, cellCount * 2);
+            bucketSizes = Arrays.copyOf(bucketSizes, cellCount * 2);
+        }
+        b = cellCount++;
+        buckets[b] = new int[4];
+        put(key(cx, cy), b);
+        return b;
+    }
+
+    private void put(long key, int b) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (cells[i] != EMPTY) i = (i + 1) & mask;
+        keys[i] = key;
+        cells[i] = b;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCells = cells;
+        keys = new long[capacity];
+        cells = new int[capacity];
+        Arrays.fill(cells, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldCells[i] != EMPTY) put(oldKeys[i], oldCells[i]);
+    }
+
+    private void add(int b, int id) {
+        int size = bucketSizes[b];
+        if (size == buckets[b].length) buckets[b] = Arrays.copyOf(buckets[b], size * 2);
+        buckets[b][size] = id;
+        bucketSizes[b] = size + 1;
+    }
+
+    private void remove(int b, int id) {
+        int[] bucket = buckets[b];
+        int size = bucketSizes[b];
+        for (int i = 0; i < size; i++) {
+            if (bucket[i] == id) {
+                bucket[i] = bucket[size - 1];
+                bucketSizes[b] = size - 1;
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.punkipunk.util;
+
+import java.util.Arrays;
+
+/**
+ * Indice espacial de cajas alineadas a los ejes (AABB) identificadas por un {@code int} no negativo y denso, como el indice de
+ * una entidad del {@code World}.
+ * <p>
+ * Guarda las cajas en arreglos paralelos indexados por id y mantiene una lista densa de los ids presentes. Las consultas
+ * escriben los ids encontrados en una {@link IntArrayList} provista por el llamador y no crean objetos, por lo que se pueden
+ * hacer en cada frame. Las subclases solo deciden como se reparten los ids en el espacio.
+ */
+
+public abstract class SpatialIndex {
+
+    protected float[] minX = new float[64], minY = new float[64], maxX = new float[64], maxY = new float[64];
+    // Posicion de cada id en la lista densa, o -1 si no esta
+    private int[] positions = new int[64];
+    private int[] ids = new int[64];
+    private int count;
+    // Marca de la consulta actual por id, para no devolver dos veces el mismo id
+    private int[] stamps = new int[64];
+    private int stamp;
+    private float rayDistance = Float.NaN;
+
+    protected SpatialIndex() {
+        Arrays.fill(positions, -1);
+    }
+
+    public final void insert(int id, float minX, float minY, float maxX, float maxY) {
+        assert !contains(id) : "The id " + id + " is already in the index!";
+        ensureCapacity(id);
+        setBounds(id, minX, minY, maxX, maxY);
+        positions[id] = count;
+        if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+        ids[count++] = id;
+        link(id);
+    }
+
+    /**
+     * Mueve o redimensiona una caja (o la inserta si no estaba). Si no cambia de celda, solo se actualizan sus limites.
+     */
+    public final void update(int id, float minX, float minY, float maxX, float maxY) {
+        if (!contains(id)) {
+            insert(id, minX, minY, maxX, maxY);
+            return;
+        }
+        relocate(id, minX, minY, maxX, maxY);
+    }
+
+    public final void remove(int id) {
+        if (!contains(id)) return;
+        unlink(id);
+        int position = positions[id], last = ids[--count];
+        ids[position] = last;
+        positions[last] = position;
+        positions[id] = -1;
+    }
+
+    public final boolean contains(int id) {
+        return id >= 0 && id < positions.length && positions[id] >= 0;
+    }
+
+    public final int size() {
+        return count;
+    }
+
+    /**
+     * @return id en la posicion {@code i} de la lista densa (entre 0 y {@link #size()})
+     */
+    public final int id(int i) {
+        return ids[i];
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) positions[ids[i]] = -1;
+        count = 0;
+    }
+
+    /**
+     * Agrega a {@code out} los ids cuyas cajas se superponen con el rectangulo (incluyendo los bordes).
+     *
+     * @return cantidad de ids agregados
+     */
+    public abstract int queryRange(float minX, float minY, float maxX, float maxY, IntArrayList out);
+
+    /**
+     * Agrega a {@code out} los ids cuyas cajas contienen el punto.
+     *
+     * @return cantidad de ids agregados
+     */
+    public int queryPoint(float x, float y, IntArrayList out) {
+        return queryRange(x, y, x, y, out);
+    }
+
+    /**
+     * Busca la primera caja que atraviesa el rayo.
+     *
+     * @param dx          direccion del rayo (no hace falta normalizarla)
+     * @param maxDistance distancia maxima recorrida por el rayo
+     * @return id de la caja mas cercana, o -1 si no hay ninguna; la distancia queda en {@link #getRayDistance()}
+     */
+    public abstract int raycast(float ox, float oy, float dx, float dy, float maxDistance);
+
+    /**
+     * @return distancia al impacto del ultimo {@link #raycast}, o NaN si no hubo impacto
+     */
+    public float getRayDistance() {
+        return rayDistance;
+    }
+
+    public float getMinX(int id) {
+        return minX[id];
+    }
+
+    public float getMinY(int id) {
+        return minY[id];
+    }
+
+    public float getMaxX(int id) {
+        return maxX[id];
+    }
+
+    public float getMaxY(int id) {
+        return maxY[id];
+    }
+
+    /**
+     * Ubica un id recien insertado. Sus limites ya estan guardados.
+     */
+    protected abstract void link(int id);
+
+    protected abstract void unlink(int id);
+
+    /**
+     * Actualiza la ubicacion de un id. Los limites anteriores siguen guardados; la implementacion debe llamar a
+     * {@link #setBounds} con los nuevos.
+     */
+    protected abstract void relocate(int id, float minX, float minY, float maxX, float maxY);
+
+    protected final void setBounds(int id, float minX, float minY, float maxX, float maxY) {
+        this.minX[id] = minX;
+        this.minY[id] = minY;
+        this.maxX[id] = maxX;
+        this.maxY[id] = maxY;
+    }
+
+    protected final boolean overlaps(int id, float minX, float minY, float maxX, float maxY) {
+        return this.minX[id] <= maxX && this.maxX[id] >= minX && this.minY[id] <= maxY && this.maxY[id] >= minY;
+    }
+
+    /**
+     * Empieza una consulta nueva; a partir de aca {@link #mark(int)} devuelve true una sola vez por id.
+     */
+    protected final void beginQuery() {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    protected final boolean mark(int id) {
+        if (stamps[id] == stamp) return false;
+        stamps[id] = stamp;
+        return true;
+    }
+
+    protected final void setRayDistance(float distance) {
+        rayDistance = distance;
+    }
+
+    /**
+     * Interseccion del rayo con la caja por el metodo de las placas (slabs).
+     *
+     * @param inverseDx 1 / dx del rayo (infinito si dx es 0)
+     * @return distancia de entrada a la caja (0 si el origen esta dentro), o -1 si no la atraviesa antes de {@code maxT}
+     */
+    protected final float intersect(int id, float ox, float oy, float inverseDx, float inverseDy, float maxT) {
+        float t1 = (minX[id] - ox) * inverseDx, t2 = (maxX[id] - ox) * inverseDx;
+        float t3 = (minY[id] - oy) * inverseDy, t4 = (maxY[id] - oy) * inverseDy;
+        // Con la direccion en 0, 0 * infinito da NaN; en ese caso el eje solo importa si el origen esta fuera de la placa
+        float nearX = Float.isNaN(t1) || Float.isNaN(t2) ? Float.NEGATIVE_INFINITY : Math.min(t1, t2);
+        float farX = Float.isNaN(t1) || Float.isNaN(t2) ? Float.POSITIVE_INFINITY : Math.max(t1, t2);
+        float nearY = Float.isNaN(t3) || Float.isNaN(t4) ? Float.NEGATIVE_INFINITY : Math.min(t3, t4);
+        float farY = Float.isNaN(t3) || Float.isNaN(t4) ? Float.POSITIVE_INFINITY : Math.max(t3, t4);
+        float near = Math.max(0, Math.max(nearX, nearY)), far = Math.min(maxT, Math.min(farX, farY));
+        return near <= far ? near : -1;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < positions.length) return;
+        int capacity = Math.max(id + 1, positions.length * 2);
+        int old = positions.length;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, old, capacity, -1);
+        grow(capacity);
+    }
+
+    /**
+     * Permite a las subclases agrandar sus arreglos por id.
+     */
+    protected void grow(int capacity) {
+    }
+
+}
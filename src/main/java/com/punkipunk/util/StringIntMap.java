@@ -0,0 +1,90 @@
+package com.punkipunk.util;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de {@code String} a {@code int} con direccionamiento abierto (sondeo lineal).
+ * <p>
+ * A diferencia de un {@code HashMap<String, Integer>}, no crea objetos por entrada ni encapsula los valores, por lo que las
+ * busquedas en el hot path (por ejemplo, la ubicacion de un uniform por nombre en cada frame) no generan basura.
+ */
+
+public class StringIntMap {
+
+    private final int missingValue;
+    private String[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * @param missingValue valor que devuelve {@link #get(String)} cuando la clave no existe
+     */
+    public StringIntMap(int missingValue) {
+        this.missingValue = missingValue;
+        keys = new String[16];
+        values = new int[16];
+    }
+
+    public int get(String key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) return missingValue;
+            if (k.equals(key)) return values[i];
+        }
+    }
+
+    public void put(String key, int value) {
+        // Mantiene el factor de carga por debajo de 0.5 para que las secuencias de sondeo sean cortas
+        if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = mix(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+            if (k.equals(key)) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+
+    public boolean containsKey(String key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) return false;
+            if (k.equals(key)) return true;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != null) put(oldKeys[i], oldValues[i]);
+    }
+
+    private static int mix(int hash) {
+        // Dispersa los bits altos hacia los bajos, ya que la mascara solo usa estos ultimos
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,35 @@
+#version 330 core
+
+layout (location = 0) in vec2 aCorner; // Esquina del cuadrado compartido, entre (0, 0) y (1, 1)
+// Datos de la instancia (avanzan una vez por sprite)
+layout (location = 1) in vec4 aRect; // Centro y tamaño
+layout (location = 2) in float aRotation; // Radianes
+layout (location = 3) in vec4 aColor; // Bytes normalizados
+layout (location = 4) in vec4 aRegion; // u0, v0 (esquina superior izquierda), u1, v1 (inferior derecha)
+
+// Matrices de la camara, compartidas por todos los shaders a traves de un uniform buffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+    mat4 uViewProjection;
+};
+
+// Todas las instancias comparten la textura: 0 = sin textura, 1 = uTextures[0]
+uniform int uTexId;
+
+// Mismas salidas que el vertex shader de los sprites, para usar el mismo fragment shader
+out vec4 fColor;
+out vec2 fTexCoords;
+flat out int fTexId;
+
+void main() {
+    vec2 local = (aCorner - 0.5) * aRect.zw;
+    float c = cos(aRotation), s = sin(aRotation);
+    vec2 position = aRect.xy + vec2(local.x * c - local.y * s, local.x * s + local.y * c);
+
+    fColor = aColor;
+    // La fila 0 de la imagen es la primera que se sube, por lo que el borde superior del cuadrado usa v0
+    fTexCoords = vec2(mix(aRegion.x, aRegion.z, aCorner.x), mix(aRegion.w, aRegion.y, aCorner.y));
+    fTexId = uTexId;
+    gl_Position = uViewProjection * vec4(position, 0.0, 1.0);
+}
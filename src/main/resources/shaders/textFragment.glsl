@@ -0,0 +1,24 @@
+#version 330 core
+
+in vec4 fColor;
+in vec2 fTexCoords;
+flat in int fTexId;
+
+uniform sampler2D uTextures[8];
+// 0 = el alfa de la textura es cobertura, 1 = es una distancia con signo (borde en 0.5)
+uniform int uSdf;
+
+out vec4 color;
+
+void main() {
+    if (fTexId == 0) {
+        color = fColor;
+    } else if (uSdf == 0) {
+        color = fColor * texture(uTextures[0], fTexCoords);
+    } else {
+        float distance = texture(uTextures[0], fTexCoords).a;
+        // Suaviza el borde en un pixel de pantalla sin importar la escala del texto
+        float width = fwidth(distance);
+        color = vec4(fColor.rgb, fColor.a * smoothstep(0.5 - width, 0.5 + width, distance));
+    }
+}
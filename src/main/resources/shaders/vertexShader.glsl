@@ -2,11 +2,24 @@
 
 layout (location = 0) in vec3 aPos; // Posicion de vertice
 layout (location = 1) in vec4 aColor;
+layout (location = 2) in vec2 aTexCoords;
+layout (location = 3) in float aTexId; // 0 = sin textura, 1..8 = textura del lote
+
+// Matrices de la camara, compartidas por todos los shaders a traves de un uniform buffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+    mat4 uViewProjection;
+};
 
 out vec4 fColor;
+out vec2 fTexCoords;
+flat out int fTexId;
 
 void main() {
     fColor = aColor;
+    fTexCoords = aTexCoords;
+    fTexId = int(aTexId);
     // Para configurar la salida del vertex shader, tenemos que asignar los datos de posicipn a la variable predefinida gl_Position
-    gl_Position = vec4(aPos, 1.0);
-}
\ No newline at end of file
+    gl_Position = uViewProjection * vec4(aPos, 1.0);
+}
@@ -0,0 +1,77 @@
+package com.punkipunk;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ejecuta cada escena sin ventana sobre el {@link com.punkipunk.renderer.SoftwareBackend} con el {@link Launcher}, en una JVM
+ * aparte (la {@link com.punkipunk.jade.Window} es unica por proceso), y compara el ultimo frame con su imagen de referencia en
+ * {@code src/test/resources/golden}. Si no coincide, la imagen de diferencias queda en {@code target/test-classes/golden}.
+ * <p>
+ * Para regenerar una referencia despues de un cambio visual intencional se corre el mismo comando con {@code --out} en lugar de
+ * {@code --golden}, por ejemplo:
+ * <pre>
+ * mvn -q dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -ea -Djade.scene=physics -cp target/classes:$(cat cp.txt) com.punkipunk.Launcher --headless 60 \
+ *     --out src/test/resources/golden/physics.png
+ * </pre>
+ */
+
+class GoldenImageTest {
+
+    private static final int FRAMES = 60;
+    // Diferencia maxima por canal: absorbe redondeos de coma flotante, pero no un sprite fuera de lugar
+    private static final int TOLERANCE = 2;
+    private static final long TIMEOUT_SECONDS = 120;
+
+    @TempDir
+    Path logs;
+
+    @ParameterizedTest(name = "{0} {1}")
+    @CsvSource({
+            "editor, ''",
+            "level, ''",
+            "crowd, -Djade.crowd=20000",
+            "particles, -Djade.particles=20000",
+            "physics, ''",
+            // El bucle en pipeline dibuja con un frame de retraso, pero con un frame extra simulado llega a la misma imagen
+            "editor, -Djade.pipelined=true",
+            "physics, -Djade.pipelined=true"
+    })
+    void matchesTheReferenceImage(String scene, String option) throws IOException, InterruptedException, URISyntaxException {
+        URL golden = getClass().getClassLoader().getResource("golden/" + scene + ".png");
+        assertNotNull(golden, "There is no reference image for the '" + scene + "' scene!");
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-ea");
+        command.add("-Djade.scene=" + scene);
+        if (!option.isEmpty()) command.add(option);
+        command.add("-cp");
+        command.add(System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")));
+        command.add(Launcher.class.getName());
+        command.addAll(List.of("--headless", String.valueOf(FRAMES), "--golden", Path.of(golden.toURI()).toString(),
+                "--tolerance", String.valueOf(TOLERANCE)));
+
+        Path log = logs.resolve(scene + ".log");
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            fail("The '" + scene + "' scene did not finish!");
+        }
+        assertEquals(0, process.exitValue(), Files.readString(log));
+    }
+
+}
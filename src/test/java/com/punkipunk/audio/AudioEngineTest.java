@@ -0,0 +1,194 @@
+package com.punkipunk.audio;
+
+import com.punkipunk.util.ResourceManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.punkipunk.util.Await.until;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioEngineTest {
+
+    // 2000 frames mono a 8 kHz
+    private static final String BEEP = "audio/beep.wav";
+    // 20000 frames mono a 8 kHz: dos bloques completos y uno parcial
+    private static final String MUSIC = "audio/music.wav";
+    private static final int MUSIC_CHUNKS = 3;
+    private final ResourceManager resources = new ResourceManager(1 << 20, 1);
+    private NullAudioDevice device;
+    private AudioEngine engine;
+
+    @AfterEach
+    void dispose() {
+        if (engine != null) engine.dispose();
+        resources.shutdown();
+    }
+
+    @Test
+    void decodesAWavSound() {
+        create(4);
+        Sound sound = load(BEEP);
+
+        assertEquals(1, sound.getChannels());
+        assertEquals(8000, sound.getSampleRate());
+        assertEquals(2000, sound.getFrameCount());
+        assertEquals(0.25f, sound.getDuration(), 1e-6f);
+        assertEquals(1, device.getBufferCount());
+        assertSame(sound, engine.loadSound(BEEP));
+    }
+
+    @Test
+    void releasesTheVoiceWhenTheSoundEnds() {
+        create(4);
+        Sound sound = load(BEEP);
+
+        long voice = engine.play(sound);
+        assertTrue(engine.isPlaying(voice));
+        engine.update(0.2);
+        assertTrue(engine.isPlaying(voice));
+        engine.update(0.1);
+
+        assertFalse(engine.isPlaying(voice));
+        assertEquals(0, engine.getActiveVoices());
+    }
+
+    @Test
+    void loopingSoundsKeepTheirVoice() {
+        create(4);
+        long voice = engine.play(load(BEEP), 1, 1, 0, true);
+        for (int i = 0; i < 10; i++) engine.update(0.1);
+
+        assertTrue(engine.isPlaying(voice));
+        engine.stop(voice);
+        assertFalse(engine.isPlaying(voice));
+    }
+
+    @Test
+    void stealsTheLowestPriorityAndThenTheOldestVoice() {
+        create(3);
+        Sound sound = load(BEEP);
+        long high = engine.play(sound, 1, 1, 1, false);
+        long oldest = engine.play(sound, 1, 1, 0, false);
+        long newest = engine.play(sound, 1, 1, 0, false);
+
+        long stealer = engine.play(sound, 1, 1, 0, false);
+
+        assertNotEquals(AudioEngine.NO_VOICE, stealer);
+        assertFalse(engine.isPlaying(oldest));
+        assertTrue(engine.isPlaying(high));
+        assertTrue(engine.isPlaying(newest));
+        assertTrue(engine.isPlaying(stealer));
+        assertEquals(1, engine.getStolenVoices());
+        // El handle viejo no afecta al sonido que ahora ocupa la voz
+        engine.stop(oldest);
+        assertTrue(engine.isPlaying(stealer));
+    }
+
+    @Test
+    void rejectsSoundsWithLowerPriorityThanEveryVoice() {
+        create(2);
+        Sound sound = load(BEEP);
+        engine.play(sound, 1, 1, 5, false);
+        engine.play(sound, 1, 1, 5, false);
+
+        assertEquals(AudioEngine.NO_VOICE, engine.play(sound, 1, 1, 4, false));
+        assertEquals(1, engine.getRejectedVoices());
+        assertEquals(0, engine.getStolenVoices());
+    }
+
+    @Test
+    void reusesVoicesThatEndedBeforeTheUpdate() {
+        create(1);
+        Sound sound = load(BEEP);
+        long first = engine.play(sound, 1, 1, 5, false);
+        // El dispositivo termino el sonido, pero el motor todavia no se actualizo
+        device.update(1);
+
+        assertNotEquals(AudioEngine.NO_VOICE, engine.play(sound, 1, 1, 0, false));
+        assertFalse(engine.isPlaying(first));
+        assertEquals(0, engine.getStolenVoices());
+    }
+
+    @Test
+    void neverStealsTheMusicVoice() {
+        create(2);
+        Sound sound = load(BEEP);
+        MusicStream music = engine.playMusic(MUSIC, true);
+        long first = engine.play(sound, 1, 1, 0, false);
+
+        long second = engine.play(sound, 1, 1, 0, false);
+
+        assertFalse(engine.isPlaying(first));
+        assertTrue(engine.isPlaying(second));
+        assertTrue(music.isPlaying());
+        // Con todas las voces ocupadas por musica no se puede empezar otra pista
+        engine.stop(second);
+        assertNotNull(engine.playMusic(MUSIC, false));
+        assertNull(engine.playMusic(MUSIC, false));
+    }
+
+    @Test
+    void releasesTheMusicVoiceIfTheTrackCannotStart() {
+        create(1);
+        // Sin hilos de carga, pedir el archivo de la pista falla
+        resources.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> engine.playMusic(MUSIC, false));
+        assertEquals(0, engine.getActiveVoices());
+        assertEquals(0, engine.getStreamCount());
+    }
+
+    @Test
+    void streamsTheMusicInChunksUntilItEnds() {
+        create(2);
+        MusicStream music = engine.playMusic(MUSIC, false);
+
+        // 20 ms por actualizacion, con el hilo de streaming decodificando en paralelo
+        until(() -> {
+            engine.update(0.02);
+            return !music.isPlaying();
+        });
+
+        assertEquals(MUSIC_CHUNKS, music.getDecodedChunks());
+        assertEquals(0, engine.getActiveVoices());
+        // El hilo de streaming libera el decodificador y el anillo de la pista terminada
+        until(() -> engine.getStreamCount() == 0);
+    }
+
+    @Test
+    void loopingMusicDecodesPastTheEnd() {
+        create(2);
+        MusicStream music = engine.playMusic(MUSIC, true);
+
+        until(() -> {
+            engine.update(0.02);
+            return music.getDecodedChunks() > 2 * MUSIC_CHUNKS;
+        });
+
+        assertTrue(music.isPlaying());
+        music.stop();
+        engine.update(0);
+        assertFalse(music.isPlaying());
+        assertEquals(0, engine.getActiveVoices());
+    }
+
+    private void create(int voices) {
+        device = new NullAudioDevice(voices);
+        engine = new AudioEngine(device, resources, voices);
+    }
+
+    /**
+     * Pide el sonido y actualiza el motor hasta que se termina de decodificar y subir.
+     */
+    private Sound load(String name) {
+        Sound sound = engine.loadSound(name);
+        until(() -> {
+            engine.update(0);
+            return sound.isLoaded();
+        });
+        return sound;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.punkipunk.jade;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelJsonTest {
+
+    private static final ComponentType TRANSFORM = new ComponentType("Transform", "x", "y", "width", "height");
+    private static final ComponentType TAG = new ComponentType("Tag \"quoted\"", new String[]{"weight"}, new String[]{"kind"});
+    // Valores que ponen a prueba la conversion a texto y de vuelta
+    private static final float[] VALUES = {0, -0f, 0.1f, 1 / 3f, 16777217, Float.MIN_VALUE, Float.MAX_VALUE, -1e-10f, Float.NaN,
+            Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+    @Test
+    void exportsAndImportsTheSameLevel() throws IOException {
+        World world = new World();
+        for (int i = 0; i < VALUES.length; i++) {
+            int entity = world.create();
+            ComponentStorage transform = world.storage(TRANSFORM);
+            int position = world.add(entity, TRANSFORM);
+            transform.floatColumn(Components.X)[position] = VALUES[i];
+            transform.floatColumn(Components.Y)[position] = -VALUES[i];
+            transform.floatColumn(Components.WIDTH)[position] = i;
+            transform.floatColumn(Components.HEIGHT)[position] = VALUES[VALUES.length - 1 - i];
+            if (i % 2 == 0) continue;
+            position = world.add(entity, TAG);
+            world.storage(TAG).floatColumn(0)[position] = VALUES[i] * 2;
+            world.storage(TAG).intColumn(0)[position] = Integer.MIN_VALUE + i;
+        }
+        // Una entidad destruida deja un hueco en los indices que la exportacion no debe conservar
+        world.destroy(world.entityAt(3));
+
+        String json = export(world);
+        World imported = new World();
+        LevelJson.read(imported, json, TRANSFORM, TAG);
+        assertEquals(world.getEntityCount(), imported.getEntityCount());
+        assertEquals(json, export(imported));
+
+        for (int i = 0, id = 0; i < VALUES.length; i++) {
+            if (i == 3) continue;
+            int original = world.entityAt(i), entity = imported.entityAt(id++);
+            for (int f = 0; f < 4; f++)
+                assertEquals(world.storage(TRANSFORM).getFloat(original, f), imported.storage(TRANSFORM).getFloat(entity, f));
+            assertEquals(world.has(original, TAG), imported.has(entity, TAG));
+            if (!world.has(original, TAG)) continue;
+            assertEquals(world.storage(TAG).getFloat(original, 0), imported.storage(TAG).getFloat(entity, 0));
+            assertEquals(world.storage(TAG).getInt(original, 0), imported.storage(TAG).getInt(entity, 0));
+        }
+    }
+
+    @Test
+    void skipsUnknownKeysComponentsAndFields() throws IOException {
+        String json = """
+                {
+                  "format": "jlvl",
+                  "author": {"name": "someone", "tools": ["editor", {"version": [1, 2]}], "notes": "a \\"b\\" [c] {d}"},
+                  "version": 1,
+                  "entities": 2,
+                  "components": [
+                    {
+                      "name": "Health",
+                      "floats": ["value"],
+                      "ints": [],
+                      "rows": [[0, 10.0], [1, 20.0]]
+                    },
+                    {
+                      "name": "Transform",
+                      "comment": null,
+                      "floats": ["x", "depth", "y"],
+                      "ints": ["layer"],
+                      "rows": [
+                        [1, 5.0, 99.0, 6.0, 3],
+                        [0, 1.5, 99.0, -2.5e1, 4]
+                      ],
+                      "extra": true
+                    }
+                  ]
+                }
+                """;
+        World world = new World();
+        LevelJson.read(world, json, TRANSFORM);
+        assertEquals(2, world.getEntityCount());
+
+        ComponentStorage storage = world.storage(TRANSFORM);
+        assertEquals(2, storage.size());
+        assertEquals(1.5f, storage.getFloat(world.entityAt(0), Components.X));
+        assertEquals(-25, storage.getFloat(world.entityAt(0), Components.Y));
+        assertEquals(5, storage.getFloat(world.entityAt(1), Components.X));
+        assertEquals(6, storage.getFloat(world.entityAt(1), Components.Y));
+        assertEquals(0, storage.getFloat(world.entityAt(1), Components.WIDTH));
+    }
+
+    @Test
+    void rejectsMalformedDocuments() {
+        assertThrows(IOException.class, () -> LevelJson.read(new World(), "{\"entities\": 1, \"components\": [", TRANSFORM));
+        assertThrows(IOException.class, () -> LevelJson.read(new World(), "{\"components\": []}", TRANSFORM));
+        assertThrows(IOException.class, () -> LevelJson.read(new World(), """
+                {"entities": 1, "components": [{"name": "Transform", "floats": ["x"], "rows": [[5, 1.0]]}]}
+                """, TRANSFORM));
+        assertThrows(IOException.class, () -> LevelJson.read(new World(), "{\"version\": 99}", TRANSFORM));
+    }
+
+    private static String export(World world) throws IOException {
+        StringWriter out = new StringWriter();
+        LevelJson.write(world, out, TRANSFORM, TAG);
+        return out.toString();
+    }
+
+}
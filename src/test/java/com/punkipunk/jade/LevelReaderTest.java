@@ -0,0 +1,136 @@
+package com.punkipunk.jade;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelReaderTest {
+
+    private static final ComponentType TRANSFORM = new ComponentType("Transform", "x", "y", "width", "height");
+    private static final ComponentType TAG = new ComponentType("Tag", new String[]{"weight"}, new String[]{"kind", "flags"});
+    // Mas de un bloque de filas
+    private static final int ENTITIES = LevelFormat.CHUNK_ROWS + 1000;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void roundTripsALevel(boolean compress) throws IOException {
+        World world = level();
+        byte[] file = write(world, compress, TRANSFORM, TAG);
+
+        World loaded = new World();
+        LevelReader reader = new LevelReader(ByteBuffer.wrap(file), TRANSFORM, TAG);
+        assertEquals(ENTITIES, reader.getEntityCount());
+        reader.readAll(loaded);
+        assertEquals(1, reader.getProgress());
+        assertEquals(ENTITIES, loaded.getEntityCount());
+
+        for (int i = 0; i < ENTITIES; i++) {
+            int original = world.entityAt(i), entity = reader.entity(i);
+            for (int f = 0; f < 4; f++)
+                assertEquals(world.storage(TRANSFORM).getFloat(original, f), loaded.storage(TRANSFORM).getFloat(entity, f));
+            assertEquals(world.has(original, TAG), loaded.has(entity, TAG));
+            if (!world.has(original, TAG)) continue;
+            assertEquals(world.storage(TAG).getFloat(original, 0), loaded.storage(TAG).getFloat(entity, 0));
+            assertEquals(world.storage(TAG).getInt(original, 0), loaded.storage(TAG).getInt(entity, 0));
+            assertEquals(world.storage(TAG).getInt(original, 1), loaded.storage(TAG).getInt(entity, 1));
+        }
+    }
+
+    @Test
+    void compressesRegularLevels() throws IOException {
+        World world = level();
+        assertTrue(write(world, true, TRANSFORM, TAG).length < write(world, false, TRANSFORM, TAG).length / 2);
+    }
+
+    @Test
+    void skipsUnknownComponentsAndFields() throws IOException {
+        World world = level();
+        byte[] file = write(world, true, TRANSFORM, TAG);
+
+        // Otra version del componente: sin width ni height, con los campos en otro orden y uno que el archivo no tiene
+        ComponentType transform = new ComponentType("Transform", "depth", "y", "x");
+        World loaded = new World();
+        LevelReader reader = new LevelReader(ByteBuffer.wrap(file), transform);
+        reader.readAll(loaded);
+
+        ComponentStorage storage = loaded.storage(transform);
+        assertEquals(ENTITIES, storage.size());
+        for (int i = 0; i < ENTITIES; i += 97) {
+            int entity = reader.entity(i);
+            assertEquals(world.storage(TRANSFORM).getFloat(world.entityAt(i), Components.X), storage.getFloat(entity, 2));
+            assertEquals(world.storage(TRANSFORM).getFloat(world.entityAt(i), Components.Y), storage.getFloat(entity, 1));
+            assertEquals(0, storage.getFloat(entity, 0));
+        }
+        assertEquals(0, loaded.storage(TAG).size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rejectsATruncatedChunk(boolean compress) throws IOException {
+        byte[] file = write(level(), compress, TRANSFORM, TAG);
+        LevelReader reader = new LevelReader(ByteBuffer.wrap(Arrays.copyOf(file, file.length - 7)), TRANSFORM, TAG);
+        assertThrows(IOException.class, () -> reader.readAll(new World()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rejectsACorruptChunk(boolean compress) throws IOException {
+        byte[] file = write(level(), compress, TRANSFORM, TAG);
+        // La cabecera ocupa lo mismo sin filas, por lo que el primer bloque empieza donde termina un nivel vacio
+        int chunk = write(new World(), compress, TRANSFORM, TAG).length;
+
+        byte[] badSize = file.clone();
+        ByteBuffer.wrap(badSize).order(ByteOrder.LITTLE_ENDIAN).putInt(chunk + 8, 12345);
+        assertThrows(IOException.class, () -> new LevelReader(ByteBuffer.wrap(badSize), TRANSFORM, TAG).readAll(new World()));
+
+        byte[] badComponent = file.clone();
+        ByteBuffer.wrap(badComponent).order(ByteOrder.LITTLE_ENDIAN).putInt(chunk, 9);
+        assertThrows(IOException.class, () -> new LevelReader(ByteBuffer.wrap(badComponent), TRANSFORM, TAG).readAll(new World()));
+
+        // Un bloque guardado mas corto de lo que es: el resto del archivo ya no esta alineado con los bloques
+        byte[] shortBlock = file.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(shortBlock).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(chunk + 12, buffer.getInt(chunk + 12) - 2);
+        assertThrows(IOException.class, () -> new LevelReader(ByteBuffer.wrap(shortBlock), TRANSFORM, TAG).readAll(new World()));
+
+        assertThrows(IOException.class, () -> new LevelReader(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}), TRANSFORM));
+    }
+
+    /**
+     * Una grilla de entidades con transformacion, de las que una de cada tres tiene ademas un {@link #TAG}.
+     */
+    private static World level() {
+        World world = new World();
+        for (int i = 0; i < ENTITIES; i++) {
+            int entity = world.create();
+            int position = world.add(entity, TRANSFORM);
+            ComponentStorage transform = world.storage(TRANSFORM);
+            transform.floatColumn(Components.X)[position] = (i % 100) * 32;
+            transform.floatColumn(Components.Y)[position] = (i / 100) * 32;
+            transform.floatColumn(Components.WIDTH)[position] = 32;
+            transform.floatColumn(Components.HEIGHT)[position] = 32;
+            if (i % 3 != 0) continue;
+            position = world.add(entity, TAG);
+            world.storage(TAG).floatColumn(0)[position] = i * 0.5f;
+            world.storage(TAG).intColumn(0)[position] = i % 7;
+            world.storage(TAG).intColumn(1)[position] = -i;
+        }
+        return world;
+    }
+
+    private static byte[] write(World world, boolean compress, ComponentType... types) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new LevelWriter(compress).write(world, Channels.newChannel(out), types);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.punkipunk.jade;
+
+import com.punkipunk.renderer.GLTaskQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.punkipunk.util.Await.TIMEOUT;
+import static com.punkipunk.util.Await.until;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SceneManagerTest {
+
+    private final SceneManager scenes = new SceneManager();
+
+    @AfterEach
+    void dispose() {
+        scenes.dispose();
+    }
+
+    @Test
+    void loadsASceneInTheBackground() {
+        TestScene scene = new TestScene(null, false);
+        scenes.register("a", () -> scene);
+        scenes.load("a");
+        until(() -> scenes.update(Long.MAX_VALUE));
+
+        assertSame(scene, scenes.activate());
+        assertEquals("a", scenes.getCurrentName());
+        assertEquals(1, scene.uploads.get());
+        assertEquals(1, scene.inits.get());
+        // La precarga corre en el hilo de las escenas y no en el JobSystem de la simulacion
+        assertEquals("scene-preloader", scene.preloadThread);
+    }
+
+    @Test
+    void discardsALoadWithoutWaitingForItsPreload() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        TestScene slow = new TestScene(blocked, false), fast = new TestScene(null, false);
+        scenes.register("slow", () -> slow);
+        scenes.register("fast", () -> fast);
+        scenes.load("slow");
+        slow.started.await();
+
+        // Cargar otra escena descarta la lenta sin bloquear el hilo de OpenGL
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> scenes.load("fast"));
+        assertEquals(1, scenes.getDiscardedCount());
+        assertEquals(0, slow.disposes.get());
+        assertFalse(scenes.update(Long.MAX_VALUE));
+
+        blocked.countDown();
+        until(() -> scenes.update(Long.MAX_VALUE));
+        assertEquals(0, scenes.getDiscardedCount());
+        assertEquals(1, slow.disposes.get());
+        assertEquals(0, slow.uploads.get());
+        assertSame(fast, scenes.activate());
+    }
+
+    @Test
+    void disposesTheOldSceneWhenTheNewOneIsActivated() {
+        TestScene first = new TestScene(null, false), second = new TestScene(null, false);
+        scenes.register("first", () -> first);
+        scenes.register("second", () -> second);
+        scenes.loadNow("first");
+        scenes.loadNow("second");
+
+        assertEquals(1, first.disposes.get());
+        assertEquals(0, second.disposes.get());
+        assertSame(second, scenes.getCurrent());
+    }
+
+    @Test
+    void loadNowThrowsIfThePreloadFails() {
+        TestScene current = new TestScene(null, false), broken = new TestScene(null, true);
+        scenes.register("current", () -> current);
+        scenes.register("broken", () -> broken);
+        scenes.loadNow("current");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> scenes.loadNow("broken"));
+        assertEquals("broken preload", e.getCause().getMessage());
+        assertSame(current, scenes.getCurrent());
+        assertFalse(scenes.isLoading());
+        assertEquals(1, broken.disposes.get());
+        assertEquals(0, current.disposes.get());
+    }
+
+    @Test
+    void keepsTheCurrentSceneIfABackgroundPreloadFails() {
+        TestScene current = new TestScene(null, false), broken = new TestScene(null, true);
+        scenes.register("current", () -> current);
+        scenes.register("broken", () -> broken);
+        scenes.loadNow("current");
+        scenes.load("broken");
+
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (scenes.isLoading()) {
+                assertFalse(scenes.update(Long.MAX_VALUE));
+                Thread.sleep(1);
+            }
+        });
+        assertSame(current, scenes.getCurrent());
+        assertEquals(1, broken.disposes.get());
+    }
+
+    /**
+     * Escena que cuenta sus pasos de carga. La precarga puede esperar a un latch o fallar.
+     */
+    private static class TestScene extends Scene {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger uploads = new AtomicInteger(), inits = new AtomicInteger(), disposes = new AtomicInteger();
+        final CountDownLatch blocked;
+        final boolean fails;
+        volatile String preloadThread;
+
+        TestScene(CountDownLatch blocked, boolean fails) {
+            this.blocked = blocked;
+            this.fails = fails;
+        }
+
+        @Override
+        public void preload() {
+            preloadThread = Thread.currentThread().getName();
+            started.countDown();
+            if (fails) throw new IllegalStateException("broken preload");
+            if (blocked == null) return;
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void upload(GLTaskQueue queue) {
+            queue.add(uploads::incrementAndGet);
+        }
+
+        @Override
+        public void init() {
+            inits.incrementAndGet();
+        }
+
+        @Override
+        public void dispose() {
+            disposes.incrementAndGet();
+        }
+
+        @Override
+        public void update(double dt) {
+
+        }
+
+    }
+
+}
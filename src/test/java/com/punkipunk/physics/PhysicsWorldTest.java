@@ -0,0 +1,136 @@
+package com.punkipunk.physics;
+
+import com.punkipunk.util.JobSystem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhysicsWorldTest {
+
+    private static final float DT = 1 / 60f;
+    private static final int STACK = 4;
+
+    @Test
+    void putsAStillBodyToSleepAfterHalfASecond() {
+        PhysicsWorld world = new PhysicsWorld();
+        world.createBox(0, 0.5f, 5, 0.5f, 0);
+        int box = world.createBox(0, 1.5f, 0.5f, 0.5f, 1);
+
+        // Medio segundo son 30 pasos, antes de los cuales no puede dormirse
+        for (int i = 0; i < 29; i++) world.step(DT);
+        assertTrue(world.isAwake(box));
+
+        int steps = stepUntilAsleep(world, box);
+        assertTrue(steps < 60, "The box took " + steps + " more steps to sleep!");
+        assertEquals(1.5f, world.getY(box), 0.01f);
+    }
+
+    @Test
+    void wakesTheWholeStackWhenItsSupportIsDestroyed() {
+        PhysicsWorld world = new PhysicsWorld();
+        int ground = world.createBox(0, 0.5f, 5, 0.5f, 0);
+        int[] stack = stack(world);
+        stepUntilAsleep(world, stack);
+        float top = world.getY(stack[STACK - 1]);
+
+        world.destroy(ground);
+        world.step(DT);
+        for (int box : stack) assertTrue(world.isAwake(box));
+
+        for (int i = 0; i < 30; i++) world.step(DT);
+        assertTrue(world.getY(stack[STACK - 1]) < top - 1, "The stack did not fall!");
+    }
+
+    @Test
+    void wakesTheWholeStackWhenItsSupportMoves() {
+        PhysicsWorld world = new PhysicsWorld();
+        int ground = world.createBox(0, 0.5f, 5, 0.5f, 0);
+        int[] stack = stack(world);
+        stepUntilAsleep(world, stack);
+        float top = world.getY(stack[STACK - 1]);
+
+        world.setPosition(ground, 0, -1.5f);
+        world.step(DT);
+        for (int box : stack) assertTrue(world.isAwake(box));
+
+        stepUntilAsleep(world, stack);
+        assertEquals(top - 2, world.getY(stack[STACK - 1]), 0.05f);
+    }
+
+    @Test
+    void wakesTheIslandOfABodyThatIsHit() {
+        PhysicsWorld world = new PhysicsWorld();
+        world.createBox(0, 0.5f, 5, 0.5f, 0);
+        int[] stack = stack(world);
+        stepUntilAsleep(world, stack);
+
+        // Solo la caja de arriba recibe el golpe, pero toda la pila es una isla
+        int ball = world.createCircle(0, 1 + STACK + 2, 0.3f, 1);
+        world.setVelocity(ball, 0, -5);
+        for (int i = 0; i < 30 && !world.isAwake(stack[0]); i++) world.step(DT);
+        for (int box : stack) assertTrue(world.isAwake(box));
+    }
+
+    @Test
+    void parallelStepsMatchSerialSteps() {
+        JobSystem jobs = new JobSystem(4);
+        try {
+            PhysicsWorld serial = bins(null), parallel = bins(jobs);
+            for (int i = 0; i < 240; i++) {
+                serial.step(DT);
+                parallel.step(DT);
+                if (i % 60 == 59) assertEquals(serial.getStateHash(), parallel.getStateHash(), "Diverged at step " + i + "!");
+            }
+            assertEquals(serial.getContactCount(), parallel.getContactCount());
+            assertEquals(serial.getIslandCount(), parallel.getIslandCount());
+        } finally {
+            jobs.shutdown();
+        }
+    }
+
+    /**
+     * Apila {@link #STACK} cajas de un metro sobre el suelo, cuya cara superior esta en y = 1.
+     */
+    private static int[] stack(PhysicsWorld world) {
+        int[] stack = new int[STACK];
+        for (int i = 0; i < STACK; i++) stack[i] = world.createBox(0, 1.5f + i, 0.5f, 0.5f, 1);
+        return stack;
+    }
+
+    /**
+     * Recipientes con pilas de cajas y circulos, como en el benchmark, para que haya varias islas que repartir entre los hilos.
+     */
+    private static PhysicsWorld bins(JobSystem jobs) {
+        PhysicsWorld world = new PhysicsWorld(jobs);
+        Random random = new Random(7);
+        for (int bin = 0; bin < 8; bin++) {
+            float left = bin * 7;
+            world.createBox(left + 3, -0.5f, 3.5f, 0.5f, 0);
+            world.createBox(left - 0.25f, 10, 0.25f, 10, 0);
+            world.createBox(left + 6.25f, 10, 0.25f, 10, 0);
+            for (int slot = 0; slot < 40; slot++) {
+                float x = left + 0.6f + (slot % 5) * 1.2f, y = 0.6f + (slot / 5) * 1.2f;
+                int body = random.nextInt(3) == 0 ? world.createCircle(x, y, 0.3f + random.nextFloat() * 0.2f, 1)
+                        : world.createBox(x, y, 0.3f + random.nextFloat() * 0.2f, 0.3f + random.nextFloat() * 0.2f, 1);
+                world.setAngle(body, random.nextFloat() - 0.5f);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * @return pasos que tardaron los cuerpos en dormirse
+     */
+    private static int stepUntilAsleep(PhysicsWorld world, int... bodies) {
+        for (int steps = 0; steps < 600; steps++) {
+            boolean asleep = true;
+            for (int body : bodies) asleep &= !world.isAwake(body);
+            if (asleep) return steps;
+            world.step(DT);
+        }
+        return fail("The bodies never fell asleep!");
+    }
+
+}
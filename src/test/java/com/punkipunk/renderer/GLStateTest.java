@@ -0,0 +1,105 @@
+package com.punkipunk.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE1;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+class GLStateTest {
+
+    private final RecordingBackend backend = new RecordingBackend();
+    private final GLState gl = new GLState(backend);
+
+    @Test
+    void skipsRepeatedBinds() {
+        for (int i = 0; i < 3; i++) {
+            gl.useProgram(1);
+            gl.bindVertexArray(2);
+            gl.bindBuffer(GL_ARRAY_BUFFER, 3);
+            gl.enable(GL_BLEND);
+            gl.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+            gl.clearColor(0.1f, 0.2f, 0.3f, 1);
+        }
+
+        assertEquals(1, backend.count("useProgram"));
+        assertEquals(1, backend.count("bindVertexArray"));
+        assertEquals(1, backend.count("bindBuffer"));
+        assertEquals(1, backend.count("enable"));
+        assertEquals(1, backend.count("blendFunc"));
+        assertEquals(1, backend.count("clearColor"));
+        assertEquals(6, gl.getIssued());
+        assertEquals(12, gl.getSkipped());
+    }
+
+    @Test
+    void tracksTexturesPerUnit() {
+        gl.activeTexture(GL_TEXTURE0);
+        gl.bindTexture(GL_TEXTURE_2D, 5);
+        gl.activeTexture(GL_TEXTURE1);
+        gl.bindTexture(GL_TEXTURE_2D, 5);
+        gl.activeTexture(GL_TEXTURE0);
+        gl.bindTexture(GL_TEXTURE_2D, 5);
+
+        assertEquals(3, backend.count("activeTexture"));
+        assertEquals(2, backend.count("bindTexture"));
+    }
+
+    @Test
+    void bindingAVertexArrayForgetsTheElementBuffer() {
+        gl.bindVertexArray(1);
+        gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 7);
+        gl.bindVertexArray(2);
+        gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 7);
+
+        assertEquals(2, backend.count("bindBuffer"));
+    }
+
+    @Test
+    void deletingABoundObjectUnbindsIt() {
+        gl.bindBuffer(GL_ARRAY_BUFFER, 3);
+        gl.deleteBuffers(3);
+        gl.bindBuffer(GL_ARRAY_BUFFER, 0);
+        gl.bindBuffer(GL_ARRAY_BUFFER, 4);
+
+        // El vinculo a 0 ya lo hizo la eliminacion
+        assertEquals(2, backend.count("bindBuffer"));
+    }
+
+    @Test
+    void skipsRepeatedUniformBufferBindings() {
+        gl.bindBufferBase(GL_UNIFORM_BUFFER, 0, 9);
+        gl.bindBufferBase(GL_UNIFORM_BUFFER, 0, 9);
+        gl.bindBufferBase(GL_UNIFORM_BUFFER, 1, 9);
+        // bindBufferBase tambien vincula el punto generico
+        gl.bindBuffer(GL_UNIFORM_BUFFER, 9);
+
+        assertEquals(2, backend.count("bindBufferBase"));
+        assertEquals(0, backend.count("bindBuffer"));
+    }
+
+    @Test
+    void invalidateIssuesEverythingAgain() {
+        gl.useProgram(1);
+        gl.disable(GL_DEPTH_TEST);
+        gl.invalidate();
+        gl.useProgram(1);
+        gl.disable(GL_DEPTH_TEST);
+
+        assertEquals(2, backend.count("useProgram"));
+        assertEquals(2, backend.count("disable"));
+    }
+
+    @Test
+    void passesUntrackedCapabilitiesThrough() {
+        gl.enable(GL_LINE_SMOOTH);
+        gl.enable(GL_LINE_SMOOTH);
+
+        assertEquals(2, backend.count("enable"));
+    }
+
+}
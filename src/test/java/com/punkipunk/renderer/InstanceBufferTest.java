@@ -0,0 +1,39 @@
+package com.punkipunk.renderer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceBufferTest {
+
+    private final InstanceBuffer buffer = new InstanceBuffer(4), source = new InstanceBuffer(4);
+
+    @AfterEach
+    void dispose() {
+        buffer.dispose();
+        source.dispose();
+    }
+
+    @Test
+    void writesOnlyInstancesBelowTheSize() {
+        assertEquals(0, buffer.add(0, 0, 1, 1, 0, 0));
+        buffer.set(0, 1, 1, 1, 1, 0, 0, 0, 0, 1, 1);
+        // Hay lugar reservado, pero la instancia 1 no existe hasta que el buffer crezca
+        assertThrows(AssertionError.class, () -> buffer.set(1, 1, 1, 1, 1, 0, 0, 0, 0, 1, 1));
+
+        buffer.resize(3);
+        buffer.set(2, 1, 1, 1, 1, 0, 0, 0, 0, 1, 1);
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void copiesOnlyInstancesBelowBothSizes() {
+        source.add(0, 0, 1, 1, 0, 0);
+        buffer.resize(1);
+        buffer.copy(0, source, 0);
+        assertThrows(AssertionError.class, () -> buffer.copy(1, source, 0));
+        assertThrows(AssertionError.class, () -> buffer.copy(0, source, 1));
+    }
+
+}
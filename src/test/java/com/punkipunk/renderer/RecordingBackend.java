@@ -0,0 +1,372 @@
+package com.punkipunk.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL20.GL_LINK_STATUS;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_LENGTH;
+
+/**
+ * Backend de prueba que no llama a OpenGL y registra las llamadas que recibe, para verificar lo que el motor emite sin GPU.
+ * <p>
+ * Cuenta las llamadas por nombre de metodo, guarda los rangos de cada {@code bufferSubData} y la cantidad de indices de cada
+ * draw call. Los programas se vinculan siempre, y si se habilitan los binarios con {@link #binarySupported}, cada programa
+ * devuelve un binario fijo que se acepta al cargarlo si conserva su formato y {@link #rejectBinaries} no lo impide.
+ */
+
+public class RecordingBackend implements GLBackend {
+
+    public static final byte[] BINARY = {1, 2, 3, 4, 5, 6, 7, 8};
+    public static final int BINARY_FORMAT = 42;
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
+    // Pares (offset, bytes) de cada bufferSubData, en orden
+    public final List<long[]> subDataRanges = new ArrayList<>();
+    // Indices de cada drawElements, en orden
+    public final List<Integer> drawnIndices = new ArrayList<>();
+    public boolean binarySupported, rejectBinaries;
+    private int nextId = 1;
+    // Resultado de vincular el ultimo programBinary, que se informa en el siguiente GL_LINK_STATUS
+    private Boolean binaryLinked;
+
+    /**
+     * @return cantidad de veces que se llamo al metodo
+     */
+    public int count(String method) {
+        return counts.getOrDefault(method, 0);
+    }
+
+    /**
+     * @return total de llamadas registradas
+     */
+    public int total() {
+        int total = 0;
+        for (int count : counts.values()) total += count;
+        return total;
+    }
+
+    public void reset() {
+        counts.clear();
+        subDataRanges.clear();
+        drawnIndices.clear();
+    }
+
+    private void record(String method) {
+        counts.merge(method, 1, Integer::sum);
+    }
+
+    @Override
+    public int genVertexArrays() {
+        record("genVertexArrays");
+        return nextId++;
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        record("bindVertexArray");
+    }
+
+    @Override
+    public void deleteVertexArrays(int vao) {
+        record("deleteVertexArrays");
+    }
+
+    @Override
+    public int genBuffers() {
+        record("genBuffers");
+        return nextId++;
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        record("bindBuffer");
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        record("bufferData");
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage) {
+        record("bufferData");
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage) {
+        record("bufferData");
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+        record("bufferSubData");
+        subDataRanges.add(new long[]{offset, (long) data.remaining() * Float.BYTES});
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        record("bufferSubData");
+        subDataRanges.add(new long[]{offset, data.remaining()});
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+        record("deleteBuffers");
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        record("vertexAttribPointer");
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        record("enableVertexAttribArray");
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+        record("disableVertexAttribArray");
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        record("vertexAttribDivisor");
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        record("drawElements");
+        drawnIndices.add(count);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instances) {
+        record("drawElementsInstanced");
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        record("clearColor");
+    }
+
+    @Override
+    public void clear(int mask) {
+        record("clear");
+    }
+
+    @Override
+    public void enable(int capability) {
+        record("enable");
+    }
+
+    @Override
+    public void disable(int capability) {
+        record("disable");
+    }
+
+    @Override
+    public void blendFunc(int sfactor, int dfactor) {
+        record("blendFunc");
+    }
+
+    @Override
+    public int genTextures() {
+        record("genTextures");
+        return nextId++;
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        record("activeTexture");
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        record("bindTexture");
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+        record("deleteTextures");
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type, ByteBuffer pixels) {
+        record("texImage2D");
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        record("texSubImage2D");
+    }
+
+    @Override
+    public void texParameteri(int target, int pname, int param) {
+        record("texParameteri");
+    }
+
+    @Override
+    public void readPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+        record("readPixels");
+    }
+
+    @Override
+    public String getString(int name) {
+        return "recording";
+    }
+
+    @Override
+    public int createShader(int type) {
+        record("createShader");
+        return nextId++;
+    }
+
+    @Override
+    public void shaderSource(int shader, CharSequence source) {
+        record("shaderSource");
+    }
+
+    @Override
+    public void compileShader(int shader) {
+        record("compileShader");
+    }
+
+    @Override
+    public int getShaderi(int shader, int pname) {
+        return 1;
+    }
+
+    @Override
+    public String getShaderInfoLog(int shader) {
+        return "";
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+        record("deleteShader");
+    }
+
+    @Override
+    public int createProgram() {
+        record("createProgram");
+        return nextId++;
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+        record("attachShader");
+    }
+
+    @Override
+    public void linkProgram(int program) {
+        record("linkProgram");
+    }
+
+    @Override
+    public int getProgrami(int program, int pname) {
+        if (pname == GL_PROGRAM_BINARY_LENGTH) return binarySupported ? BINARY.length : 0;
+        if (pname == GL_LINK_STATUS && binaryLinked != null) {
+            boolean linked = binaryLinked;
+            binaryLinked = null;
+            return linked ? 1 : 0;
+        }
+        return 1;
+    }
+
+    @Override
+    public String getProgramInfoLog(int program) {
+        return "";
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        record("deleteProgram");
+    }
+
+    @Override
+    public void useProgram(int program) {
+        record("useProgram");
+    }
+
+    @Override
+    public int getUniformLocation(int program, CharSequence name) {
+        record("getUniformLocation");
+        return uniformLocations.computeIfAbsent(program + ":" + name, key -> uniformLocations.size());
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        record("uniform1i");
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        record("uniform1f");
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        record("uniform2f");
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        record("uniform3f");
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        record("uniform4f");
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, FloatBuffer value) {
+        record("uniformMatrix4fv");
+    }
+
+    @Override
+    public int getUniformBlockIndex(int program, CharSequence name) {
+        return 0;
+    }
+
+    @Override
+    public void uniformBlockBinding(int program, int blockIndex, int binding) {
+        record("uniformBlockBinding");
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+        record("bindBufferBase");
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        return binarySupported;
+    }
+
+    @Override
+    public void programParameteri(int program, int pname, int value) {
+        record("programParameteri");
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+        record("getProgramBinary");
+        format.put(0, BINARY_FORMAT);
+        binary.put(binary.position(), BINARY);
+    }
+
+    @Override
+    public void programBinary(int program, int format, ByteBuffer binary) {
+        record("programBinary");
+        binaryLinked = !rejectBinaries && format == BINARY_FORMAT;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.punkipunk.renderer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderQueueTest {
+
+    private static final int WHITE = InstanceBuffer.color(1, 1, 1, 1);
+
+    // Guarda la coordenada x de cada instancia subida, para saber en que orden se dibujan
+    private final List<Float> uploaded = new ArrayList<>();
+    private final RecordingBackend gl = new RecordingBackend() {
+        @Override
+        public void bufferSubData(int target, long offset, ByteBuffer data) {
+            super.bufferSubData(target, offset, data);
+            ByteBuffer instances = data.duplicate().order(ByteOrder.nativeOrder());
+            for (int i = instances.position(); i < instances.limit(); i += InstanceBuffer.INSTANCE_SIZE)
+                uploaded.add(instances.getFloat(i));
+        }
+    };
+    private final RenderQueue queue = new RenderQueue(gl);
+    private final List<Shader> shaders = new ArrayList<>();
+    private final List<Texture> textures = new ArrayList<>();
+
+    @AfterEach
+    void dispose() {
+        queue.dispose();
+        shaders.forEach(Shader::dispose);
+        textures.forEach(Texture::dispose);
+    }
+
+    @Test
+    void drawsTranslucentCommandsBackToFrontAfterTheOpaqueOnes() {
+        int shader = queue.addShader(shader()), texture = queue.addTexture(texture());
+        submit(1, false, 0.5f, shader, texture, 5);
+        submit(0, true, 0.2f, shader, texture, 1);
+        submit(0, false, 0.5f, shader, texture, 2);
+        submit(0, true, 0.9f, shader, texture, 3);
+        submit(0, false, 0.1f, shader, texture, 4);
+        render();
+
+        assertEquals(List.of(2f, 4f, 3f, 1f, 5f), uploaded);
+        // Opacos de la capa 0, translucidos de la capa 0 y opacos de la capa 1
+        assertEquals(3, queue.getDrawCalls());
+        assertEquals(1, gl.count("enable"));
+        assertEquals(1, gl.count("disable"));
+    }
+
+    @Test
+    void bindsFewerProgramsAndTexturesThanTheSubmissionOrder() {
+        int[] shaderIds = {queue.addShader(shader()), queue.addShader(shader())};
+        int[] textureIds = {queue.addTexture(texture()), queue.addTexture(texture()), queue.addTexture(texture())};
+        for (int i = 0; i < 60; i++) submit(0, false, 0, shaderIds[i % 2], textureIds[i % 3], i);
+        gl.reset();
+        render();
+
+        // Una corrida por cada par de shader y textura
+        assertEquals(6, queue.getDrawCalls());
+        assertEquals(2, queue.getProgramBinds());
+        assertEquals(6, queue.getTextureBinds());
+        assertEquals(queue.getProgramBinds(), gl.count("useProgram"));
+        assertEquals(queue.getTextureBinds(), gl.count("bindTexture"));
+        assertEquals(60, queue.getUnsortedProgramBinds());
+        assertEquals(60, queue.getUnsortedTextureBinds());
+        assertEquals(60, uploaded.size());
+    }
+
+    private void submit(int layer, boolean translucent, float depth, int shader, int texture, float x) {
+        queue.submit(layer, translucent, depth, shader, texture, x, 0, 1, 1, 0, WHITE, 0, 0, 1, 1);
+    }
+
+    private void render() {
+        queue.sort();
+        queue.swap();
+        queue.render();
+    }
+
+    private Shader shader() {
+        Shader shader = new Shader(gl, "vertex", "fragment", "", "");
+        shader.compile();
+        shaders.add(shader);
+        return shader;
+    }
+
+    private Texture texture() {
+        Texture texture = new Texture(gl, 1, 1, null);
+        textures.add(texture);
+        return texture;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.punkipunk.renderer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RendererTest {
+
+    private static final int BATCH_SIZE = 8;
+    private static final long QUAD_BYTES = (long) RenderBatch.QUAD_SIZE * Float.BYTES;
+
+    private final RecordingBackend gl = new RecordingBackend();
+    private final Renderer renderer = new Renderer(gl, BATCH_SIZE);
+
+    @AfterEach
+    void dispose() {
+        renderer.dispose();
+    }
+
+    @Test
+    void splitsQuadsIntoBatchesOfTheMaximumSize() {
+        for (int i = 0; i < 2 * BATCH_SIZE + 3; i++) renderer.add(i, 0, 1, 1, 1, 1, 1, 1);
+        renderer.render();
+
+        assertEquals(3, renderer.getBatchCount());
+        assertEquals(3, renderer.getDrawCalls());
+        assertEquals(List.of(BATCH_SIZE * RenderBatch.INDICES_PER_QUAD, BATCH_SIZE * RenderBatch.INDICES_PER_QUAD,
+                3 * RenderBatch.INDICES_PER_QUAD), gl.drawnIndices);
+        // El EBO se comparte entre todos los lotes
+        assertEquals(1 + 3, gl.count("genBuffers"));
+    }
+
+    @Test
+    void startsANewBatchWhenTheTextureUnitsRunOut() {
+        for (int i = 0; i <= RenderBatch.MAX_TEXTURES; i++)
+            renderer.add(0, 0, 1, 1, 1, 1, 1, 1, new Texture(gl, 1, 1, null), 0, 0, 1, 1);
+
+        assertEquals(2, renderer.getBatchCount());
+    }
+
+    @Test
+    void reusesTheTextureUnitOfARemovedQuad() {
+        int[] handles = new int[RenderBatch.MAX_TEXTURES];
+        for (int i = 0; i < handles.length; i++)
+            handles[i] = renderer.add(0, 0, 1, 1, 1, 1, 1, 1, new Texture(gl, 1, 1, null), 0, 0, 1, 1);
+        renderer.remove(handles[3]);
+        renderer.add(0, 0, 1, 1, 1, 1, 1, 1, new Texture(gl, 1, 1, null), 0, 0, 1, 1);
+
+        assertEquals(1, renderer.getBatchCount());
+    }
+
+    @Test
+    void freesATextureUnitWhenNoQuadUsesIt() {
+        RenderBatch batch = new RenderBatch(gl, BATCH_SIZE);
+        try {
+            Texture shared = new Texture(gl, 1, 1, null), other = new Texture(gl, 1, 1, null);
+            int first = batch.addQuad(0, 0, 1, 1, 1, 1, 1, 1, shared, 0, 0, 1, 1);
+            int second = batch.addQuad(0, 0, 1, 1, 1, 1, 1, 1, shared, 0, 0, 1, 1);
+            int third = batch.addQuad(0, 0, 1, 1, 1, 1, 1, 1, other, 0, 0, 1, 1);
+            assertEquals(2, batch.getTextureCount());
+
+            batch.removeQuad(first);
+            assertEquals(2, batch.getTextureCount());
+            batch.setTexture(second, other, 0, 0, 1, 1);
+            assertEquals(1, batch.getTextureCount());
+            batch.removeQuad(third);
+            batch.removeQuad(second);
+            assertEquals(0, batch.getTextureCount());
+        } finally {
+            batch.dispose();
+        }
+    }
+
+    @Test
+    void uploadsOnlyTheDirtyRange() {
+        int[] handles = new int[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) handles[i] = renderer.add(i, 0, 1, 1, 1, 1, 1, 1);
+        renderer.render();
+        assertArrayEquals(new long[]{0, BATCH_SIZE * QUAD_BYTES}, gl.subDataRanges.get(0));
+        assertEquals((long) BATCH_SIZE * RenderBatch.VERTICES_PER_QUAD, renderer.getVerticesUploaded());
+
+        gl.reset();
+        renderer.set(handles[2], 5, 5, 1, 1, 0, 0, 0, 1);
+        renderer.set(handles[4], 5, 5, 1, 1, 0, 0, 0, 1);
+        renderer.render();
+        // Se sube el rango [2, 5) completo en una sola llamada
+        assertEquals(1, gl.subDataRanges.size());
+        assertArrayEquals(new long[]{2 * QUAD_BYTES, 3 * QUAD_BYTES}, gl.subDataRanges.get(0));
+        assertEquals(3L * RenderBatch.VERTICES_PER_QUAD, renderer.getVerticesUploaded());
+
+        gl.reset();
+        renderer.render();
+        // Sin cambios no se sube nada, pero se sigue dibujando
+        assertTrue(gl.subDataRanges.isEmpty());
+        assertEquals(0, renderer.getVerticesUploaded());
+        assertEquals(1, renderer.getDrawCalls());
+    }
+
+    @Test
+    void reusesRemovedSlotsAsDegenerateQuads() {
+        int first = renderer.add(0, 0, 1, 1, 1, 1, 1, 1);
+        renderer.add(1, 0, 1, 1, 1, 1, 1, 1);
+        renderer.remove(first);
+
+        assertEquals(first, renderer.add(2, 0, 1, 1, 1, 1, 1, 1));
+        assertEquals(1, renderer.getBatchCount());
+    }
+
+    @Test
+    void rejectsRemovingASlotTwice() {
+        RenderBatch batch = new RenderBatch(gl, BATCH_SIZE);
+        try {
+            int slot = batch.addQuad(0, 0, 1, 1, 1, 1, 1, 1);
+            batch.removeQuad(slot);
+            assertThrows(AssertionError.class, () -> batch.removeQuad(slot));
+            // La ranura quedo una sola vez en la lista de libres
+            batch.addQuad(0, 0, 1, 1, 1, 1, 1, 1);
+            assertEquals(1, batch.getQuadCount());
+        } finally {
+            batch.dispose();
+        }
+    }
+
+    @Test
+    void writesDegenerateVerticesForRemovedQuads() {
+        RenderBatch batch = new RenderBatch(gl, BATCH_SIZE);
+        try {
+            int slot = batch.addQuad(3, 4, 10, 20, 1, 1, 1, 1);
+            batch.removeQuad(slot);
+            float[] vertices = new float[RenderBatch.QUAD_SIZE];
+            batch.getVertices().get(slot * RenderBatch.QUAD_SIZE, vertices);
+            for (float value : vertices) assertEquals(0, value);
+        } finally {
+            batch.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.punkipunk.renderer;
+
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShaderLibraryTest {
+
+    private static final String VERTEX = "shaders/vertexShader.glsl";
+    private static final String FRAGMENT = "shaders/fragmentShader.glsl";
+
+    @TempDir
+    Path cache;
+
+    @Test
+    void createsEachProgramOnce() {
+        RecordingBackend gl = new RecordingBackend();
+        ShaderLibrary library = new ShaderLibrary(gl, null);
+
+        Shader shader = library.get(VERTEX, FRAGMENT);
+        assertSame(shader, library.get(VERTEX, FRAGMENT));
+        assertNotSame(shader, library.get("shaders/instancedVertex.glsl", FRAGMENT));
+
+        assertEquals(2, library.size());
+        assertEquals(2, gl.count("createProgram"));
+        library.dispose();
+        assertEquals(2, gl.count("deleteProgram"));
+    }
+
+    @Test
+    void loadsTheCachedBinaryOnTheNextStart() throws IOException {
+        RecordingBackend first = new RecordingBackend();
+        first.binarySupported = true;
+        new ShaderLibrary(first, cache).get(VERTEX, FRAGMENT);
+        assertEquals(1, first.count("getProgramBinary"));
+        assertEquals(1, first.count("programParameteri"));
+        assertEquals(1, countFiles());
+
+        RecordingBackend second = new RecordingBackend();
+        second.binarySupported = true;
+        ShaderLibrary library = new ShaderLibrary(second, cache);
+        Shader shader = library.get(VERTEX, FRAGMENT);
+
+        assertNotEquals(0, shader.getProgramID());
+        assertEquals(1, library.getBinaryHits());
+        assertEquals(0, library.getBinaryMisses());
+        assertEquals(1, second.count("programBinary"));
+        assertEquals(0, second.count("compileShader"));
+    }
+
+    @Test
+    void compilesWhenTheDriverRejectsTheBinary() throws IOException {
+        RecordingBackend first = new RecordingBackend();
+        first.binarySupported = true;
+        new ShaderLibrary(first, cache).get(VERTEX, FRAGMENT);
+
+        RecordingBackend second = new RecordingBackend();
+        second.binarySupported = true;
+        second.rejectBinaries = true;
+        ShaderLibrary library = new ShaderLibrary(second, cache);
+        library.get(VERTEX, FRAGMENT);
+
+        assertEquals(0, library.getBinaryHits());
+        assertEquals(1, library.getBinaryMisses());
+        assertEquals(2, second.count("compileShader"));
+        // El binario rechazado se reemplaza por el del programa recien compilado
+        assertEquals(1, second.count("getProgramBinary"));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void skipsTheCacheWithoutDriverSupport() throws IOException {
+        RecordingBackend gl = new RecordingBackend();
+        new ShaderLibrary(gl, cache).get(VERTEX, FRAGMENT);
+
+        assertEquals(0, gl.count("getProgramBinary"));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void skipsUniformsThatDidNotChange() {
+        RecordingBackend gl = new RecordingBackend();
+        Shader shader = new ShaderLibrary(gl, null).get(VERTEX, FRAGMENT);
+        Matrix4f matrix = new Matrix4f();
+
+        shader.uploadInt("uTexture", 1);
+        shader.uploadInt("uTexture", 1);
+        shader.uploadInt("uTexture", 2);
+        shader.uploadMat4f("uMatrix", matrix);
+        shader.uploadMat4f("uMatrix", matrix);
+        shader.uploadMat4f("uMatrix", matrix.translate(1, 0, 0));
+
+        assertEquals(4, shader.getUploads());
+        assertEquals(2, shader.getSkippedUploads());
+        assertEquals(2, gl.count("uniform1i"));
+        assertEquals(2, gl.count("uniformMatrix4fv"));
+        // Las ubicaciones se consultan una sola vez por uniform
+        assertEquals(2, gl.count("getUniformLocation"));
+    }
+
+    @Test
+    void reloadForgetsTheUniformCache() {
+        RecordingBackend gl = new RecordingBackend();
+        Shader shader = new ShaderLibrary(gl, null).get(VERTEX, FRAGMENT);
+        shader.uploadFloat("uTime", 1);
+        int program = shader.getProgramID();
+
+        assertTrue(shader.reload(shader.getVertexSource(), shader.getFragmentSource()));
+        shader.uploadFloat("uTime", 1);
+
+        assertNotEquals(program, shader.getProgramID());
+        assertEquals(2, gl.count("uniform1f"));
+        assertEquals(2, gl.count("getUniformLocation"));
+    }
+
+    private long countFiles() throws IOException {
+        if (!Files.isDirectory(cache)) return 0;
+        try (Stream<Path> files = Files.list(cache)) {
+            return files.count();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.punkipunk.renderer;
+
+import com.punkipunk.util.ResourceManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.punkipunk.util.Await.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextureLoaderTest {
+
+    private static final String BOX = "textures/box.png";
+    private static final String CIRCLE = "textures/circle.png";
+    private final RecordingBackend gl = new RecordingBackend();
+    private final ResourceManager resources = new ResourceManager(1 << 20, 1);
+    // Una sola subida en cola, para que los hilos de trabajo tengan que esperar al hilo de OpenGL
+    private final TextureLoader loader = new TextureLoader(gl, resources, 2, 1);
+
+    @AfterEach
+    void shutdown() {
+        loader.shutdown();
+        resources.shutdown();
+    }
+
+    @Test
+    void uploadsTexturesOnTheCallingThread() {
+        Texture texture = assertTimeoutPreemptively(TIMEOUT, () -> loader.await(loader.loadTexture(BOX)));
+
+        assertEquals(64, texture.getWidth());
+        assertEquals(64, texture.getHeight());
+        assertEquals(1, gl.count("texImage2D"));
+        assertEquals(64 * 64 * ImageData.CHANNELS, loader.getUploadedBytes());
+    }
+
+    @Test
+    void keepsRequestingWhileTheQueueIsFull() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            // Las imagenes ya decodificadas no deben encolar su subida en este hilo, que es el unico que vacia la cola
+            loader.await(loader.loadTexture(BOX));
+            List<CompletableFuture<Texture>> textures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) textures.add(loader.loadTexture(i % 2 == 0 ? BOX : CIRCLE));
+            for (CompletableFuture<Texture> texture : textures) {
+                while (!texture.isDone()) loader.processUploads(Long.MAX_VALUE);
+                assertNotNull(texture.join());
+            }
+        });
+
+        assertEquals(9, gl.count("texImage2D"));
+        assertEquals(0, loader.getPendingUploads());
+    }
+
+    @Test
+    void respectsTheUploadBudget() {
+        List<CompletableFuture<Texture>> textures = List.of(loader.loadTexture(BOX), loader.loadTexture(CIRCLE));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (CompletableFuture<Texture> texture : textures) {
+                while (!texture.isDone()) {
+                    // Un presupuesto de un byte procesa una sola subida por llamada
+                    assertTrue(loader.processUploads(1) <= 1);
+                    Thread.onSpinWait();
+                }
+            }
+        });
+    }
+
+    @Test
+    void packsAnAtlasAndUploadsItsPages() {
+        TextureAtlas atlas = assertTimeoutPreemptively(TIMEOUT, () -> loader.await(loader.loadAtlas(List.of(BOX, CIRCLE), 128,
+                2)));
+
+        assertEquals(2, atlas.getPageCount());
+        assertEquals(2, gl.count("texImage2D"));
+        AtlasRegion box = atlas.getRegion(BOX), circle = atlas.getRegion(CIRCLE);
+        assertEquals(64, box.width());
+        assertEquals(64, circle.height());
+        assertNotNull(atlas.getTexture(box.page()));
+        assertNotNull(atlas.getTexture(circle.page()));
+        atlas.dispose();
+    }
+
+    @Test
+    void failsForAMissingImage() {
+        CompletableFuture<Texture> texture = loader.loadTexture("textures/missing.png");
+
+        assertThrows(CompletionException.class, () -> assertTimeoutPreemptively(TIMEOUT, () -> loader.await(texture)));
+        assertEquals(0, gl.count("texImage2D"));
+    }
+
+}
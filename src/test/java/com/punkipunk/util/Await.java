@@ -0,0 +1,31 @@
+package com.punkipunk.util;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Espera de los tests que dependen de hilos de trabajo: en lugar de dormir un tiempo fijo, consultan una condicion hasta que se
+ * cumple o vence {@link #TIMEOUT}.
+ */
+
+public final class Await {
+
+    /** Limite de cualquier espera, holgado para que los tests no fallen en una maquina cargada. */
+    public static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private Await() {
+
+    }
+
+    /**
+     * Espera a que se cumpla la condicion, fallando el test si no se cumple antes de {@link #TIMEOUT}.
+     */
+    public static void until(BooleanSupplier condition) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (!condition.getAsBoolean()) Thread.sleep(1);
+        });
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.punkipunk.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LooseQuadtreeTest extends SpatialIndexTest {
+
+    @Override
+    protected SpatialIndex create() {
+        return new LooseQuadtree(-32, -32, 64, 6);
+    }
+
+    @Test
+    void keepsBoxesOutsideTheWorldInTheRoot() {
+        SpatialIndex index = create();
+        index.insert(0, 100, 100, 101, 101);
+        index.insert(1, -0.5f, -0.5f, 0.5f, 0.5f);
+        assertArrayEquals(new int[]{0}, query(index, 99, 99, 102, 102));
+        assertEquals(0, index.raycast(0, 100.5f, 1, 0, 200));
+        assertEquals(100, index.getRayDistance(), 1e-4f);
+
+        // Al entrar al mundo deja la raiz
+        index.update(0, 10, 10, 11, 11);
+        assertArrayEquals(new int[]{0}, query(index, 9, 9, 12, 12));
+        assertArrayEquals(new int[0], query(index, 99, 99, 102, 102));
+    }
+
+}
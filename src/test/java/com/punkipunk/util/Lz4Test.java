@@ -0,0 +1,58 @@
+package com.punkipunk.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Lz4Test {
+
+    @Test
+    void roundTripsCompressibleAndRandomData() throws IOException {
+        Random random = new Random(3);
+        byte[] text = "the quick brown fox jumps over the lazy dog ".repeat(200).getBytes();
+        byte[] noise = new byte[5000];
+        random.nextBytes(noise);
+        byte[] runs = new byte[70000];
+        for (int i = 0; i < runs.length; i++) runs[i] = (byte) (i / 1000);
+
+        for (byte[] data : new byte[][]{text, noise, runs, {1, 2, 3}, new byte[0]}) {
+            byte[] packed = new byte[Lz4.maxCompressedLength(data.length)];
+            int packedSize = new Lz4().compress(data, 0, data.length, packed, 0);
+            byte[] unpacked = new byte[data.length];
+            assertEquals(data.length, Lz4.decompress(packed, 0, packedSize, unpacked, 0, data.length));
+            assertArrayEquals(data, unpacked);
+        }
+    }
+
+    @Test
+    void compressesRepeatedData() {
+        byte[] data = new byte[64 * 1024];
+        Arrays.fill(data, (byte) 7);
+        byte[] packed = new byte[Lz4.maxCompressedLength(data.length)];
+        assertTrue(new Lz4().compress(data, 0, data.length, packed, 0) < data.length / 100);
+    }
+
+    @Test
+    void rejectsAnOffsetPastTheEndOfTheBlock() {
+        // Un literal y una coincidencia cuya distancia queda fuera del bloque, aunque dentro del arreglo
+        byte[] block = {0x10, 'a', 0x01, 0x00};
+        byte[] dst = new byte[16];
+        assertThrows(IOException.class, () -> Lz4.decompress(block, 0, 3, dst, 0, dst.length));
+    }
+
+    @Test
+    void rejectsCorruptBlocks() {
+        byte[] dst = new byte[16];
+        // Distancia mas alla del principio de la salida
+        assertThrows(IOException.class, () -> Lz4.decompress(new byte[]{0x10, 'a', 0x02, 0x00}, 0, 4, dst, 0, dst.length));
+        // Mas literales de los que tiene el bloque
+        assertThrows(IOException.class, () -> Lz4.decompress(new byte[]{0x50, 'a', 'b'}, 0, 3, dst, 0, dst.length));
+        // Largo extendido sin terminar
+        assertThrows(IOException.class, () -> Lz4.decompress(new byte[]{(byte) 0xF0, (byte) 255, 0}, 0, 2, dst, 0, dst.length));
+    }
+
+}
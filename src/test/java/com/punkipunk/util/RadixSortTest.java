@@ -0,0 +1,73 @@
+package com.punkipunk.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RadixSortTest {
+
+    private final RadixSort radix = new RadixSort();
+
+    @Test
+    void sortsRandomKeysLikeArraysSort() {
+        Random random = new Random(3);
+        for (int count : new int[]{0, 1, 2, 100, 10_000}) {
+            long[] keys = new long[count];
+            // Sin el bit de signo, para que el orden sin signo coincida con el de Arrays.sort
+            for (int i = 0; i < count; i++) keys[i] = random.nextLong() >>> 1;
+            long[] expected = keys.clone();
+            Arrays.sort(expected);
+
+            int[] values = sort(keys);
+            assertArrayEquals(expected, keys, "The " + count + " keys are out of order!");
+            assertSorted(keys, values);
+        }
+    }
+
+    @Test
+    void comparesKeysWithoutSign() {
+        long[] keys = {-1, 0, Long.MIN_VALUE, Long.MAX_VALUE, 1, -2};
+        sort(keys);
+        assertArrayEquals(new long[]{0, 1, Long.MAX_VALUE, Long.MIN_VALUE, -2, -1}, keys);
+    }
+
+    @Test
+    void keepsTheOrderOfEqualKeys() {
+        Random random = new Random(5);
+        long[] keys = new long[1000];
+        // Pocas claves distintas que solo difieren en los bytes altos, asi que la mayoria de las pasadas se saltean
+        for (int i = 0; i < keys.length; i++) keys[i] = (long) random.nextInt(4) << 56;
+        int[] values = sort(keys);
+
+        assertSorted(keys, values);
+        for (int i = 1; i < keys.length; i++)
+            if (keys[i] == keys[i - 1]) assertTrue(values[i] > values[i - 1], "The equal keys at " + i + " were swapped!");
+        assertEquals(1, radix.getPasses());
+    }
+
+    /**
+     * Ordena las claves junto con sus indices originales.
+     *
+     * @return indice original de cada clave ordenada
+     */
+    private int[] sort(long[] keys) {
+        long[] original = keys.clone();
+        int[] values = new int[keys.length];
+        for (int i = 0; i < values.length; i++) values[i] = i;
+        radix.sort(keys, values, keys.length);
+        // Cada valor sigue a su clave
+        for (int i = 0; i < keys.length; i++) assertEquals(original[values[i]], keys[i]);
+        return values;
+    }
+
+    private static void assertSorted(long[] keys, int[] values) {
+        int[] seen = values.clone();
+        Arrays.sort(seen);
+        for (int i = 0; i < seen.length; i++) assertEquals(i, seen[i], "The values are not a permutation!");
+        for (int i = 1; i < keys.length; i++) assertTrue(Long.compareUnsigned(keys[i - 1], keys[i]) <= 0);
+    }
+
+}
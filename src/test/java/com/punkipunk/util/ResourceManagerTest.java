@@ -0,0 +1,84 @@
+package com.punkipunk.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import static com.punkipunk.util.Await.until;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceManagerTest {
+
+    private final ResourceManager resources = new ResourceManager(100, 1);
+
+    @AfterEach
+    void shutdown() {
+        resources.shutdown();
+    }
+
+    @Test
+    void loadsEachResourceOnce() {
+        ResourceHandle<String> first = resources.load("a", () -> "a", value -> 10);
+        ResourceHandle<String> second = resources.load("a", () -> "b", value -> 10);
+
+        assertEquals("a", first.get());
+        assertEquals("a", second.get());
+        assertEquals(1, resources.getMisses());
+        assertEquals(1, resources.getHits());
+    }
+
+    @Test
+    void keepsReleasedResourcesWithinTheBudget() {
+        ResourceHandle<String> handle = resources.load("a", () -> "a", value -> 60);
+        handle.get();
+        handle.release();
+        until(() -> resources.getMemoryUsed() == 60);
+
+        // Sin referencias, pero todavia entra en el presupuesto
+        assertEquals(1, resources.getCachedCount());
+        resources.load("b", () -> "b", value -> 60).get();
+        until(() -> resources.getEvictions() == 1);
+        assertEquals(60, resources.getMemoryUsed());
+    }
+
+    @Test
+    void evictsAResourceReleasedWhileLoading() throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        ResourceHandle<String> handle = resources.load("big", () -> {
+            await(loading);
+            return "big";
+        }, value -> 500);
+        handle.release();
+        assertEquals(0, resources.getMemoryUsed());
+
+        loading.countDown();
+        until(() -> resources.getEvictions() == 1);
+
+        assertEquals(0, resources.getMemoryUsed());
+        assertEquals(0, resources.getCachedCount());
+    }
+
+    @Test
+    void retriesAFailedLoad() {
+        ResourceHandle<String> failed = resources.load("a", () -> {
+            throw new IOException("The resource could not be read!");
+        }, value -> 10);
+        until(failed::isDone);
+        assertTrue(failed.isFailed());
+        failed.release();
+
+        assertEquals("a", resources.load("a", () -> "a", value -> 10).get());
+        assertEquals(2, resources.getMisses());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.punkipunk.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpatialHashTest extends SpatialIndexTest {
+
+    @Override
+    protected SpatialIndex create() {
+        return new SpatialHash(1);
+    }
+
+    @Test
+    void reusesTheCellsOfAClearedIndex() {
+        SpatialHash index = (SpatialHash) create();
+        index.insert(0, 0.5f, 0.5f, 2.5f, 0.5f);
+        assertEquals(3, index.getCellCount());
+
+        index.clear();
+        index.insert(1, 1.5f, 0.5f, 1.5f, 0.5f);
+        assertEquals(3, index.getCellCount());
+        assertArrayEquals(new int[]{1}, query(index, 0, 0, 3, 1));
+    }
+
+}
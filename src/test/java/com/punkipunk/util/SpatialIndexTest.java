@@ -0,0 +1,101 @@
+package com.punkipunk.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas comunes a todos los {@link SpatialIndex}; cada subclase indica que indice se prueba.
+ */
+
+abstract class SpatialIndexTest {
+
+    protected abstract SpatialIndex create();
+
+    @Test
+    void findsTheBoxesThatOverlapARange() {
+        SpatialIndex index = boxes();
+        assertArrayEquals(new int[]{0, 2}, query(index, 0, 0, 1, 1));
+        assertArrayEquals(new int[]{1, 2}, query(index, 2, 2, 5.5f, 5.5f));
+        assertArrayEquals(new int[0], query(index, 20, 20, 30, 30));
+    }
+
+    @Test
+    void findsEverythingWithAnUnboundedRange() {
+        SpatialIndex index = boxes();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertArrayEquals(new int[]{0, 1, 2}, query(index, -Float.MAX_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE,
+                    Float.MAX_VALUE));
+            assertArrayEquals(new int[]{0, 1, 2}, query(index, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                    Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY));
+            assertArrayEquals(new int[0], query(index, Float.MAX_VALUE / 2, Float.MAX_VALUE / 2, Float.MAX_VALUE,
+                    Float.MAX_VALUE));
+        });
+    }
+
+    @Test
+    void raycastReturnsTheNearestHit() {
+        SpatialIndex index = boxes();
+        assertEquals(0, index.raycast(-5, 0.25f, 1, 0, 100));
+        assertEquals(5, index.getRayDistance(), 1e-5f);
+        assertEquals(1, index.raycast(10, 5.5f, -1, 0, 100));
+        assertEquals(4, index.getRayDistance(), 1e-5f);
+        // Demasiado corto, o en una direccion sin cajas
+        assertEquals(-1, index.raycast(-5, 0.25f, 1, 0, 4));
+        assertEquals(-1, index.raycast(-5, 0.25f, -1, 0, 100));
+        assertTrue(Float.isNaN(index.getRayDistance()));
+    }
+
+    @Test
+    void movesABoxAcrossCells() {
+        SpatialIndex index = boxes();
+        index.update(0, 10, 10, 11, 11);
+        assertArrayEquals(new int[]{2}, query(index, 0, 0, 1, 1));
+        assertArrayEquals(new int[]{0}, query(index, 10.5f, 10.5f, 10.5f, 10.5f));
+        assertEquals(0, index.raycast(10.5f, 0, 0, 1, 100));
+
+        // Un movimiento dentro de la misma celda tambien actualiza los limites
+        index.update(0, 10.1f, 10.1f, 10.2f, 10.2f);
+        assertArrayEquals(new int[0], query(index, 10.5f, 10.5f, 10.5f, 10.5f));
+        assertEquals(10.1f, index.getMinX(0));
+    }
+
+    @Test
+    void removesABox() {
+        SpatialIndex index = boxes();
+        index.remove(2);
+        assertFalse(index.contains(2));
+        assertEquals(2, index.size());
+        assertArrayEquals(new int[]{0}, query(index, 0, 0, 3, 3));
+        assertEquals(-1, index.raycast(1.5f, -5, 0, 1, 100));
+
+        index.insert(2, 20, 20, 21, 21);
+        assertArrayEquals(new int[]{2}, query(index, 19, 19, 22, 22));
+    }
+
+    /**
+     * Tres cajas: 0 en (0, 0)-(1, 1), 1 en (5, 5)-(6, 6) y 2 en (0.5, 0.5)-(2.5, 2.5), que ocupa varias celdas.
+     */
+    private SpatialIndex boxes() {
+        SpatialIndex index = create();
+        index.insert(0, 0, 0, 1, 1);
+        index.insert(1, 5, 5, 6, 6);
+        index.insert(2, 0.5f, 0.5f, 2.5f, 2.5f);
+        return index;
+    }
+
+    /**
+     * @return ids encontrados, ordenados
+     */
+    protected static int[] query(SpatialIndex index, float minX, float minY, float maxX, float maxY) {
+        IntArrayList out = new IntArrayList();
+        assertEquals(index.queryRange(minX, minY, maxX, maxY, out), out.size());
+        int[] ids = out.toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+}